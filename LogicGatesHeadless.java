@@ -0,0 +1,538 @@
+/* --------------------------------------------------------------------------------
+ * 							LOGIC GATES HEADLESS RUNNER
+ * --------------------------------------------------------------------------------
+ *
+ * An entry point used to simulate circuits without a display. A text circuit file
+ * (see NetlistReader) is loaded, input stimuli are applied at the specified ticks,
+ * and the circuit is simulated for a number of ticks at full speed. The values of
+ * the circuit's outputs are then printed or written to a file.
+ *
+ * A text circuit can be precompiled to a binary circuit file with -compile. A
+ * binary circuit file (see NetlistFile) is mapped into memory instead of being
+ * read, so it loads at once and stays off the Java heap. It is simulated by the
+ * levelized engine, or split between worker processes by the distributed engine,
+ * which streams it to the workers from the mapping.
+ *
+ * A circuit with clocks or flip-flops is ticked by a ClockScheduler. Ticks in
+ * which no clock changes and no stimulus is applied are skipped once the
+ * circuit has settled, so clocked circuits run at millions of cycles per
+ * second. Sequential circuits can not be precompiled.
+ *
+ * A combinational circuit can instead be checked against a list of test vectors
+ * with -vectors. Each vector sets every input once, and the outputs it settles to
+ * are printed next to it. The vectors are simulated 64 at a time by the
+ * BitParallelEngine, one vector in each bit of a net's word.
+ *
+ * Usage:
+ * 		java -Djava.awt.headless=true LogicGatesHeadless <circuit> [options]
+ *
+ * 		-stim <file>		Stimulus file, each line "<tick> <input> <0|1>"
+ * 		-vectors <file>		Test vector file, each line a 0 or 1 for every
+ * 							input in the order the inputs are declared
+ * 		-ticks <n>			Number of ticks to simulate (default 1)
+ * 		-engine <name>		levelized, event, timed, aig, bytecode, parallel,
+ * 							parallel-event or distributed (default levelized)
+ * 		-workers <n>		Worker processes of the distributed engine (default 2)
+ * 		-threads <n>		Worker threads of the parallel-event engine
+ * 							(default one per processor)
+ * 		-listen <port>		Wait on a port for workers started by hand (see
+ * 							LogicGatesWorker) instead of starting them;
+ * 							the port is open on every interface and needs
+ * 							a shared token in LOGICGATES_TOKEN
+ * 		-delays <a,o,n>		AND, OR and NOT delays of the timed engine, in ticks
+ * 		-trace				Print the outputs after every tick they change
+ * 		-out <file>			Write the outputs to a file instead of the console
+ * 		-compile <file>		Write the circuit to a binary circuit file and exit
+ * 		-optimize			Simulate the circuit reduced by the NetlistOptimizer
+ *
+ * */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import modules.AigEngine;
+import modules.BitParallelEngine;
+import modules.ClockScheduler;
+import modules.CompiledEngine;
+import modules.DistributedEngine;
+import modules.Engine;
+import modules.EventEngine;
+import modules.LevelizedEngine;
+import modules.MappedEngine;
+import modules.MappedNetlist;
+import modules.Netlist;
+import modules.NetlistFile;
+import modules.NetlistOptimizer;
+import modules.NetlistReader;
+import modules.ParallelEngine;
+import modules.ParallelEventEngine;
+import modules.TimedEngine;
+
+public class LogicGatesHeadless {
+
+	private NetlistReader circuit;					// Loaded text circuit, or null
+	private MappedNetlist mapped;					// Mapped binary circuit, or null
+	private NetlistOptimizer optimizer = null;		// Optimizer of the text circuit, or null
+	private ArrayList<String> outputNames;			// Output names
+	private Engine engine;							// Simulation engine
+	private ClockScheduler scheduler = null;		// Clocks and flip-flops of the circuit, or null
+	private long[] stimuli = new long[0];			// Sorted stimuli, packed by packStimulus
+	private boolean[][] vectors = null;				// Test vectors, or null to simulate ticks
+	private int[] outputs;							// Output nets
+	private long ticks = 1L;						// Number of ticks to simulate
+	private boolean trace = false;					// Print outputs on every change
+	private PrintStream out = System.out;			// Output stream
+	private int[] delays = TimedEngine.getDefaultDelays();	// Gate delays of the timed engine
+	private int workers = DistributedEngine.DEFAULT_WORKERS;	// Worker processes of the distributed engine
+	private int threads = Runtime.getRuntime().availableProcessors();	// Worker threads of the parallel-event engine
+	private int listenPort = -1;					// Port to wait for workers on, or -1 to start them
+
+	/* Main Method
+	 * Pre Condition: Receives the circuit file and options from the console.
+	 * 				  Runs the simulation, exits with status 1 on any error.
+	 * */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		try {
+			LogicGatesHeadless runner = new LogicGatesHeadless(args);
+			// If the circuit was not only compiled
+			if(runner.engine != null)
+				runner.run();
+		} catch(IOException | IllegalArgumentException | IllegalStateException e) {
+			System.err.println("ERROR: " + e.getMessage());
+			System.exit(1);
+		}
+	}	// end Main
+
+	/* Constructor
+	 * Pre Condition: Receives the console arguments, loads the circuit and
+	 * 				  stimuli and creates the engine.
+	 * */
+	private LogicGatesHeadless(String[] args) throws IOException {
+		String circuitFile = null, stimFile = null, vectorFile = null, engineName = "levelized", compileFile = null;
+		boolean optimize = false;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-stim":
+				stimFile = argument(args, ++i);
+				break;
+			case "-vectors":
+				vectorFile = argument(args, ++i);
+				break;
+			case "-ticks":
+				ticks = Long.parseLong(argument(args, ++i));
+				break;
+			case "-engine":
+				engineName = argument(args, ++i);
+				break;
+			case "-delays":
+				readDelays(argument(args, ++i));
+				break;
+			case "-workers":
+				workers = Integer.parseInt(argument(args, ++i));
+				break;
+			case "-threads":
+				threads = Integer.parseInt(argument(args, ++i));
+				break;
+			case "-listen":
+				listenPort = Integer.parseInt(argument(args, ++i));
+				break;
+			case "-trace":
+				trace = true;
+				break;
+			case "-out":
+				out = new PrintStream(argument(args, ++i));
+				break;
+			case "-compile":
+				compileFile = argument(args, ++i);
+				break;
+			case "-optimize":
+				optimize = true;
+				break;
+			default:
+				// If this is an unknown option or a second circuit
+				if(args[i].startsWith("-") || circuitFile != null)
+					throw new IllegalArgumentException("unknown argument '" + args[i] + "'\n" + usage());
+				circuitFile = args[i];
+			}
+		}
+		// If no circuit was given
+		if(circuitFile == null)
+			throw new IllegalArgumentException("no circuit file\n" + usage());
+
+		// If test vectors are given, they are simulated instead of ticks
+		if(vectorFile != null && (stimFile != null || compileFile != null || optimize))
+			throw new IllegalArgumentException("-vectors can not be combined with -stim, -compile or -optimize");
+
+		// If the circuit is a binary circuit file, map it
+		if(NetlistFile.isNetlistFile(new File(circuitFile))) {
+			// If test vectors are given
+			if(vectorFile != null)
+				throw new IllegalArgumentException("test vectors can not be run on a binary circuit");
+			// If another engine or the optimizer was asked for
+			if(!(engineName.equals("levelized") || engineName.equals("distributed")) || optimize)
+				throw new IllegalArgumentException("binary circuits are only simulated, unoptimized, by the levelized or distributed engine");
+			mapped = NetlistFile.map(new File(circuitFile));
+			outputNames = mapped.getOutputs();
+			outputs = new int[outputNames.size()];
+			for(int i = 0; i < outputs.length; i++)
+				outputs[i] = mapped.getOutputNet(i);
+			// If the circuit is only to be compiled
+			if(compileFile != null)
+				throw new IllegalArgumentException("circuit is already compiled");
+			// If the circuit is split between workers, they only report the outputs
+			if(engineName.equals("distributed"))
+				engine = new DistributedEngine(mapped, workers, listenPort, outputs);
+			else
+				engine = new MappedEngine(mapped);
+		} else {
+			try(FileReader fr = new FileReader(circuitFile)) {
+				circuit = new NetlistReader(fr);
+			}
+			outputNames = circuit.getOutputs();
+			outputs = new int[outputNames.size()];
+			for(int i = 0; i < outputs.length; i++)
+				outputs[i] = circuit.getNet(outputNames.get(i));
+			// If the circuit is only to be compiled
+			if(compileFile != null) {
+				// If the circuit has state, which the binary format can not describe
+				if(circuit.isSequential())
+					throw new IllegalArgumentException("clocks and flip-flops can not be written to a binary circuit");
+				NetlistFile.write(circuit.getNetlist(), circuit.getInputs(), outputNames, outputs, new File(compileFile));
+				return;
+			}
+			// If test vectors are given, simulate 64 of them at a time
+			if(vectorFile != null) {
+				// If the circuit has state, which a single settle can not reach
+				if(circuit.isSequential())
+					throw new IllegalArgumentException("test vectors can not be run on a circuit with clocks or flip-flops");
+				engine = new BitParallelEngine(circuit.getNetlist());
+				readVectors(vectorFile);
+				return;
+			}
+			// If the circuit is to be reduced, keeping the outputs
+			if(optimize) {
+				// If gate delays are simulated
+				if(engineName.equals("timed"))
+					throw new IllegalArgumentException("the timed engine can not simulate an optimized circuit");
+				int[] registers = circuit.getRegisterNets();
+				int[] observed = Arrays.copyOf(outputs, outputs.length + registers.length);
+				System.arraycopy(registers, 0, observed, outputs.length, registers.length);
+				optimizer = new NetlistOptimizer(circuit.getNetlist(), observed);
+				engine = createEngine(engineName, optimizer.getNetlist(), delays);
+			} else {
+				engine = createEngine(engineName, circuit.getNetlist(), delays);
+			}
+			scheduler = circuit.createScheduler(engine, optimizer);
+		}
+		// If there is a stimulus file
+		if(stimFile != null)
+			readStimuli(stimFile);
+	}	// end Constructor
+
+	/* Method: argument
+	 * Post Condition: Returns the value of an option, throws an exception if
+	 * 				   the value is missing.
+	 * */
+	private static String argument(String[] args, int i) {
+		if(i >= args.length)
+			throw new IllegalArgumentException("missing value for " + args[i - 1] + "\n" + usage());
+		return args[i];
+	}	// end argument
+
+	/* Method: usage
+	 * Post Condition: Returns the usage message.
+	 * */
+	private static String usage() {
+		return "usage: java -Djava.awt.headless=true LogicGatesHeadless <circuit> " +
+				"[-stim <file>] [-vectors <file>] [-ticks <n>] [-engine levelized|event|timed|aig|bytecode|parallel|parallel-event|distributed] " +
+				"[-workers <n>] [-threads <n>] [-listen <port>] [-delays <and,or,not>] " +
+				"[-trace] [-out <file>] [-compile <file>] [-optimize]";
+	}	// end usage
+
+	/* Method: readDelays
+	 * Pre Condition: Reads the AND, OR and NOT delays from a comma separated
+	 * 				  list.
+	 * */
+	private void readDelays(String list) {
+		String[] t = list.split(",");
+		// If the list does not hold three delays
+		if(t.length != 3)
+			throw new IllegalArgumentException("expected '-delays <and>,<or>,<not>'");
+		delays[Netlist.AND] = Integer.parseInt(t[0].trim());
+		delays[Netlist.OR] = Integer.parseInt(t[1].trim());
+		delays[Netlist.NOT] = Integer.parseInt(t[2].trim());
+	}	// end readDelays
+
+	/* Method: createEngine
+	 * Post Condition: Returns a new engine of the specified name.
+	 * */
+	private Engine createEngine(String name, Netlist netlist, int[] delays) {
+		switch(name) {
+		case "levelized":
+			return new LevelizedEngine(netlist);
+		case "event":
+			return new EventEngine(netlist);
+		case "timed":
+			return new TimedEngine(netlist, delays);
+		case "aig":
+			return new AigEngine(netlist);
+		case "bytecode":
+			return new CompiledEngine(netlist);
+		case "parallel":
+			return new ParallelEngine(netlist, ForkJoinPool.commonPool());
+		case "parallel-event":
+			return new ParallelEventEngine(netlist, threads);
+		case "distributed":
+			return new DistributedEngine(netlist, workers, listenPort, getObservedNets());
+		default:
+			throw new IllegalArgumentException("unknown engine '" + name + "'");
+		}
+	}	// end createEngine
+
+	/* Method: getObservedNets
+	 * Post Condition: Returns the nets of the simulated netlist read by the
+	 * 				   runner and the clock scheduler: the outputs, and the
+	 * 				   D and clock nets of every flip-flop.
+	 * */
+	private int[] getObservedNets() {
+		int[] registers = circuit.getRegisterNets();
+		int[] observed = Arrays.copyOf(outputs, outputs.length + registers.length);
+		System.arraycopy(registers, 0, observed, outputs.length, registers.length);
+		for(int i = 0; i < observed.length; i++)
+			observed[i] = ClockScheduler.resolve(optimizer, observed[i]);
+		return observed;
+	}	// end getObservedNets
+
+	/* Method: readStimuli
+	 * Pre Condition: Reads the stimulus file, each line holding a tick, an
+	 * 				  input name and a value. Stimuli are sorted by tick.
+	 * */
+	private void readStimuli(String fileName) throws IOException {
+		ArrayList<Long> list = new ArrayList<>();
+		try(BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+			String line;
+			int lineNo = 0;
+			while((line = br.readLine()) != null) {
+				lineNo++;
+				int hash = line.indexOf('#');
+				if(hash >= 0)
+					line = line.substring(0, hash);
+				line = line.trim();
+				if(line.isEmpty())
+					continue;
+				String[] t = line.split("\\s+");
+				// If the line is not a tick, input and value
+				if(t.length != 3 || !(t[2].equals("0") || t[2].equals("1")))
+					throw new IOException(fileName + " line " + lineNo + ": expected '<tick> <input> <0|1>'");
+				int src = circuit != null ? circuit.getSource(t[1]) : mapped.getSource(t[1]);
+				if(src < 0)
+					throw new IOException(fileName + " line " + lineNo + ": unknown input '" + t[1] + "'");
+				list.add(packStimulus(Long.parseLong(t[0]), src, t[2].equals("1")));
+			}
+		}
+		stimuli = new long[list.size()];
+		for(int i = 0; i < stimuli.length; i++)
+			stimuli[i] = list.get(i);
+		Arrays.sort(stimuli);
+	}	// end readStimuli
+
+	/* Method: readVectors
+	 * Pre Condition: Reads the test vector file, each line holding a 0 or 1
+	 * 				  for every input, optionally separated by spaces.
+	 * */
+	private void readVectors(String fileName) throws IOException {
+		int inputs = circuit.getInputs().size();
+		ArrayList<boolean[]> list = new ArrayList<>();
+		try(BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+			String line;
+			int lineNo = 0;
+			while((line = br.readLine()) != null) {
+				lineNo++;
+				int hash = line.indexOf('#');
+				if(hash >= 0)
+					line = line.substring(0, hash);
+				line = line.replaceAll("\\s+", "");
+				if(line.isEmpty())
+					continue;
+				// If the line does not hold a value for every input
+				if(line.length() != inputs || !line.matches("[01]*"))
+					throw new IOException(fileName + " line " + lineNo + ": expected " + inputs + " values of 0 or 1");
+				boolean[] v = new boolean[inputs];
+				for(int i = 0; i < inputs; i++)
+					v[i] = line.charAt(i) == '1';
+				list.add(v);
+			}
+		}
+		vectors = list.toArray(new boolean[list.size()][]);
+	}	// end readVectors
+
+	/* Method: packStimulus
+	 * Post Condition: Returns a stimulus packed into a long, so that sorting
+	 * 				   the packed values sorts the stimuli by tick.
+	 * */
+	private static long packStimulus(long tick, int src, boolean value) {
+		return (tick << 32) | ((long) src << 1) | (value ? 1L : 0L);
+	}	// end packStimulus
+
+	/* Method: run
+	 * Pre Condition: Simulates the circuit for the specified number of ticks,
+	 * 				  applying each stimulus before its tick. Prints the
+	 * 				  outputs and the simulation speed.
+	 * */
+	private void run() {
+		// If test vectors are given, simulate them instead of ticks
+		if(vectors != null) {
+			runVectors();
+			return;
+		}
+		int next = 0;
+		long[] last = null;
+		long start = System.nanoTime();
+		for(long t = 0; t < ticks; ) {
+			// Apply the stimuli of this tick
+			while(next < stimuli.length && (stimuli[next] >>> 32) <= t) {
+				engine.setSource((int) ((stimuli[next] & 0xffffffffL) >>> 1), (stimuli[next] & 1L) != 0);
+				next++;
+			}
+			// If the circuit has clocks or flip-flops, the scheduler ticks the engine
+			if(scheduler != null) {
+				scheduler.step();
+				if(trace)
+					last = printIfChanged(t, last);
+				// Skip the ticks before the next clock change or stimulus
+				scheduler.skipIdle(next < stimuli.length ? Math.min(stimuli[next] >>> 32, ticks) : ticks);
+				t = scheduler.getTime();
+			} else {
+				engine.tick();
+				// If the outputs are traced
+				if(trace)
+					last = printIfChanged(t, last);
+				t++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		// Print the final output values
+		for(int i = 0; i < outputs.length; i++)
+			out.println(outputNames.get(i) + " " + (getOutput(i) ? 1 : 0));
+		out.flush();
+		// If the last tick did not settle, report the nets still changing
+		int[] osc = engine.getOscillatingNets();
+		if(osc.length > 0) {
+			StringBuilder sb = new StringBuilder("oscillating nets:");
+			for(int i = 0; i < osc.length; i++) {
+				String name = getNetName(osc[i]);
+				if(name != null)
+					sb.append(' ').append(name);
+			}
+			System.err.println(sb);
+		}
+		System.err.println(ticks + " ticks in " + (elapsed / 1000000.0) + " ms (" +
+				(ticks * 1000000.0 / Math.max(elapsed, 1L)) + " ticks/ms), " +
+				(circuit != null ? circuit.getNetlist().getGateCount() : mapped.getGateCount()) + " gates" +
+				(optimizer != null ? " (" + optimizer.getNetlist().getGateCount() + " after optimizing)" : ""));
+		// If the circuit is clocked, print the clock cycles and flip-flop edges
+		if(scheduler != null) {
+			long cycles = scheduler.getCycleCount();
+			System.err.println(cycles + " clock cycles (" + (cycles * 1000.0 / Math.max(elapsed, 1L)) +
+					" cycles/us), " + scheduler.getLatchCount() + " flip-flop edges");
+		}
+		// If the engine is a graph, print its size
+		if(engine instanceof AigEngine)
+			System.err.println(((AigEngine) engine).getAig().getAndCount() + " AND nodes");
+		// If a class was generated, print how long it took
+		if(engine instanceof CompiledEngine)
+			System.err.println("evaluator generated in " + ((CompiledEngine) engine).getGenerateTime() / 1000000.0 + " ms");
+		// If the engine is timed, print the event rate
+		if(engine instanceof TimedEngine) {
+			long events = ((TimedEngine) engine).getEventCount();
+			System.err.println(events + " events (" + (events * 1000.0 / Math.max(elapsed, 1L)) + " events/us)");
+		}
+		// If the gates were split between threads, print the partitions
+		if(engine instanceof ParallelEventEngine)
+			System.err.println(((ParallelEventEngine) engine).getPartitionCount() + " partitions, " +
+					((ParallelEventEngine) engine).getGhostCount() + " ghost nets");
+		// If the circuit was split between processes, print the partitions
+		if(engine instanceof DistributedEngine)
+			System.err.println(((DistributedEngine) engine).getWorkerCount() + " worker processes, " +
+					((DistributedEngine) engine).getBoundaryCount() + " boundary nets");
+		engine.close();
+	}	// end run
+
+	/* Method: runVectors
+	 * Pre Condition: Simulates the test vectors and prints each vector
+	 * 				  followed by the outputs it settles to, then the
+	 * 				  simulation speed.
+	 * */
+	private void runVectors() {
+		long start = System.nanoTime();
+		boolean[][] results = ((BitParallelEngine) engine).run(vectors, outputs);
+		long elapsed = System.nanoTime() - start;
+		out.println("# " + String.join(" ", circuit.getInputs()) + " : " + String.join(" ", outputNames));
+		StringBuilder sb = new StringBuilder();
+		for(int v = 0; v < vectors.length; v++) {
+			sb.setLength(0);
+			for(int i = 0; i < vectors[v].length; i++)
+				sb.append(vectors[v][i] ? '1' : '0');
+			sb.append(' ');
+			for(int i = 0; i < outputs.length; i++)
+				sb.append(results[v][i] ? '1' : '0');
+			out.println(sb);
+		}
+		out.flush();
+		System.err.println(vectors.length + " vectors in " + (elapsed / 1000000.0) + " ms (" +
+				(vectors.length * 1000000.0 / Math.max(elapsed, 1L)) + " vectors/ms), " +
+				circuit.getNetlist().getGateCount() + " gates, " +
+				((BitParallelEngine) engine).getKernelName() + " gate kernels");
+	}	// end runVectors
+
+	/* Method: getOutput
+	 * Post Condition: Returns the value of an output. Outputs are observed by
+	 * 				   the optimizer, so they never need a refresh.
+	 * */
+	private boolean getOutput(int i) {
+		return optimizer != null ? optimizer.get(engine::get, outputs[i]) : engine.get(outputs[i]);
+	}	// end getOutput
+
+	/* Method: getNetName
+	 * Post Condition: Returns the name of a net, or null if it has none. Only
+	 * 				   the outputs of a binary circuit have names.
+	 * */
+	private String getNetName(int net) {
+		// If the circuit was read from text
+		if(circuit != null)
+			return circuit.getNetName(net);
+		for(int i = 0; i < outputs.length; i++) {
+			if(outputs[i] == net)
+				return outputNames.get(i);
+		}
+		return null;
+	}	// end getNetName
+
+	/* Method: printIfChanged
+	 * Pre Condition: Prints the tick and output values if they differ from
+	 * 				  the last printed values.
+	 * Post Condition: Returns the current output values.
+	 * */
+	private long[] printIfChanged(long tick, long[] last) {
+		long[] now = new long[(outputs.length + 63) >>> 6];
+		for(int i = 0; i < outputs.length; i++) {
+			if(getOutput(i))
+				now[i >>> 6] |= 1L << i;
+		}
+		// If the outputs have changed
+		if(last == null || !Arrays.equals(now, last)) {
+			StringBuilder sb = new StringBuilder().append(tick);
+			for(int i = 0; i < outputs.length; i++)
+				sb.append(' ').append(outputNames.get(i)).append('=').append(getOutput(i) ? 1 : 0);
+			out.println(sb);
+		}
+		return now;
+	}	// end printIfChanged
+}	// end LogicGatesHeadless class
@@ -34,10 +34,19 @@ import modules.NOTGate;
 import modules.ANDGate;
 import modules.ORGate;
 import modules.PSource;
+import modules.Clock;
+import modules.DFlipFlop;
 import modules.ResetButton;
 import modules.Button;
 import modules.CircuitBoard;
+import modules.CircuitStore;
 import modules.CloseButton;
+import modules.Netlist;
+import modules.SimulationThread;
+import modules.StateHistory;
+import modules.SubCircuit;
+import modules.SubCircuitDefinition;
+import modules.TimedEngine;
 
 public class LogicGatesPanel extends JPanel implements Runnable {
 	private static final long serialVersionUID = -4575627373625583132L;
@@ -80,6 +89,16 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 	private ResetButton rb;							// Reset button
 	
 	private CircuitBoard circuitBoard;				// Circuit board object
+	// Tick rates of the simulation thread, selected with the R key
+	private static final int[] TICK_RATES = { LogicGates.FPS, 1000, 100000, SimulationThread.UNBOUNDED };
+	private int tickRateIndex = 0;					// Selected tick rate
+	private static final int[] BUS_WIDTHS = { 1, 4, 8, 16, 32, 64 };	// Selectable widths of new gates
+	private int busWidthIndex = 0;					// Selected bus width
+	private int subCircuitCount = 0;				// Number of subcircuits defined
+	private int mouseX = 0, mouseY = 0;				// Last mouse location
+	private static final int SLIDER_X = 20, SLIDER_WIDTH = 1160;	// History slider location
+	private static final int SLIDER_HEIGHT = 14;	// History slider height
+	private boolean scrubbing = false;				// True while the history slider is dragged
 	
 	private Gate clickedButton = null;				// Reference to clicked gate
 
@@ -122,12 +141,18 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 			public void mousePressed(MouseEvent e) {
 				handleMouseClickEvents(e);
 			}
+			public void mouseReleased(MouseEvent e) {
+				handleMouseReleasedEvents(e);
+			}
 		});
 		
 		addMouseMotionListener( new MouseMotionAdapter() {	// Mouse movement listener
 			public void mouseMoved(MouseEvent e) {
 				handleMouseMovedEvents(e);
 			}
+			public void mouseDragged(MouseEvent e) {
+				handleMouseDraggedEvents(e);
+			}
 		});
 		
 		// Initiate FPS / UPS statistics storage
@@ -158,12 +183,15 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 		buttons.add(cb);
 		buttons.add(rb);
 		
-		bars.get(0).addButton(new ANDGate());
-		bars.get(0).addButton(new ORGate());
-		bars.get(0).addButton(new NOTGate());
-		bars.get(0).addButton(new PSource());
-		
 		circuitBoard = new CircuitBoard(0, 0, 1200, panelHeight);
+		
+		CircuitStore store = circuitBoard.getStore();
+		bars.get(0).addButton(new ANDGate(store));
+		bars.get(0).addButton(new ORGate(store));
+		bars.get(0).addButton(new NOTGate(store));
+		bars.get(0).addButton(new PSource(store));
+		bars.get(0).addButton(new Clock(store));
+		bars.get(0).addButton(new DFlipFlop(store));
 	}	// end initDisplay
 
 	/* Method: handleKeyEvents
@@ -176,8 +204,78 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 		if((kc == KeyEvent.VK_ESCAPE) || (kc == KeyEvent.VK_END)) {
 			running = false;
 		}
+		// If mode key is pressed, switch to the next simulation mode
+		if(kc == KeyEvent.VK_M) {
+			circuitBoard.setMode((circuitBoard.getMode() + 1) % CircuitBoard.NUM_MODES);
+		}
+		// If thread key is pressed, start or stop the simulation thread
+		if(kc == KeyEvent.VK_P) {
+			if(circuitBoard.getSimulationThread() == null) {
+				circuitBoard.startSimulationThread(TICK_RATES[tickRateIndex]);
+			} else {
+				circuitBoard.stopSimulationThread();
+			}
+		}
+		// If rate key is pressed, select the next simulation thread tick rate
+		if(kc == KeyEvent.VK_R) {
+			tickRateIndex = (tickRateIndex + 1) % TICK_RATES.length;
+			if(circuitBoard.getSimulationThread() != null) {
+				circuitBoard.startSimulationThread(TICK_RATES[tickRateIndex]);
+			}
+		}
+		// If export key is pressed, write the board to a circuit file
+		if(kc == KeyEvent.VK_E) {
+			circuitBoard.export("circuit.net");
+		}
+		// If truth table key is pressed, start or cancel the truth table
+		if(kc == KeyEvent.VK_T) {
+			circuitBoard.toggleTruthTable();
+		}
+		// If width key is pressed, select the next bus width of new gates
+		if(kc == KeyEvent.VK_W) {
+			busWidthIndex = (busWidthIndex + 1) % BUS_WIDTHS.length;
+			bars.get(0).setBusWidth(BUS_WIDTHS[busWidthIndex]);
+		}
+		// If subcircuit key is pressed, add the board to the side bar as a subcircuit
+		if(kc == KeyEvent.VK_S) {
+			SubCircuitDefinition d = circuitBoard.defineSubCircuit("S" + (subCircuitCount + 1));
+			if(d != null) {
+				subCircuitCount++;
+				bars.get(0).addButton(new SubCircuit(circuitBoard.getStore(), d));
+			}
+		}
+		// If cache key is pressed, cache the subcircuit under the mouse
+		if(kc == KeyEvent.VK_C) {
+			circuitBoard.toggleCache(mouseX, mouseY);
+		}
+		// If duty key is pressed, select the next duty cycle of the clock under the mouse
+		if(kc == KeyEvent.VK_D) {
+			circuitBoard.cycleDuty(mouseX, mouseY);
+		}
+		// If history key is pressed, start or stop recording the history
+		if(kc == KeyEvent.VK_H) {
+			circuitBoard.toggleHistory();
+		}
+		// If a delay key is pressed, select the next delay of that gate type
+		if(kc == KeyEvent.VK_1) {
+			cycleDelay(Netlist.AND);
+		}
+		if(kc == KeyEvent.VK_2) {
+			cycleDelay(Netlist.OR);
+		}
+		if(kc == KeyEvent.VK_3) {
+			cycleDelay(Netlist.NOT);
+		}
 	}	// end handleKeyEvents
 	
+	/* Method: cycleDelay
+	 * Pre Condition: Increases the timed mode delay of a gate type by one
+	 * 				  tick, wrapping back to one tick after the maximum.
+	 * */
+	private void cycleDelay(int gateType) {
+		circuitBoard.setDelay(gateType, circuitBoard.getDelay(gateType) % TimedEngine.MAX_DELAY + 1);
+	}	// end cycleDelay
+	
 	/* Method: handleMouseClickEvents
 	 * Pre Condition: Receives mouse event and executes responding
 	 * 				  methods accordingly.
@@ -206,6 +304,12 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 		int x = e.getX();
 		int y = e.getY();
 		
+		// If mouse is over the history slider, scrub to the tick under it
+		if(onSlider(x, y)) {
+			scrubbing = true;
+			scrubTo(x);
+			return;
+		}
 		// If mouse is over the close button
 		if(cb.onHover(x, y)) {
 			cb.click();
@@ -256,6 +360,89 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 		circuitBoard.onRightClick(x, y);
 	}	// end rightMouseButtonClicked
 	
+	/* Method: handleMouseReleasedEvents
+	 * Pre Condition: Receives mouse event. If the history slider was being
+	 * 				  dragged, the simulation continues from the tick shown.
+	 * */
+	private void handleMouseReleasedEvents(MouseEvent e) {
+		// If the history slider was being dragged
+		if(scrubbing) {
+			scrubbing = false;
+			circuitBoard.endScrub();
+		}
+	}	// end handleMouseReleasedEvents
+	
+	/* Method: handleMouseDraggedEvents
+	 * Pre Condition: Receives mouse event. Scrubs the history to the tick
+	 * 				  under the mouse while the slider is being dragged.
+	 * */
+	private void handleMouseDraggedEvents(MouseEvent e) {
+		mouseX = e.getX();
+		mouseY = e.getY();
+		// If the history slider is being dragged
+		if(scrubbing) {
+			scrubTo(mouseX);
+		}
+	}	// end handleMouseDraggedEvents
+	
+	/* Method: onSlider
+	 * Post Condition: Returns true if the history is recorded and the
+	 * 				   location is over its slider.
+	 * */
+	private boolean onSlider(int x, int y) {
+		int top = panelHeight - 40;
+		return circuitBoard.getHistory() != null && x >= SLIDER_X && x < SLIDER_X + SLIDER_WIDTH && 
+				y >= top - 4 && y < top + SLIDER_HEIGHT + 4;
+	}	// end onSlider
+	
+	/* Method: scrubTo
+	 * Pre Condition: Shows the recorded tick at a location of the history
+	 * 				  slider, the oldest recorded tick at its left end and
+	 * 				  the newest at its right end.
+	 * */
+	private void scrubTo(int x) {
+		StateHistory h = circuitBoard.getHistory();
+		// If nothing has been recorded
+		if(h == null || h.isEmpty()) {
+			return;
+		}
+		long oldest = h.getOldestTick();
+		long newest = h.getNewestTick();
+		double f = Math.max(0.0, Math.min(1.0, (x - SLIDER_X) / (double) SLIDER_WIDTH));
+		circuitBoard.scrub(oldest + Math.round(f * (newest - oldest)));
+	}	// end scrubTo
+	
+	/* Method: drawSlider
+	 * Pre Condition: Draws the history slider, marking the tick being shown,
+	 * 				  along with the recorded range and memory used.
+	 * */
+	private void drawSlider(Graphics2D g) {
+		StateHistory h = circuitBoard.getHistory();
+		// If the history is not recorded for a compiled board
+		if(h == null || h.isEmpty()) {
+			return;
+		}
+		int top = panelHeight - 40;
+		long oldest = h.getOldestTick();
+		long newest = h.getNewestTick();
+		long shown = circuitBoard.getScrubTick();
+		// If the history is not being scrubbed, the newest tick is shown
+		if(shown < 0) {
+			shown = newest;
+		}
+		int pos = SLIDER_X + (newest == oldest ? SLIDER_WIDTH : 
+				(int) ((shown - oldest) * SLIDER_WIDTH / (newest - oldest)));
+		g.setColor(new Color(90, 90, 80));
+		g.fillRect(SLIDER_X, top, SLIDER_WIDTH, SLIDER_HEIGHT);
+		g.setColor(new Color(60, 180, 220));
+		g.fillRect(SLIDER_X, top, pos - SLIDER_X, SLIDER_HEIGHT);
+		g.fillRect(pos - 3, top - 4, 6, SLIDER_HEIGHT + 8);
+		g.setColor(Color.white);
+		g.setFont(font);
+		g.drawString("History (H): tick " + shown + " of " + oldest + " - " + newest + 
+				", " + h.getMemoryUse() / 1024 + " KB", SLIDER_X, top - 8);
+	}	// end drawSlider
+	
 	/* Method: handleMouseMovedEvents
 	 * Pre Condition: Receives mouse event and executes responding
 	 * 				  methods accordingly.
@@ -264,6 +451,8 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 		// Get mouse location on the screen
 		int x = e.getX();
 		int y = e.getY();
+		mouseX = x;
+		mouseY = y;
 		boolean isHovering = false;
 		
 		// If mouse is over the close button
@@ -276,6 +465,11 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 			isHovering = true;
 			this.setCursor(new Cursor(Cursor.HAND_CURSOR));
 		}
+		// If mouse is over the history slider
+		if(onSlider(x, y)) {
+			isHovering = true;
+			this.setCursor(new Cursor(Cursor.HAND_CURSOR));
+		}
 		// If mouse is over the side bar
 		if(bars.get(0).isHovering(x, y)) {
 			isHovering = true;
@@ -425,6 +619,7 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 		
 		// Draw all objects from the following
 		drawCircuitBoard(dbg);
+		drawSlider(dbg);
 		drawPanelBars(dbg);
 		drawButtons(dbg);
 		
@@ -433,6 +628,14 @@ public class LogicGatesPanel extends JPanel implements Runnable {
 		dbg.setFont(font);
 		dbg.drawString("Average FPS: " + df.format(averageFPS), 20, 25);
 		dbg.drawString("Average UPS: " + df.format(averageUPS), 20, 40);
+		dbg.drawString("Simulation: " + circuitBoard.getModeName() + " (M)", 20, 55);
+		dbg.drawString(circuitBoard.getStatus(), 20, 70);
+		SimulationThread st = circuitBoard.getSimulationThread();
+		int rate = TICK_RATES[tickRateIndex];
+		dbg.drawString("Sim thread (P/R): " + 
+				(st == null ? "off" : (rate == SimulationThread.UNBOUNDED ? "max" : rate) + 
+						" tps, measured " + df.format(st.getMeasuredRate())), 20, 85);
+		dbg.drawString("Bus width (W): " + BUS_WIDTHS[busWidthIndex] + " bit", 20, 100);
 		
 	}	// end panelRender
 	
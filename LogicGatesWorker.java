@@ -0,0 +1,49 @@
+/* --------------------------------------------------------------------------------
+ * 							LOGIC GATES WORKER
+ * --------------------------------------------------------------------------------
+ *
+ * An entry point run as a worker process of a distributed simulation (see
+ * DistributedEngine). The worker connects to the coordinator, simulates the
+ * partition of the circuit it is sent, and exits when the coordinator stops it.
+ *
+ * Workers are started by the coordinator on the same host. For a cluster, the
+ * coordinator is told to listen on a port and the workers are started by hand,
+ * with the token set for the coordinator in the LOGICGATES_TOKEN environment
+ * variable:
+ *
+ * 		LOGICGATES_TOKEN=<token> java LogicGatesWorker <coordinator host> <port>
+ *
+ * */
+
+import java.io.IOException;
+
+import modules.DistributedEngine;
+import modules.DistributedWorker;
+
+public class LogicGatesWorker {
+
+	/* Main Method
+	 * Pre Condition: Receives the host and port of the coordinator, and reads
+	 * 				  the shared token from the environment. Exits with status
+	 * 				  1 on any error.
+	 * */
+	public static void main(String[] args) {
+		// If the coordinator was not given
+		if(args.length != 2) {
+			System.err.println("usage: java LogicGatesWorker <coordinator host> <port>");
+			System.exit(1);
+		}
+		String token = System.getenv(DistributedEngine.TOKEN_VARIABLE);
+		// If the token shared with the coordinator was not given
+		if(token == null || token.isEmpty()) {
+			System.err.println("ERROR: set the coordinator's token in " + DistributedEngine.TOKEN_VARIABLE);
+			System.exit(1);
+		}
+		try {
+			new DistributedWorker(args[0], Integer.parseInt(args[1]), token).run();
+		} catch(IOException | NumberFormatException e) {
+			System.err.println("ERROR: " + e.getMessage());
+			System.exit(1);
+		}
+	}	// end Main
+}	// end LogicGatesWorker class
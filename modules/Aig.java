@@ -0,0 +1,160 @@
+/* --------------------------------------------------------------------------------
+ * 								Aig
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a Netlist converted into an And-Inverter Graph. Every
+ * node of the graph is a two input AND, and each input may be complemented, so
+ * a NOT gate costs nothing and an OR gate is an AND of complemented inputs with
+ * a complemented output. Node 0 is the constant false, followed by one node per
+ * source, one node per feedback net and then the AND nodes in evaluation order.
+ *
+ * A signal is a literal, (node << 1) | complement. AND nodes are structurally
+ * hashed: an AND of the same two literals is only created once, so logic that
+ * has been copied on the board shares the same nodes. ANDs with a constant, two
+ * equal or two complementary literals are folded away.
+ *
+ * Gates in feedback loops are converted in the order of the loop level. A loop
+ * net read before its gate is converted is read from a feedback node, which is
+ * updated from the gate after each pass over the loop nodes.
+ *
+ * */
+
+package modules;
+
+import java.util.Arrays;
+
+public class Aig {
+
+	public static final int FALSE = 0;		// Literal of constant false
+	public static final int TRUE = 1;		// Literal of constant true
+
+	final int sourceCount;					// Number of source nodes
+	final int feedbackCount;				// Number of feedback nodes
+	final int andStart;						// First AND node
+	final int loopStart;					// First AND node of the loop level
+	int nodeCount;							// Number of nodes
+
+	final int[] fanin0;						// First input literal of each node
+	final int[] fanin1;						// Second input literal of each node
+	final int[] netLit;						// Literal of each net
+	final int[] fbNet;						// Net of each feedback node
+	final int[] fbLit;						// Literal updating each feedback node
+
+	private int[] table;					// Hash table of AND nodes, 0 if empty
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be converted.
+	 * */
+	public Aig(Netlist netlist) {
+		sourceCount = netlist.srcNet.length;
+		netLit = new int[netlist.netCount];
+		for(int s = 0; s < sourceCount; s++)
+			netLit[netlist.srcNet[s]] = (1 + s) << 1;
+
+		// Find the loop nets read before their gate
+		int[] driver = new int[netlist.netCount];
+		Arrays.fill(driver, -1);
+		for(int g = 0; g < netlist.gateCount; g++)
+			driver[netlist.out[g]] = g;
+		boolean[] isFeedback = new boolean[netlist.netCount];
+		IntList fb = new IntList();
+		for(int g = netlist.loopStart; g < netlist.gateCount; g++) {
+			for(int k = 0; k < 2; k++) {
+				int n = k == 0 ? netlist.in1[g] : netlist.in2[g];
+				// If this net is driven by this gate or a later one
+				if(driver[n] >= g && !isFeedback[n]) {
+					isFeedback[n] = true;
+					fb.add(n);
+				}
+			}
+		}
+		fbNet = fb.toArray();
+		feedbackCount = fbNet.length;
+		fbLit = new int[feedbackCount];
+		andStart = 1 + sourceCount + feedbackCount;
+		for(int f = 0; f < feedbackCount; f++)
+			netLit[fbNet[f]] = (1 + sourceCount + f) << 1;
+
+		// Convert each gate, in evaluation order
+		fanin0 = new int[andStart + netlist.gateCount];
+		fanin1 = new int[andStart + netlist.gateCount];
+		table = new int[Integer.highestOneBit(Math.max(netlist.gateCount, 8)) << 2];
+		nodeCount = andStart;
+		int loopNode = -1;
+		for(int g = 0; g < netlist.gateCount; g++) {
+			// If this is the first gate of the loop level
+			if(g == netlist.loopStart)
+				loopNode = nodeCount;
+			int a = netLit[netlist.in1[g]];
+			int b = netLit[netlist.in2[g]];
+			switch(netlist.type[g]) {
+			case Netlist.AND:
+				netLit[netlist.out[g]] = and(a, b);
+				break;
+			case Netlist.OR:
+				netLit[netlist.out[g]] = and(a ^ 1, b ^ 1) ^ 1;
+				break;
+			default:
+				netLit[netlist.out[g]] = a ^ 1;
+			}
+		}
+		loopStart = loopNode < 0 ? nodeCount : loopNode;
+		for(int f = 0; f < feedbackCount; f++)
+			fbLit[f] = netLit[fbNet[f]];
+		table = null;
+	}	// end Constructor
+
+	/* Method: and
+	 * Post Condition: Returns the literal of the AND of two literals, reusing
+	 * 				   an existing node if there is one.
+	 * */
+	private int and(int a, int b) {
+		// Order the inputs so that equal ANDs have equal keys
+		if(a > b) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		if(a == FALSE || a == (b ^ 1))
+			return FALSE;
+		if(a == TRUE || a == b)
+			return b;
+		int mask = table.length - 1;
+		int h = a * 0x9E3779B1 + b * 0x85EBCA77;
+		int i = (h ^ (h >>> 16)) & mask;
+		// Probe until the node or an empty slot is found
+		while(table[i] != 0) {
+			int n = table[i];
+			if(fanin0[n] == a && fanin1[n] == b)
+				return n << 1;
+			i = (i + 1) & mask;
+		}
+		int n = nodeCount++;
+		fanin0[n] = a;
+		fanin1[n] = b;
+		table[i] = n;
+		return n << 1;
+	}	// end and
+
+	/* Method: getNodeCount
+	 * Post Condition: Returns the number of nodes, including the constant,
+	 * 				   source and feedback nodes.
+	 * */
+	public int getNodeCount() {
+		return nodeCount;
+	}	// end getNodeCount
+
+	/* Method: getAndCount
+	 * Post Condition: Returns the number of AND nodes.
+	 * */
+	public int getAndCount() {
+		return nodeCount - andStart;
+	}	// end getAndCount
+
+	/* Method: getFeedbackCount
+	 * Post Condition: Returns the number of feedback nodes.
+	 * */
+	public int getFeedbackCount() {
+		return feedbackCount;
+	}	// end getFeedbackCount
+}	// end Aig class
@@ -0,0 +1,143 @@
+/* --------------------------------------------------------------------------------
+ * 								AigEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a simulation engine that evaluates a Netlist converted
+ * into an And-Inverter Graph (see Aig). Every node is evaluated by the same
+ * branch-free AND of two possibly complemented values, in a single pass over the
+ * node arrays. Logic shared by structural hashing is evaluated only once.
+ *
+ * The nodes of the feedback loop level are evaluated again, and the feedback
+ * nodes updated, until no feedback node changes, up to SETTLE_LIMIT passes.
+ *
+ * */
+
+package modules;
+
+public class AigEngine extends Engine {
+
+	private final Aig aig;					// Simulated graph
+	private final int[] value;				// Value of each node, 0 or 1
+	private final int[] next;				// Next value of each feedback node
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated, which is converted
+	 * 				  into an And-Inverter Graph.
+	 * */
+	public AigEngine(Netlist netlist) {
+		super(netlist);
+		requireSingleBit(netlist, "AIG");
+		aig = new Aig(netlist);
+		value = new int[aig.nodeCount];
+		next = new int[aig.feedbackCount];
+	}	// end Constructor
+
+	/* Method: getAig
+	 * Post Condition: Returns the simulated graph.
+	 * */
+	public Aig getAig() {
+		return aig;
+	}	// end getAig
+
+	/* Method: tick
+	 * Pre Condition: Evaluates every AND node in order, then settles the
+	 * 				  feedback loop nodes.
+	 * */
+	@Override
+	public void tick() {
+		evaluate(aig.andStart, aig.loopStart);
+		oscillating = NONE;
+		// If the graph has feedback loops
+		if(aig.loopStart < aig.nodeCount || aig.feedbackCount > 0) {
+			int passes = 0;
+			do {
+				evaluate(aig.loopStart, aig.nodeCount);
+				// If the loops have not settled, record the nets still changing
+				if(++passes > SETTLE_LIMIT) {
+					IntList changed = new IntList();
+					updateFeedback(changed);
+					oscillating = changed.toArray();
+					break;
+				}
+			} while(updateFeedback(null));
+		}
+	}	// end tick
+
+	/* Method: evaluate
+	 * Pre Condition: Evaluates a range of AND nodes.
+	 * */
+	private void evaluate(int from, int to) {
+		final int[] f0 = aig.fanin0;
+		final int[] f1 = aig.fanin1;
+		final int[] v = value;
+		for(int n = from; n < to; n++) {
+			int a = f0[n], b = f1[n];
+			v[n] = (v[a >>> 1] ^ (a & 1)) & (v[b >>> 1] ^ (b & 1));
+		}
+	}	// end evaluate
+
+	/* Method: updateFeedback
+	 * Pre Condition: Sets each feedback node to the value of the literal
+	 * 				  driving it, adding the net of each changed node to the
+	 * 				  list, if there is one. All literals are read before any
+	 * 				  node is set, as a literal may be another feedback node.
+	 * Post Condition: Returns true if any feedback node changed.
+	 * */
+	private boolean updateFeedback(IntList changed) {
+		final int base = 1 + aig.sourceCount;
+		for(int f = 0; f < aig.feedbackCount; f++)
+			next[f] = literal(aig.fbLit[f]);
+		boolean change = false;
+		for(int f = 0; f < aig.feedbackCount; f++) {
+			// If this feedback node changes
+			if(value[base + f] != next[f]) {
+				value[base + f] = next[f];
+				change = true;
+				if(changed != null)
+					changed.add(aig.fbNet[f]);
+			}
+		}
+		return change;
+	}	// end updateFeedback
+
+	/* Method: literal
+	 * Post Condition: Returns the value of a literal, 0 or 1.
+	 * */
+	private int literal(int lit) {
+		return value[lit >>> 1] ^ (lit & 1);
+	}	// end literal
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return literal(aig.netLit[net]) != 0;
+	}	// end get
+
+	/* Method: load
+	 * Pre Condition: Sets the source and feedback nodes to the values of
+	 * 				  their nets in a snapshot, and evaluates every AND node
+	 * 				  from them. The source and feedback nodes are the whole
+	 * 				  state of the engine.
+	 * Post Condition: Returns true.
+	 * */
+	@Override
+	public boolean load(Snapshot s) {
+		for(int src = 0; src < aig.sourceCount; src++)
+			value[1 + src] = s.get(netlist.srcNet[src]) ? 1 : 0;
+		for(int f = 0; f < aig.feedbackCount; f++)
+			value[1 + aig.sourceCount + f] = s.get(aig.fbNet[f]) ? 1 : 0;
+		evaluate(aig.andStart, aig.nodeCount);
+		oscillating = NONE;
+		return true;
+	}	// end load
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's node.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		this.value[1 + src] = value ? 1 : 0;
+	}	// end setSource
+}	// end AigEngine class
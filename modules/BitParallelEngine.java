@@ -0,0 +1,248 @@
+/* --------------------------------------------------------------------------------
+ * 								BitParallelEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a simulation engine where each net holds a 64 bit word
+ * instead of a single charge. Bit i of every net belongs to input vector i, so
+ * each AND, OR and NOT is a single bitwise operation that evaluates the gate for
+ * 64 input vectors at once. Used for batch runs of test vectors.
+ *
+ * The gates of each level only read nets driven by earlier levels, so they are
+ * sorted by type into runs of ANDs, ORs and NOTs, each evaluated by one loop of
+ * the GateKernels: the vector kernels evaluate several gates per instruction on
+ * CPUs with SIMD registers, the scalar kernels one at a time. The engine numbers
+ * its own value slots: nets not driven by a gate come first, then the output of
+ * each gate in the sorted order, so each run stores its outputs in order. Gates
+ * in feedback loops are evaluated in their netlist order until they settle.
+ *
+ * Vectors are given to run, which packs a different vector into each bit. The
+ * Engine methods set all 64 bits of a source to its charge and read the charge
+ * of a net from bit 0, so the engine is not offered for stimulus runs, where 63
+ * of the bits would repeat the first.
+ *
+ * */
+
+package modules;
+
+public class BitParallelEngine extends Engine {
+
+	public static final int WIDTH = 64;		// Input vectors per pass
+
+	private final GateKernels kernels;		// Loops evaluating the runs of gates
+	private final int base;					// Slot of the output of the first sorted gate
+	private final int[] slot;				// Value slot of each net
+	private final int[] order;				// Gate at each sorted position
+	private final int[] in1;				// First input slot of each sorted gate
+	private final int[] in2;				// Second input slot of each sorted gate
+	private final int[] runStart;			// First sorted gate of each run, with an end marker
+	private final byte[] runType;			// Gate type of each run
+	private final long[] value;				// Value word of each slot
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated, evaluated by the
+	 * 				  kernels selected in GateKernels.
+	 * */
+	public BitParallelEngine(Netlist netlist) {
+		this(netlist, GateKernels.get());
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated and the kernels to
+	 * 				  evaluate it with.
+	 * */
+	public BitParallelEngine(Netlist netlist, GateKernels kernels) {
+		super(netlist);
+		requireSingleBit(netlist, "bit-parallel");
+		this.kernels = kernels;
+		// Number the nets not driven by a gate first
+		boolean[] driven = new boolean[netlist.netCount];
+		for(int g = 0; g < netlist.gateCount; g++)
+			driven[netlist.out[g]] = true;
+		slot = new int[netlist.netCount];
+		int k = 0;
+		for(int n = 0; n < netlist.netCount; n++) {
+			if(!driven[n])
+				slot[n] = k++;
+		}
+		base = k;
+
+		// Sort the gates of each level into runs by type, the loop level stays in order
+		order = new int[netlist.gateCount];
+		IntList starts = new IntList();
+		IntList types = new IntList();
+		int p = 0;
+		for(int l = 0; l < netlist.levelCount && netlist.levelStart[l] < netlist.loopStart; l++) {
+			int start = netlist.levelStart[l], end = Math.min(netlist.levelStart[l + 1], netlist.loopStart);
+			for(int t = Netlist.AND; t <= Netlist.NOT; t++) {
+				int first = p;
+				for(int g = start; g < end; g++) {
+					if(netlist.type[g] == t)
+						order[p++] = g;
+				}
+				// If the level has gates of this type, they form a run
+				if(p > first) {
+					starts.add(first);
+					types.add(t);
+				}
+			}
+		}
+		for(int g = netlist.loopStart; g < netlist.gateCount; g++)
+			order[p++] = g;
+		starts.add(netlist.loopStart);
+		runStart = starts.toArray();
+		runType = new byte[types.size()];
+		for(int r = 0; r < runType.length; r++)
+			runType[r] = (byte) types.get(r);
+		for(int i = 0; i < order.length; i++)
+			slot[netlist.out[order[i]]] = base + i;
+		in1 = new int[order.length];
+		in2 = new int[order.length];
+		for(int i = 0; i < order.length; i++) {
+			in1[i] = slot[netlist.in1[order[i]]];
+			in2[i] = slot[netlist.in2[order[i]]];
+		}
+		value = new long[base + netlist.gateCount];
+	}	// end Constructor
+
+	/* Method: tick
+	 * Pre Condition: Evaluates the runs of gates in level order, for all 64
+	 * 				  input vectors, then settles the feedback loop level.
+	 * */
+	@Override
+	public void tick() {
+		for(int r = 0; r < runType.length; r++) {
+			switch(runType[r]) {
+			case Netlist.AND:
+				kernels.and(value, in1, in2, base, runStart[r], runStart[r + 1]);
+				break;
+			case Netlist.OR:
+				kernels.or(value, in1, in2, base, runStart[r], runStart[r + 1]);
+				break;
+			default:
+				kernels.not(value, in1, base, runStart[r], runStart[r + 1]);
+			}
+		}
+		oscillating = NONE;
+		// If the netlist has feedback loops
+		if(netlist.loopStart < netlist.gateCount) {
+			int passes = 0;
+			// Evaluate the loop level until no net changes in any vector
+			while(evaluate(netlist.loopStart, netlist.gateCount, null)) {
+				// If the loops have not settled, record the nets still changing
+				if(++passes == SETTLE_LIMIT) {
+					IntList changed = new IntList();
+					evaluate(netlist.loopStart, netlist.gateCount, changed);
+					oscillating = changed.toArray();
+					break;
+				}
+			}
+		}
+	}	// end tick
+
+	/* Method: evaluate
+	 * Pre Condition: Evaluates a range of sorted gates one at a time, adding
+	 * 				  the output net of each gate that changes to the list, if
+	 * 				  there is one.
+	 * Post Condition: Returns true if any output net changed.
+	 * */
+	private boolean evaluate(int from, int to, IntList changed) {
+		final byte[] type = netlist.type;
+		final int[] a = in1;
+		final int[] b = in2;
+		final long[] v = value;
+		final int o = base;
+		long change = 0L;
+		for(int i = from; i < to; i++) {
+			long result;
+			switch(type[order[i]]) {
+			case Netlist.AND:
+				result = v[a[i]] & v[b[i]];
+				break;
+			case Netlist.OR:
+				result = v[a[i]] | v[b[i]];
+				break;
+			default:
+				result = ~v[a[i]];
+			}
+			long diff = v[o + i] ^ result;
+			v[o + i] = result;
+			change |= diff;
+			if(changed != null && diff != 0L)
+				changed.add(netlist.out[order[i]]);
+		}
+		return change != 0L;
+	}	// end evaluate
+
+	/* Method: getKernelName
+	 * Post Condition: Returns the name of the kernels evaluating the gates.
+	 * */
+	public String getKernelName() {
+		return kernels.getName();
+	}	// end getKernelName
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net for the first
+	 * 				   input vector.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return (value[slot[net]] & 1L) != 0;
+	}	// end get
+
+	/* Method: getWord
+	 * Post Condition: Returns the value word of the specified net.
+	 * */
+	public long getWord(int net) {
+		return value[slot[net]];
+	}	// end getWord
+
+	/* Method: setSource
+	 * Pre Condition: Sets the specified source's net to the same value for
+	 * 				  all input vectors.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		this.value[slot[netlist.srcNet[src]]] = value ? -1L : 0L;
+	}	// end setSource
+
+	/* Method: setSourceWord
+	 * Pre Condition: Sets the specified source's net to a value word, bit i
+	 * 				  holding the source value of input vector i.
+	 * */
+	public void setSourceWord(int src, long word) {
+		value[slot[netlist.srcNet[src]]] = word;
+	}	// end setSourceWord
+
+	/* Method: run
+	 * Pre Condition: Receives a list of input vectors, each holding a value
+	 * 				  for every source, and the nets to be recorded. Vectors
+	 * 				  are simulated 64 at a time.
+	 * Post Condition: Returns the value of each recorded net, for each input
+	 * 				   vector.
+	 * */
+	public boolean[][] run(boolean[][] vectors, int[] probes) {
+		boolean[][] results = new boolean[vectors.length][probes.length];
+		int sources = netlist.getSourceCount();
+		// For each block of 64 vectors
+		for(int base = 0; base < vectors.length; base += WIDTH) {
+			int count = Math.min(WIDTH, vectors.length - base);
+			// Pack the source values of the block into words
+			for(int s = 0; s < sources; s++) {
+				long word = 0L;
+				for(int i = 0; i < count; i++) {
+					if(vectors[base + i][s])
+						word |= 1L << i;
+				}
+				setSourceWord(s, word);
+			}
+			tick();
+			// Unpack the recorded nets (a negative net is never charged)
+			for(int p = 0; p < probes.length; p++) {
+				long word = probes[p] < 0 ? 0L : value[slot[probes[p]]];
+				for(int i = 0; i < count; i++)
+					results[base + i][p] = ((word >>> i) & 1L) != 0;
+			}
+		}
+		return results;
+	}	// end run
+}	// end BitParallelEngine class
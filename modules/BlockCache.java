@@ -0,0 +1,212 @@
+/* --------------------------------------------------------------------------------
+ * 								BlockCache
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a bounded cache of the outputs of a combinational block,
+ * keyed by the values of its inputs packed into a long. Used by a cached
+ * SubCircuit to skip evaluating its body for input vectors it has seen before.
+ *
+ * Entries are held in slots, found through an open addressing table of slot
+ * indices. When every slot is taken, a slot is chosen for reuse by the CLOCK
+ * policy: the hand passes over the slots, clearing the referenced flag of each
+ * until it reaches one that has not been read since the hand last passed it.
+ *
+ * The hits and misses of every WINDOW lookups are compared. If fewer than one in
+ * MIN_HIT_RATE lookups of a window hit, the cache turns itself off and its
+ * entries are released, since the block then costs more to look up than it does
+ * to evaluate.
+ *
+ * */
+
+package modules;
+
+public class BlockCache {
+
+	public static final int DEFAULT_CAPACITY = 1024;	// Default number of entries
+	private static final int WINDOW = 1024;				// Lookups between hit rate checks
+	private static final int MIN_HIT_RATE = 4;			// One hit in this many lookups needed
+
+	private final int outputs;				// Number of outputs per entry
+	private final int capacity;				// Maximum number of entries
+	private long[] keys;					// Input vector of each slot
+	private long[] values;					// Outputs of each slot, outputs per slot
+	private boolean[] referenced;			// Slot read since the hand last passed it
+	private int[] tablePos;					// Table position of each slot
+	private int[] table;					// Slot + 1 at each position, 0 if empty
+	private final int mask;					// Table size - 1
+	private int size = 0;					// Number of slots taken
+	private int hand = 0;					// Next slot checked for reuse
+
+	private long hits = 0, misses = 0;		// Lookups since the cache was created
+	private int windowHits = 0;				// Hits within the current window
+	private int windowLookups = 0;			// Lookups within the current window
+	private boolean enabled = true;			// False once the hit rate was too low
+
+	/* Constructor
+	 * Pre Condition: Receives the number of outputs of the block and the
+	 * 				  maximum number of entries held.
+	 * */
+	public BlockCache(int outputs, int capacity) {
+		this.outputs = outputs;
+		this.capacity = Math.max(capacity, 1);
+		keys = new long[this.capacity];
+		values = new long[this.capacity * outputs];
+		referenced = new boolean[this.capacity];
+		tablePos = new int[this.capacity];
+		table = new int[Integer.highestOneBit(this.capacity) << 2];
+		mask = table.length - 1;
+	}	// end Constructor
+
+	/* Method: get
+	 * Pre Condition: Receives an input vector and an array for the outputs.
+	 * Post Condition: Returns true and fills the array if the vector is held,
+	 * 				   otherwise returns false. Counts the lookup and turns the
+	 * 				   cache off at the end of a window with too few hits.
+	 * */
+	public boolean get(long key, long[] out) {
+		// If the cache has turned itself off
+		if(!enabled)
+			return false;
+		int slot = find(key);
+		// If the vector is held
+		if(slot >= 0) {
+			referenced[slot] = true;
+			System.arraycopy(values, slot * outputs, out, 0, outputs);
+			hits++;
+			windowHits++;
+		} else {
+			misses++;
+		}
+		// If a window of lookups has ended, check its hit rate
+		if(++windowLookups == WINDOW) {
+			// If too few lookups hit, turn the cache off
+			if(windowHits * MIN_HIT_RATE < windowLookups)
+				disable();
+			windowHits = 0;
+			windowLookups = 0;
+		}
+		return slot >= 0;
+	}	// end get
+
+	/* Method: put
+	 * Pre Condition: Receives an input vector that is not held and its
+	 * 				  outputs. Adds the entry, reusing a slot chosen by the
+	 * 				  CLOCK hand if every slot is taken.
+	 * */
+	public void put(long key, long[] out) {
+		// If the cache has turned itself off
+		if(!enabled)
+			return;
+		int slot;
+		// If there is a free slot
+		if(size < capacity) {
+			slot = size++;
+		} else {
+			// Give each read slot a second chance
+			while(referenced[hand]) {
+				referenced[hand] = false;
+				hand = (hand + 1) % capacity;
+			}
+			slot = hand;
+			hand = (hand + 1) % capacity;
+			remove(slot);
+		}
+		keys[slot] = key;
+		referenced[slot] = false;
+		System.arraycopy(out, 0, values, slot * outputs, outputs);
+		int i = hash(key) & mask;
+		while(table[i] != 0)
+			i = (i + 1) & mask;
+		table[i] = slot + 1;
+		tablePos[slot] = i;
+	}	// end put
+
+	/* Method: find
+	 * Post Condition: Returns the slot holding an input vector, or -1.
+	 * */
+	private int find(long key) {
+		int i = hash(key) & mask;
+		while(table[i] != 0) {
+			int slot = table[i] - 1;
+			// If this slot holds the vector
+			if(keys[slot] == key)
+				return slot;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}	// end find
+
+	/* Method: remove
+	 * Pre Condition: Removes a slot from the table, moving back each later
+	 * 				  entry of the probe sequence that can no longer be reached.
+	 * */
+	private void remove(int slot) {
+		int i = tablePos[slot];
+		table[i] = 0;
+		int j = i;
+		while(true) {
+			j = (j + 1) & mask;
+			// If the probe sequence has ended
+			if(table[j] == 0)
+				return;
+			int s = table[j] - 1;
+			int h = hash(keys[s]) & mask;
+			// If the home of this entry lies cyclically within (i, j], it stays
+			if(i <= j ? (i < h && h <= j) : (i < h || h <= j))
+				continue;
+			table[i] = table[j];
+			tablePos[s] = i;
+			table[j] = 0;
+			i = j;
+		}
+	}	// end remove
+
+	/* Method: hash
+	 * Post Condition: Returns the mixed bits of an input vector.
+	 * */
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}	// end hash
+
+	/* Method: disable
+	 * Pre Condition: Turns the cache off and releases its entries.
+	 * */
+	private void disable() {
+		enabled = false;
+		keys = null;
+		values = null;
+		referenced = null;
+		tablePos = null;
+		table = null;
+		size = 0;
+	}	// end disable
+
+	/* Method: isEnabled
+	 * Post Condition: Returns false if the cache has turned itself off.
+	 * */
+	public boolean isEnabled() {
+		return enabled;
+	}	// end isEnabled
+
+	/* Method: getHits
+	 * Post Condition: Returns the number of lookups that hit.
+	 * */
+	public long getHits() {
+		return hits;
+	}	// end getHits
+
+	/* Method: getMisses
+	 * Post Condition: Returns the number of lookups that missed.
+	 * */
+	public long getMisses() {
+		return misses;
+	}	// end getMisses
+
+	/* Method: getSize
+	 * Post Condition: Returns the number of entries held.
+	 * */
+	public int getSize() {
+		return size;
+	}	// end getSize
+}	// end BlockCache class
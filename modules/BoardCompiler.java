@@ -0,0 +1,475 @@
+/* --------------------------------------------------------------------------------
+ * 								BoardCompiler
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to compile the gates and wires of a circuit board into a
+ * Netlist. Each net of the board is numbered, and the root node of each net is
+ * kept so that the values of a simulation engine can be written back to the
+ * CircuitStore. The nodes of each net are listed in compressed sparse row form,
+ * the nodes of net i being nodes[netStart[i]] to nodes[netStart[i + 1] - 1].
+ *
+ * Each net of the netlist has the width of the nodes of its board net, so buses
+ * are compiled to a single net each.
+ *
+ * Subcircuit gates are flattened: a copy of the gates of the shared definition's
+ * body is added for each subcircuit, reading and driving the nets of its pins.
+ * The other nets of each copy are numbered after the nets of the board, so they
+ * have no board nodes.
+ *
+ * Clocks and D flip-flops are not gates of the netlist. The output of each clock
+ * and the Q net of each flip-flop become sources, numbered after the power
+ * sources, so the netlist stays combinational. Their values are set by a
+ * ClockScheduler, which is given the period of each clock and the D and clock
+ * nets of each flip-flop.
+ *
+ * The netlist may be reduced by a NetlistOptimizer before it is simulated. The
+ * values of removed gates are then derived from the reduced netlist when they
+ * are written back to the board. Netlists with buses are not reduced.
+ *
+ * */
+
+package modules;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+public class BoardCompiler {
+
+	private final CircuitStore store;				// Store holding the board
+	private Netlist netlist;						// Compiled netlist
+	private NetlistOptimizer optimizer = null;		// Optimizer of the netlist, or null
+	private Netlist reduced;						// Simulated netlist
+	private int[] derivedStart;						// First derived net of each reduced net, with an end marker
+	private int[] derived;							// Board nets derived from each reduced net
+	private int[] deadNets;							// Board nets derived from dead gates or constants
+	private int[] roots;							// Root node of each netlist net
+	private int[] netOf;							// Netlist net of each root node, or -1
+	private int[] netStart;							// First node of each net, with an end marker
+	private int[] nodes;							// Nodes of each net
+	private int[] sources;							// Gate of each source
+	private int[] sourceOf;							// Source of each gate, or -1
+	private int inputCount;							// Number of power sources, before clocks and flip-flops
+	private ArrayList<Clock> clocks = new ArrayList<>();	// Clock of each clock source
+	private int[] regGates;							// Gate of each flip-flop
+	private int[] regD;								// D net of each flip-flop
+	private int[] regClock;							// Clock net of each flip-flop
+	private IntList changed = new IntList();		// Nets changed by the engine
+
+	/* Constructor
+	 * Pre Condition: Receives the store holding the circuit board, and its
+	 * 				  gates and wires. Detached gates and loose wires are
+	 * 				  skipped.
+	 * */
+	public BoardCompiler(CircuitStore store, ArrayList<Gate> gates, ArrayList<Wire> wires) {
+		this.store = store;
+		// Number the net of every node on the board
+		NetlistBuilder builder = new NetlistBuilder();
+		netOf = new int[store.getNodeCapacity()];
+		Arrays.fill(netOf, -1);
+		IntList rootList = new IntList();
+		IntList nodeList = new IntList();
+		IntList gateList = new IntList();
+		ArrayList<SubCircuit> subs = new ArrayList<>();
+		for(int i = 0; i < gates.size(); i++) {
+			int g = gates.get(i).getId();
+			// If this gate has been detached
+			if(!store.isOnBoard(g))
+				continue;
+			// If this gate is a subcircuit, number the nets of its pins
+			if(gates.get(i) instanceof SubCircuit) {
+				SubCircuit s = (SubCircuit) gates.get(i);
+				subs.add(s);
+				for(int k = 0; k < s.getPinCount(); k++)
+					addNet(s.getPinNode(k), builder, rootList, nodeList);
+				continue;
+			}
+			// If this gate is a clock, keep its timing
+			if(gates.get(i) instanceof Clock)
+				clocks.add((Clock) gates.get(i));
+			gateList.add(g);
+			for(int k = 0; k < CircuitStore.PINS; k++) {
+				if(store.getPin(g, k) >= 0)
+					addNet(store.getPin(g, k), builder, rootList, nodeList);
+			}
+		}
+		for(int i = 0; i < wires.size(); i++) {
+			int w = wires.get(i).getId();
+			// If this wire is loose
+			if(wires.get(i).isLoose())
+				continue;
+			addNet(store.getWireNode1(w), builder, rootList, nodeList);
+			addNet(store.getWireNode2(w), builder, rootList, nodeList);
+		}
+		roots = rootList.toArray();
+		listNodes(nodeList);
+
+		// Add sources and gates
+		IntList src = new IntList();
+		IntList regList = new IntList();
+		sourceOf = new int[store.getGateCapacity()];
+		Arrays.fill(sourceOf, -1);
+		for(int i = 0; i < gateList.size(); i++) {
+			int g = gateList.get(i);
+			int type = store.getGateType(g);
+			int o = netOf[store.find(store.getPin(g, CircuitStore.OUT))];
+			// If this gate is a source
+			if(type == Netlist.SOURCE) {
+				sourceOf[g] = builder.addSource(o);
+				src.add(g);
+			// If this gate is a flip-flop, its source is added after the clocks
+			} else if(type == CircuitStore.DFF) {
+				regList.add(g);
+			// If this gate is a gate of the netlist (clock sources are added later)
+			} else if(type != CircuitStore.CLOCK) {
+				int a = netOf[store.find(store.getPin(g, 0))];
+				int b = type == Netlist.NOT ? a : netOf[store.find(store.getPin(g, 1))];
+				builder.addGate(type, a, b, o);
+			}
+		}
+		inputCount = src.size();
+		// Add the clocks, then the flip-flops, as sources
+		for(int i = 0; i < clocks.size(); i++) {
+			int g = clocks.get(i).getId();
+			sourceOf[g] = builder.addSource(netOf[store.find(store.getPin(g, CircuitStore.OUT))]);
+			src.add(g);
+		}
+		regGates = regList.toArray();
+		regD = new int[regGates.length];
+		regClock = new int[regGates.length];
+		for(int i = 0; i < regGates.length; i++) {
+			int g = regGates[i];
+			sourceOf[g] = builder.addSource(netOf[store.find(store.getPin(g, CircuitStore.OUT))]);
+			src.add(g);
+			regD[i] = netOf[store.find(store.getPin(g, 0))];
+			regClock[i] = netOf[store.find(store.getPin(g, CircuitStore.CLK))];
+		}
+		sources = src.toArray();
+		for(int i = 0; i < subs.size(); i++)
+			flatten(subs.get(i), builder);
+		netlist = builder.build();
+		reduced = netlist;
+	}	// end Constructor
+
+	/* Method: optimize
+	 * Pre Condition: Reduces the compiled netlist, the reduced netlist is
+	 * 				  then simulated in its place. Gate delays are not kept.
+	 * 				  A netlist with buses is simulated unchanged. The D and
+	 * 				  clock nets of flip-flops are kept.
+	 * */
+	public void optimize() {
+		// If the netlist has buses, it can not be reduced
+		if(netlist.isWide())
+			return;
+		int[] observed = Arrays.copyOf(regD, regD.length * 2);
+		System.arraycopy(regClock, 0, observed, regD.length, regClock.length);
+		optimizer = new NetlistOptimizer(netlist, observed);
+		reduced = optimizer.getNetlist();
+		// List the board nets derived from each reduced net
+		derivedStart = new int[reduced.netCount + 1];
+		IntList other = new IntList();
+		for(int n = 0; n < roots.length; n++) {
+			int t = optimizer.getTarget(n);
+			if(t < 0)
+				other.add(n);
+			else if(t != n)
+				derivedStart[t + 1]++;
+		}
+		for(int n = 0; n < reduced.netCount; n++)
+			derivedStart[n + 1] += derivedStart[n];
+		derived = new int[derivedStart[reduced.netCount]];
+		int[] fill = Arrays.copyOf(derivedStart, reduced.netCount);
+		for(int n = 0; n < roots.length; n++) {
+			int t = optimizer.getTarget(n);
+			if(t >= 0 && t != n)
+				derived[fill[t]++] = n;
+		}
+		deadNets = other.toArray();
+	}	// end optimize
+
+	/* Method: flatten
+	 * Pre Condition: Adds a copy of the body of a subcircuit's definition,
+	 * 				  its inputs and outputs renamed to the nets of the pins
+	 * 				  and its other nets renamed to new nets.
+	 * */
+	private void flatten(SubCircuit s, NetlistBuilder builder) {
+		SubCircuitDefinition def = s.getDefinition();
+		Netlist body = def.getBody();
+		int[] rename = new int[body.netCount];
+		Arrays.fill(rename, -1);
+		int inputs = def.getInputCount();
+		for(int k = 0; k < inputs; k++)
+			rename[def.getInputNet(k)] = netOf[store.find(s.getPinNode(k))];
+		for(int k = 0; k < def.getOutputCount(); k++)
+			rename[def.getOutputNet(k)] = netOf[store.find(s.getPinNode(inputs + k))];
+		for(int n = 0; n < body.netCount; n++) {
+			if(rename[n] < 0)
+				rename[n] = builder.addNet(body.width[n]);
+		}
+		for(int g = 0; g < body.gateCount; g++)
+			builder.addGate(body.type[g], rename[body.in1[g]], rename[body.in2[g]], rename[body.out[g]]);
+	}	// end flatten
+
+	/* Method: addNet
+	 * Pre Condition: Adds a netlist net for the net of a node, if it has not
+	 * 				  been numbered, and records the node.
+	 * */
+	private void addNet(int n, NetlistBuilder builder, IntList rootList, IntList nodeList) {
+		int r = store.find(n);
+		// If this net has not been numbered
+		if(netOf[r] < 0) {
+			netOf[r] = builder.addNet(store.getNodeWidth(r));
+			rootList.add(r);
+		}
+		nodeList.add(n);
+	}	// end addNet
+
+	/* Method: listNodes
+	 * Pre Condition: Sorts the recorded nodes by net into the compressed
+	 * 				  sparse row arrays, each node listed once.
+	 * */
+	private void listNodes(IntList nodeList) {
+		boolean[] seen = new boolean[netOf.length];
+		netStart = new int[roots.length + 1];
+		IntList unique = new IntList(nodeList.size());
+		for(int i = 0; i < nodeList.size(); i++) {
+			int n = nodeList.get(i);
+			// If this node has not been listed
+			if(!seen[n]) {
+				seen[n] = true;
+				unique.add(n);
+				netStart[netOf[store.find(n)] + 1]++;
+			}
+		}
+		for(int i = 0; i < roots.length; i++)
+			netStart[i + 1] += netStart[i];
+		nodes = new int[unique.size()];
+		int[] fill = Arrays.copyOf(netStart, roots.length);
+		for(int i = 0; i < unique.size(); i++)
+			nodes[fill[netOf[store.find(unique.get(i))]]++] = unique.get(i);
+	}	// end listNodes
+
+	/* Method: getNetlist
+	 * Post Condition: Returns the compiled netlist.
+	 * */
+	public Netlist getNetlist() {
+		return netlist;
+	}	// end getNetlist
+
+	/* Method: getReducedNetlist
+	 * Post Condition: Returns the netlist to be simulated, which is the
+	 * 				   compiled netlist unless it has been optimized.
+	 * */
+	public Netlist getReducedNetlist() {
+		return reduced;
+	}	// end getReducedNetlist
+
+	/* Method: getRemovedCount
+	 * Post Condition: Returns the number of gates removed by the optimizer.
+	 * */
+	public int getRemovedCount() {
+		return optimizer == null ? 0 : optimizer.getRemovedCount();
+	}	// end getRemovedCount
+
+	/* Method: getSourceIndex
+	 * Post Condition: Returns the source index of a board gate, or -1 if the
+	 * 				   gate is not a source.
+	 * */
+	public int getSourceIndex(Gate g) {
+		return g.getId() < sourceOf.length ? sourceOf[g.getId()] : -1;
+	}	// end getSourceIndex
+
+	/* Method: getSources
+	 * Post Condition: Returns the store index of each source gate, in source
+	 * 				   order.
+	 * */
+	public int[] getSources() {
+		return sources;
+	}	// end getSources
+	
+	/* Method: isSequential
+	 * Post Condition: Returns true if the board has clocks or flip-flops.
+	 * */
+	public boolean isSequential() {
+		return sources.length > inputCount;
+	}	// end isSequential
+
+	/* Method: createScheduler
+	 * Post Condition: Returns a scheduler of the clocks and flip-flops of the
+	 * 				   board for an engine of the simulated netlist, or null
+	 * 				   if the board has none.
+	 * */
+	public ClockScheduler createScheduler(Engine engine) {
+		// If the board is combinational
+		if(!isSequential())
+			return null;
+		ClockScheduler scheduler = new ClockScheduler(engine);
+		for(int i = 0; i < clocks.size(); i++) {
+			Clock c = clocks.get(i);
+			scheduler.addClock(sourceOf[c.getId()], c.getPeriod(), c.getHigh());
+		}
+		for(int i = 0; i < regGates.length; i++)
+			scheduler.addRegister(sourceOf[regGates[i]], ClockScheduler.resolve(optimizer, regD[i]),
+					ClockScheduler.resolve(optimizer, regClock[i]));
+		return scheduler;
+	}	// end createScheduler
+
+	/* Method: saveRegisters
+	 * Pre Condition: Writes the value held by each flip-flop in the engine
+	 * 				  to its gate, so it is kept by the next compile and by
+	 * 				  the sweep and incremental modes.
+	 * */
+	public void saveRegisters(Engine engine) {
+		for(int i = 0; i < regGates.length; i++)
+			store.setGateValue(regGates[i], engine.getValue(reduced.srcNet[sourceOf[regGates[i]]]));
+	}	// end saveRegisters
+
+	/* Method: restoreSources
+	 * Pre Condition: Sets the value of each source gate, power sources,
+	 * 				  clocks and flip-flops, to that of its source net in a
+	 * 				  snapshot of the simulated netlist.
+	 * */
+	public void restoreSources(Snapshot snapshot) {
+		for(int i = 0; i < sources.length; i++)
+			store.setGateValue(sources[i], snapshot.getValue(reduced.srcNet[i]));
+	}	// end restoreSources
+
+	/* Method: getNetIndex
+	 * Post Condition: Returns the netlist net of a board node, or -1 if the
+	 * 				   node is not part of the compiled board.
+	 * */
+	public int getNetIndex(Node n) {
+		int r = store.find(n.getId());
+		return r < netOf.length ? netOf[r] : -1;
+	}	// end getNetIndex
+	
+	/* Method: getNodes
+	 * Post Condition: Returns the board nodes of the specified netlist nets.
+	 * 				   Nets added by the netlist builder have no nodes.
+	 * */
+	public ArrayList<Node> getNodes(int[] list) {
+		ArrayList<Node> result = new ArrayList<>();
+		for(int i = 0; i < list.length; i++) {
+			// If this net is part of the board
+			if(list[i] < roots.length) {
+				for(int j = netStart[list[i]]; j < netStart[list[i] + 1]; j++)
+					result.add(new Node(store, nodes[j]));
+			}
+		}
+		return result;
+	}	// end getNodes
+	
+	/* Method: loadSources
+	 * Pre Condition: Sets the value of every source of the engine from the
+	 * 				  board gates.
+	 * */
+	public void loadSources(Engine engine) {
+		for(int i = 0; i < sources.length; i++) {
+			engine.setSourceValue(i, store.getGateValue(sources[i]));
+		}
+	}	// end loadSources
+
+	/* Method: writeBack
+	 * Pre Condition: Writes the engine's net values to the board nets 
+	 * 				  whose value has changed.
+	 * */
+	public void writeBack(Engine engine) {
+		// If the engine tracks its changed nets, only check those
+		if(engine.collectChanges(changed)) {
+			IntPredicate values = engine::get;
+			for(int i = 0; i < changed.size(); i++) {
+				int n = changed.get(i);
+				// If this net is on the board (not a dead net added by the builder)
+				if(n < roots.length && (optimizer == null || !optimizer.isDerived(n)))
+					store.setRootValue(roots[n], engine.getValue(n));
+				// Write the board nets derived from this net
+				if(optimizer != null) {
+					for(int j = derivedStart[n]; j < derivedStart[n + 1]; j++)
+						store.setRootCharge(roots[derived[j]], engine.get(n));
+				}
+			}
+			changed.clear();
+			// If gates were removed, write the nets of dead gates
+			if(optimizer != null) {
+				optimizer.refresh(values);
+				for(int i = 0; i < deadNets.length; i++)
+					store.setRootCharge(roots[deadNets[i]], optimizer.get(values, deadNets[i]));
+			}
+			return;
+		}
+		writeAll(engine::getValue);
+	}	// end writeBack
+	
+	/* Method: writeAll
+	 * Pre Condition: Writes the net values of the simulated netlist to every
+	 * 				  board net.
+	 * */
+	private void writeAll(IntToLongFunction values) {
+		// If the netlist has not been optimized
+		if(optimizer == null) {
+			for(int n = 0; n < roots.length; n++)
+				store.setRootValue(roots[n], values.applyAsLong(n));
+			return;
+		}
+		IntPredicate bits = n -> values.applyAsLong(n) != 0L;
+		optimizer.refresh(bits);
+		for(int n = 0; n < roots.length; n++)
+			store.setRootCharge(roots[n], optimizer.get(bits, n));
+	}	// end writeAll
+
+	/* Method: apply
+	 * Pre Condition: Writes the net values of a snapshot of the simulated
+	 * 				  netlist to the board nets.
+	 * */
+	public void apply(Snapshot snapshot) {
+		writeAll(snapshot::getValue);
+	}	// end apply
+
+	/* Method: export
+	 * Pre Condition: Writes the compiled netlist in the text circuit format
+	 * 				  read by NetlistReader. Net i is named n<i>, and the
+	 * 				  probed nodes are written as outputs. Clocks and
+	 * 				  flip-flops are written as such, not as inputs.
+	 * */
+	public void export(PrintStream ps, ArrayList<Node> probes) {
+		ps.println("# Logic gate circuit: " + netlist.getNetCount() + " nets, " + 
+				netlist.getGateCount() + " gates");
+		for(int s = 0; s < inputCount; s++)
+			ps.println("input n" + netlist.srcNet[s]);
+		for(int i = 0; i < clocks.size(); i++) {
+			Clock c = clocks.get(i);
+			ps.println("clock n" + netlist.srcNet[sourceOf[c.getId()]] + " " + c.getPeriod() + " " + c.getHigh());
+		}
+		for(int i = 0; i < regGates.length; i++)
+			ps.println("dff n" + netlist.srcNet[sourceOf[regGates[i]]] + " n" + regD[i] + " n" + regClock[i]);
+		for(int g = 0; g < netlist.gateCount; g++) {
+			switch(netlist.type[g]) {
+			case Netlist.AND:
+				ps.println("and n" + netlist.out[g] + " n" + netlist.in1[g] + " n" + netlist.in2[g]);
+				break;
+			case Netlist.OR:
+				ps.println("or n" + netlist.out[g] + " n" + netlist.in1[g] + " n" + netlist.in2[g]);
+				break;
+			case Netlist.NOT:
+				ps.println("not n" + netlist.out[g] + " n" + netlist.in1[g]);
+				break;
+			}
+		}
+		for(int i = 0; i < probes.size(); i++) {
+			int n = getNetIndex(probes.get(i));
+			if(n >= 0)
+				ps.println("output n" + n);
+		}
+	}	// end export
+
+	/* Method: writeAll
+	 * Pre Condition: Writes the engine's net values to every board net.
+	 * */
+	public void writeAll(Engine engine) {
+		engine.collectChanges(changed);
+		changed.clear();
+		writeAll(engine::getValue);
+	}	// end writeAll
+}	// end BoardCompiler class
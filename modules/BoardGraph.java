@@ -0,0 +1,855 @@
+/* --------------------------------------------------------------------------------
+ * 								BoardGraph
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents the connectivity of the circuit board: the gates reading
+ * and driving each net, and a topological level for each gate. Unlike a
+ * BoardCompiler, the graph is never rebuilt. Each edit patches only the nets it
+ * touches, so an edit costs time in proportion to the nets and gates it reaches,
+ * not to the size of the board.
+ *
+ * Gates, nodes and nets are indexed by their CircuitStore records, a net by its
+ * root node. The readers and drivers of a net are listed at its root. When nets
+ * are joined or split, the lists of each resulting net are rebuilt by walking
+ * its nodes, and the lists of nodes that are no longer roots are dropped. A net
+ * left without a driver is turned off, as in the compiled netlist.
+ *
+ * A gate's level is above the level of every gate driving its inputs. Adding a
+ * connection raises the levels of the gates after it, as far as they need to
+ * rise. A raise stops where it would come back to a gate it started from, so
+ * gates in feedback loops break the loop at an arbitrary point. Removing a
+ * connection leaves the levels unchanged, as they still hold.
+ *
+ * The gates are partitioned into connected components: two gates are in the same
+ * component if a chain of shared nets joins them. The components are a union-find
+ * over the gate records. A wire joining two nets unites the components of their
+ * gates. A removal may split components, so the gates of every component that
+ * lost a gate or wire are labelled again by a walk over their nets, which costs
+ * time in proportion to those components only.
+ *
+ * The graph also evaluates the board in the incremental simulation mode. Only
+ * gates whose inputs changed are queued. At the start of a tick the queued gates
+ * are handed to the Region of their component, and components with no queued
+ * gate are skipped entirely. A component only reads and drives its own nets, so
+ * the active regions are evaluated independently, on the common fork/join pool
+ * when there are enough queued gates to be worth it.
+ *
+ * A region holds one bucket of queued gates per level, and each pass evaluates the
+ * buckets in level order by updating the gate objects, so a gate is evaluated
+ * once per pass when its inputs have settled. A gate queued at or below the level
+ * being evaluated (by a feedback loop) waits for the next pass. Gates still
+ * queued after SETTLE_LIMIT passes are reported as oscillating, and stay queued
+ * for the next tick. Clocks change by themselves, so every clock is queued at
+ * the start of a tick.
+ *
+ * */
+
+package modules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class BoardGraph {
+
+	public static final int PARALLEL_GATES = 256;	// Fewest queued gates evaluated in parallel
+	public static final int TASK_GATES = 64;		// Queued gates worth a task of their own
+
+	private final CircuitStore store;				// Store holding the board
+
+	private Gate[] gateAt = new Gate[16];			// Gate object of each gate record, or null
+	private Wire[] wireAt = new Wire[16];			// Wire object of each wire record, or null
+	private int[] level = new int[16];				// Level of each gate
+	private int[] pinGate = new int[64];			// Gate of each pin node, or -1
+	private boolean[] isOutput = new boolean[64];	// Output state of each pin node
+	private IntList[] readers = new IntList[64];	// Gates reading each net, at its root
+	private IntList[] drivers = new IntList[64];	// Gates driving each net, at its root
+	private int[] seen = new int[16];				// Last rebuild that listed each gate
+	private int rebuilds = 0;						// Number of net rebuilds
+	private int[] removedAt = new int[64];			// Last removal that rebuilt each net
+	private int removals = 0;						// Number of removals
+	private boolean[] onPath = new boolean[16];		// Gates on the path of the current raise
+
+	private int[] component = new int[16];			// Parent of each gate in the component union-find
+	private int[] componentSize = new int[16];		// Number of gates of each component, at its root
+	private int componentCount = 0;					// Number of components
+	private int[] labelledAt = new int[16];			// Last labelling that reached each gate
+	private int labellings = 0;						// Number of labellings
+
+	private final IntList pending = new IntList();	// Gates queued between ticks
+	private final IntList clocks = new IntList();	// Clock gates, queued every tick
+	private boolean[] queued = new boolean[16];		// Queued state of each gate
+	private Region[] regionAt = new Region[16];		// Region of each component root, or null
+	private final ArrayList<Region> active = new ArrayList<>();	// Regions with queued gates
+	private int[] work;								// Queued gates of the active regions, summed
+	private final ForkJoinPool pool = ForkJoinPool.commonPool();	// Pool evaluating the regions
+	private int activeCount = 0;					// Components evaluated in the last tick
+	private int highestLevel = 0;					// Highest level of any gate
+	private int oscillating = 0;					// Gates still queued after the last tick
+
+	/* Constructor
+	 * Pre Condition: Receives the store holding the board, initiates an
+	 * 				  empty graph of it.
+	 * */
+	public BoardGraph(CircuitStore store) {
+		this.store = store;
+		Arrays.fill(pinGate, -1);
+	}	// end Constructor
+
+	/* Method: addGate
+	 * Pre Condition: Adds a gate placed on the board. Its pins are nets of
+	 * 				  their own, so it reads and drives no other gate.
+	 * */
+	public void addGate(Gate g) {
+		int id = g.getId();
+		growGates(id + 1);
+		gateAt[id] = g;
+		level[id] = 0;
+		component[id] = id;
+		componentSize[id] = 1;
+		componentCount++;
+		for(int k = 0; k < g.getPinCount(); k++) {
+			int n = g.getPinNode(k);
+			// If this pin slot is used
+			if(n >= 0) {
+				growNodes(n + 1);
+				pinGate[n] = id;
+				isOutput[n] = g.isOutputPin(k);
+				rebuild(store.find(n));
+			}
+		}
+		// If the gate is a clock, queue it on every tick
+		if(store.getGateType(id) == CircuitStore.CLOCK)
+			clocks.add(id);
+		schedule(id);
+	}	// end addGate
+
+	/* Method: connect
+	 * Pre Condition: Joins the nets of both nodes of a wire and adds the
+	 * 				  wire to the graph. The readers of the joined net are
+	 * 				  raised above its drivers, and the gates of the net are
+	 * 				  queued.
+	 * */
+	public void connect(Wire w) {
+		w.connect();
+		growWires(w.getId() + 1);
+		wireAt[w.getId()] = w;
+		int r = store.find(store.getWireNode1(w.getId()));
+		rebuild(r);
+		// Raise each reader above the drivers of the net
+		IntList list = readers[r];
+		for(int i = 0; i < list.size(); i++)
+			raise(list.get(i));
+		// Unite the components of the gates of the joined net
+		int first = list.isEmpty() ? (drivers[r].isEmpty() ? -1 : drivers[r].get(0)) : list.get(0);
+		for(int i = 0; i < list.size(); i++)
+			unite(first, list.get(i));
+		for(int i = 0; i < drivers[r].size(); i++)
+			unite(first, drivers[r].get(i));
+		scheduleNet(r);
+	}	// end connect
+
+	/* Method: getWire
+	 * Post Condition: Returns the wire object of a wire record, or null if it
+	 * 				   is not in the graph.
+	 * */
+	public Wire getWire(int w) {
+		return w < wireAt.length ? wireAt[w] : null;
+	}	// end getWire
+
+	/* Method: getPinGate
+	 * Post Condition: Returns the gate a node is a pin of, or -1.
+	 * */
+	public int getPinGate(int n) {
+		return n < pinGate.length ? pinGate[n] : -1;
+	}	// end getPinGate
+
+	/* Method: remove
+	 * Pre Condition: Removes gates and loose wires from the graph and from
+	 * 				  the store. The nets they belonged to are rebuilt and
+	 * 				  their gates queued.
+	 * */
+	public void remove(ArrayList<Gate> gates, IntList wires) {
+		// List the nodes of every net losing a gate or a wire
+		IntList nodes = new IntList();
+		IntList lost = new IntList();
+		for(int i = 0; i < gates.size(); i++) {
+			Gate g = gates.get(i);
+			lost.add(g.getId());
+			for(int k = 0; k < g.getPinCount(); k++) {
+				int n = g.getPinNode(k);
+				// If this pin slot is used
+				if(n >= 0) {
+					store.getNetNodes(n, nodes);
+					pinGate[n] = -1;
+				}
+			}
+			gateAt[g.getId()] = null;
+			// If the gate is a clock, stop queueing it
+			for(int j = 0; j < clocks.size(); j++) {
+				if(clocks.get(j) == g.getId()) {
+					clocks.set(j, clocks.get(clocks.size() - 1));
+					clocks.removeLast();
+					break;
+				}
+			}
+		}
+		for(int i = 0; i < wires.size(); i++) {
+			store.getNetNodes(store.getWireNode1(wires.get(i)), nodes);
+			wireAt[wires.get(i)] = null;
+		}
+		// List the gates left on the nets, whose components may split
+		for(int i = 0; i < nodes.size(); i++) {
+			int g = pinGate[nodes.get(i)];
+			if(g >= 0)
+				lost.add(g);
+		}
+		store.removeWires(wires);
+		for(int i = 0; i < gates.size(); i++)
+			gates.get(i).release();
+
+		// Rebuild each net left, and queue its gates
+		growNodes(store.getNodeCapacity());
+		int stamp = ++removals;
+		IntList roots = new IntList();
+		for(int i = 0; i < nodes.size(); i++) {
+			int n = nodes.get(i);
+			// If the node was released with its gate or wire
+			if(!store.isNodeUsed(n)) {
+				readers[n] = null;
+				drivers[n] = null;
+				continue;
+			}
+			int r = store.find(n);
+			// If this net has not been rebuilt by this removal
+			if(removedAt[r] != stamp) {
+				removedAt[r] = stamp;
+				rebuild(r);
+				roots.add(r);
+			}
+		}
+		relabel(lost);
+		for(int i = 0; i < roots.size(); i++)
+			scheduleNet(roots.get(i));
+	}	// end remove
+
+	/* ------------------------------- Components --------------------------------- */
+
+	/* Method: getComponent
+	 * Post Condition: Returns the root gate of the component of a gate.
+	 * */
+	public int getComponent(int g) {
+		final int[] c = component;
+		while(c[g] != g) {
+			c[g] = c[c[g]];
+			g = c[g];
+		}
+		return g;
+	}	// end getComponent
+
+	/* Method: unite
+	 * Pre Condition: Joins the components of two gates, the smaller under
+	 * 				  the larger.
+	 * */
+	private void unite(int a, int b) {
+		a = getComponent(a);
+		b = getComponent(b);
+		// If the gates are already in one component
+		if(a == b)
+			return;
+		// If the first component is smaller, join it to the second
+		if(componentSize[a] < componentSize[b]) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		component[b] = a;
+		componentSize[a] += componentSize[b];
+		componentCount--;
+	}	// end unite
+
+	/* Method: relabel
+	 * Pre Condition: Receives the gates removed and the gates left on the
+	 * 				  nets of a removal. Every component they belonged to
+	 * 				  is dropped, and the gates left are labelled again by
+	 * 				  walking their nets, a component for each group still
+	 * 				  joined.
+	 * */
+	private void relabel(IntList lost) {
+		int stamp = ++labellings;
+		// Count the components before the removal
+		for(int i = 0; i < lost.size(); i++) {
+			int r = getComponent(lost.get(i));
+			// If this component has not been counted
+			if(labelledAt[r] != -stamp) {
+				labelledAt[r] = -stamp;
+				componentCount--;
+			}
+		}
+		IntList walk = new IntList();
+		for(int i = 0; i < lost.size(); i++) {
+			int start = lost.get(i);
+			// If the gate was removed or has been labelled
+			if(gateAt[start] == null || labelledAt[start] == stamp)
+				continue;
+			// Walk the nets of the gates joined to this one
+			labelledAt[start] = stamp;
+			walk.add(start);
+			int size = 0;
+			while(!walk.isEmpty()) {
+				int g = walk.removeLast();
+				component[g] = start;
+				size++;
+				Gate gate = gateAt[g];
+				for(int k = 0; k < gate.getPinCount(); k++) {
+					int n = gate.getPinNode(k);
+					// If this pin slot is unused
+					if(n < 0)
+						continue;
+					int r = store.find(n);
+					label(readers[r], stamp, walk);
+					label(drivers[r], stamp, walk);
+				}
+			}
+			componentSize[start] = size;
+			componentCount++;
+		}
+	}	// end relabel
+
+	/* Method: label
+	 * Pre Condition: Adds each gate of a list not yet reached by a labelling
+	 * 				  to the walk.
+	 * */
+	private void label(IntList list, int stamp, IntList walk) {
+		for(int i = 0; i < list.size(); i++) {
+			int g = list.get(i);
+			if(labelledAt[g] != stamp) {
+				labelledAt[g] = stamp;
+				walk.add(g);
+			}
+		}
+	}	// end label
+
+	/* Method: getComponentCount
+	 * Post Condition: Returns the number of connected components.
+	 * */
+	public int getComponentCount() {
+		return componentCount;
+	}	// end getComponentCount
+
+	/* Method: getActiveCount
+	 * Post Condition: Returns the number of components evaluated in the
+	 * 				   last tick.
+	 * */
+	public int getActiveCount() {
+		return activeCount;
+	}	// end getActiveCount
+
+	/* Method: rebuild
+	 * Pre Condition: Lists the readers and drivers of a net, given its root,
+	 * 				  by walking its nodes. The lists of its other nodes are
+	 * 				  dropped, as those nodes are no longer roots.
+	 * */
+	private void rebuild(int r) {
+		growNodes(store.getNodeCapacity());
+		int stamp = ++rebuilds;
+		IntList in = new IntList(2);
+		IntList out = new IntList(1);
+		IntList nodes = new IntList();
+		store.getNetNodes(r, nodes);
+		for(int i = 0; i < nodes.size(); i++) {
+			int n = nodes.get(i);
+			int g = n < pinGate.length ? pinGate[n] : -1;
+			readers[n] = null;
+			drivers[n] = null;
+			// If this node is a pin not yet listed for its gate
+			if(g >= 0 && seen[g] != stamp) {
+				seen[g] = stamp;
+				// A gate whose pins share the net both reads and drives it
+				if(isOutput[n] || drivesNet(g, r))
+					out.add(g);
+				if(!isOutput[n] || readsNet(g, r))
+					in.add(g);
+			}
+		}
+		readers[r] = in;
+		drivers[r] = out;
+		// If nothing drives the net, it is off
+		if(out.isEmpty())
+			store.setRootValue(r, 0L);
+	}	// end rebuild
+
+	/* Method: readsNet
+	 * Post Condition: Returns true if an input pin of a gate is on a net.
+	 * */
+	private boolean readsNet(int g, int r) {
+		Gate gate = gateAt[g];
+		for(int k = 0; k < gate.getPinCount(); k++) {
+			int n = gate.getPinNode(k);
+			if(n >= 0 && !gate.isOutputPin(k) && store.find(n) == r)
+				return true;
+		}
+		return false;
+	}	// end readsNet
+
+	/* Method: drivesNet
+	 * Post Condition: Returns true if an output pin of a gate is on a net.
+	 * */
+	private boolean drivesNet(int g, int r) {
+		Gate gate = gateAt[g];
+		for(int k = 0; k < gate.getPinCount(); k++) {
+			int n = gate.getPinNode(k);
+			if(n >= 0 && gate.isOutputPin(k) && store.find(n) == r)
+				return true;
+		}
+		return false;
+	}	// end drivesNet
+
+	/* Method: raise
+	 * Pre Condition: Raises a gate above the gates driving its inputs, then
+	 * 				  raises each gate after it that is no longer above its
+	 * 				  drivers. Gates on the current path are not raised again,
+	 * 				  which ends the raise at a feedback loop.
+	 * */
+	private void raise(int g) {
+		int need = 0;
+		Gate gate = gateAt[g];
+		for(int k = 0; k < gate.getPinCount(); k++) {
+			int n = gate.getPinNode(k);
+			// If this pin is an input, stay above the drivers of its net
+			if(n >= 0 && !gate.isOutputPin(k)) {
+				IntList d = drivers[store.find(n)];
+				for(int i = 0; i < d.size(); i++) {
+					if(d.get(i) != g)
+						need = Math.max(need, level[d.get(i)] + 1);
+				}
+			}
+		}
+		// If the gate is already above its drivers
+		if(need <= level[g])
+			return;
+		setLevel(g, need);
+
+		// Walk the gates after it, depth first
+		IntList path = new IntList();
+		ArrayList<int[]> next = new ArrayList<>();
+		IntList index = new IntList();
+		path.add(g);
+		next.add(successors(g));
+		index.add(0);
+		onPath[g] = true;
+		while(!path.isEmpty()) {
+			int top = path.size() - 1;
+			int[] s = next.get(top);
+			int i = index.get(top);
+			// If every gate after this one has been raised
+			if(i == s.length) {
+				onPath[path.removeLast()] = false;
+				next.remove(top);
+				index.removeLast();
+				continue;
+			}
+			index.set(top, i + 1);
+			int v = s[i];
+			// If the gate needs to rise and is not on the path (a loop)
+			if(!onPath[v] && level[v] <= level[path.get(top)]) {
+				setLevel(v, level[path.get(top)] + 1);
+				path.add(v);
+				next.add(successors(v));
+				index.add(0);
+				onPath[v] = true;
+			}
+		}
+	}	// end raise
+
+	/* Method: setLevel
+	 * Pre Condition: Sets the level of a gate. Gates are queued in buckets
+	 * 				  only during a tick, so a queued gate needs no move.
+	 * */
+	private void setLevel(int g, int l) {
+		level[g] = l;
+		highestLevel = Math.max(highestLevel, l);
+	}	// end setLevel
+
+	/* Method: successors
+	 * Post Condition: Returns the gates reading the outputs of a gate.
+	 * */
+	private int[] successors(int g) {
+		IntList list = new IntList();
+		Gate gate = gateAt[g];
+		for(int k = 0; k < gate.getPinCount(); k++) {
+			int n = gate.getPinNode(k);
+			// If this pin is an output, add the readers of its net
+			if(n >= 0 && gate.isOutputPin(k)) {
+				IntList r = readers[store.find(n)];
+				for(int i = 0; i < r.size(); i++)
+					list.add(r.get(i));
+			}
+		}
+		return list.toArray();
+	}	// end successors
+
+	/* ------------------------------- Evaluation --------------------------------- */
+
+	/* Method: schedule
+	 * Pre Condition: Queues a gate, if it is on the board and not queued,
+	 * 				  for the next tick.
+	 * */
+	public void schedule(int g) {
+		// If the gate is not on the board or already queued
+		if(g >= gateAt.length || gateAt[g] == null || queued[g])
+			return;
+		queued[g] = true;
+		pending.add(g);
+	}	// end schedule
+
+	/* Method: scheduleAll
+	 * Pre Condition: Queues every gate of the board.
+	 * */
+	public void scheduleAll() {
+		for(int g = 0; g < gateAt.length; g++)
+			schedule(g);
+	}	// end scheduleAll
+
+	/* Method: scheduleNet
+	 * Pre Condition: Queues the readers and drivers of a net, given its root.
+	 * */
+	private void scheduleNet(int r) {
+		for(int i = 0; i < readers[r].size(); i++)
+			schedule(readers[r].get(i));
+		for(int i = 0; i < drivers[r].size(); i++)
+			schedule(drivers[r].get(i));
+	}	// end scheduleNet
+
+	/* Method: tick
+	 * Pre Condition: Queues every clock, hands each queued gate to the region
+	 * 				  of its component and settles the active regions, in
+	 * 				  parallel if enough gates are queued. Gates still queued
+	 * 				  are kept for the next tick.
+	 * */
+	public void tick() {
+		for(int i = 0; i < clocks.size(); i++)
+			schedule(clocks.get(i));
+		active.clear();
+		for(int i = 0; i < pending.size(); i++) {
+			int g = pending.get(i);
+			// If the gate has been removed since it was queued
+			if(gateAt[g] == null) {
+				queued[g] = false;
+				continue;
+			}
+			Region r = region(getComponent(g));
+			// If this is the first gate of the region
+			if(r.queuedCount == 0)
+				active.add(r);
+			r.add(g);
+		}
+		pending.clear();
+		activeCount = active.size();
+		// Sum the queued gates of the regions, which splits them into tasks
+		if(work == null || work.length <= active.size())
+			work = new int[Math.max(active.size() + 1, 16)];
+		for(int i = 0; i < active.size(); i++)
+			work[i + 1] = work[i] + active.get(i).queuedCount;
+		// If there is enough to share between threads
+		if(active.size() > 1 && work[active.size()] >= PARALLEL_GATES && pool.getParallelism() > 1) {
+			pool.invoke(new RegionTask(0, active.size()));
+		} else {
+			for(int i = 0; i < active.size(); i++)
+				active.get(i).tick();
+		}
+		oscillating = 0;
+		for(int i = 0; i < active.size(); i++) {
+			oscillating += active.get(i).oscillating;
+			active.get(i).drain(pending);
+		}
+	}	// end tick
+
+	/* Method: region
+	 * Post Condition: Returns the region of a component root, creating it if
+	 * 				   needed.
+	 * */
+	private Region region(int root) {
+		// If the root is beyond the regions, grow them
+		if(root >= regionAt.length)
+			regionAt = Arrays.copyOf(regionAt, Math.max(root + 1, regionAt.length * 2));
+		if(regionAt[root] == null)
+			regionAt[root] = new Region();
+		return regionAt[root];
+	}	// end region
+
+	/* --------------------------------------------------------------------------------
+	 * 								RegionTask
+	 * --------------------------------------------------------------------------------
+	 *
+	 * Fork/join task settling a range of the active regions. Ranges holding many
+	 * queued gates are split in two, the others are settled in turn.
+	 *
+	 * */
+	private class RegionTask extends RecursiveAction {
+		private static final long serialVersionUID = 3356571920941466617L;
+
+		private final int lo, hi;			// Range of active regions
+
+		/* Constructor
+		 * Pre Condition: Receives the range of active regions to settle.
+		 * */
+		RegionTask(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}	// end Constructor
+
+		/* Method: compute
+		 * Pre Condition: Splits the range, or settles its regions.
+		 * */
+		@Override
+		protected void compute() {
+			// If the range holds several regions and enough queued gates, split it
+			if(hi - lo > 1 && work[hi] - work[lo] > TASK_GATES) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new RegionTask(lo, mid), new RegionTask(mid, hi));
+				return;
+			}
+			for(int i = lo; i < hi; i++)
+				active.get(i).tick();
+		}	// end compute
+	}	// end RegionTask class
+
+	/* --------------------------------------------------------------------------------
+	 * 								Region
+	 * --------------------------------------------------------------------------------
+	 *
+	 * The queued gates of one component during a tick. A region only evaluates gates
+	 * of its component, which only queue gates of the same component, so regions
+	 * of different components can be settled at once by different threads.
+	 *
+	 * */
+	private class Region {
+		private IntList[] buckets = new IntList[16];	// Queued gates of each level
+		private final IntList late = new IntList();		// Gates queued for the next pass
+		private int queuedCount = 0;					// Number of queued gates
+		private int current = -1;						// Level being evaluated, -1 between passes
+		private int lowest = Integer.MAX_VALUE;			// Lowest level with queued gates
+		private int highest = -1;						// Highest level with queued gates
+		private int oscillating = 0;					// Gates still queued after the tick
+		private long[] before = new long[4];			// Output values before an evaluation
+
+		/* Method: add
+		 * Pre Condition: Adds a gate marked as queued. A gate at or below the
+		 * 				  level being evaluated is queued for the next pass.
+		 * */
+		void add(int g) {
+			queuedCount++;
+			// If the gate can still be evaluated in this pass
+			if(level[g] > current) {
+				bucket(level[g]).add(g);
+				lowest = Math.min(lowest, level[g]);
+				highest = Math.max(highest, level[g]);
+			} else {
+				late.add(g);
+			}
+		}	// end add
+
+		/* Method: schedule
+		 * Pre Condition: Queues a gate of the region, if it is not queued.
+		 * */
+		void schedule(int g) {
+			// If the gate is not on the board or already queued
+			if(gateAt[g] == null || queued[g])
+				return;
+			queued[g] = true;
+			add(g);
+		}	// end schedule
+
+		/* Method: tick
+		 * Pre Condition: Evaluates queued gates, one pass at a time, until no
+		 * 				  gate is queued or SETTLE_LIMIT passes have been made.
+		 * */
+		void tick() {
+			int passes = 0;
+			oscillating = 0;
+			// While there are queued gates
+			while(queuedCount > 0) {
+				// If the limit is reached, the queued gates are oscillating
+				if(passes++ == Engine.SETTLE_LIMIT) {
+					oscillating = queuedCount;
+					break;
+				}
+				pass();
+			}
+		}	// end tick
+
+		/* Method: pass
+		 * Pre Condition: Evaluates the queued gates in level order, then queues
+		 * 				  the gates waiting for the next pass.
+		 * */
+		private void pass() {
+			for(current = lowest; current <= highest; current++) {
+				IntList b = buckets[current];
+				// If no gate of this level is queued
+				if(b == null)
+					continue;
+				for(int i = 0; i < b.size(); i++)
+					evaluate(b.get(i));
+				b.clear();
+			}
+			current = -1;
+			lowest = Integer.MAX_VALUE;
+			highest = -1;
+			for(int i = 0; i < late.size(); i++) {
+				int g = late.get(i);
+				bucket(level[g]).add(g);
+				lowest = Math.min(lowest, level[g]);
+				highest = Math.max(highest, level[g]);
+			}
+			late.clear();
+		}	// end pass
+
+		/* Method: drain
+		 * Pre Condition: Moves the gates still queued to a list, leaving the
+		 * 				  region empty. The gates stay marked as queued.
+		 * */
+		void drain(IntList list) {
+			for(int l = lowest; l <= highest; l++) {
+				IntList b = buckets[l];
+				// If gates of this level are queued
+				if(b != null) {
+					for(int i = 0; i < b.size(); i++)
+						list.add(b.get(i));
+					b.clear();
+				}
+			}
+			for(int i = 0; i < late.size(); i++)
+				list.add(late.get(i));
+			late.clear();
+			queuedCount = 0;
+			lowest = Integer.MAX_VALUE;
+			highest = -1;
+		}	// end drain
+
+		/* Method: evaluate
+		 * Pre Condition: Updates a queued gate and queues the readers of each
+		 * 				  output whose value changed. A power source drives its
+		 * 				  value onto its output and always queues its readers,
+		 * 				  as a click sets its output before it is evaluated.
+		 * */
+		private void evaluate(int g) {
+			queued[g] = false;
+			queuedCount--;
+			Gate gate = gateAt[g];
+			// If the gate has been removed since it was queued
+			if(gate == null)
+				return;
+			int pins = gate.getPinCount();
+			// If the output values do not fit, grow the array
+			if(before.length < pins)
+				before = new long[pins];
+			for(int k = 0; k < pins; k++) {
+				if(gate.isOutputPin(k))
+					before[k] = store.getValue(gate.getPinNode(k));
+			}
+			gate.update();
+			boolean source = store.getGateType(g) == Netlist.SOURCE;
+			// If the gate is a power source, drive its value
+			if(source)
+				store.setValue(gate.getPinNode(CircuitStore.OUT), store.getGateValue(g));
+			for(int k = 0; k < pins; k++) {
+				int n = gate.getPinNode(k);
+				// If this output changed, queue the readers of its net
+				if(gate.isOutputPin(k) && (source || store.getValue(n) != before[k])) {
+					IntList r = readers[store.find(n)];
+					for(int i = 0; i < r.size(); i++)
+						schedule(r.get(i));
+				}
+			}
+		}	// end evaluate
+
+		/* Method: bucket
+		 * Post Condition: Returns the bucket of a level, creating it if needed.
+		 * */
+		private IntList bucket(int l) {
+			// If the level is beyond the buckets, grow them
+			if(l >= buckets.length)
+				buckets = Arrays.copyOf(buckets, Math.max(l + 1, buckets.length * 2));
+			if(buckets[l] == null)
+				buckets[l] = new IntList();
+			return buckets[l];
+		}	// end bucket
+	}	// end Region class
+
+	/* Method: getOscillatingCount
+	 * Post Condition: Returns the number of gates still queued when the last
+	 * 				   tick reached the pass limit.
+	 * */
+	public int getOscillatingCount() {
+		return oscillating;
+	}	// end getOscillatingCount
+
+	/* Method: getLevelCount
+	 * Post Condition: Returns the number of levels used so far.
+	 * */
+	public int getLevelCount() {
+		return highestLevel + 1;
+	}	// end getLevelCount
+
+	/* Method: getLevel
+	 * Post Condition: Returns the level of a gate.
+	 * */
+	public int getLevel(int g) {
+		return level[g];
+	}	// end getLevel
+
+	/* Method: getReaders
+	 * Post Condition: Returns the gates reading the net of a node.
+	 * */
+	public int[] getReaders(int n) {
+		IntList r = readers[store.find(n)];
+		return r == null ? new int[0] : r.toArray();
+	}	// end getReaders
+
+	/* Method: growGates
+	 * Pre Condition: Grows the gate arrays to hold the specified capacity.
+	 * */
+	private void growGates(int capacity) {
+		// If the arrays already hold the capacity
+		if(capacity <= gateAt.length)
+			return;
+		int size = Math.max(capacity, gateAt.length * 2);
+		gateAt = Arrays.copyOf(gateAt, size);
+		level = Arrays.copyOf(level, size);
+		seen = Arrays.copyOf(seen, size);
+		onPath = Arrays.copyOf(onPath, size);
+		queued = Arrays.copyOf(queued, size);
+		component = Arrays.copyOf(component, size);
+		componentSize = Arrays.copyOf(componentSize, size);
+		labelledAt = Arrays.copyOf(labelledAt, size);
+	}	// end growGates
+
+	/* Method: growNodes
+	 * Pre Condition: Grows the node arrays to hold the specified capacity.
+	 * */
+	private void growNodes(int capacity) {
+		// If the arrays already hold the capacity
+		if(capacity <= pinGate.length)
+			return;
+		int size = Math.max(capacity, pinGate.length * 2);
+		int old = pinGate.length;
+		pinGate = Arrays.copyOf(pinGate, size);
+		Arrays.fill(pinGate, old, size, -1);
+		isOutput = Arrays.copyOf(isOutput, size);
+		readers = Arrays.copyOf(readers, size);
+		drivers = Arrays.copyOf(drivers, size);
+		removedAt = Arrays.copyOf(removedAt, size);
+	}	// end growNodes
+
+	/* Method: growWires
+	 * Pre Condition: Grows the wire array to hold the specified capacity.
+	 * */
+	private void growWires(int capacity) {
+		// If the array already holds the capacity
+		if(capacity <= wireAt.length)
+			return;
+		wireAt = Arrays.copyOf(wireAt, Math.max(capacity, wireAt.length * 2));
+	}	// end growWires
+}	// end BoardGraph class
@@ -12,74 +12,623 @@ package modules;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CircuitBoard {
 	
+	// Simulation mode constants
+	public static final int SWEEP = 0;			// Update every gate and wire object
+	public static final int LEVELIZED = 1;		// Evaluate the compiled, levelized netlist
+	public static final int EVENT = 2;			// Evaluate only gates whose inputs changed
+	public static final int TIMED = 3;			// Evaluate gates with propagation delays
+	public static final int AIG = 4;			// Evaluate the netlist as an And-Inverter Graph
+	public static final int BYTECODE = 5;		// Evaluate a class generated for the netlist
+	public static final int INCREMENTAL = 6;	// Evaluate changed gates of the board graph in level order
+	public static final int PARALLEL = 7;		// Evaluate large levels of the netlist on every core
+	public static final int PARALLEL_EVENT = 8;	// Evaluate changed gates of each partition on its own thread
+	public static final int DISTRIBUTED = 9;	// Evaluate partitions of the netlist in worker processes
+	public static final int NUM_MODES = 10;
+	private static final String[] MODE_NAMES = { "Sweep", "Levelized", "Event", "Timed", "AIG", "Bytecode",
+			"Incremental", "Parallel", "Parallel event", "Distributed" };
+	
 	private Rectangle2D area;			// Circuit board area
+	private final CircuitStore store;	// Store holding the nodes, gates and wires
 	private ArrayList<Gate> gates;		// List of gates
 	private ArrayList<Wire> wires;		// List of wires
+	private BoardGraph graph;			// Connectivity of the gates and wires
+	private ArrayList<Gate> removedGates;	// Gates detached since the last update
+	private ArrayList<Wire> removedWires;	// Wires detached since the last update
+	private int[] wireIndex = new int[16];	// Index of each wire record in the wires list
+	private volatile long editTime = 0L;	// Time taken by the last edit of the graph, in ns
 	private Wire refWire;				// Reference wire
 	private Node refNode;				// Reference node
+	
+	private volatile int mode = SWEEP;			// Simulation mode
+	private volatile boolean edited = true;		// Flag set when gates or wires change
+	private volatile BoardCompiler compiler;	// Compiled board
+	private Engine engine;						// Simulation engine of the compiled board, or null
+	private ClockScheduler scheduler = null;	// Clocks and flip-flops of the compiled board, or null
+	private long ticks = 0L;					// Ticks simulated by the engine
+	private final int[] delays = TimedEngine.getDefaultDelays();	// Delay of each gate type
+	private volatile int[] oscillating = new int[0];	// Nets that did not settle in the last tick
+	private volatile boolean recording = false;		// True if the net values of each tick are recorded
+	private volatile StateHistory history = null;	// Recorded net values of the compiled board, or null
+	private volatile long scrubTick = -1L;			// Tick shown while the history is scrubbed, or -1
+	private volatile long restoreTick = -1L;		// Tick the next step continues from, or -1
+	private Snapshot scrubbed = null;				// Snapshot shown while the history is scrubbed
+	
+	private volatile SimulationThread simThread = null;		// Separate simulation thread
+	private AtomicReference<Snapshot> published;			// Latest published snapshot
+	private Snapshot applied = null;						// Snapshot last drawn
+	private IntList clickedSources;		// Source clicks waiting for the engine
+	private ArrayList<Node> probes;		// Nodes chosen as outputs
+	private volatile TruthTable table;	// Truth table being generated
+	private volatile String status = "";		// Status of the last file or table action
 
 	/* Constructor
 	 * Pre Condition: Receives the screen location, width and height. initiates
 	 * 				  all shapes associated with the circuit board
 	 * */
 	public CircuitBoard(int x, int y, int width, int height) {
+		store = new CircuitStore();
 		area = new Rectangle2D.Double(x, y, width, height);
 		gates = new ArrayList<>();
 		wires = new ArrayList<>();
+		graph = new BoardGraph(store);
+		removedGates = new ArrayList<>();
+		removedWires = new ArrayList<>();
 		refWire = null;
 		refNode = null;
+		clickedSources = new IntList();
+		probes = new ArrayList<>();
+		published = new AtomicReference<>();
 	}	// end Constructor
 	
+	/* Method: getStore
+	 * Post Condition: Returns the store holding the board's nodes, gates and
+	 * 				   wires, in which new gates for the board are made.
+	 * */
+	public CircuitStore getStore() {
+		return store;
+	}	// end getStore
+	
 	/* Method: update
-	 * Pre Condition: Updates all gates and wires present on the circuit board.
+	 * Pre Condition: Updates all gates present on the circuit board. Wires
+	 * 				  need no update, as the nodes joined by wires share
+	 * 				  the charge of their net.
 	 * */
 	public void update() {
-		int index = 0;
+		// If the board graph is simulated
+		if(mode == INCREMENTAL) {
+			synchronized(this) {
+				// If gates or wires have been removed since the last update
+				if(edited) {
+					removeDetached();
+					edited = false;
+				}
+				graph.tick();
+			}
+			return;
+		}
+		// If the board is simulated by a compiled engine
+		if(mode != SWEEP) {
+			// If the engine is ticked by the simulation thread
+			if(simThread != null)
+				return;
+			// If the engine was ticked, write its changes to the board
+			if(step())
+				compiler.writeBack(engine);
+			return;
+		}
+		// If gates or wires have changed since the last update
+		if(edited) {
+			removeDetached();
+			edited = false;
+		}
 		// For each Gate
-		for(int i = 0; i < gates.size() - index; i++) {
-			// If this gate is detached
-			if(gates.get(i).isDetached()) {
-				gates.remove(i);
-				i--;
-				index++;
-			// Else, update gate
+		for(int i = 0; i < gates.size(); i++) {
+			gates.get(i).update();
+		}
+	}	// end update
+	
+	/* Method: step
+	 * Pre Condition: Recompiles the board if it has been edited, passes any
+	 * 				  clicked sources to the engine and ticks the engine. A
+	 * 				  board with clocks or flip-flops is ticked by its
+	 * 				  scheduler, which skips the ticks in which nothing
+	 * 				  changes when the simulation thread is unbounded. The
+	 * 				  net values of each tick are recorded if the history
+	 * 				  is on. A tick to be restored from the history is
+	 * 				  restored instead of ticking. The engine is ticked
+	 * 				  holding the board's lock, as setMode reads the
+	 * 				  flip-flop values from it.
+	 * Post Condition: Returns false if the board is not simulated by a
+	 * 				   compiled engine, or the history is being scrubbed.
+	 * */
+	boolean step() {
+		// If the board is not simulated by a compiled engine, or the simulation is paused
+		if(!isCompiled() || scrubTick >= 0)
+			return false;
+		// If gates or wires have changed since the last compile
+		if(edited) {
+			synchronized(this) {
+				saveRegisters();
+				removeDetached();
+				compile();
+			}
+		}
+		long r = restoreTick;
+		// If a recorded tick is to be restored
+		if(r >= 0) {
+			restoreTick = -1L;
+			// If the tick is still recorded, continue from it
+			if(restoreHistory(r))
+				return true;
+		}
+		// Tick under the board lock, so the flip-flop values are not read mid-tick
+		synchronized(this) {
+			// If the engine was released by a change of mode
+			if(engine == null)
+				return false;
+			applyClickedSources();
+			ClockScheduler s = scheduler;
+			// If the board has clocks or flip-flops, advance the simulated time
+			if(s != null) {
+				s.step();
+				SimulationThread t = simThread;
+				// If the thread runs as fast as possible, skip to the next clock change
+				if(t != null && t.getTickRate() == SimulationThread.UNBOUNDED && s.getClockCount() > 0)
+					s.skipIdle(Long.MAX_VALUE);
+				ticks = s.getTime();
 			} else {
-				gates.get(i).update();
+				engine.tick();
+				ticks++;
+			}
+			oscillating = engine.getOscillatingNets();
+			StateHistory h = history;
+			// If the history is on, record the tick
+			if(h != null)
+				h.record(engine, ticks);
+		}
+		return true;
+	}	// end step
+
+	/* Method: restoreHistory
+	 * Pre Condition: Loads the engine with every net value recorded at a
+	 * 				  tick, sets the power sources and flip-flops to their
+	 * 				  values at the tick and drops the ticks recorded after
+	 * 				  it. The simulated time continues from the tick.
+	 * Post Condition: Returns false if the tick is not recorded, or the
+	 * 				   engine holds state the history does not record, as
+	 * 				   the timed and distributed engines do.
+	 * */
+	private boolean restoreHistory(long tick) {
+		StateHistory h = history;
+		Snapshot s = h == null ? null : h.get(tick);
+		// If the tick is not recorded for the compiled netlist
+		if(s == null || s.getNetlist() != compiler.getReducedNetlist())
+			return false;
+		synchronized(this) {
+			// If the engine was released by a change of mode
+			if(engine == null)
+				return false;
+			// If the engine can not continue exactly from the recorded values
+			if(!engine.load(s)) {
+				status = "Recorded ticks can not be restored in the " + MODE_NAMES[mode] + " mode";
+				return false;
+			}
+			compiler.restoreSources(s);
+			ticks = tick;
+			scheduler = compiler.createScheduler(engine);
+			// If the board has clocks or flip-flops, continue from the restored time
+			if(scheduler != null)
+				scheduler.setTime(tick);
+			h.truncate(tick);
+			oscillating = engine.getOscillatingNets();
+			compiler.writeAll(engine);
+		}
+		return true;
+	}	// end restoreHistory
+
+	/* Method: saveRegisters
+	 * Pre Condition: Writes the values held by the flip-flops of the compiled
+	 * 				  engine to their gates.
+	 * */
+	private void saveRegisters() {
+		// If the board has been compiled
+		if(compiler != null && engine != null)
+			compiler.saveRegisters(engine);
+	}	// end saveRegisters
+	
+	/* Method: publish
+	 * Pre Condition: Publishes a snapshot of the engine's net values for
+	 * 				  the rendering thread.
+	 * */
+	void publish() {
+		Engine e = engine;
+		// If the engine has not been released by a change of mode
+		if(e != null)
+			published.set(new Snapshot(e, ticks));
+	}	// end publish
+	
+	/* Method: startSimulationThread
+	 * Pre Condition: Moves the simulation of compiled modes onto a separate
+	 * 				  thread, ticking at the specified rate.
+	 * */
+	public void startSimulationThread(int tickRate) {
+		// If the thread is already running
+		if(simThread != null) {
+			simThread.setTickRate(tickRate);
+			return;
+		}
+		SimulationThread t = new SimulationThread(this, tickRate);
+		t.start();
+		simThread = t;
+	}	// end startSimulationThread
+	
+	/* Method: stopSimulationThread
+	 * Pre Condition: Stops the simulation thread, compiled modes are then
+	 * 				  ticked by the board update again.
+	 * */
+	public void stopSimulationThread() {
+		SimulationThread t = simThread;
+		// If the thread is running
+		if(t != null) {
+			t.stop();
+			simThread = null;
+		}
+	}	// end stopSimulationThread
+	
+	/* Method: getSimulationThread
+	 * Post Condition: Returns the simulation thread, or null if compiled
+	 * 				   modes are ticked by the board update.
+	 * */
+	public SimulationThread getSimulationThread() {
+		return simThread;
+	}	// end getSimulationThread
+	
+	/* Method: removeDetached
+	 * Pre Condition: Removes the gates detached since the last update, and
+	 * 				  the wires made loose by them or by a detached wire end,
+	 * 				  from the board and its graph. Only the nodes of the
+	 * 				  detached gates and wire ends are searched for loose
+	 * 				  wires.
+	 * */
+	private void removeDetached() {
+		long start = System.nanoTime();
+		// List the nodes of each detached gate and wire
+		ArrayList<Gate> removed = new ArrayList<>();
+		IntList nodes = new IntList();
+		for(int i = 0; i < removedGates.size(); i++) {
+			Gate g = removedGates.get(i);
+			// If the gate has not already been removed
+			if(removeGate(g)) {
+				removed.add(g);
+				for(int k = 0; k < g.getPinCount(); k++) {
+					if(g.getPinNode(k) >= 0)
+						nodes.add(g.getPinNode(k));
+				}
 			}
 		}
-		index = 0;
-		// For each wire
-		for(int i = 0; i < wires.size() - index; i++) {
-			// If this wire is detached
-			if(wires.get(i).isLoose()) {
-				wires.remove(i);
+		for(int i = 0; i < removedWires.size(); i++) {
+			nodes.add(store.getWireNode1(removedWires.get(i).getId()));
+			nodes.add(store.getWireNode2(removedWires.get(i).getId()));
+		}
+		removedGates.clear();
+		removedWires.clear();
+		// Attach the nodes of gates still on the board, then find loose wires
+		IntList found = new IntList();
+		for(int i = 0; i < nodes.size(); i++) {
+			int g = graph.getPinGate(nodes.get(i));
+			// If the node is a pin of a gate still on the board
+			if(g >= 0 && !store.isGateDetached(g))
+				store.setNodeDetached(nodes.get(i), false);
+			store.getNodeWires(nodes.get(i), found);
+		}
+		IntList loose = new IntList();
+		for(int i = 0; i < found.size(); i++) {
+			Wire w = graph.getWire(found.get(i));
+			// If this wire is loose and has not been listed
+			if(w != null && w.isLoose() && removeWire(w))
+				loose.add(w.getId());
+		}
+		graph.remove(removed, loose);
+		// For each probe
+		for(int i = 0; i < probes.size(); i++) {
+			// If the probed node has been removed
+			if(probes.get(i).isDetached()) {
+				probes.remove(i);
 				i--;
-				index++;
-			// Else, update wire
+			}
+		}
+		editTime = System.nanoTime() - start;
+	}	// end removeDetached
+	
+	/* Method: removeGate
+	 * Pre Condition: Removes a gate from the gates list, searching from the
+	 * 				  most recently placed gate, as the order of the list is
+	 * 				  kept.
+	 * Post Condition: Returns false if the gate is not in the list.
+	 * */
+	private boolean removeGate(Gate g) {
+		for(int i = gates.size() - 1; i >= 0; i--) {
+			// If this is the gate
+			if(gates.get(i) == g) {
+				gates.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}	// end removeGate
+	
+	/* Method: addWire
+	 * Pre Condition: Adds a wire to the end of the wires list and records its
+	 * 				  index.
+	 * */
+	private void addWire(Wire w) {
+		// If the index array is full
+		if(w.getId() >= wireIndex.length)
+			wireIndex = Arrays.copyOf(wireIndex, Math.max(w.getId() + 1, wireIndex.length * 2));
+		wireIndex[w.getId()] = wires.size();
+		wires.add(w);
+	}	// end addWire
+	
+	/* Method: removeWire
+	 * Pre Condition: Removes a wire from the wires list by moving the last
+	 * 				  wire into its place, as the order of wires does not
+	 * 				  matter.
+	 * Post Condition: Returns false if the wire is not in the list.
+	 * */
+	private boolean removeWire(Wire w) {
+		int i = wireIndex[w.getId()];
+		// If the wire is not at its recorded index, it has been removed
+		if(i >= wires.size() || wires.get(i) != w)
+			return false;
+		Wire last = wires.remove(wires.size() - 1);
+		// If the removed wire was not the last, move the last into its place
+		if(last != w) {
+			wires.set(i, last);
+			wireIndex[last.getId()] = i;
+		}
+		return true;
+	}	// end removeWire
+	
+	/* Method: isCompiled
+	 * Post Condition: Returns true if the board is simulated by an engine of
+	 * 				   a compiled netlist.
+	 * */
+	private boolean isCompiled() {
+		return mode != SWEEP && mode != INCREMENTAL;
+	}	// end isCompiled
+	
+	/* Method: compile
+	 * Pre Condition: Compiles the gates and wires into a netlist and creates
+	 * 				  the simulation engine for the current mode.
+	 * */
+	private void compile() {
+		BoardCompiler c = new BoardCompiler(store, gates, wires);
+		// If gates have no delays, simulate the optimized netlist
+		if(mode != TIMED)
+			c.optimize();
+		compiler = c;
+		// If the previous engine holds threads, release them
+		if(engine != null)
+			engine.close();
+		// Create the engine of the mode, levelize if it can not simulate buses
+		try {
+			// If only changed gates are to be evaluated
+			if(mode == EVENT) {
+				engine = new EventEngine(c.getReducedNetlist());
+			} else if(mode == TIMED) {
+				engine = new TimedEngine(c.getReducedNetlist(), delays);
+			} else if(mode == AIG) {
+				engine = new AigEngine(c.getReducedNetlist());
+			} else if(mode == PARALLEL) {
+				engine = new ParallelEngine(c.getReducedNetlist(), ForkJoinPool.commonPool());
+			} else if(mode == PARALLEL_EVENT) {
+				engine = new ParallelEventEngine(c.getReducedNetlist(), Runtime.getRuntime().availableProcessors());
+			} else if(mode == DISTRIBUTED) {
+				// Start the worker processes, levelize if they can not be started
+				try {
+					engine = new DistributedEngine(c.getReducedNetlist(), DistributedEngine.DEFAULT_WORKERS);
+				} catch(IllegalStateException e) {
+					status = e.getMessage();
+					engine = new LevelizedEngine(c.getReducedNetlist());
+				}
+			} else if(mode == BYTECODE) {
+				// Generate a class for the netlist, levelize if it can not be generated
+				try {
+					engine = new CompiledEngine(c.getReducedNetlist());
+				} catch(IllegalStateException e) {
+					status = e.getMessage();
+					engine = new LevelizedEngine(c.getReducedNetlist());
+				}
 			} else {
-				wires.get(i).update();
+				engine = new LevelizedEngine(c.getReducedNetlist());
 			}
+		} catch(IllegalArgumentException e) {
+			status = e.getMessage();
+			engine = new LevelizedEngine(c.getReducedNetlist());
 		}
-	}	// end update
+		compiler.loadSources(engine);
+		engine.tick();
+		scheduler = c.createScheduler(engine);
+		// If the board has clocks or flip-flops, keep the clock phase
+		if(scheduler != null)
+			scheduler.setTime(ticks);
+		oscillating = engine.getOscillatingNets();
+		compiler.writeAll(engine);
+		// If the history is on, record from the new netlist
+		if(recording) {
+			StateHistory h = new StateHistory(c.getReducedNetlist());
+			h.record(engine, ticks);
+			history = h;
+		} else {
+			history = null;
+		}
+		synchronized(clickedSources) {
+			clickedSources.clear();
+		}
+		edited = false;
+	}	// end compile
+	
+	/* Method: applyClickedSources
+	 * Pre Condition: Passes the value of each power source clicked since the
+	 * 				  last update to the simulation engine.
+	 * */
+	private void applyClickedSources() {
+		int[] sources = compiler.getSources();
+		synchronized(clickedSources) {
+			for(int i = 0; i < clickedSources.size(); i++) {
+				int src = clickedSources.get(i);
+				engine.setSourceValue(src, store.getGateValue(sources[src]));
+			}
+			clickedSources.clear();
+		}
+	}	// end applyClickedSources
+	
+	/* Method: setMode
+	 * Pre Condition: Sets the simulation mode of the circuit board. Leaving
+	 * 				  the compiled modes closes the engine, releasing any
+	 * 				  threads or worker processes it holds.
+	 * */
+	public void setMode(int mode) {
+		// If the compiled engine holds flip-flop values, keep them
+		if(isCompiled()) {
+			synchronized(this) {
+				saveRegisters();
+				// If the gate objects are to be updated, continue from the simulated time
+				if(mode == SWEEP || mode == INCREMENTAL) {
+					for(int i = 0; i < gates.size(); i++) {
+						if(gates.get(i) instanceof DFlipFlop)
+							((DFlipFlop) gates.get(i)).sample();
+						else if(gates.get(i) instanceof Clock)
+							((Clock) gates.get(i)).setTime(ticks);
+					}
+					// The engine is no longer ticked, release its threads
+					if(engine != null)
+						engine.close();
+					engine = null;
+				}
+			}
+		}
+		// If the board graph is to be simulated, evaluate every gate once
+		if(mode == INCREMENTAL) {
+			synchronized(this) {
+				graph.scheduleAll();
+			}
+		}
+		this.mode = mode;
+		edited = true;
+	}	// end setMode
+	
+	/* Method: getMode
+	 * Post Condition: Returns the simulation mode of the circuit board.
+	 * */
+	public int getMode() {
+		return mode;
+	}	// end getMode
+	
+	/* Method: getModeName
+	 * Post Condition: Returns the name of the simulation mode.
+	 * */
+	public String getModeName() {
+		// If gates have propagation delays, show the delays
+		if(mode == TIMED) {
+			return MODE_NAMES[mode] + " (delays: AND " + delays[Netlist.AND] +
+					", OR " + delays[Netlist.OR] + ", NOT " + delays[Netlist.NOT] + ")";
+		}
+		BoardCompiler c = compiler;
+		Engine e = engine;
+		String name = MODE_NAMES[mode];
+		// If the board graph is simulated, show its depth, components and the last edit time
+		if(mode == INCREMENTAL)
+			return name + " (" + graph.getLevelCount() + " levels, " + graph.getActiveCount() + " of " +
+					graph.getComponentCount() + " components active, last edit " + editTime / 1000 + " us)";
+		// If the graph is simulated, show its size
+		if(mode == AIG && e instanceof AigEngine)
+			name += " (" + ((AigEngine) e).getAig().getAndCount() + " AND nodes)";
+		// If levels are evaluated in parallel, show how many and on how many threads
+		if(mode == PARALLEL && e instanceof ParallelEngine)
+			name += " (" + ((ParallelEngine) e).getSplitLevelCount() + " levels split over " +
+					((ParallelEngine) e).getThreadCount() + " threads)";
+		// If gates are split between threads, show how many and the nets they share
+		if(mode == PARALLEL_EVENT && e instanceof ParallelEventEngine)
+			name += " (" + ((ParallelEventEngine) e).getPartitionCount() + " partitions, " +
+					((ParallelEventEngine) e).getGhostCount() + " ghost nets)";
+		// If partitions are simulated by other processes, show how many and the nets they share
+		if(mode == DISTRIBUTED && e instanceof DistributedEngine)
+			name += " (" + ((DistributedEngine) e).getWorkerCount() + " worker processes, " +
+					((DistributedEngine) e).getBoundaryCount() + " boundary nets)";
+		// If a class was generated, show how long it took
+		if(mode == BYTECODE && e instanceof CompiledEngine)
+			name += " (generated in " + ((CompiledEngine) e).getGenerateTime() / 1000 + " us)";
+		ClockScheduler s = scheduler;
+		// If the board has clocks, show the clock cycles simulated
+		if(isCompiled() && s != null && s.getClockCount() > 0)
+			name += " (cycle " + s.getCycleCount() + ")";
+		// If the optimizer removed gates, show how many
+		if(isCompiled() && c != null && c.getRemovedCount() > 0)
+			name += " (" + c.getRemovedCount() + " of " + c.getNetlist().getGateCount() +
+					" gates optimized away)";
+		return name;
+	}	// end getModeName
+	
+	/* Method: setDelay
+	 * Pre Condition: Sets the propagation delay of a gate type, in ticks, for
+	 * 				  the timed mode. The board is recompiled.
+	 * */
+	public synchronized void setDelay(int gateType, int delay) {
+		delays[gateType] = Math.max(1, Math.min(delay, TimedEngine.MAX_DELAY));
+		edited = true;
+	}	// end setDelay
+	
+	/* Method: getDelay
+	 * Post Condition: Returns the propagation delay of a gate type, in ticks.
+	 * */
+	public int getDelay(int gateType) {
+		return delays[gateType];
+	}	// end getDelay
 	
 	/* Method: clear
 	 * Pre Condition: Clears all gates and wires from the circuit board.
 	 * */
-	public void clear() {
+	public synchronized void clear() {
+		IntList all = new IntList(wires.size());
+		for(int i = 0; i < wires.size(); i++)
+			all.add(wires.get(i).getId());
+		store.removeWires(all);
+		for(int i = 0; i < gates.size(); i++)
+			gates.get(i).release();
+		if(refWire != null)
+			refWire.release();
 		gates.clear();
 		wires.clear();
+		probes.clear();
+		graph = new BoardGraph(store);
+		removedGates.clear();
+		removedWires.clear();
 		refWire = null;
 		refNode = null;
+		edited = true;
 	}	// end clear
 	
 	/* Method: draw
 	 * Pre Condition: Draws all gates and wires on the circuit board.
 	 * */
-	public void draw(Graphics2D g) {
+	public synchronized void draw(Graphics2D g) {
+		// If the history is being scrubbed, show the scrubbed tick
+		if(scrubTick >= 0 && isCompiled()) {
+			applyScrubbed();
+		// If the board is simulated on a separate thread
+		} else if(simThread != null && isCompiled()) {
+			applySnapshot();
+		}
 		// Set background
 		g.setColor(new Color(40, 40, 35));
 		g.fill(area);
@@ -101,15 +650,152 @@ public class CircuitBoard {
 		if(refWire != null) {
 			refWire.draw(g);
 		}
+		// Mark each probed node
+		g.setColor(new Color(60, 180, 220));
+		for(int i = 0; i < probes.size(); i++) {
+			int[] pos = probes.get(i).getPos();
+			g.drawOval(pos[0] - 3, pos[1] - 3, 22, 22);
+		}
+		// Mark each node of a net that did not settle
+		int[] osc = oscillating;
+		if(isCompiled() && osc.length > 0) {
+			g.setColor(new Color(230, 60, 50));
+			ArrayList<Node> nodes = compiler.getNodes(osc);
+			for(int i = 0; i < nodes.size(); i++) {
+				int[] pos = nodes.get(i).getPos();
+				g.drawOval(pos[0] - 5, pos[1] - 5, 26, 26);
+			}
+		}
 	}	// end draw
 	
+	/* Method: applySnapshot
+	 * Pre Condition: Writes the latest published snapshot to the board nets,
+	 * 				  if it has not already been drawn and it belongs to the
+	 * 				  current compiled board.
+	 * */
+	private void applySnapshot() {
+		Snapshot s = published.get();
+		BoardCompiler c = compiler;
+		// If there is a new snapshot of the current netlist
+		if(s != null && s != applied && c != null && s.getNetlist() == c.getReducedNetlist()) {
+			c.apply(s);
+			applied = s;
+		}
+	}	// end applySnapshot
+	
+	/* Method: applyScrubbed
+	 * Pre Condition: Writes the recorded net values of the scrubbed tick to
+	 * 				  the board nets, if they have not already been drawn.
+	 * */
+	private void applyScrubbed() {
+		StateHistory h = history;
+		BoardCompiler c = compiler;
+		long tick = scrubTick;
+		// If the scrubbed tick has already been drawn
+		if(h == null || c == null || tick < 0 || (scrubbed != null && scrubbed.getTick() == tick))
+			return;
+		Snapshot s = h.get(tick);
+		// If the tick is recorded for the current netlist
+		if(s != null && s.getNetlist() == c.getReducedNetlist()) {
+			c.apply(s);
+			scrubbed = s;
+		}
+	}	// end applyScrubbed
+	
+	/* Method: toggleHistory
+	 * Pre Condition: Starts or stops recording the net values of each tick
+	 * 				  of the compiled modes. A new history starts at the
+	 * 				  current tick.
+	 * */
+	public synchronized void toggleHistory() {
+		recording = !recording;
+		BoardCompiler c = compiler;
+		// If the history is started on a compiled board, record from the current tick
+		if(recording && c != null && isCompiled() && !edited)
+			history = new StateHistory(c.getReducedNetlist());
+		else
+			history = null;
+		scrubTick = -1L;
+		restoreTick = -1L;
+	}	// end toggleHistory
+	
+	/* Method: isHistoryOn
+	 * Post Condition: Returns true if the net values of each tick are
+	 * 				   recorded.
+	 * */
+	public boolean isHistoryOn() {
+		return recording;
+	}	// end isHistoryOn
+	
+	/* Method: getHistory
+	 * Post Condition: Returns the recorded net values of the compiled board,
+	 * 				   or null if the history is off.
+	 * */
+	public StateHistory getHistory() {
+		return history;
+	}	// end getHistory
+	
+	/* Method: scrub
+	 * Pre Condition: Pauses the simulation and shows the recorded net values
+	 * 				  at a tick, kept within the recorded ticks.
+	 * */
+	public void scrub(long tick) {
+		StateHistory h = history;
+		// If nothing has been recorded for the compiled board
+		if(h == null || h.isEmpty() || !isCompiled())
+			return;
+		scrubTick = Math.max(h.getOldestTick(), Math.min(tick, h.getNewestTick()));
+	}	// end scrub
+	
+	/* Method: endScrub
+	 * Pre Condition: Continues the simulation from the scrubbed tick.
+	 * */
+	public void endScrub() {
+		long tick = scrubTick;
+		// If the history is being scrubbed
+		if(tick >= 0) {
+			restore(tick);
+			scrubTick = -1L;
+			scrubbed = null;
+		}
+	}	// end endScrub
+	
+	/* Method: getScrubTick
+	 * Post Condition: Returns the tick being shown from the history, or -1
+	 * 				   if the history is not being scrubbed.
+	 * */
+	public long getScrubTick() {
+		return scrubTick;
+	}	// end getScrubTick
+	
+	/* Method: restore
+	 * Pre Condition: Continues the simulation from a recorded tick, restored
+	 * 				  by the next step. Ticks recorded after it are dropped.
+	 * 				  A tick that is no longer recorded is ignored.
+	 * */
+	public void restore(long tick) {
+		restoreTick = tick;
+	}	// end restore
+	
+	/* Method: getTicks
+	 * Post Condition: Returns the number of ticks simulated by the compiled
+	 * 				   engine.
+	 * */
+	public long getTicks() {
+		return ticks;
+	}	// end getTicks
+	
 	/* Method: addNewGate
 	 * Pre Condition: Receives a gate, activates the gate and adds this 
 	 * 				  to the gates list.
 	 * */
-	public void addNewGate(Gate newGate) {
+	public synchronized void addNewGate(Gate newGate) {
+		long start = System.nanoTime();
 		newGate.activateNodes();
 		gates.add(newGate);
+		graph.addGate(newGate);
+		editTime = System.nanoTime() - start;
+		edited = true;
 	}	// end addNewGate
 	
 	/* Method: onHover
@@ -118,7 +804,7 @@ public class CircuitBoard {
 	 * Post Condition: Returns true if a gate or wire was being hovered over at 
 	 * 			 	   the specific screen location.
 	 * */
-	public boolean onHover(int x, int y) {
+	public synchronized boolean onHover(int x, int y) {
 		// If a wire is not being set
 		if(refWire == null) {
 			// Check if mouse is hovering over a gate on the circuit board
@@ -163,6 +849,11 @@ public class CircuitBoard {
 					}
 				}
 			}
+			// If the node is of another width, the wire can not end on it
+			if(n != null && n.getWidth() != refWire.getWidth()) {
+				n = null;
+				flag = false;
+			}
 			// If no match with a node was made
 			if(n == null) {
 				refWire.moveEndPoint(x, y);			// move wire node
@@ -183,7 +874,7 @@ public class CircuitBoard {
 	 * Pre Condition: Performs appropriate functions when left click event
 	 * 				  occurs over circuit board.
 	 * */
-	public void onLeftClick(int x, int y) {
+	public synchronized void onLeftClick(int x, int y) {
 		// If screen location is over circuit board
 		if(area.contains(x, y)) {
 			// If no wire is currently being sent
@@ -198,11 +889,12 @@ public class CircuitBoard {
 					if(n != null) {
 						// Run new wire
 						int[] pos = n.getPos();
-						refWire = new Wire(n, pos[0], pos[1]);
+						refWire = new Wire(store, n, pos[0], pos[1]);
 						break;
 					// If hovering over gate but not node
 					} else if(g.onHover(x, y)) {
 						g.onClick(x, y);
+						sourceClicked(g);
 					}
 				}
 				// If not hovering over gate node
@@ -214,7 +906,7 @@ public class CircuitBoard {
 						if(n != null) {
 							// Run new wire
 							int[] pos = n.getPos();
-							refWire = new Wire(n, pos[0], pos[1]);
+							refWire = new Wire(store, n, pos[0], pos[1]);
 							break;
 						}
 					}
@@ -226,9 +918,14 @@ public class CircuitBoard {
 					refWire.moveEndPoint(refNode);
 					refNode = null;
 				}
-				// Add new wire to the wires list
-				wires.add(refWire);
+				// Add new wire to the wires list and join the nets
+				// of its nodes
+				long start = System.nanoTime();
+				graph.connect(refWire);
+				addWire(refWire);
+				editTime = System.nanoTime() - start;
 				refWire = null;
+				edited = true;
 			}
 		}
 	}	// end onLeftClick
@@ -237,7 +934,7 @@ public class CircuitBoard {
 	 * Pre Condition: Performs appropriate functions when right click event
 	 * 				  occurs over circuit board.
 	 * */
-	public void onRightClick(int x, int y) {
+	public synchronized void onRightClick(int x, int y) {
 		// If screen location is over circuit board
 		if(area.contains(x, y)) {
 			// If a wire is not being set
@@ -248,11 +945,14 @@ public class CircuitBoard {
 					if(wires.get(i).onHover(x, y)) {
 						// detach this wire
 						wires.get(i).detach(x, y);
+						removedWires.add(wires.get(i));
+						edited = true;
 						return;
 					}
 				}
 			// If a wire is being set
 			} else if(refWire != null) {
+				refWire.release();
 				refWire = null;
 				return;
 			}
@@ -262,12 +962,227 @@ public class CircuitBoard {
 				if(gates.get(i).onGateHover(x, y)) {
 					// detach this gate
 					gates.get(i).detach();
+					removedGates.add(gates.get(i));
+					edited = true;
 					return;
 				}
 			}
 		}
 	}	// end onRightClick
 	
-	public void onMiddleClick(int x, int y) {}	// end onMiddleClick
+	/* Method: sourceClicked
+	 * Pre Condition: Queues a clicked power source, whose new value is passed
+	 * 				  to the simulation engine by the update thread.
+	 * */
+	private void sourceClicked(Gate g) {
+		// If a clock was clicked, its period changed, so recompile
+		if(g instanceof Clock) {
+			edited = true;
+			return;
+		}
+		// If the board graph is simulated, evaluate the source
+		if(mode == INCREMENTAL) {
+			graph.schedule(g.getId());
+			return;
+		}
+		// If the board has been compiled
+		if(isCompiled() && !edited) {
+			int src = compiler.getSourceIndex(g);
+			// If this gate is a source
+			if(src != -1) {
+				synchronized(clickedSources) {
+					clickedSources.add(src);
+				}
+			}
+		}
+	}	// end sourceClicked
+	
+	/* Method: onMiddleClick
+	 * Pre Condition: Chooses the node at the screen location as an output
+	 * 				  of the truth table, or removes it if already chosen.
+	 * */
+	public synchronized void onMiddleClick(int x, int y) {
+		// If screen location is over circuit board
+		if(area.contains(x, y)) {
+			Node n = null;
+			// Find a gate or wire node at this location
+			for(int i = 0; i < gates.size() && n == null; i++)
+				n = gates.get(i).getRefNode(x, y);
+			for(int i = 0; i < wires.size() && n == null; i++)
+				n = wires.get(i).getRefNode(x, y);
+			// If there is a node at this location
+			if(n != null) {
+				if(!probes.remove(n))
+					probes.add(n);
+			}
+		}
+	}	// end onMiddleClick
+	
+	/* Method: toggleTruthTable
+	 * Pre Condition: Starts generating the truth table of the board on a new
+	 * 				  thread, using the power sources as inputs and the probed
+	 * 				  nodes as outputs. The table is printed and written to
+	 * 				  truth_table.txt. If a table is being generated, it is
+	 * 				  cancelled instead.
+	 * */
+	public synchronized void toggleTruthTable() {
+		TruthTable t = table;
+		// If a truth table is being generated
+		if(t != null) {
+			t.cancel();
+			return;
+		}
+		BoardCompiler c = new BoardCompiler(store, gates, wires);
+		// If the board has state, its outputs are not a function of its inputs
+		if(c.isSequential()) {
+			status = "Truth tables can not be generated for clocks or flip-flops";
+			return;
+		}
+		int[] outputs = new int[probes.size()];
+		for(int i = 0; i < outputs.length; i++)
+			outputs[i] = c.getNetIndex(probes.get(i));
+		try {
+			t = new TruthTable(c.getNetlist(), outputs);
+		} catch(IllegalArgumentException e) {
+			status = e.getMessage();
+			return;
+		}
+		table = t;
+		final TruthTable generated = t;
+		Thread th = new Thread(() -> {
+			// If every row was generated
+			if(generated.generate(ForkJoinPool.commonPool())) {
+				generated.print(System.out);
+				try(PrintStream ps = new PrintStream("truth_table.txt")) {
+					generated.print(ps);
+					status = "Truth table written to truth_table.txt";
+				} catch(FileNotFoundException e) {
+					status = "Failed to write truth table: " + e.getMessage();
+				}
+			} else {
+				status = "Truth table cancelled";
+			}
+			table = null;
+		}, "TruthTable");
+		th.setDaemon(true);
+		th.start();
+	}	// end toggleTruthTable
+	
+	/* Method: defineSubCircuit
+	 * Pre Condition: Compiles the board into a subcircuit definition of the
+	 * 				  specified name. The power sources become its inputs, in
+	 * 				  the order they were placed, and the marked nodes become
+	 * 				  its outputs, in the order they were marked.
+	 * Post Condition: Returns the definition, or null if no node is marked.
+	 * */
+	public synchronized SubCircuitDefinition defineSubCircuit(String name) {
+		BoardCompiler c = new BoardCompiler(store, gates, wires);
+		// If the board has state, it can not be a subcircuit body
+		if(c.isSequential()) {
+			status = "Clocks and flip-flops can not be part of a subcircuit";
+			return null;
+		}
+		IntList outputs = new IntList();
+		for(int i = 0; i < probes.size(); i++) {
+			int n = c.getNetIndex(probes.get(i));
+			// If the marked node is part of the compiled board
+			if(n >= 0)
+				outputs.add(n);
+		}
+		// If there are no outputs
+		if(outputs.isEmpty()) {
+			status = "Mark the outputs of a subcircuit with the middle mouse button";
+			return null;
+		}
+		SubCircuitDefinition d = new SubCircuitDefinition(name, c.getNetlist(), outputs.toArray());
+		status = "Subcircuit " + name + ": " + d.getInputCount() + " inputs, " + d.getOutputCount() +
+				" outputs, " + d.getBody().getGateCount() + " gates";
+		return d;
+	}	// end defineSubCircuit
+	
+	/* Method: toggleCache
+	 * Pre Condition: Marks the subcircuit at the screen location as a cached
+	 * 				  block, or removes its cache if it is already cached.
+	 * */
+	public synchronized void toggleCache(int x, int y) {
+		for(int i = 0; i < gates.size(); i++) {
+			// If this gate is a subcircuit at this location
+			if(gates.get(i) instanceof SubCircuit && gates.get(i).onGateHover(x, y)) {
+				SubCircuit s = (SubCircuit) gates.get(i);
+				String name = s.getDefinition().getName();
+				// If the body has loops or too many input bits
+				if(!s.isCacheable()) {
+					status = "Subcircuit " + name + " can not be cached";
+				} else if(s.getCache() == null) {
+					s.setCached(true);
+					status = "Subcircuit " + name + " cached in sweep mode";
+				} else {
+					BlockCache c = s.getCache();
+					s.setCached(false);
+					status = "Subcircuit " + name + " cache removed: " + c.getHits() + " hits, " +
+							c.getMisses() + " misses";
+				}
+				return;
+			}
+		}
+	}	// end toggleCache
+	
+	/* Method: cycleDuty
+	 * Pre Condition: Selects the next duty cycle of the clock at the screen
+	 * 				  location.
+	 * */
+	public synchronized void cycleDuty(int x, int y) {
+		for(int i = 0; i < gates.size(); i++) {
+			// If this gate is a clock at this location
+			if(gates.get(i) instanceof Clock && gates.get(i).onGateHover(x, y)) {
+				Clock c = (Clock) gates.get(i);
+				c.cycleDuty();
+				status = "Clock: period " + c.getPeriod() + " ticks, high for " + c.getHigh() + " (" +
+						c.getDuty() + "%)";
+				edited = true;
+				return;
+			}
+		}
+	}	// end cycleDuty
+
+	/* Method: export
+	 * Pre Condition: Writes the board to a text circuit file, which can be
+	 * 				  simulated by the headless runner. The probed nodes are
+	 * 				  written as outputs.
+	 * */
+	public synchronized void export(String fileName) {
+		BoardCompiler c = new BoardCompiler(store, gates, wires);
+		// If the board has buses, which the text format can not describe
+		if(c.getNetlist().isWide()) {
+			status = "Buses can not be written to a circuit file";
+			return;
+		}
+		try(PrintStream ps = new PrintStream(fileName)) {
+			c.export(ps, probes);
+			status = "Circuit written to " + fileName;
+		} catch(FileNotFoundException e) {
+			status = "Failed to write circuit: " + e.getMessage();
+		}
+	}	// end export
+	
+	/* Method: getStatus
+	 * Post Condition: Returns the progress of the truth table being generated,
+	 * 				   the number of oscillating nets, or the status of the
+	 * 				   last file or table action.
+	 * */
+	public String getStatus() {
+		TruthTable t = table;
+		// If a truth table is being generated
+		if(t != null)
+			return "Truth table: " + (int) (t.getProgress() * 100) + "%";
+		// If the board graph has gates that do not settle
+		if(mode == INCREMENTAL && graph.getOscillatingCount() > 0)
+			return "Oscillating gates: " + graph.getOscillatingCount();
+		int[] osc = oscillating;
+		// If the compiled board has nets that do not settle
+		if(isCompiled() && osc.length > 0)
+			return "Oscillating nets: " + osc.length;
+		return status;
+	}	// end getStatus
 }	// end CircuitBoard class
 
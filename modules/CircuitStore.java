@@ -0,0 +1,771 @@
+/* --------------------------------------------------------------------------------
+ * 								CircuitStore
+ * --------------------------------------------------------------------------------
+ *
+ * Class object holding the state of every node, gate and wire in primitive arrays.
+ * The Node, Gate and Wire classes are views over the store, holding only the
+ * index of their record, so a gate costs a few tens of bytes rather than a graph
+ * of shape and list objects.
+ *
+ * Nodes joined by wires form a net. Nets are kept as a union-find structure over
+ * the node indices, with the charge of each single bit net stored in a packed
+ * bitset at the index of its root node. The value of a bus is stored in a long at
+ * the index of its root node instead; the longs are only allocated once a bus is
+ * added, so a board without buses holds one bit per node. The nodes and the
+ * wires of a net are each linked in a circular list, so two nets are joined in
+ * constant time and a net can be listed without searching the store.
+ *
+ * The regions of the board graph set their nets from several threads at once,
+ * and nets of different regions may share a word of the bitset, so a charge that
+ * changes is flipped atomically.
+ *
+ * Each node has a width of 1 to 64 bits, all nodes of a gate having the width of
+ * the gate. A net of more than one bit is a bus, whose value holds one bit per
+ * wire of the bus. Only nodes of the same width are joined by wires.
+ *
+ * Nodes are reference counted. A node is released when neither its gate nor any
+ * wire uses it. Released records are reused by the next record added.
+ *
+ * */
+
+package modules;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+public class CircuitStore {
+
+	// Node flag constants
+	private static final byte NODE_USED = 1;			// Record in use
+	private static final byte NODE_DETACHED = 2;		// Detached from the board
+	private static final byte NODE_HOVER = 4;			// Hovered over by the mouse
+
+	// Gate flag constants
+	private static final byte GATE_USED = 1;			// Record in use
+	private static final byte GATE_ACTIVE = 2;			// Placed on the board
+	private static final byte GATE_DETACHED = 4;		// Removed from the board
+
+	// Wire flag constants
+	private static final byte WIRE_USED = 1;			// Record in use
+	private static final byte WIRE_CONNECTED = 2;		// Nets of the wire's nodes joined
+	private static final byte WIRE_LOOSE = 4;			// An end of the wire has been detached
+
+	public static final int PINS = 3;					// Pin slots of each gate
+	public static final int OUT = 2;					// Pin slot of the gate output
+	public static final int MAX_WIDTH = 64;				// Max width of a node, in bits
+	public static final int SUBCIRCUIT = 4;				// Type of a subcircuit gate, whose pins it holds itself
+	public static final int CLOCK = 5;					// Type of a clock, a source that toggles by itself
+	public static final int DFF = 6;					// Type of a D flip-flop, slot 0 D and slot 1 clock
+	public static final int CLK = 1;					// Pin slot of the clock input of a flip-flop
+
+	private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);	// Atomic access to a word of a bitset
+
+	// Nodes
+	private int nodeCount = 0;				// Node records allocated
+	private int nodeFree = -1;				// First released node record
+	private int[] nodeX = new int[64];		// Screen location of each node
+	private int[] nodeY = new int[64];
+	private byte[] nodeDir = new byte[64];	// Facing direction of each node
+	private byte[] nodeWidth = new byte[64];	// Width of each node, in bits
+	private byte[] nodeFlags = new byte[64];
+	private int[] nodeRefs = new int[64];	// Number of gates and wires using each node
+	private int[] parent = new int[64];		// Union-find parent of each node
+	private int[] next = new int[64];		// Next node of the same net (circular)
+	private int[] netSize = new int[64];	// Number of nodes in each net (root only)
+	private int[] netWire = new int[64];	// A wire of each net, or -1 (root only)
+	private long[] charge = new long[1];	// Charge of each single bit net, at its root node
+	private long[] value = null;			// Value of each bus, at its root node, or null if there are none
+
+	// Gates
+	private int gateCount = 0;				// Gate records allocated
+	private int gateFree = -1;				// First released gate record
+	private byte[] gateType = new byte[16];	// Netlist type of each gate
+	private byte[] gateFlags = new byte[16];
+	private long[] gateValue = new long[16];	// Output value of each power source
+	private int[] gatePin = new int[16 * PINS];	// Pin nodes of each gate, -1 if unused
+
+	// Wires
+	private int wireCount = 0;				// Wire records allocated
+	private int wireFree = -1;				// First released wire record
+	private int[] wireNode1 = new int[16];	// First node of each wire
+	private int[] wireNode2 = new int[16];	// Second node of each wire
+	private int[] wireNext = new int[16];	// Next wire of the same net (circular)
+	private byte[] wireFlags = new byte[16];
+
+	/* --------------------------------- Nodes ------------------------------------ */
+
+	/* Method: addNode
+	 * Pre Condition: Receives the location and direction of a new single bit
+	 * 				  node.
+	 * Post Condition: Returns the index of the node.
+	 * */
+	public int addNode(int x, int y, int direction) {
+		return addNode(x, y, direction, 1);
+	}	// end addNode
+
+	/* Method: addNode
+	 * Pre Condition: Receives the location, direction and width of a new node.
+	 * 				  The node is a net of its own and is used once, by its
+	 * 				  creator.
+	 * Post Condition: Returns the index of the node.
+	 * */
+	public synchronized int addNode(int x, int y, int direction, int width) {
+		int n;
+		// If there is a released node record
+		if(nodeFree >= 0) {
+			n = nodeFree;
+			nodeFree = next[n];
+		} else {
+			// If the node arrays are full
+			if(nodeCount == nodeX.length)
+				growNodes(nodeCount * 2);
+			n = nodeCount++;
+		}
+		nodeX[n] = x;
+		nodeY[n] = y;
+		nodeDir[n] = (byte) direction;
+		nodeWidth[n] = (byte) width;
+		// If this is the first bus, allocate the bus values
+		if(width > 1 && value == null)
+			value = new long[nodeX.length];
+		nodeFlags[n] = NODE_USED;
+		nodeRefs[n] = 1;
+		parent[n] = n;
+		next[n] = n;
+		netSize[n] = 1;
+		netWire[n] = -1;
+		putRootValue(n, 0L);
+		return n;
+	}	// end addNode
+
+	/* Method: growNodes
+	 * Pre Condition: Grows the node arrays to the specified capacity.
+	 * */
+	private void growNodes(int capacity) {
+		nodeX = Arrays.copyOf(nodeX, capacity);
+		nodeY = Arrays.copyOf(nodeY, capacity);
+		nodeDir = Arrays.copyOf(nodeDir, capacity);
+		nodeWidth = Arrays.copyOf(nodeWidth, capacity);
+		nodeFlags = Arrays.copyOf(nodeFlags, capacity);
+		nodeRefs = Arrays.copyOf(nodeRefs, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		next = Arrays.copyOf(next, capacity);
+		netSize = Arrays.copyOf(netSize, capacity);
+		netWire = Arrays.copyOf(netWire, capacity);
+		charge = Arrays.copyOf(charge, (capacity + 63) >>> 6);
+		if(value != null)
+			value = Arrays.copyOf(value, capacity);
+	}	// end growNodes
+
+	/* Method: retainNode
+	 * Pre Condition: Adds a use of a node.
+	 * */
+	public synchronized void retainNode(int n) {
+		nodeRefs[n]++;
+	}	// end retainNode
+
+	/* Method: releaseNode
+	 * Pre Condition: Removes a use of a node. The record is released when the
+	 * 				  node is no longer used, the node must then be a net of
+	 * 				  its own.
+	 * */
+	public synchronized void releaseNode(int n) {
+		// If the node is no longer used
+		if(--nodeRefs[n] == 0) {
+			nodeFlags[n] = 0;
+			next[n] = nodeFree;
+			nodeFree = n;
+		}
+	}	// end releaseNode
+
+	/* Method: setNodePos
+	 * Pre Condition: Sets the screen location of a node.
+	 * */
+	public void setNodePos(int n, int x, int y) {
+		nodeX[n] = x;
+		nodeY[n] = y;
+	}	// end setNodePos
+
+	/* Method: getNodeX
+	 * Post Condition: Returns the x location of a node.
+	 * */
+	public int getNodeX(int n) {
+		return nodeX[n];
+	}	// end getNodeX
+
+	/* Method: getNodeY
+	 * Post Condition: Returns the y location of a node.
+	 * */
+	public int getNodeY(int n) {
+		return nodeY[n];
+	}	// end getNodeY
+
+	/* Method: getNodeDirection
+	 * Post Condition: Returns the facing direction of a node.
+	 * */
+	public int getNodeDirection(int n) {
+		return nodeDir[n];
+	}	// end getNodeDirection
+
+	/* Method: getNodeWidth
+	 * Post Condition: Returns the width of a node, in bits.
+	 * */
+	public int getNodeWidth(int n) {
+		return nodeWidth[n];
+	}	// end getNodeWidth
+
+	/* Method: mask
+	 * Post Condition: Returns a value with the low width bits set.
+	 * */
+	public static long mask(int width) {
+		return -1L >>> (MAX_WIDTH - width);
+	}	// end mask
+
+	/* Method: setNodeDetached
+	 * Pre Condition: Sets the detached state of a node.
+	 * */
+	public void setNodeDetached(int n, boolean detached) {
+		setFlag(nodeFlags, n, NODE_DETACHED, detached);
+	}	// end setNodeDetached
+
+	/* Method: isNodeDetached
+	 * Post Condition: Returns true if the node is detached.
+	 * */
+	public boolean isNodeDetached(int n) {
+		return (nodeFlags[n] & NODE_DETACHED) != 0;
+	}	// end isNodeDetached
+
+	/* Method: isNodeUsed
+	 * Post Condition: Returns true if the node record is in use.
+	 * */
+	public boolean isNodeUsed(int n) {
+		return (nodeFlags[n] & NODE_USED) != 0;
+	}	// end isNodeUsed
+
+	/* Method: setNodeHovering
+	 * Pre Condition: Sets the hovering state of a node.
+	 * */
+	public void setNodeHovering(int n, boolean hovering) {
+		setFlag(nodeFlags, n, NODE_HOVER, hovering);
+	}	// end setNodeHovering
+
+	/* Method: isNodeHovering
+	 * Post Condition: Returns true if the mouse is hovering over the node.
+	 * */
+	public boolean isNodeHovering(int n) {
+		return (nodeFlags[n] & NODE_HOVER) != 0;
+	}	// end isNodeHovering
+
+	/* Method: getNodeCapacity
+	 * Post Condition: Returns one more than the highest node index in use.
+	 * */
+	public int getNodeCapacity() {
+		return nodeCount;
+	}	// end getNodeCapacity
+
+	/* ---------------------------------- Nets ------------------------------------ */
+
+	/* Method: find
+	 * Post Condition: Returns the root node of the net of a node.
+	 * */
+	public int find(int n) {
+		final int[] p = parent;
+		while(p[n] != n) {
+			p[n] = p[p[n]];
+			n = p[n];
+		}
+		return n;
+	}	// end find
+
+	/* Method: getCharge
+	 * Post Condition: Returns the charge of the net of a node, which is
+	 * 				   positive if any bit of the net is set.
+	 * */
+	public boolean getCharge(int n) {
+		return getRootValue(find(n)) != 0L;
+	}	// end getCharge
+
+	/* Method: setCharge
+	 * Pre Condition: Sets the charge of the net of a node. A positive charge
+	 * 				  sets every bit of the net.
+	 * */
+	public void setCharge(int n, boolean c) {
+		setRootCharge(find(n), c);
+	}	// end setCharge
+
+	/* Method: setRootCharge
+	 * Pre Condition: Sets the charge of a net, given its root node.
+	 * */
+	void setRootCharge(int r, boolean c) {
+		putRootValue(r, c ? mask(nodeWidth[r]) : 0L);
+	}	// end setRootCharge
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the net of a node.
+	 * */
+	public long getValue(int n) {
+		return getRootValue(find(n));
+	}	// end getValue
+
+	/* Method: setValue
+	 * Pre Condition: Sets the value of the net of a node. Bits beyond the
+	 * 				  width of the net are cleared.
+	 * */
+	public void setValue(int n, long v) {
+		setRootValue(find(n), v);
+	}	// end setValue
+
+	/* Method: setRootValue
+	 * Pre Condition: Sets the value of a net, given its root node.
+	 * */
+	void setRootValue(int r, long v) {
+		putRootValue(r, v & mask(nodeWidth[r]));
+	}	// end setRootValue
+
+	/* Method: getRootValue
+	 * Post Condition: Returns the value of a net, given its root node.
+	 * */
+	private long getRootValue(int r) {
+		// If the net is a single bit, read it from the bitset
+		if(nodeWidth[r] == 1)
+			return (charge[r >>> 6] >>> r) & 1L;
+		return value[r];
+	}	// end getRootValue
+
+	/* Method: putRootValue
+	 * Pre Condition: Stores the value of a net, given its root node. The
+	 * 				  value must be within the width of the net.
+	 * */
+	private void putRootValue(int r, long v) {
+		// If the net is a bus
+		if(nodeWidth[r] != 1) {
+			value[r] = v;
+			return;
+		}
+		final long[] c = charge;
+		// If the charge changes, flip its bit
+		if(((c[r >>> 6] >>> r) & 1L) != v)
+			WORD.getAndBitwiseXor(c, r >>> 6, 1L << r);
+	}	// end putRootValue
+
+	/* Method: getNetNodes
+	 * Pre Condition: Adds every node of the net of a node to the list.
+	 * */
+	public void getNetNodes(int n, IntList list) {
+		int m = n;
+		do {
+			list.add(m);
+			m = next[m];
+		} while(m != n);
+	}	// end getNetNodes
+
+	/* Method: getNodeWires
+	 * Pre Condition: Adds every connected wire with an end at a node to the
+	 * 				  list. Only the wires of the node's net are searched.
+	 * */
+	public void getNodeWires(int n, IntList list) {
+		int first = netWire[find(n)];
+		// If the net has no wires
+		if(first < 0)
+			return;
+		int w = first;
+		do {
+			if(wireNode1[w] == n || wireNode2[w] == n)
+				list.add(w);
+			w = wireNext[w];
+		} while(w != first);
+	}	// end getNodeWires
+
+	/* Method: connect
+	 * Pre Condition: Joins the nets of both nodes of a wire, which must have
+	 * 				  the same width. The joined net takes the value of the
+	 * 				  wire's first node.
+	 * */
+	public synchronized void connect(int w) {
+		int a = find(wireNode1[w]);
+		int b = find(wireNode2[w]);
+		long v = getRootValue(a);
+		// If the nodes are on different nets
+		if(a != b) {
+			// Join the smaller net into the larger net
+			if(netSize[a] < netSize[b]) {
+				int t = a;
+				a = b;
+				b = t;
+			}
+			parent[b] = a;
+			netSize[a] += netSize[b];
+			// Splice the node lists, then the wire lists
+			int t = next[a];
+			next[a] = next[b];
+			next[b] = t;
+			if(netWire[a] < 0) {
+				netWire[a] = netWire[b];
+			} else if(netWire[b] >= 0) {
+				t = wireNext[netWire[a]];
+				wireNext[netWire[a]] = wireNext[netWire[b]];
+				wireNext[netWire[b]] = t;
+			}
+		}
+		// Add the wire to the wire list of the net
+		if(netWire[a] < 0) {
+			wireNext[w] = w;
+			netWire[a] = w;
+		} else {
+			wireNext[w] = wireNext[netWire[a]];
+			wireNext[netWire[a]] = w;
+		}
+		wireFlags[w] |= WIRE_CONNECTED;
+		putRootValue(a, v);
+	}	// end connect
+
+	/* Method: disconnect
+	 * Pre Condition: Removes a wire from its net. The nodes of the net are
+	 * 				  made nets of their own, which are joined again by the
+	 * 				  remaining wires of the net.
+	 * */
+	public synchronized void disconnect(int w) {
+		IntList list = new IntList(1);
+		list.add(w);
+		disconnect(list);
+	}	// end disconnect
+
+	/* Method: disconnect
+	 * Pre Condition: Removes a list of wires from their nets. Each net that
+	 * 				  loses a wire is rebuilt once from its remaining wires.
+	 * */
+	public synchronized void disconnect(IntList list) {
+		// Find the root of each net losing a wire
+		IntList netRoots = new IntList();
+		for(int i = 0; i < list.size(); i++) {
+			int w = list.get(i);
+			// If the wire is connected
+			if((wireFlags[w] & WIRE_CONNECTED) != 0) {
+				wireFlags[w] &= ~WIRE_CONNECTED;
+				netRoots.add(find(wireNode1[w]));
+			}
+		}
+		IntList others = new IntList();
+		for(int i = 0; i < netRoots.size(); i++) {
+			int r = netRoots.get(i);
+			// If this net has already been rebuilt
+			if(parent[r] != r || netWire[r] < 0)
+				continue;
+			long netValue = getRootValue(r);
+			// Collect the wires of the net still connected
+			int first = netWire[r];
+			int v = first;
+			do {
+				if((wireFlags[v] & WIRE_CONNECTED) != 0)
+					others.add(v);
+				v = wireNext[v];
+			} while(v != first);
+			// Make every node of the net a net of its own
+			int n = r;
+			do {
+				int m = next[n];
+				parent[n] = n;
+				next[n] = n;
+				netSize[n] = 1;
+				netWire[n] = -1;
+				putRootValue(n, netValue);
+				n = m;
+			} while(n != r);
+		}
+		for(int i = 0; i < others.size(); i++)
+			connect(others.get(i));
+	}	// end disconnect
+
+	/* --------------------------------- Gates ------------------------------------ */
+
+	/* Method: addGate
+	 * Pre Condition: Receives the netlist type of a new single bit gate.
+	 * Post Condition: Returns the index of the gate.
+	 * */
+	public int addGate(int type) {
+		return addGate(type, 1);
+	}	// end addGate
+
+	/* Method: addGate
+	 * Pre Condition: Receives the netlist type and width of a new gate. A
+	 * 				  node of that width is added for each input (facing left)
+	 * 				  and the output (facing right) of the gate. A subcircuit
+	 * 				  gate adds its own nodes, so none are added for it. The
+	 * 				  clock input of a flip-flop is a single bit.
+	 * Post Condition: Returns the index of the gate.
+	 * */
+	public synchronized int addGate(int type, int width) {
+		int g;
+		// If there is a released gate record
+		if(gateFree >= 0) {
+			g = gateFree;
+			gateFree = gatePin[g * PINS];
+		} else {
+			// If the gate arrays are full
+			if(gateCount == gateType.length) {
+				gateType = Arrays.copyOf(gateType, gateCount * 2);
+				gateFlags = Arrays.copyOf(gateFlags, gateCount * 2);
+				gateValue = Arrays.copyOf(gateValue, gateCount * 2);
+				gatePin = Arrays.copyOf(gatePin, gateCount * 2 * PINS);
+			}
+			g = gateCount++;
+		}
+		gateType[g] = (byte) type;
+		gateFlags[g] = GATE_USED;
+		gateValue[g] = 0L;
+		int inputs = getInputCount(type);
+		for(int k = 0; k < OUT; k++)
+			gatePin[g * PINS + k] = k < inputs ? addNode(0, 0, Node.LEFT, type == DFF && k == CLK ? 1 : width) : -1;
+		gatePin[g * PINS + OUT] = type == SUBCIRCUIT ? -1 : addNode(0, 0, Node.RIGHT, width);
+		return g;
+	}	// end addGate
+
+	/* Method: removeGate
+	 * Pre Condition: Releases a gate and its use of its nodes.
+	 * */
+	public synchronized void removeGate(int g) {
+		for(int k = 0; k < PINS; k++) {
+			if(gatePin[g * PINS + k] >= 0)
+				releaseNode(gatePin[g * PINS + k]);
+		}
+		gateFlags[g] = 0;
+		gatePin[g * PINS] = gateFree;
+		gateFree = g;
+	}	// end removeGate
+
+	/* Method: getInputCount
+	 * Post Condition: Returns the number of inputs of a gate type.
+	 * */
+	public static int getInputCount(int type) {
+		switch(type) {
+		case Netlist.SOURCE:
+		case SUBCIRCUIT:
+		case CLOCK:
+			return 0;
+		case Netlist.NOT:
+			return 1;
+		default:
+			return 2;
+		}
+	}	// end getInputCount
+
+	/* Method: getGateType
+	 * Post Condition: Returns the netlist type of a gate.
+	 * */
+	public int getGateType(int g) {
+		return gateType[g];
+	}	// end getGateType
+
+	/* Method: getGateWidth
+	 * Post Condition: Returns the width of a gate, which is the width of each
+	 * 				   of its nodes, or 1 for a subcircuit gate.
+	 * */
+	public int getGateWidth(int g) {
+		int out = gatePin[g * PINS + OUT];
+		return out < 0 ? 1 : nodeWidth[out];
+	}	// end getGateWidth
+
+	/* Method: getPin
+	 * Post Condition: Returns the node of a pin slot of a gate, or -1 if the
+	 * 				   slot is not used.
+	 * */
+	public int getPin(int g, int k) {
+		return gatePin[g * PINS + k];
+	}	// end getPin
+
+	/* Method: setGateActive
+	 * Pre Condition: Sets the active (placed on the board) state of a gate.
+	 * */
+	public void setGateActive(int g, boolean active) {
+		setFlag(gateFlags, g, GATE_ACTIVE, active);
+	}	// end setGateActive
+
+	/* Method: isGateActive
+	 * Post Condition: Returns true if the gate is placed on the board.
+	 * */
+	public boolean isGateActive(int g) {
+		return (gateFlags[g] & GATE_ACTIVE) != 0;
+	}	// end isGateActive
+
+	/* Method: setGateDetached
+	 * Pre Condition: Sets the detached state of a gate.
+	 * */
+	public void setGateDetached(int g, boolean detached) {
+		setFlag(gateFlags, g, GATE_DETACHED, detached);
+	}	// end setGateDetached
+
+	/* Method: isGateDetached
+	 * Post Condition: Returns true if the gate has been removed from the board.
+	 * */
+	public boolean isGateDetached(int g) {
+		return (gateFlags[g] & GATE_DETACHED) != 0;
+	}	// end isGateDetached
+
+	/* Method: setGateState
+	 * Pre Condition: Sets the output charge of a power source.
+	 * */
+	public void setGateState(int g, boolean state) {
+		gateValue[g] = state ? mask(getGateWidth(g)) : 0L;
+	}	// end setGateState
+
+	/* Method: getGateState
+	 * Post Condition: Returns the output charge of a power source.
+	 * */
+	public boolean getGateState(int g) {
+		return gateValue[g] != 0L;
+	}	// end getGateState
+
+	/* Method: setGateValue
+	 * Pre Condition: Sets the output value of a power source, bits beyond
+	 * 				  the width of the source are cleared.
+	 * */
+	public void setGateValue(int g, long v) {
+		gateValue[g] = v & mask(getGateWidth(g));
+	}	// end setGateValue
+
+	/* Method: getGateValue
+	 * Post Condition: Returns the output value of a power source.
+	 * */
+	public long getGateValue(int g) {
+		return gateValue[g];
+	}	// end getGateValue
+
+	/* Method: isOnBoard
+	 * Post Condition: Returns true if the gate is in use, placed on the board
+	 * 				   and not detached.
+	 * */
+	public boolean isOnBoard(int g) {
+		return (gateFlags[g] & (GATE_USED | GATE_ACTIVE | GATE_DETACHED)) == (GATE_USED | GATE_ACTIVE);
+	}	// end isOnBoard
+
+	/* Method: getGateCapacity
+	 * Post Condition: Returns one more than the highest gate index in use.
+	 * */
+	public int getGateCapacity() {
+		return gateCount;
+	}	// end getGateCapacity
+
+	/* --------------------------------- Wires ------------------------------------ */
+
+	/* Method: addWire
+	 * Pre Condition: Receives both nodes of a new wire, which are used by the
+	 * 				  wire until it is removed.
+	 * Post Condition: Returns the index of the wire.
+	 * */
+	public synchronized int addWire(int n1, int n2) {
+		int w;
+		// If there is a released wire record
+		if(wireFree >= 0) {
+			w = wireFree;
+			wireFree = wireNext[w];
+		} else {
+			// If the wire arrays are full
+			if(wireCount == wireNode1.length) {
+				wireNode1 = Arrays.copyOf(wireNode1, wireCount * 2);
+				wireNode2 = Arrays.copyOf(wireNode2, wireCount * 2);
+				wireNext = Arrays.copyOf(wireNext, wireCount * 2);
+				wireFlags = Arrays.copyOf(wireFlags, wireCount * 2);
+			}
+			w = wireCount++;
+		}
+		wireNode1[w] = n1;
+		wireNode2[w] = n2;
+		wireNext[w] = -1;
+		wireFlags[w] = WIRE_USED;
+		retainNode(n1);
+		retainNode(n2);
+		return w;
+	}	// end addWire
+
+	/* Method: removeWire
+	 * Pre Condition: Disconnects a wire and releases its use of its nodes.
+	 * */
+	public synchronized void removeWire(int w) {
+		disconnect(w);
+		freeWire(w);
+	}	// end removeWire
+
+	/* Method: removeWires
+	 * Pre Condition: Disconnects a list of wires and releases their use of
+	 * 				  their nodes.
+	 * */
+	public synchronized void removeWires(IntList list) {
+		disconnect(list);
+		for(int i = 0; i < list.size(); i++)
+			freeWire(list.get(i));
+	}	// end removeWires
+
+	/* Method: freeWire
+	 * Pre Condition: Releases a disconnected wire record and its nodes.
+	 * */
+	private void freeWire(int w) {
+		releaseNode(wireNode1[w]);
+		releaseNode(wireNode2[w]);
+		wireFlags[w] = 0;
+		wireNext[w] = wireFree;
+		wireFree = w;
+	}	// end freeWire
+
+	/* Method: setWireNode2
+	 * Pre Condition: Moves the second end of an unconnected wire to a node.
+	 * */
+	public synchronized void setWireNode2(int w, int n) {
+		retainNode(n);
+		releaseNode(wireNode2[w]);
+		wireNode2[w] = n;
+	}	// end setWireNode2
+
+	/* Method: getWireNode1
+	 * Post Condition: Returns the first node of a wire.
+	 * */
+	public int getWireNode1(int w) {
+		return wireNode1[w];
+	}	// end getWireNode1
+
+	/* Method: getWireNode2
+	 * Post Condition: Returns the second node of a wire.
+	 * */
+	public int getWireNode2(int w) {
+		return wireNode2[w];
+	}	// end getWireNode2
+
+	/* Method: isWireConnected
+	 * Post Condition: Returns true if the nets of the wire's nodes are joined.
+	 * */
+	public boolean isWireConnected(int w) {
+		return (wireFlags[w] & WIRE_CONNECTED) != 0;
+	}	// end isWireConnected
+
+	/* Method: setWireLoose
+	 * Pre Condition: Marks a wire as loose, to be removed from the board.
+	 * */
+	public void setWireLoose(int w) {
+		wireFlags[w] |= WIRE_LOOSE;
+	}	// end setWireLoose
+
+	/* Method: isWireLoose
+	 * Post Condition: Returns true if the wire has been marked as loose.
+	 * */
+	public boolean isWireLoose(int w) {
+		return (wireFlags[w] & WIRE_LOOSE) != 0;
+	}	// end isWireLoose
+
+	/* Method: getWireCapacity
+	 * Post Condition: Returns one more than the highest wire index in use.
+	 * */
+	public int getWireCapacity() {
+		return wireCount;
+	}	// end getWireCapacity
+
+	/* Method: setFlag
+	 * Pre Condition: Sets or clears a flag of a record.
+	 * */
+	private static void setFlag(byte[] flags, int i, byte flag, boolean set) {
+		if(set) {
+			flags[i] |= flag;
+		} else {
+			flags[i] &= ~flag;
+		}
+	}	// end setFlag
+}	// end CircuitStore class
@@ -0,0 +1,197 @@
+/* --------------------------------------------------------------------------------
+ * 								Clock
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a clock source, used in simulations. The output of the
+ * clock is high for the first high ticks of every period ticks, and low for the
+ * rest of the period. Clicking the clock selects the next period, keeping the
+ * duty cycle, and the duty cycle can be changed on its own.
+ *
+ * In the sweep and incremental modes the clock counts its own updates. The
+ * compiled modes drive the clock from the simulated time of a ClockScheduler,
+ * so all clocks of the board keep their phase.
+ *
+ * */
+
+package modules;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+public class Clock extends Gate {
+
+	private static final int WIDTH = 30;		// Clock area width
+	private static final int HEIGHT = 30;		// Clock area height
+	private static final int[] PERIODS = { 2, 4, 8, 16, 64, 256, 1024 };	// Periods selected by clicking
+	private static final int[] DUTIES = { 50, 25, 75 };					// Duty cycles, in percent
+
+	private int period;				// Ticks per clock cycle
+	private int high;				// Ticks of each cycle the output is high
+	private long time = 0L;			// Updates since the clock was placed
+
+	/* Constructor
+	 * Pre Condition: Uses default location, a period of 8 ticks and a duty
+	 * 				  cycle of 50%.
+	 * */
+	public Clock(CircuitStore store) {
+		this(store, 200, 200, 8, 4);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives location, period and high time in ticks, and
+	 * 				  initiates the node. The high time is kept between one
+	 * 				  tick and one tick less than the period.
+	 * */
+	public Clock(CircuitStore store, int x, int y, int period, int high) {
+		super(store, x, y, WIDTH, HEIGHT, CircuitStore.CLOCK, 1);
+		setTiming(period, high);
+		setPin(CircuitStore.OUT, x + 40, y + 7);
+	}	// end Constructor
+
+	/* Method: setTiming
+	 * Pre Condition: Sets the period and high time, in ticks. The period is
+	 * 				  at least two ticks, so the clock has both levels.
+	 * */
+	public void setTiming(int period, int high) {
+		this.period = Math.max(period, 2);
+		this.high = Math.max(1, Math.min(high, this.period - 1));
+	}	// end setTiming
+
+	/* Method: getPeriod
+	 * Post Condition: Returns the period, in ticks.
+	 * */
+	public int getPeriod() {
+		return period;
+	}	// end getPeriod
+
+	/* Method: getHigh
+	 * Post Condition: Returns the number of ticks of each period the output
+	 * 				   is high.
+	 * */
+	public int getHigh() {
+		return high;
+	}	// end getHigh
+
+	/* Method: getDuty
+	 * Post Condition: Returns the duty cycle, in percent.
+	 * */
+	public int getDuty() {
+		return high * 100 / period;
+	}	// end getDuty
+
+	/* Method: cycleDuty
+	 * Pre Condition: Selects the next duty cycle, keeping the period.
+	 * */
+	public void cycleDuty() {
+		int i = 0;
+		while(i < DUTIES.length && DUTIES[i] != getDuty())
+			i++;
+		int duty = DUTIES[(i + 1) % DUTIES.length];
+		setTiming(period, (period * duty + 50) / 100);
+	}	// end cycleDuty
+
+	/* Method: setTime
+	 * Pre Condition: Sets the number of updates counted, which sets the
+	 * 				  phase of the clock.
+	 * */
+	public void setTime(long time) {
+		this.time = time;
+	}	// end setTime
+
+	/* Method: setPos
+	 * Pre Condition: Receives new screen location.
+	 * */
+	@Override
+	public void setPos(int x, int y) {
+		this.x = x;
+		this.y = y;
+		setPin(CircuitStore.OUT, x + 40, y + 7);
+	}	// end setPos
+
+	/* Method: onHover
+	 * Pre Condition: Receives x and y of current screen
+	 * 				  location. Performs hovering processes.
+	 * Post Condition: Returns true if the mouse is hovering over this
+	 * 				   clock area or the node.
+	 * */
+	@Override
+	public boolean onHover(int x, int y) {
+		return onGateHover(x, y) || pin(CircuitStore.OUT).onHover(x, y);
+	}	// end onHover
+
+	/* Method: onGateHover
+	 * Pre Condition: Determines if the specified location is contained
+	 * 				  in the area of the clock.
+	 * Post Condition: Returns true if this point exists in the area.
+	 * */
+	@Override
+	public boolean onGateHover(int x, int y) {
+		return x >= this.x && y >= this.y && x < this.x + WIDTH && y < this.y + HEIGHT;
+	}	// end onGateHover
+
+	/* Method: onClick
+	 * Pre Condition: Selects the next period, keeping the duty cycle.
+	 * */
+	@Override
+	public void onClick(int x, int y) {
+		int duty = getDuty();
+		int i = 0;
+		while(i < PERIODS.length && PERIODS[i] != period)
+			i++;
+		int p = PERIODS[(i + 1) % PERIODS.length];
+		setTiming(p, (p * duty + 50) / 100);
+	}	// end onClick
+
+	@Override
+	public void click() {}
+
+	@Override
+	public boolean isPressed() { return false; }
+
+	@Override
+	public void acknowledge() {}
+
+	/* Method: isHigh
+	 * Post Condition: Returns the level of a clock of the specified timing
+	 * 				   at a tick.
+	 * */
+	public static boolean isHigh(long tick, int period, int high) {
+		return tick % period < high;
+	}	// end isHigh
+
+	/* Method: update
+	 * Pre Condition: Attaches the node if it was detached during the
+	 * 				  removal of a wire. Sets the output to the level of the
+	 * 				  current update and counts the update.
+	 * */
+	@Override
+	public void update() {
+		reattach();
+		boolean level = isHigh(time++, period, high);
+		store.setGateState(id, level);
+		pin(CircuitStore.OUT).setValue(level ? 1L : 0L);
+	}	// end update
+
+	/* Method: draw
+	 * Pre Condition: Receives graphics object used to draw all shapes
+	 * 				  and the node related with this clock.
+	 * */
+	@Override
+	public void draw(Graphics2D g) {
+		// Draw rectangle
+		g.setColor(new Color(204, 86, 2));
+		g.setStroke(new BasicStroke(3f));
+		g.drawRect(x, y, WIDTH, HEIGHT);
+		g.setStroke(new BasicStroke(1f));
+		// Draw one period of the wave, high for the duty cycle
+		int h = 4 + 22 * high / period;
+		g.drawPolyline(new int[] { x + 4, x + 4, x + h, x + h, x + 26 },
+				new int[] { y + 22, y + 8, y + 8, y + 22, y + 22 }, 5);
+		g.drawString(Integer.toString(period), x + 2, y + HEIGHT + 14);
+		// Draw node
+		drawNodes(g);
+		// Draw node stick
+		g.drawLine(x + 30, y + 15, x + 42, y + 15);
+	}	// end draw
+}	// end Clock class
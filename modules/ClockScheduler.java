@@ -0,0 +1,272 @@
+/* --------------------------------------------------------------------------------
+ * 								ClockScheduler
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to advance the simulated time of a sequential circuit. Clocks
+ * and the outputs of flip-flops are sources of the simulated netlist, so the
+ * netlist itself stays combinational and can be simulated by any Engine. Each
+ * step of the scheduler is one tick of simulated time:
+ *
+ * 		The clock sources are set to their level at the new time, and the engine
+ * 		is ticked until the combinational logic settles.
+ *
+ * 		Each flip-flop whose clock net has risen since it was last checked takes
+ * 		the value its D net held before the edge. If any flip-flop changed, the
+ * 		engine is ticked again and the clocks are checked again, so flip-flops
+ * 		clocked by the output of another flip-flop (ripple counters) also see
+ * 		their edge within the step. Every flip-flop without an edge samples its
+ * 		D net after each check.
+ *
+ * A timed engine is ticked once per step. Its flip-flops are checked after the
+ * tick, and a new Q value takes the gate delays to reach other flip-flops.
+ *
+ * Between clock changes a settled circuit does not change, so advance skips the
+ * ticks in between at no cost. A counter clocked with a period of two ticks is
+ * then simulated at a few engine ticks per clock cycle, which is millions of
+ * cycles per second for circuits of a few hundred gates.
+ *
+ * The D and clock nets of flip-flops are nets of the simulated netlist. A net
+ * that an optimizer found to be constant is given as FALSE or TRUE instead.
+ *
+ * */
+
+package modules;
+
+public class ClockScheduler {
+
+	public static final int FALSE = -1;			// Net that is always false
+	public static final int TRUE = -2;			// Net that is always true
+
+	private final Engine engine;				// Engine of the simulated netlist
+	private final IntList clockSrc = new IntList();		// Source of each clock
+	private final IntList clockPeriod = new IntList();	// Period of each clock, in ticks
+	private final IntList clockHigh = new IntList();	// High ticks of each clock period
+	private final IntList regSrc = new IntList();		// Source of the Q net of each flip-flop
+	private final IntList regD = new IntList();			// D net of each flip-flop
+	private final IntList regClock = new IntList();		// Clock net of each flip-flop
+	private boolean[] level;					// Level each clock source was last set to
+	private boolean[] lastClock;				// Clock level of each flip-flop at its last check
+	private long[] lastD;						// D value of each flip-flop at its last check
+	private boolean[] rose;						// Flip-flops that saw an edge in this check
+	private boolean started = false;			// True once the arrays are created
+	private long time = 0L;						// Simulated ticks
+	private long latches = 0L;					// Edges taken by flip-flops
+
+	/* Constructor
+	 * Pre Condition: Receives the engine of the simulated netlist.
+	 * */
+	public ClockScheduler(Engine engine) {
+		this.engine = engine;
+	}	// end Constructor
+
+	/* Method: addClock
+	 * Pre Condition: Adds a clock driving a source, high for the first high
+	 * 				  ticks of every period ticks. Throws an
+	 * 				  IllegalArgumentException if the clock would not have
+	 * 				  both levels.
+	 * */
+	public void addClock(int src, int period, int high) {
+		if(period < 2 || high < 1 || high >= period)
+			throw new IllegalArgumentException("a clock of period " + period + " can not be high for " + high + " ticks");
+		clockSrc.add(src);
+		clockPeriod.add(period);
+		clockHigh.add(high);
+		started = false;
+	}	// end addClock
+
+	/* Method: addRegister
+	 * Pre Condition: Adds a flip-flop whose Q net is driven by a source, with
+	 * 				  the nets of its D and clock inputs.
+	 * */
+	public void addRegister(int src, int dNet, int clockNet) {
+		regSrc.add(src);
+		regD.add(dNet);
+		regClock.add(clockNet);
+		started = false;
+	}	// end addRegister
+
+	/* Method: resolve
+	 * Post Condition: Returns the net of a reduced netlist holding the value
+	 * 				   of an observed net, or FALSE or TRUE if the net is
+	 * 				   constant. The net is returned unchanged if there is
+	 * 				   no optimizer.
+	 * */
+	public static int resolve(NetlistOptimizer optimizer, int net) {
+		// If the netlist was not reduced
+		if(optimizer == null)
+			return net;
+		int t = optimizer.getTarget(net);
+		// If the net is held by the reduced netlist
+		if(t >= 0)
+			return t;
+		return optimizer.get(n -> false, net) ? TRUE : FALSE;
+	}	// end resolve
+
+	/* Method: isEmpty
+	 * Post Condition: Returns true if there are no clocks or flip-flops.
+	 * */
+	public boolean isEmpty() {
+		return clockSrc.isEmpty() && regSrc.isEmpty();
+	}	// end isEmpty
+
+	/* Method: start
+	 * Pre Condition: Settles the engine and creates the state arrays, taking
+	 * 				  its clock levels and D values. Every clock is set on
+	 * 				  the next step.
+	 * */
+	private void start() {
+		engine.tick();
+		level = new boolean[clockSrc.size()];
+		for(int c = 0; c < level.length; c++)
+			level[c] = !Clock.isHigh(time, clockPeriod.get(c), clockHigh.get(c));
+		int regs = regSrc.size();
+		lastClock = new boolean[regs];
+		lastD = new long[regs];
+		rose = new boolean[regs];
+		for(int r = 0; r < regs; r++) {
+			lastClock[r] = read(regClock.get(r)) != 0L;
+			lastD[r] = read(regD.get(r));
+		}
+		started = true;
+	}	// end start
+
+	/* Method: read
+	 * Post Condition: Returns the value of a net of the engine, or of a
+	 * 				   constant net.
+	 * */
+	private long read(int net) {
+		// If the net is constant
+		if(net < 0)
+			return net == TRUE ? 1L : 0L;
+		return engine.getValue(net);
+	}	// end read
+
+	/* Method: step
+	 * Pre Condition: Simulates one tick: sets the clocks to their level at
+	 * 				  the current time, settles the engine and takes the
+	 * 				  edges of the flip-flops.
+	 * */
+	public void step() {
+		// If clocks or flip-flops were added since the last step
+		if(!started)
+			start();
+		for(int c = 0; c < level.length; c++) {
+			boolean high = Clock.isHigh(time, clockPeriod.get(c), clockHigh.get(c));
+			// If the clock changes level at this tick
+			if(high != level[c]) {
+				level[c] = high;
+				engine.setSource(clockSrc.get(c), high);
+			}
+		}
+		engine.tick();
+		// If the engine has gate delays, new Q values propagate in later ticks
+		if(engine.isTimed()) {
+			latch();
+		} else {
+			// Take edges until no flip-flop sees its clock rise
+			for(int pass = 0; pass < Engine.SETTLE_LIMIT && latch(); pass++)
+				engine.tick();
+		}
+		time++;
+	}	// end step
+
+	/* Method: latch
+	 * Pre Condition: Checks the clock of each flip-flop. A flip-flop whose
+	 * 				  clock rose takes the D value of its last check, the
+	 * 				  others sample D.
+	 * Post Condition: Returns true if a flip-flop saw an edge, and the
+	 * 				   engine needs another tick.
+	 * */
+	private boolean latch() {
+		boolean edge = false;
+		for(int r = 0; r < lastClock.length; r++) {
+			boolean clock = read(regClock.get(r)) != 0L;
+			rose[r] = clock && !lastClock[r];
+			lastClock[r] = clock;
+			// If the clock rose, the D value before the edge is kept
+			if(rose[r])
+				edge = true;
+			else
+				lastD[r] = read(regD.get(r));
+		}
+		// If no flip-flop saw an edge
+		if(!edge)
+			return false;
+		for(int r = 0; r < rose.length; r++) {
+			if(rose[r]) {
+				engine.setSourceValue(regSrc.get(r), lastD[r]);
+				latches++;
+			}
+		}
+		return true;
+	}	// end latch
+
+	/* Method: advance
+	 * Pre Condition: Simulates ticks until the specified time. While the
+	 * 				  circuit is settled, the ticks up to the next clock
+	 * 				  change are skipped.
+	 * */
+	public void advance(long until) {
+		while(time < until) {
+			step();
+			skipIdle(until);
+		}
+	}	// end advance
+
+	/* Method: skipIdle
+	 * Pre Condition: If the engine settled in the last step, moves the time
+	 * 				  forward to the next clock change, but not past the
+	 * 				  specified time. A circuit with no clocks is left at
+	 * 				  the specified time.
+	 * */
+	public void skipIdle(long until) {
+		// If the circuit did not settle, every tick must be simulated
+		if(!engine.isSettled())
+			return;
+		long next = until;
+		for(int c = 0; c < clockSrc.size(); c++) {
+			int period = clockPeriod.get(c), high = clockHigh.get(c);
+			long phase = time % period;
+			// The clock rises at phase 0 and falls at phase high
+			next = Math.min(next, time + (phase == 0 ? 0 : phase <= high ? high - phase : period - phase));
+		}
+		time = Math.max(time, next);
+	}	// end skipIdle
+
+	/* Method: getClockCount
+	 * Post Condition: Returns the number of clocks.
+	 * */
+	public int getClockCount() {
+		return clockSrc.size();
+	}	// end getClockCount
+
+	/* Method: getTime
+	 * Post Condition: Returns the number of simulated ticks.
+	 * */
+	public long getTime() {
+		return time;
+	}	// end getTime
+
+	/* Method: setTime
+	 * Pre Condition: Sets the simulated time, which sets the phase of every
+	 * 				  clock.
+	 * */
+	public void setTime(long time) {
+		this.time = time;
+	}	// end setTime
+
+	/* Method: getCycleCount
+	 * Post Condition: Returns the number of periods of the first clock that
+	 * 				   have started, or 0 if there are no clocks.
+	 * */
+	public long getCycleCount() {
+		return clockSrc.isEmpty() ? 0L : (time + clockPeriod.get(0) - 1) / clockPeriod.get(0);
+	}	// end getCycleCount
+
+	/* Method: getLatchCount
+	 * Post Condition: Returns the number of edges taken by flip-flops.
+	 * */
+	public long getLatchCount() {
+		return latches;
+	}	// end getLatchCount
+}	// end ClockScheduler class
@@ -0,0 +1,163 @@
+/* --------------------------------------------------------------------------------
+ * 								CompiledEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a simulation engine that generates a class for the
+ * Netlist it simulates. The class (see EvaluatorWriter) evaluates every gate as
+ * straight-line bitwise code over the net values, without loops, branches or
+ * calls per gate, so the JIT compiles the circuit itself into machine code.
+ *
+ * The class is defined as a hidden class, which is unloaded once the engine is no
+ * longer used. A new engine, and class, is created whenever the board is edited.
+ *
+ * Each single bit net is held in a long, all bits of which hold the value of the
+ * net. A bus is held in a long with one bit per wire of the bus. Gates
+ * in the feedback loop level are evaluated again until no bit changes, up to
+ * SETTLE_LIMIT times.
+ *
+ * */
+
+package modules;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+public class CompiledEngine extends Engine {
+
+	/* Interface implemented by the generated class.
+	 * */
+	interface Evaluator {
+		void eval(long[] v);		// Evaluates the gates before the loop level
+		long settle(long[] v);		// Evaluates the loop level, returns the changed bits
+	}	// end Evaluator interface
+
+	private final Evaluator evaluator;		// Generated evaluator
+	private final long[] value;				// Value of each net, 0 or -1 for a single bit
+	private long generateTime;				// Time taken to generate the class, in ns
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated and generates its
+	 * 				  evaluator. Throws an IllegalStateException if the class
+	 * 				  can not be generated.
+	 * */
+	public CompiledEngine(Netlist netlist) {
+		super(netlist);
+		value = new long[netlist.netCount];
+		long start = System.nanoTime();
+		try {
+			byte[] bytes = new EvaluatorWriter(netlist).write();
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			evaluator = (Evaluator) lookup.findConstructor(lookup.lookupClass(),
+					MethodType.methodType(void.class)).invoke();
+		} catch(IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		} catch(Throwable e) {
+			throw new IllegalStateException("failed to generate evaluator: " + e, e);
+		}
+		generateTime = System.nanoTime() - start;
+	}	// end Constructor
+
+	/* Method: getGenerateTime
+	 * Post Condition: Returns the time taken to generate the evaluator, in
+	 * 				   nanoseconds.
+	 * */
+	public long getGenerateTime() {
+		return generateTime;
+	}	// end getGenerateTime
+
+	/* Method: tick
+	 * Pre Condition: Evaluates every gate of the netlist in level order, then
+	 * 				  settles the feedback loop level.
+	 * */
+	@Override
+	public void tick() {
+		evaluator.eval(value);
+		oscillating = NONE;
+		// If the netlist has feedback loops
+		if(netlist.loopStart < netlist.gateCount) {
+			int passes = 0;
+			// Evaluate the loop level until no net changes
+			while(evaluator.settle(value) != 0L) {
+				// If the loops have not settled, record the nets still changing
+				if(++passes == SETTLE_LIMIT) {
+					record();
+					break;
+				}
+			}
+		}
+	}	// end tick
+
+	/* Method: record
+	 * Pre Condition: Evaluates the loop level once more and records each net
+	 * 				  it changes as oscillating.
+	 * */
+	private void record() {
+		long[] before = value.clone();
+		evaluator.settle(value);
+		IntList changed = new IntList();
+		for(int g = netlist.loopStart; g < netlist.gateCount; g++) {
+			// If the output of this gate changed
+			if(before[netlist.out[g]] != value[netlist.out[g]])
+				changed.add(netlist.out[g]);
+		}
+		oscillating = changed.toArray();
+	}	// end record
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return value[net] != 0L;
+	}	// end get
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net.
+	 * */
+	@Override
+	public long getValue(int net) {
+		return netlist.width[net] == 1 ? value[net] & 1L : value[net];
+	}	// end getValue
+
+	/* Method: load
+	 * Pre Condition: Sets every net to its value in a snapshot. Every gate is
+	 * 				  evaluated each tick, so the net values are the whole
+	 * 				  state of the engine.
+	 * Post Condition: Returns true.
+	 * */
+	@Override
+	public boolean load(Snapshot s) {
+		for(int n = 0; n < netCount; n++) {
+			long v = s.getValue(n);
+			// If the net is a single bit, spread its value over every bit
+			value[n] = netlist.width[n] == 1 ? -(v & 1L) : v & CircuitStore.mask(netlist.width[n]);
+		}
+		oscillating = NONE;
+		return true;
+	}	// end load
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		setSourceValue(src, value ? -1L : 0L);
+	}	// end setSource
+
+	/* Method: setSourceValue
+	 * Pre Condition: Sets the value of the specified source's net, bits
+	 * 				  beyond its width are cleared.
+	 * */
+	@Override
+	public void setSourceValue(int src, long value) {
+		int n = netlist.srcNet[src];
+		// If the net is a single bit, spread its value over every bit
+		if(netlist.width[n] == 1) {
+			this.value[n] = -(value & 1L);
+		} else {
+			this.value[n] = value & CircuitStore.mask(netlist.width[n]);
+		}
+	}	// end setSourceValue
+}	// end CompiledEngine class
@@ -0,0 +1,177 @@
+/* --------------------------------------------------------------------------------
+ * 								DFlipFlop
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a rising edge D flip-flop, used in simulations. When its
+ * clock input rises from low to high, the output Q takes the value the input D
+ * held before the edge, and keeps it until the next rising edge. A flip-flop
+ * wider than one bit is a register: D and Q are buses, the clock a single bit.
+ *
+ * The stored value is held by the CircuitStore as the value of the gate, so it is
+ * kept when the board is recompiled or the simulation mode changes. In the sweep
+ * and incremental modes each update samples D, and latches the sample of the
+ * previous update when it sees the clock rise. The compiled modes simulate Q as
+ * a source set by a ClockScheduler, which breaks every feedback loop through a
+ * flip-flop.
+ *
+ * */
+
+package modules;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+public class DFlipFlop extends Gate {
+
+	private static final int WIDTH = 80;		// Gate area width
+	private static final int HEIGHT = 60;		// Gate area height
+	private static final int D = 0;				// Pin slot of the D input
+
+	private boolean lastClock = false;			// Clock level at the last update
+	private long lastD = 0L;					// D value sampled at the last update
+
+	/* Constructor
+	 * Pre Condition: Uses default location and initiates nodes.
+	 * */
+	public DFlipFlop(CircuitStore store) {
+		this(store, 200, 200);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Uses provided location and initiates nodes.
+	 * */
+	public DFlipFlop(CircuitStore store, int x, int y) {
+		this(store, x, y, 1);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Uses provided location and bus width in bits of D and
+	 * 				  Q, and initiates nodes.
+	 * */
+	public DFlipFlop(CircuitStore store, int x, int y, int busWidth) {
+		super(store, x, y, WIDTH, HEIGHT, CircuitStore.DFF, busWidth);
+		setShapes();
+	}	// end Constructor
+
+	/* Method: setShapes
+	 * Pre Condition: Moves all nodes of this gate object to the gate location.
+	 * */
+	private void setShapes() {
+		setPin(D, x - 10, y + 8);
+		setPin(CircuitStore.CLK, x - 10, y + 37);
+		setPin(CircuitStore.OUT, x + 72, y + 22);
+	}	// end setShapes
+
+	/* Method: setPos
+	 * Pre Condition: Receives x and y for the new gate position.
+	 * */
+	@Override
+	public void setPos(int x, int y) {
+		this.x = x;
+		this.y = y;
+		setShapes();
+	}	// end setPos
+
+	/* Method: onHover
+	 * Pre Condition: Receives x and y of current screen
+	 * 				  location. Performs hovering processes.
+	 * Post Condition: Returns true if the mouse is hovering over this
+	 * 				   gate.
+	 * */
+	@Override
+	public boolean onHover(int x, int y) {
+		// If this gate is activated
+		if(isGateActive()) {
+			return onNodeHover(x, y);
+		}
+		// If this gate is not activated
+		return onGateHover(x, y);
+	}	// end onHover
+
+	/* Method: onGateHover
+	 * Pre Condition: Determines if the specified location (x, y) is
+	 * 				  contained in the body of the gate.
+	 * Post Condition: Returns true if this point is in the body.
+	 * */
+	@Override
+	public boolean onGateHover(int x, int y) {
+		return x >= this.x + 10 && y >= this.y && x < this.x + WIDTH - 10 && y < this.y + HEIGHT;
+	}	// end onGateHover
+
+	@Override
+	public void onClick(int x, int y) {}
+
+	@Override
+	public void click() {}
+
+	@Override
+	public boolean isPressed() { return false; }
+
+	@Override
+	public void acknowledge() {}
+
+	/* Method: getStoredValue
+	 * Post Condition: Returns the value held by the flip-flop.
+	 * */
+	public long getStoredValue() {
+		return store.getGateValue(id);
+	}	// end getStoredValue
+
+	/* Method: sample
+	 * Pre Condition: Takes the current clock level and D value as those of
+	 * 				  the last update, so the next update sees no edge that
+	 * 				  was already taken by another simulation mode.
+	 * */
+	public void sample() {
+		lastClock = pin(CircuitStore.CLK).getValue() != 0L;
+		lastD = pin(D).getValue();
+	}	// end sample
+
+	/* Method: update
+	 * Pre Condition: Attaches any node that has been detached during
+	 * 				  the removal of a wire. If the clock has risen since
+	 * 				  the last update, stores the D value sampled before
+	 * 				  the edge, otherwise samples D. Sets Q to the stored
+	 * 				  value.
+	 * */
+	@Override
+	public void update() {
+		reattach();
+		boolean clock = pin(CircuitStore.CLK).getValue() != 0L;
+		// If the clock has risen, store the value D held before the edge
+		if(clock && !lastClock)
+			store.setGateValue(id, lastD);
+		else
+			lastD = pin(D).getValue();
+		lastClock = clock;
+		pin(CircuitStore.OUT).setValue(store.getGateValue(id));
+	}	// end update
+
+	/* Method: draw
+	 * Pre Condition: Receives graphics object used to draw all shapes
+	 * 				  and the nodes related with this gate.
+	 * */
+	@Override
+	public void draw(Graphics2D g) {
+		// Draw the body, with the clock input marked by a wedge
+		g.setColor(new Color(204, 86, 2));
+		g.setStroke(new BasicStroke(3f));
+		g.drawRect(x + 10, y, WIDTH - 20, HEIGHT);
+		g.setStroke(new BasicStroke(1f));
+		g.drawPolyline(new int[] { x + 10, x + 20, x + 10 }, new int[] { y + 38, y + 45, y + 52 }, 3);
+		g.drawString("D", x + 15, y + 20);
+		g.drawString("Q", x + WIDTH - 24, y + 34);
+		// If this is a register, show its value
+		if(getBusWidth() > 1)
+			g.drawString(Long.toHexString(getStoredValue()), x + 26, y + 50);
+
+		// Draw node sticks
+		g.drawLine(x + 5, y + 16, x + 10, y + 16);
+		g.drawLine(x + 5, y + 45, x + 10, y + 45);
+		g.drawLine(x + WIDTH - 10, y + 29, x + WIDTH - 3, y + 29);
+
+		// Draw nodes
+		drawNodes(g);
+	}	// end draw
+}	// end DFlipFlop class
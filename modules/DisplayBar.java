@@ -23,6 +23,7 @@ public class DisplayBar {
 	
 	private ArrayList<Button> buttons;				// List of buttons
 	private int refButton;							// Referenced button
+	private int busWidth = 1;						// Bus width of new gates, in bits
 	
 	/* Constructor
 	 * Pre Condition: Receives display bar's location on screen, width and height.
@@ -66,22 +67,47 @@ public class DisplayBar {
 		return false;
 	}	// end isHovering
 	
+	/* Method: setBusWidth
+	 * Pre Condition: Sets the bus width of new gates, in bits.
+	 * */
+	public void setBusWidth(int busWidth) {
+		this.busWidth = busWidth;
+	}	// end setBusWidth
+	
+	/* Method: getBusWidth
+	 * Post Condition: Returns the bus width of new gates, in bits.
+	 * */
+	public int getBusWidth() {
+		return busWidth;
+	}	// end getBusWidth
+	
 	/* Method: getReferencedGate
-	 * Post Condition: Returns new instance of the referenced button from the list.
+	 * Post Condition: Returns new instance of the referenced button from the list,
+	 * 				   with the current bus width.
 	 * */
 	public Gate getReferencedGate() {
+		CircuitStore store = ((Gate) buttons.get(refButton)).getStore();
 		// If button referenced is the AND gate
 		if(buttons.get(refButton) instanceof ANDGate) {
-			return new ANDGate();
+			return new ANDGate(store, 200, 200, busWidth);
 		// If button referenced is the OR gate
 		} else if(buttons.get(refButton) instanceof ORGate) {
-			return new ORGate();
+			return new ORGate(store, 200, 200, busWidth);
 		// If button referenced is the Power source
 		} else if(buttons.get(refButton) instanceof PSource) {
-			return new PSource();
+			return new PSource(store, 200, 200, busWidth);
 		// If button referenced is the NOT gate
 		} else if(buttons.get(refButton) instanceof NOTGate) {
-			return new NOTGate();
+			return new NOTGate(store, 200, 200, busWidth);
+		// If button referenced is a clock, which is always a single bit
+		} else if(buttons.get(refButton) instanceof Clock) {
+			return new Clock(store);
+		// If button referenced is a flip-flop, a register when wider than a bit
+		} else if(buttons.get(refButton) instanceof DFlipFlop) {
+			return new DFlipFlop(store, 200, 200, busWidth);
+		// If button referenced is a subcircuit, share its definition
+		} else if(buttons.get(refButton) instanceof SubCircuit) {
+			return new SubCircuit(store, ((SubCircuit) buttons.get(refButton)).getDefinition());
 		}
 		else return null;
 	}	// end getReferencedGate
@@ -0,0 +1,982 @@
+/* --------------------------------------------------------------------------------
+ * 								DistributedEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a simulation engine that splits a Netlist between worker
+ * processes, each simulating its partition with an EventEngine on its own heap. The
+ * engine is the coordinator: it sends the source values to the workers, and merges
+ * the nets each worker changed into its own copy of every net value, so the engine
+ * can be read like any other.
+ *
+ * The levels of the netlist are split into ranges of about the same number of
+ * gates, one per worker. The loop level holds every gate reading a feedback loop,
+ * so a partition only reads nets driven by earlier partitions and the partitions
+ * form a pipeline. Workers are connected by TCP sockets, each worker sending the
+ * nets read by later partitions directly to the workers reading them.
+ *
+ * Workers are synchronised conservatively, in the manner of Chandy and Misra: every
+ * message is stamped with its tick, and a worker simulates a tick only once it
+ * holds the messages of that tick from the coordinator and every earlier partition
+ * it reads. Each tick, every worker sends a message to each reader even if no net
+ * changed, a null message telling the reader it may go on. As no worker waits for a
+ * later partition, no worker can deadlock, and the workers of a pipeline work on
+ * different ticks at once.
+ *
+ * The coordinator does not wait for the results of a tick until a net value is
+ * read, so up to WINDOW ticks are in flight. A thread for each worker reads its
+ * results as they arrive, so the workers are never held up by the coordinator.
+ *
+ * The coordinator only holds the values of the sources and of the nets it is
+ * asked to observe, and workers only report changes to those nets. The partitions
+ * are streamed to the workers one at a time, found from the fanout lists of the
+ * netlist, so the coordinator needs memory for the largest partition and the
+ * boundary nets rather than the whole circuit. A MappedNetlist is read in place
+ * from its file, so a circuit too large for the coordinator's heap is simulated
+ * without ever being read onto it; the engines, their queues and fanout lists are
+ * held by the workers. For the same reason the engine can not be loaded from a
+ * Snapshot.
+ *
+ * Workers are started as local processes (LogicGatesWorker), or, for a cluster,
+ * started by hand on any host and connected to the port the coordinator listens on.
+ *
+ * The sockets carry the circuit and its values unencrypted. Local workers and the
+ * coordinator listen on the loopback address only; in a cluster the coordinator
+ * listens on every interface and each worker on the interface it reaches the
+ * coordinator through, so a cluster must run on a trusted network. Every
+ * connection is checked against a token shared by the coordinator and its
+ * workers: the accepting side sends a random challenge, and the connecting side
+ * answers with an HMAC of it keyed by the token, so the token itself is never
+ * sent. Connections without the token are dropped. Local workers are given a
+ * random token in their environment; in a cluster the token is set by hand in
+ * the TOKEN_VARIABLE environment variable of the coordinator and every worker.
+ *
+ * */
+
+package modules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public class DistributedEngine extends Engine {
+
+	public static final int DEFAULT_WORKERS = 2;		// Worker processes started by default
+	public static final int WINDOW = 64;				// Most ticks sent ahead of the merged results
+	public static final int CONNECT_TIMEOUT = 30000;	// Time allowed for started workers to connect, in ms
+	public static final String TOKEN_VARIABLE = "LOGICGATES_TOKEN";	// Environment variable holding the shared token
+	static final int CHALLENGE_LENGTH = 32;				// Bytes of a connection challenge
+	static final int STOP = 0;							// Message ending the simulation
+	static final int TICK = 1;							// Message starting a tick
+
+	private final int[] kept;				// Sources and observed nets, sorted
+	private final long[] value;				// Value of each kept net at the last merged tick
+	private final long[] mask;				// Bits within the width of each kept net
+	private final boolean[] isChanged;		// Changed state of each kept net
+	private final IntList changed = new IntList();	// Kept nets changed since the last collection
+	private final int[] srcSlot;			// Kept net of each source
+	private final int[] cut;				// First gate of each partition, with an end marker
+	private final int boundary;				// Nets sent from one worker to another
+	private final int[] srcStart;			// First reader of each source, with an end marker
+	private final int[] srcWorker;			// Worker of each reader of a source
+	private final int[] srcIndex;			// Index of each reader's source on its channel
+	private final IntList pending = new IntList();	// Sources set since the last tick
+	private final boolean[] isPending;		// Pending state of each source
+
+	private final Socket[] sockets;			// Connection to each worker
+	private final DataOutputStream[] outs;	// Channel to each worker
+	private final ArrayList<LinkedBlockingQueue<Result>> results = new ArrayList<>();	// Results read from each worker
+	private final Process[] processes;		// Started worker processes, or null
+	private long sent = 0L;					// Ticks sent to the workers
+	private long merged = 0L;				// Ticks whose results have been merged
+	private volatile boolean closed = false;	// True once the workers are stopped
+
+	/* --------------------------------------------------------------------------------
+	 * 								Result
+	 * --------------------------------------------------------------------------------
+	 *
+	 * The kept nets a worker changed in a tick and the nets still oscillating, or the
+	 * error that ended its connection.
+	 *
+	 * */
+	private static final class Result {
+		long tick;							// Tick simulated
+		int[] slots;						// Kept nets changed
+		long[] values;						// New value of each changed net
+		int[] oscillating;					// Nets still changing at the settle limit
+		IOException error;					// Error reading the result, or null
+	}	// end Result class
+
+	/* --------------------------------------------------------------------------------
+	 * 								Circuit
+	 * --------------------------------------------------------------------------------
+	 *
+	 * The arrays of the netlist being split, read from a Netlist or in place from a
+	 * MappedNetlist.
+	 *
+	 * */
+	private abstract static class Circuit {
+		final int netCount;					// Number of nets
+		final int gateCount;				// Number of gates
+		final int levelCount;				// Number of levels
+		final int sourceCount;				// Number of sources
+
+		/* Constructor
+		 * Pre Condition: Receives the size of the netlist.
+		 * */
+		Circuit(int netCount, int gateCount, int levelCount, int sourceCount) {
+			this.netCount = netCount;
+			this.gateCount = gateCount;
+			this.levelCount = levelCount;
+			this.sourceCount = sourceCount;
+		}	// end Constructor
+
+		// Abstract methods, each returning an element of the Netlist array of its name
+		abstract int width(int net);
+		abstract int type(int g);
+		abstract int in1(int g);
+		abstract int in2(int g);
+		abstract int out(int g);
+		abstract int levelStart(int level);
+		abstract int srcNet(int src);
+		abstract int fanStart(int net);
+		abstract int fanout(int i);
+	}	// end Circuit class
+
+	/* --------------------------------------------------------------------------------
+	 * 								NetlistCircuit
+	 * --------------------------------------------------------------------------------
+	 *
+	 * The arrays of a Netlist.
+	 *
+	 * */
+	private static final class NetlistCircuit extends Circuit {
+
+		private final Netlist netlist;		// Netlist read
+
+		/* Constructor
+		 * Pre Condition: Receives the netlist to be read.
+		 * */
+		NetlistCircuit(Netlist netlist) {
+			super(netlist.netCount, netlist.gateCount, netlist.levelCount, netlist.srcNet.length);
+			this.netlist = netlist;
+		}	// end Constructor
+
+		/* Methods: width, type, in1, in2, out, levelStart, srcNet, fanStart, fanout
+		 * Post Condition: Return an element of the corresponding Netlist array.
+		 * */
+		@Override
+		int width(int net) {
+			return netlist.width[net];
+		}	// end width
+
+		@Override
+		int type(int g) {
+			return netlist.type[g];
+		}	// end type
+
+		@Override
+		int in1(int g) {
+			return netlist.in1[g];
+		}	// end in1
+
+		@Override
+		int in2(int g) {
+			return netlist.in2[g];
+		}	// end in2
+
+		@Override
+		int out(int g) {
+			return netlist.out[g];
+		}	// end out
+
+		@Override
+		int levelStart(int level) {
+			return netlist.levelStart[level];
+		}	// end levelStart
+
+		@Override
+		int srcNet(int src) {
+			return netlist.srcNet[src];
+		}	// end srcNet
+
+		@Override
+		int fanStart(int net) {
+			return netlist.fanStart[net];
+		}	// end fanStart
+
+		@Override
+		int fanout(int i) {
+			return netlist.fanout[i];
+		}	// end fanout
+	}	// end NetlistCircuit class
+
+	/* --------------------------------------------------------------------------------
+	 * 								MappedCircuit
+	 * --------------------------------------------------------------------------------
+	 *
+	 * The arrays of a MappedNetlist, read in place from its file. Its nets are all a
+	 * single bit.
+	 *
+	 * */
+	private static final class MappedCircuit extends Circuit {
+
+		private final MappedNetlist mapped;	// Netlist read in place
+
+		/* Constructor
+		 * Pre Condition: Receives the mapped netlist to be read.
+		 * */
+		MappedCircuit(MappedNetlist mapped) {
+			super(mapped.netCount, mapped.gateCount, mapped.levelCount, mapped.sourceCount);
+			this.mapped = mapped;
+		}	// end Constructor
+
+		/* Methods: width, type, in1, in2, out, levelStart, srcNet, fanStart, fanout
+		 * Post Condition: Return an element of the corresponding Netlist array.
+		 * */
+		@Override
+		int width(int net) {
+			return 1;
+		}	// end width
+
+		@Override
+		int type(int g) {
+			return mapped.type(g);
+		}	// end type
+
+		@Override
+		int in1(int g) {
+			return mapped.in1(g);
+		}	// end in1
+
+		@Override
+		int in2(int g) {
+			return mapped.in2(g);
+		}	// end in2
+
+		@Override
+		int out(int g) {
+			return mapped.out(g);
+		}	// end out
+
+		@Override
+		int levelStart(int level) {
+			return mapped.levelStart(level);
+		}	// end levelStart
+
+		@Override
+		int srcNet(int src) {
+			return mapped.srcNet(src);
+		}	// end srcNet
+
+		@Override
+		int fanStart(int net) {
+			return mapped.fanStart(net);
+		}	// end fanStart
+
+		@Override
+		int fanout(int i) {
+			return mapped.fanout(i);
+		}	// end fanout
+	}	// end MappedCircuit class
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated and the number of
+	 * 				  partitions, reduced to the number of levels. Starts a
+	 * 				  local worker process for each partition. Every net is
+	 * 				  observed. Throws an IllegalStateException if the workers
+	 * 				  can not be started.
+	 * */
+	public DistributedEngine(Netlist netlist, int workers) {
+		this(netlist, workers, -1, null);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated, the number of
+	 * 				  partitions, the port to wait for workers started by
+	 * 				  hand on, or -1 to start local worker processes, and the
+	 * 				  nets to be read, or null to read every net. Throws an
+	 * 				  IllegalStateException if the workers can not be started
+	 * 				  or connected, and an IllegalArgumentException if a port
+	 * 				  is given but no token is set in TOKEN_VARIABLE.
+	 * */
+	public DistributedEngine(Netlist netlist, int workers, int port, int[] observed) {
+		this(netlist, new NetlistCircuit(netlist), workers, port, observed);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives a mapped netlist to be simulated, the number of
+	 * 				  partitions, the port to wait for workers started by
+	 * 				  hand on, or -1 to start local worker processes, and the
+	 * 				  nets to be read. The netlist is read in place from its
+	 * 				  file. Throws an IllegalStateException if the workers can
+	 * 				  not be started or connected, and an
+	 * 				  IllegalArgumentException if a port is given but no token
+	 * 				  is set in TOKEN_VARIABLE.
+	 * */
+	public DistributedEngine(MappedNetlist mapped, int workers, int port, int[] observed) {
+		this(null, new MappedCircuit(mapped), workers, port, observed);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist object, or null, and the circuit to
+	 * 				  split. Splits the levels between the workers, connects
+	 * 				  them and streams each its partition.
+	 * */
+	private DistributedEngine(Netlist netlist, Circuit c, int workers, int port, int[] observed) {
+		super(netlist, c.netCount);
+
+		// Share a random token with local workers, or the one set by hand with a cluster
+		String token;
+		if(port < 0) {
+			byte[] random = new byte[CHALLENGE_LENGTH];
+			new SecureRandom().nextBytes(random);
+			token = HexFormat.of().formatHex(random);
+		} else {
+			token = System.getenv(TOKEN_VARIABLE);
+			// If any host could connect to the port unchecked
+			if(token == null || token.isEmpty())
+				throw new IllegalArgumentException("set a shared token in " + TOKEN_VARIABLE + " to listen for workers");
+		}
+
+		// Keep the sources and the observed nets
+		if(observed == null) {
+			kept = new int[c.netCount];
+			for(int n = 0; n < kept.length; n++)
+				kept[n] = n;
+		} else {
+			int[] list = Arrays.copyOf(observed, observed.length + c.sourceCount);
+			for(int s = 0; s < c.sourceCount; s++)
+				list[observed.length + s] = c.srcNet(s);
+			Arrays.sort(list);
+			int k = 0;
+			for(int i = 0; i < list.length; i++) {
+				// If the net is in range and not listed already
+				if(list[i] >= 0 && list[i] < c.netCount && (k == 0 || list[k - 1] != list[i]))
+					list[k++] = list[i];
+			}
+			kept = Arrays.copyOf(list, k);
+		}
+		value = new long[kept.length];
+		mask = new long[kept.length];
+		for(int i = 0; i < kept.length; i++)
+			mask[i] = CircuitStore.mask(c.width(kept[i]));
+		isChanged = new boolean[kept.length];
+		srcSlot = new int[c.sourceCount];
+		for(int s = 0; s < c.sourceCount; s++)
+			srcSlot[s] = slot(c.srcNet(s));
+		isPending = new boolean[c.sourceCount];
+
+		// Split the levels into ranges of about the same number of gates
+		IntList cuts = new IntList();
+		cuts.add(0);
+		int parts = Math.max(1, Math.min(workers, c.levelCount));
+		for(int l = 1; l < c.levelCount && cuts.size() < parts; l++) {
+			int start = c.levelStart(l);
+			// If the gates before this level fill the partitions so far
+			if(start >= (long) c.gateCount * cuts.size() / parts && start > cuts.get(cuts.size() - 1) && start < c.gateCount)
+				cuts.add(start);
+		}
+		cuts.add(c.gateCount);
+		cut = cuts.toArray();
+		parts = cut.length - 1;
+
+		// List the partitions reading each source, from the source's fanout
+		IntList[] sourceIn = new IntList[parts];
+		for(int p = 0; p < parts; p++)
+			sourceIn[p] = new IntList();
+		int[] last = new int[parts];
+		Arrays.fill(last, -1);
+		for(int s = 0; s < c.sourceCount; s++) {
+			int n = c.srcNet(s);
+			for(int i = c.fanStart(n); i < c.fanStart(n + 1); i++) {
+				int m = partOf(c.fanout(i));
+				// If the source is not yet listed for this partition
+				if(last[m] != s) {
+					last[m] = s;
+					sourceIn[m].add(s);
+				}
+			}
+		}
+
+		// List the nets each partition drives that later partitions read
+		IntList[][] cross = new IntList[parts][parts];
+		for(int j = 0; j < parts; j++) {
+			for(int m = j + 1; m < parts; m++)
+				cross[j][m] = new IntList();
+		}
+		Arrays.fill(last, -1);
+		int crossing = 0;
+		for(int j = 0; j < parts - 1; j++) {
+			for(int g = cut[j]; g < cut[j + 1]; g++) {
+				int n = c.out(g);
+				for(int i = c.fanStart(n); i < c.fanStart(n + 1); i++) {
+					int m = partOf(c.fanout(i));
+					// If a later partition reads the net and it is not yet listed
+					if(m > j && last[m] != n) {
+						last[m] = n;
+						cross[j][m].add(n);
+						crossing++;
+					}
+				}
+			}
+		}
+		boundary = crossing;
+
+		// List the workers reading each source and where on their channel
+		srcStart = new int[c.sourceCount + 1];
+		for(int p = 0; p < parts; p++) {
+			for(int i = 0; i < sourceIn[p].size(); i++)
+				srcStart[sourceIn[p].get(i) + 1]++;
+		}
+		for(int s = 0; s < c.sourceCount; s++)
+			srcStart[s + 1] += srcStart[s];
+		srcWorker = new int[srcStart[c.sourceCount]];
+		srcIndex = new int[srcWorker.length];
+		int[] fill = Arrays.copyOf(srcStart, c.sourceCount);
+		for(int p = 0; p < parts; p++) {
+			for(int i = 0; i < sourceIn[p].size(); i++) {
+				int r = fill[sourceIn[p].get(i)]++;
+				srcWorker[r] = p;
+				srcIndex[r] = i;
+			}
+		}
+
+		// Connect the workers and stream each its partition
+		sockets = new Socket[parts];
+		outs = new DataOutputStream[parts];
+		processes = port < 0 ? new Process[parts] : null;
+		try(ServerSocket server = port < 0 ? new ServerSocket(0, parts, InetAddress.getLoopbackAddress()) :
+				new ServerSocket(port, parts)) {
+			// If the workers are local, start their processes
+			if(processes != null) {
+				server.setSoTimeout(CONNECT_TIMEOUT);
+				String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+				for(int p = 0; p < parts; p++) {
+					ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+							"LogicGatesWorker", server.getInetAddress().getHostAddress(),
+							Integer.toString(server.getLocalPort()))
+							.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+							.redirectError(ProcessBuilder.Redirect.INHERIT);
+					pb.environment().put(TOKEN_VARIABLE, token);
+					processes[p] = pb.start();
+				}
+			}
+			DataInputStream[] ins = new DataInputStream[parts];
+			String[] hosts = new String[parts];
+			int[] ports = new int[parts];
+			for(int p = 0; p < parts; ) {
+				Socket s = server.accept();
+				s.setTcpNoDelay(true);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+				// If the connection is not from a worker holding the token, drop it
+				if(!challenge(s, in, out, token)) {
+					s.close();
+					continue;
+				}
+				sockets[p] = s;
+				ins[p] = in;
+				outs[p] = out;
+				hosts[p] = s.getInetAddress().getHostAddress();
+				ports[p++] = in.readInt();
+			}
+			for(int p = 0; p < parts; p++)
+				sendPartition(c, p, outs[p], sourceIn[p], cross, hosts, ports);
+			// Read the results of each worker on a thread of its own
+			for(int p = 0; p < parts; p++) {
+				LinkedBlockingQueue<Result> queue = new LinkedBlockingQueue<>();
+				results.add(queue);
+				DataInputStream in = ins[p];
+				Thread t = new Thread(() -> readResults(in, queue), "DistributedEngine reader " + results.size());
+				t.setDaemon(true);
+				t.start();
+			}
+		} catch(IOException e) {
+			close();
+			throw new IllegalStateException("workers could not be started: " + e.getMessage(), e);
+		}
+	}	// end Constructor
+
+	/* Method: challenge
+	 * Pre Condition: Run by the side accepting a connection. Sends a random
+	 * 				  challenge and reads the answer, waiting at most
+	 * 				  CONNECT_TIMEOUT.
+	 * Post Condition: Returns true if the answer is the HMAC of the challenge
+	 * 				   keyed by the token.
+	 * */
+	static boolean challenge(Socket s, DataInputStream in, DataOutputStream out, String token) {
+		byte[] challenge = new byte[CHALLENGE_LENGTH];
+		new SecureRandom().nextBytes(challenge);
+		byte[] answer = new byte[mac(token, challenge).length];
+		try {
+			s.setSoTimeout(CONNECT_TIMEOUT);
+			out.write(challenge);
+			out.flush();
+			in.readFully(answer);
+			s.setSoTimeout(0);
+		} catch(IOException e) {
+			return false;
+		}
+		return MessageDigest.isEqual(answer, mac(token, challenge));
+	}	// end challenge
+
+	/* Method: answer
+	 * Pre Condition: Run by the side making a connection. Reads the challenge
+	 * 				  of the accepting side and sends its HMAC keyed by the
+	 * 				  token.
+	 * */
+	static void answer(DataInputStream in, DataOutputStream out, String token) throws IOException {
+		byte[] challenge = new byte[CHALLENGE_LENGTH];
+		in.readFully(challenge);
+		out.write(mac(token, challenge));
+		out.flush();
+	}	// end answer
+
+	/* Method: mac
+	 * Post Condition: Returns the HMAC-SHA256 of a challenge keyed by the
+	 * 				   token.
+	 * */
+	private static byte[] mac(String token, byte[] challenge) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(token.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+			return mac.doFinal(challenge);
+		} catch(GeneralSecurityException e) {
+			throw new IllegalStateException("connections can not be checked: " + e.getMessage(), e);
+		}
+	}	// end mac
+
+	/* Method: partOf
+	 * Post Condition: Returns the partition of a gate.
+	 * */
+	private int partOf(int g) {
+		int p = Arrays.binarySearch(cut, g);
+		return p >= 0 ? p : -p - 2;
+	}	// end partOf
+
+	/* Method: slot
+	 * Post Condition: Returns the index of a kept net, or -1 if the net is
+	 * 				   not kept.
+	 * */
+	private int slot(int net) {
+		// If every net is kept
+		if(kept.length == netCount)
+			return net;
+		int i = Arrays.binarySearch(kept, net);
+		return i >= 0 ? i : -1;
+	}	// end slot
+
+	/* Method: observed
+	 * Post Condition: Returns the index of a kept net, throws an exception if
+	 * 				   the net is not a source or observed.
+	 * */
+	private int observed(int net) {
+		int i = slot(net);
+		// If the coordinator does not hold the net
+		if(i < 0)
+			throw new IllegalArgumentException("net " + net + " is not observed by the distributed engine");
+		return i;
+	}	// end observed
+
+	/* Method: sendPartition
+	 * Pre Condition: Sends a worker its partition. Its nets are numbered
+	 * 				  with the sources first, then the nets of earlier
+	 * 				  partitions, then the nets its gates drive, then the
+	 * 				  undriven nets. The nets are found by sorting the nets
+	 * 				  of the partition's gates, so only the partition is held
+	 * 				  in memory. Each worker is told which nets to report,
+	 * 				  the address of every later worker reading its nets,
+	 * 				  and which nets to send.
+	 * */
+	private void sendPartition(Circuit c, int p, DataOutputStream o, IntList sourceIn, IntList[][] cross,
+			String[] hosts, int[] ports) throws IOException {
+		int from = cut[p], to = cut[p + 1];
+		int[] nets = new int[3 * (to - from)];
+		int size = 0;
+		for(int g = from; g < to; g++) {
+			nets[size++] = c.in1(g);
+			nets[size++] = c.in2(g);
+			nets[size++] = c.out(g);
+		}
+		Arrays.sort(nets);
+		int count = 0;
+		for(int i = 0; i < size; i++) {
+			// If the net is not listed already
+			if(count == 0 || nets[count - 1] != nets[i])
+				nets[count++] = nets[i];
+		}
+		// Number the nets of the partition, in the order the worker expects
+		int[] local = new int[count];
+		int[] global = new int[count];
+		Arrays.fill(local, -1);
+		int next = 0;
+		for(int i = 0; i < sourceIn.size(); i++)
+			next = number(nets, count, c.srcNet(sourceIn.get(i)), local, global, next);
+		int upstream = 0;
+		for(int j = 0; j < p; j++) {
+			for(int i = 0; i < cross[j][p].size(); i++)
+				next = number(nets, count, cross[j][p].get(i), local, global, next);
+			// If this partition reads nets of the earlier partition
+			if(!cross[j][p].isEmpty())
+				upstream++;
+		}
+		int inputs = next;
+		for(int g = from; g < to; g++)
+			next = number(nets, count, c.out(g), local, global, next);
+		for(int i = 0; i < count; i++) {
+			// If the net is neither read from another partition nor driven
+			if(local[i] < 0) {
+				local[i] = next;
+				global[next++] = nets[i];
+			}
+		}
+
+		o.writeInt(p);
+		o.writeInt(count);
+		for(int i = 0; i < count; i++) {
+			o.writeByte(c.width(global[i]));
+			o.writeInt(global[i]);
+			// The worker reports the changes of the kept nets it drives
+			o.writeInt(i < inputs ? -1 : slot(global[i]));
+		}
+		o.writeInt(inputs);
+		o.writeInt(sourceIn.size());
+		o.writeInt(upstream);
+		for(int j = 0; j < p; j++) {
+			// If this partition reads nets of the earlier partition
+			if(!cross[j][p].isEmpty()) {
+				o.writeInt(j);
+				o.writeInt(cross[j][p].size());
+			}
+		}
+		o.writeInt(to - from);
+		for(int g = from; g < to; g++) {
+			o.writeByte(c.type(g));
+			o.writeInt(local[Arrays.binarySearch(nets, 0, count, c.in1(g))]);
+			o.writeInt(local[Arrays.binarySearch(nets, 0, count, c.in2(g))]);
+			o.writeInt(local[Arrays.binarySearch(nets, 0, count, c.out(g))]);
+		}
+		int downstream = 0;
+		for(int m = p + 1; m < cut.length - 1; m++) {
+			// If the later partition reads nets of this one
+			if(!cross[p][m].isEmpty())
+				downstream++;
+		}
+		o.writeInt(downstream);
+		for(int m = p + 1; m < cut.length - 1; m++) {
+			// If the later partition reads nets of this one
+			if(!cross[p][m].isEmpty()) {
+				o.writeInt(m);
+				o.writeUTF(hosts[m]);
+				o.writeInt(ports[m]);
+				o.writeInt(cross[p][m].size());
+				for(int i = 0; i < cross[p][m].size(); i++)
+					o.writeInt(local[Arrays.binarySearch(nets, 0, count, cross[p][m].get(i))]);
+			}
+		}
+		o.flush();
+	}	// end sendPartition
+
+	/* Method: number
+	 * Pre Condition: Gives a net of a partition, found in its sorted nets,
+	 * 				  the next local number.
+	 * Post Condition: Returns the local number after it.
+	 * */
+	private static int number(int[] nets, int count, int net, int[] local, int[] global, int next) {
+		local[Arrays.binarySearch(nets, 0, count, net)] = next;
+		global[next] = net;
+		return next + 1;
+	}	// end number
+
+	/* Method: readResults
+	 * Pre Condition: Run by the reader thread of a worker. Adds each result
+	 * 				  the worker sends to the queue, then the error ending the
+	 * 				  connection, unless the engine was closed.
+	 * */
+	private void readResults(DataInputStream in, LinkedBlockingQueue<Result> queue) {
+		try {
+			while(true) {
+				Result r = new Result();
+				r.tick = in.readLong();
+				r.slots = new int[in.readInt()];
+				r.values = new long[r.slots.length];
+				for(int i = 0; i < r.slots.length; i++) {
+					r.slots[i] = in.readInt();
+					r.values[i] = in.readLong();
+				}
+				r.oscillating = new int[in.readInt()];
+				for(int i = 0; i < r.oscillating.length; i++)
+					r.oscillating[i] = in.readInt();
+				queue.add(r);
+			}
+		} catch(IOException e) {
+			// If the connection was not closed by the engine, report it
+			if(!closed) {
+				Result r = new Result();
+				r.error = e;
+				queue.add(r);
+			}
+		}
+	}	// end readResults
+
+	/* Method: tick
+	 * Pre Condition: Sends the sources set since the last tick to the workers
+	 * 				  reading them, an empty message to the others. If WINDOW
+	 * 				  ticks are in flight, merges the oldest.
+	 * */
+	@Override
+	public void tick() {
+		try {
+			sent++;
+			for(int w = 0; w < outs.length; w++) {
+				int count = 0;
+				for(int i = 0; i < pending.size(); i++) {
+					int s = pending.get(i);
+					for(int r = srcStart[s]; r < srcStart[s + 1]; r++) {
+						if(srcWorker[r] == w)
+							count++;
+					}
+				}
+				DataOutputStream o = outs[w];
+				o.writeInt(TICK);
+				o.writeLong(sent);
+				o.writeInt(count);
+				for(int i = 0; i < pending.size(); i++) {
+					int s = pending.get(i);
+					for(int r = srcStart[s]; r < srcStart[s + 1]; r++) {
+						// If this worker reads the source
+						if(srcWorker[r] == w) {
+							o.writeInt(srcIndex[r]);
+							o.writeLong(value[srcSlot[s]]);
+						}
+					}
+				}
+				o.flush();
+			}
+		} catch(IOException e) {
+			throw new IllegalStateException("lost connection to a worker: " + e.getMessage(), e);
+		}
+		for(int i = 0; i < pending.size(); i++)
+			isPending[pending.get(i)] = false;
+		pending.clear();
+		// If too many ticks are in flight, wait for the oldest
+		if(sent - merged > WINDOW)
+			merge();
+	}	// end tick
+
+	/* Method: merge
+	 * Pre Condition: Waits for the results of the oldest tick in flight from
+	 * 				  every worker and applies them.
+	 * */
+	private void merge() {
+		merged++;
+		IntList osc = null;
+		for(int w = 0; w < results.size(); w++) {
+			Result r;
+			try {
+				r = results.get(w).take();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted waiting for worker " + w, e);
+			}
+			// If the worker failed or is out of step
+			if(r.error != null)
+				throw new IllegalStateException("lost connection to worker " + w + ": " + r.error.getMessage(), r.error);
+			if(r.tick != merged)
+				throw new IllegalStateException("worker " + w + " sent tick " + r.tick + ", expected " + merged);
+			for(int i = 0; i < r.slots.length; i++) {
+				int k = r.slots[i];
+				value[k] = r.values[i];
+				if(!isChanged[k]) {
+					isChanged[k] = true;
+					changed.add(k);
+				}
+			}
+			// If nets of this worker did not settle
+			if(r.oscillating.length > 0) {
+				if(osc == null)
+					osc = new IntList();
+				for(int i = 0; i < r.oscillating.length; i++)
+					osc.add(r.oscillating[i]);
+			}
+		}
+		oscillating = osc == null ? NONE : osc.toArray();
+	}	// end merge
+
+	/* Method: sync
+	 * Pre Condition: Merges every tick in flight.
+	 * */
+	private void sync() {
+		while(merged < sent)
+			merge();
+	}	// end sync
+
+	/* Method: close
+	 * Pre Condition: Tells the workers to stop, closes the connections and
+	 * 				  waits for the started worker processes to exit.
+	 * */
+	@Override
+	public void close() {
+		// If the workers have already been stopped
+		if(closed)
+			return;
+		closed = true;
+		for(int w = 0; w < sockets.length; w++) {
+			try {
+				// If the worker is connected, tell it to stop
+				if(outs[w] != null) {
+					outs[w].writeInt(STOP);
+					outs[w].flush();
+				}
+				if(sockets[w] != null)
+					sockets[w].close();
+			} catch(IOException e) {
+				// The worker has already gone
+			}
+		}
+		// If the workers were started by the engine, wait for them to exit
+		if(processes != null) {
+			for(int w = 0; w < processes.length; w++) {
+				try {
+					if(processes[w] != null && !processes[w].waitFor(5, TimeUnit.SECONDS))
+						processes[w].destroy();
+				} catch(InterruptedException e) {
+					processes[w].destroy();
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}	// end close
+
+	/* Method: getWorkerCount
+	 * Post Condition: Returns the number of workers, one per partition.
+	 * */
+	public int getWorkerCount() {
+		return sockets.length;
+	}	// end getWorkerCount
+
+	/* Method: getBoundaryCount
+	 * Post Condition: Returns the number of nets sent from one worker to
+	 * 				   another each time they change.
+	 * */
+	public int getBoundaryCount() {
+		return boundary;
+	}	// end getBoundaryCount
+
+	/* Method: getOscillatingNets
+	 * Post Condition: Returns the nets that were still changing when the
+	 * 				   last tick reached the settle limit.
+	 * */
+	@Override
+	public int[] getOscillatingNets() {
+		sync();
+		return oscillating;
+	}	// end getOscillatingNets
+
+	/* Method: isSettled
+	 * Post Condition: Returns true if no net was still changing at the end
+	 * 				   of the last tick.
+	 * */
+	@Override
+	public boolean isSettled() {
+		sync();
+		return oscillating.length == 0;
+	}	// end isSettled
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net, which must be
+	 * 				   a source or observed.
+	 * */
+	@Override
+	public boolean get(int net) {
+		sync();
+		return value[observed(net)] != 0L;
+	}	// end get
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net. The net must be a source or observed.
+	 * */
+	@Override
+	public long getValue(int net) {
+		sync();
+		return value[observed(net)];
+	}	// end getValue
+
+	/* Method: copyTo
+	 * Pre Condition: Copies the value of every source and observed net into
+	 * 				  a packed array.
+	 * */
+	@Override
+	public void copyTo(long[] bits) {
+		sync();
+		for(int i = 0; i < kept.length; i++) {
+			if(value[i] != 0L)
+				bits[kept[i] >>> 6] |= 1L << kept[i];
+		}
+	}	// end copyTo
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		setSourceValue(src, value ? -1L : 0L);
+	}	// end setSource
+
+	/* Method: setSourceValue
+	 * Pre Condition: Sets the value of the specified source's net, bits
+	 * 				  beyond its width are cleared. The value is sent to the
+	 * 				  workers reading it with the next tick.
+	 * */
+	@Override
+	public void setSourceValue(int src, long value) {
+		int k = srcSlot[src];
+		long v = value & mask[k];
+		// If the value of this net changes
+		if(this.value[k] != v) {
+			this.value[k] = v;
+			if(!isChanged[k]) {
+				isChanged[k] = true;
+				changed.add(k);
+			}
+			if(!isPending[src]) {
+				isPending[src] = true;
+				pending.add(src);
+			}
+		}
+	}	// end setSourceValue
+
+	/* Method: collectChanges
+	 * Pre Condition: Adds every net changed since the last call to the list.
+	 * Post Condition: Returns true, as changes are tracked by this engine.
+	 * */
+	@Override
+	public boolean collectChanges(IntList list) {
+		sync();
+		for(int i = 0; i < changed.size(); i++) {
+			list.add(kept[changed.get(i)]);
+			isChanged[changed.get(i)] = false;
+		}
+		changed.clear();
+		return true;
+	}	// end collectChanges
+}	// end DistributedEngine class
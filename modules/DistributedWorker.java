@@ -0,0 +1,258 @@
+/* --------------------------------------------------------------------------------
+ * 								DistributedWorker
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a worker process of a DistributedEngine. The worker
+ * connects to the coordinator, receives its partition of the netlist and simulates
+ * it with an EventEngine.
+ *
+ * The partition's sources are the circuit's sources it reads, set by the
+ * coordinator, and the nets of earlier partitions it reads, set by the workers
+ * driving them. Each tick the worker reads the tick's message from the coordinator
+ * and from every earlier worker it reads, in a fixed order, waiting on each until
+ * it arrives. It then ticks its engine, sends the changed nets each later worker
+ * reads to that worker, and reports the changed nets the coordinator observes. A
+ * message is sent on every channel every tick, even when it is empty, so the
+ * reader never waits on a channel with nothing to come.
+ *
+ * The worker answers the coordinator's challenge with the shared token, listens
+ * for earlier workers only on the interface it reaches the coordinator through,
+ * and drops connections from workers that do not answer its own challenge (see
+ * DistributedEngine).
+ *
+ * */
+
+package modules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class DistributedWorker {
+
+	private final Socket coordinator;		// Connection to the coordinator
+	private final String token;				// Token shared with the coordinator and other workers
+	private final DataInputStream in;		// Channel from the coordinator
+	private final DataOutputStream out;		// Channel to the coordinator
+	private final int index;				// Partition of this worker
+	private final int[] global;				// Net of the circuit of each local net
+	private final int[] report;				// Index under which each local net is reported, or -1
+	private final int sourceInputs;			// Sources set by the coordinator
+	private final EventEngine engine;		// Engine of the partition
+	private final ArrayList<Socket> peers = new ArrayList<>();	// Connections to other workers
+	private final DataInputStream[] upstream;	// Channel from each earlier worker read
+	private final int[] upstreamBase;		// First source set by each earlier worker
+	private final DataOutputStream[] downstream;	// Channel to each later worker reading this one
+	private final int[] sendStart;			// First reader of each local net, with an end marker
+	private final int[] sendPeer;			// Later worker of each reader
+	private final int[] sendIndex;			// Index of each reader's net on its channel
+
+	/* Constructor
+	 * Pre Condition: Receives the host and port of the coordinator and the
+	 * 				  token shared with it. Connects to it, builds the
+	 * 				  partition it sends, then connects to the workers of the
+	 * 				  partitions it reads and is read by.
+	 * */
+	public DistributedWorker(String host, int port, String token) throws IOException {
+		this.token = token;
+		coordinator = new Socket(host, port);
+		try(ServerSocket listen = new ServerSocket(0, 50, coordinator.getLocalAddress())) {
+			coordinator.setTcpNoDelay(true);
+			in = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+			DistributedEngine.answer(in, out, token);
+			out.writeInt(listen.getLocalPort());
+			out.flush();
+
+			// Read the nets, the channels they arrive on and the gates
+			try {
+				index = in.readInt();
+			} catch(EOFException e) {
+				throw new IOException("the coordinator dropped the connection, check the token");
+			}
+			NetlistBuilder b = new NetlistBuilder();
+			global = new int[in.readInt()];
+			report = new int[global.length];
+			for(int i = 0; i < global.length; i++) {
+				b.addNet(in.readByte());
+				global[i] = in.readInt();
+				report[i] = in.readInt();
+			}
+			int inputs = in.readInt();
+			for(int i = 0; i < inputs; i++)
+				b.addSource(i);
+			sourceInputs = in.readInt();
+			int[] upstreamPeer = new int[in.readInt()];
+			upstreamBase = new int[upstreamPeer.length];
+			int base = sourceInputs;
+			for(int j = 0; j < upstreamPeer.length; j++) {
+				upstreamPeer[j] = in.readInt();
+				upstreamBase[j] = base;
+				base += in.readInt();
+			}
+			int gates = in.readInt();
+			for(int g = 0; g < gates; g++) {
+				int type = in.readByte();
+				int in1 = in.readInt();
+				int in2 = in.readInt();
+				b.addGate(type, in1, in2, in.readInt());
+			}
+			engine = new EventEngine(b.build());
+
+			// Connect to each later worker and list the nets it reads
+			downstream = new DataOutputStream[in.readInt()];
+			sendStart = new int[global.length + 1];
+			IntList sendNet = new IntList();
+			IntList sendPeers = new IntList();
+			IntList sendIndices = new IntList();
+			for(int d = 0; d < downstream.length; d++) {
+				in.readInt();
+				Socket s = new Socket(in.readUTF(), in.readInt());
+				s.setTcpNoDelay(true);
+				peers.add(s);
+				downstream[d] = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+				DistributedEngine.answer(new DataInputStream(new BufferedInputStream(s.getInputStream())),
+						downstream[d], token);
+				downstream[d].writeInt(index);
+				downstream[d].flush();
+				int count = in.readInt();
+				for(int i = 0; i < count; i++) {
+					int n = in.readInt();
+					sendNet.add(n);
+					sendPeers.add(d);
+					sendIndices.add(i);
+					sendStart[n + 1]++;
+				}
+			}
+			for(int n = 0; n < global.length; n++)
+				sendStart[n + 1] += sendStart[n];
+			sendPeer = new int[sendNet.size()];
+			sendIndex = new int[sendNet.size()];
+			int[] fill = Arrays.copyOf(sendStart, global.length);
+			for(int i = 0; i < sendNet.size(); i++) {
+				int r = fill[sendNet.get(i)]++;
+				sendPeer[r] = sendPeers.get(i);
+				sendIndex[r] = sendIndices.get(i);
+			}
+
+			// Accept a connection from each earlier worker read, in any order
+			upstream = new DataInputStream[upstreamPeer.length];
+			for(int j = 0; j < upstreamPeer.length; ) {
+				Socket s = listen.accept();
+				s.setTcpNoDelay(true);
+				DataInputStream peerIn = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+				// If the connection is not from a worker holding the token, drop it
+				if(!DistributedEngine.challenge(s, peerIn,
+						new DataOutputStream(new BufferedOutputStream(s.getOutputStream())), token)) {
+					s.close();
+					continue;
+				}
+				peers.add(s);
+				int peer = peerIn.readInt();
+				int k = 0;
+				while(k < upstreamPeer.length && upstreamPeer[k] != peer)
+					k++;
+				// If the connection is not from a worker this one reads
+				if(k == upstreamPeer.length || upstream[k] != null)
+					throw new IOException("unexpected connection from worker " + peer);
+				upstream[k] = peerIn;
+				j++;
+			}
+		}
+	}	// end Constructor
+
+	/* Method: run
+	 * Pre Condition: Simulates a tick for each tick message from the
+	 * 				  coordinator, until it sends the stop message or its
+	 * 				  process exits. Closes every connection.
+	 * */
+	public void run() throws IOException {
+		IntList changed = new IntList();
+		int[] count = new int[downstream.length];
+		try {
+			while(in.readInt() == DistributedEngine.TICK) {
+				long tick = in.readLong();
+				readSources(in, 0);
+				for(int j = 0; j < upstream.length; j++) {
+					// If the earlier worker is not at the same tick
+					if(upstream[j].readLong() != tick)
+						throw new IOException("worker " + index + " received a message out of order");
+					readSources(upstream[j], upstreamBase[j]);
+				}
+				engine.tick();
+				changed.clear();
+				engine.collectChanges(changed);
+
+				// Send each later worker the nets it reads that changed, if any
+				Arrays.fill(count, 0);
+				int reported = 0;
+				for(int i = 0; i < changed.size(); i++) {
+					int n = changed.get(i);
+					// If the coordinator observes the net
+					if(report[n] >= 0)
+						reported++;
+					for(int r = sendStart[n]; r < sendStart[n + 1]; r++)
+						count[sendPeer[r]]++;
+				}
+				for(int d = 0; d < downstream.length; d++) {
+					downstream[d].writeLong(tick);
+					downstream[d].writeInt(count[d]);
+					for(int i = 0; i < changed.size() && count[d] > 0; i++) {
+						int n = changed.get(i);
+						for(int r = sendStart[n]; r < sendStart[n + 1]; r++) {
+							// If the later worker reads this net
+							if(sendPeer[r] == d) {
+								downstream[d].writeInt(sendIndex[r]);
+								downstream[d].writeLong(engine.getValue(n));
+							}
+						}
+					}
+					downstream[d].flush();
+				}
+
+				// Report the changed nets the coordinator observes, and the oscillating nets
+				out.writeLong(tick);
+				out.writeInt(reported);
+				for(int i = 0; i < changed.size(); i++) {
+					int n = changed.get(i);
+					// If the coordinator observes the net
+					if(report[n] >= 0) {
+						out.writeInt(report[n]);
+						out.writeLong(engine.getValue(n));
+					}
+				}
+				int[] osc = engine.getOscillatingNets();
+				out.writeInt(osc.length);
+				for(int i = 0; i < osc.length; i++)
+					out.writeInt(global[osc[i]]);
+				out.flush();
+			}
+		} catch(EOFException e) {
+			// The coordinator exited without stopping the worker
+		} finally {
+			for(int i = 0; i < peers.size(); i++)
+				peers.get(i).close();
+			coordinator.close();
+		}
+	}	// end run
+
+	/* Method: readSources
+	 * Pre Condition: Reads the changes of a message from a channel and sets
+	 * 				  the sources they hold, numbered from the first source
+	 * 				  set by the channel.
+	 * */
+	private void readSources(DataInputStream channel, int base) throws IOException {
+		int count = channel.readInt();
+		for(int i = 0; i < count; i++) {
+			int src = base + channel.readInt();
+			engine.setSourceValue(src, channel.readLong());
+		}
+	}	// end readSources
+}	// end DistributedWorker class
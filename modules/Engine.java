@@ -0,0 +1,160 @@
+/* --------------------------------------------------------------------------------
+ * 								Engine
+ * --------------------------------------------------------------------------------
+ *
+ * Abstract class object represents a simulation engine, used to simulate a compiled
+ * Netlist. All engines hold the value of every net, the values of the sources are
+ * set from outside the engine.
+ *
+ * Each tick settles the netlist: feedback loops are evaluated again until no net
+ * changes, up to SETTLE_LIMIT times. Nets still changing at the limit are reported
+ * as oscillating.
+ *
+ * An engine may simulate a netlist that is not held on the Java heap, such as a
+ * MappedNetlist, in which case it has no Netlist object.
+ *
+ * Engines that hold a long per net simulate buses (nets wider than one bit) and
+ * override getValue and setSourceValue. Other engines reject wide netlists with
+ * an IllegalArgumentException.
+ *
+ * */
+
+package modules;
+
+public abstract class Engine {
+
+	public static final int SETTLE_LIMIT = 100;		// Max passes over feedback loops per tick
+	protected static final int[] NONE = new int[0];	// Empty list of nets
+	
+	protected final Netlist netlist;		// Simulated netlist, or null if held off the heap
+	protected final int netCount;			// Number of nets
+	protected int[] oscillating = NONE;		// Nets oscillating at the end of the last tick
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated.
+	 * */
+	public Engine(Netlist netlist) {
+		this.netlist = netlist;
+		this.netCount = netlist.netCount;
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the number of nets of a netlist that is not
+	 * 				  held in a Netlist object.
+	 * */
+	protected Engine(int netCount) {
+		this(null, netCount);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated, or null if it is
+	 * 				  not held in a Netlist object, and its number of nets.
+	 * */
+	protected Engine(Netlist netlist, int netCount) {
+		this.netlist = netlist;
+		this.netCount = netCount;
+	}	// end Constructor
+
+	/* Method: getNetlist
+	 * Post Condition: Returns the netlist simulated by this engine, or null if
+	 * 				   the netlist is not held in a Netlist object.
+	 * */
+	public Netlist getNetlist() {
+		return netlist;
+	}	// end getNetlist
+
+	/* Method: collectChanges
+	 * Pre Condition: Adds every net changed since the last call to the list,
+	 * 				  if this engine tracks changes.
+	 * Post Condition: Returns false if changes are not tracked, in which case
+	 * 				   every net must be checked for changes.
+	 * */
+	public boolean collectChanges(IntList list) {
+		return false;
+	}	// end collectChanges
+
+	/* Method: copyTo
+	 * Pre Condition: Copies the value of every net into a packed array, bit
+	 * 				  (net % 64) of word (net / 64) holding the value of net.
+	 * */
+	public void copyTo(long[] bits) {
+		for(int n = 0; n < netCount; n++) {
+			if(get(n))
+				bits[n >>> 6] |= 1L << n;
+		}
+	}	// end copyTo
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net.
+	 * */
+	public long getValue(int net) {
+		return get(net) ? 1L : 0L;
+	}	// end getValue
+
+	/* Method: setSourceValue
+	 * Pre Condition: Sets the value of the specified source's net, one bit
+	 * 				  per wire of the net.
+	 * */
+	public void setSourceValue(int src, long value) {
+		setSource(src, value != 0L);
+	}	// end setSourceValue
+
+	/* Method: load
+	 * Pre Condition: Sets every net to its value in a snapshot taken of this
+	 * 				  engine's netlist, and drops the work left over from
+	 * 				  earlier ticks, so the engine continues from the snapshot
+	 * 				  as if it had just simulated its tick.
+	 * Post Condition: Returns false, leaving the engine unchanged, if the
+	 * 				   engine holds state a snapshot does not record.
+	 * */
+	public boolean load(Snapshot s) {
+		return false;
+	}	// end load
+
+	/* Method: requireSingleBit
+	 * Pre Condition: Throws an IllegalArgumentException if the netlist has
+	 * 				  nets wider than one bit, which the named engine can not
+	 * 				  simulate.
+	 * */
+	protected static void requireSingleBit(Netlist netlist, String engine) {
+		if(netlist.isWide())
+			throw new IllegalArgumentException("Buses can not be simulated by the " + engine + " engine");
+	}	// end requireSingleBit
+
+	/* Method: getOscillatingNets
+	 * Post Condition: Returns the nets that were still changing when the
+	 * 				   last tick reached the settle limit.
+	 * */
+	public int[] getOscillatingNets() {
+		return oscillating;
+	}	// end getOscillatingNets
+
+	/* Method: isTimed
+	 * Post Condition: Returns true if each tick advances the simulation by
+	 * 				  one time unit instead of settling the netlist.
+	 * */
+	public boolean isTimed() {
+		return false;
+	}	// end isTimed
+
+	/* Method: isSettled
+	 * Post Condition: Returns true if no net would change if the engine was
+	 * 				   ticked again with the same source values.
+	 * */
+	public boolean isSettled() {
+		return oscillating.length == 0;
+	}	// end isSettled
+
+	/* Method: close
+	 * Pre Condition: Releases the threads held by the engine, if any. The
+	 * 				  engine must not be ticked after it is closed.
+	 * */
+	public void close() {
+	}	// end close
+
+	// Abstract methods
+	public abstract void tick();
+	public abstract boolean get(int net);
+	public abstract void setSource(int src, boolean value);
+}	// end Engine class
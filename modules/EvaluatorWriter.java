@@ -0,0 +1,324 @@
+/* --------------------------------------------------------------------------------
+ * 								EvaluatorWriter
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to write the class file of an evaluator for a Netlist (see
+ * CompiledEngine). Each gate becomes a straight-line sequence of bytecodes that
+ * loads its input nets from a long[], combines them with a bitwise operation and
+ * stores the output net:
+ *
+ * 		v[out] = v[in1] & v[in2]		AND
+ * 		v[out] = v[in1] | v[in2]		OR
+ * 		v[out] = v[in1] ^ mask			NOT
+ *
+ * The mask of a single bit net is -1L, as all bits of the long hold its value.
+ * The mask of a bus holds the bits within its width, pushed as -1L >>> (64 - w).
+ *
+ * The gates of the feedback loop level also collect the bits that changed, so
+ * that the loop can be evaluated again until it settles.
+ *
+ * The JIT does not compile methods longer than 8000 bytes, so the gates are split
+ * into static methods of at most MAX_CODE bytes, called in order by the eval and
+ * settle methods. Net indices are pushed as constants, without using the constant
+ * pool, so the size of a circuit is only limited by the number of methods. The
+ * code has no branches and therefore needs no stack map frames.
+ *
+ * */
+
+package modules;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+class EvaluatorWriter {
+
+	static final String CLASS_NAME = "modules/CircuitEvaluator";		// Name of the written class
+	private static final int MAX_CODE = 7000;						// Max bytes of code per method
+
+	// Opcodes
+	private static final int ICONST_0 = 0x03, ICONST_M1 = 0x02, LCONST_0 = 0x09;
+	private static final int BIPUSH = 0x10, SIPUSH = 0x11;
+	private static final int LLOAD_1 = 0x1f, LLOAD_3 = 0x21, ALOAD_0 = 0x2a, ALOAD_1 = 0x2b;
+	private static final int LSTORE_1 = 0x40, LSTORE_3 = 0x42;
+	private static final int LALOAD = 0x2f, LASTORE = 0x50;
+	private static final int ISHL = 0x78, IOR = 0x80, I2L = 0x85, LUSHR = 0x7d;
+	private static final int LAND = 0x7f, LOR = 0x81, LXOR = 0x83;
+	private static final int RETURN = 0xb1, LRETURN = 0xad;
+	private static final int INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8;
+
+	private final Netlist netlist;				// Netlist to be written
+
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();		// Constant pool entries
+	private final DataOutputStream poolOut = new DataOutputStream(pool);
+	private int poolCount = 1;												// Next constant pool index
+	private final HashMap<String, Integer> utf8 = new HashMap<>();			// Index of each string
+
+	private final ArrayList<byte[]> methods = new ArrayList<>();			// Written methods
+	private final IntList evalCalls = new IntList();						// Gate methods called by eval
+	private final IntList settleCalls = new IntList();						// Loop methods called by settle
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be written.
+	 * */
+	EvaluatorWriter(Netlist netlist) {
+		this.netlist = netlist;
+	}	// end Constructor
+
+	/* Method: write
+	 * Post Condition: Returns the class file of the evaluator.
+	 * */
+	byte[] write() throws IOException {
+		int thisClass = classRef(CLASS_NAME);
+		int superClass = classRef("java/lang/Object");
+		int iface = classRef(CompiledEngine.Evaluator.class.getName().replace('.', '/'));
+		int code = utf8("Code");
+
+		// Write the gates, in methods of at most MAX_CODE bytes
+		writeGates(0, netlist.loopStart, false, thisClass, evalCalls);
+		writeGates(netlist.loopStart, netlist.gateCount, true, thisClass, settleCalls);
+
+		// Constructor, calling Object()
+		ByteArrayOutputStream c = new ByteArrayOutputStream();
+		c.write(ALOAD_0);
+		c.write(INVOKESPECIAL);
+		writeShort(c, methodRef(superClass, "<init>", "()V"));
+		c.write(RETURN);
+		methods.add(method(0x0001, "<init>", "()V", 1, 1, c.toByteArray(), code));
+
+		// eval, calling each gate method
+		c = new ByteArrayOutputStream();
+		for(int i = 0; i < evalCalls.size(); i++) {
+			c.write(ALOAD_1);
+			c.write(INVOKESTATIC);
+			writeShort(c, evalCalls.get(i));
+		}
+		c.write(RETURN);
+		methods.add(method(0x0001, "eval", "([J)V", 1, 2, c.toByteArray(), code));
+
+		// settle, returning the changed bits of all loop methods
+		c = new ByteArrayOutputStream();
+		c.write(LCONST_0);
+		for(int i = 0; i < settleCalls.size(); i++) {
+			c.write(ALOAD_1);
+			c.write(INVOKESTATIC);
+			writeShort(c, settleCalls.get(i));
+			c.write(LOR);
+		}
+		c.write(LRETURN);
+		methods.add(method(0x0001, "settle", "([J)J", 4, 2, c.toByteArray(), code));
+
+		// If the circuit needs more constants than a class file can hold
+		if(poolCount > 0xffff)
+			throw new IOException("circuit too large for a generated evaluator");
+
+		// Write the class file
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(52);					// Java 8 class file, no frames needed without branches
+		out.writeShort(poolCount);
+		poolOut.flush();
+		pool.writeTo(out);
+		out.writeShort(0x0001 | 0x0010 | 0x0020);	// public final super
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(1);
+		out.writeShort(iface);
+		out.writeShort(0);					// No fields
+		out.writeShort(methods.size());
+		for(int i = 0; i < methods.size(); i++)
+			out.write(methods.get(i));
+		out.writeShort(0);					// No attributes
+		out.flush();
+		return bytes.toByteArray();
+	}	// end write
+
+	/* Method: writeGates
+	 * Pre Condition: Writes a range of gates into static methods taking the
+	 * 				  net values, adding a reference to each method to the
+	 * 				  list. Loop methods return the changed bits.
+	 * */
+	private void writeGates(int from, int to, boolean loop, int thisClass, IntList calls) throws IOException {
+		int code = utf8("Code");
+		int g = from;
+		while(g < to) {
+			ByteArrayOutputStream c = new ByteArrayOutputStream();
+			// If the changed bits are collected, start with none
+			if(loop) {
+				c.write(LCONST_0);
+				c.write(LSTORE_1);
+			}
+			while(g < to && c.size() < MAX_CODE) {
+				writeGate(c, g, loop);
+				g++;
+			}
+			String name = (loop ? "s" : "e") + calls.size();
+			if(loop) {
+				c.write(LLOAD_1);
+				c.write(LRETURN);
+				methods.add(method(0x000a, name, "([J)J", 8, 5, c.toByteArray(), code));
+				calls.add(methodRef(thisClass, name, "([J)J"));
+			} else {
+				c.write(RETURN);
+				methods.add(method(0x000a, name, "([J)V", 8, 1, c.toByteArray(), code));
+				calls.add(methodRef(thisClass, name, "([J)V"));
+			}
+		}
+	}	// end writeGates
+
+	/* Method: writeGate
+	 * Pre Condition: Writes the code of a gate. A loop gate keeps its result
+	 * 				  in local 3 and adds its changed bits to local 1.
+	 * */
+	private void writeGate(ByteArrayOutputStream c, int g, boolean loop) {
+		int out = netlist.out[g];
+		// If the output is stored directly, push the array and index first
+		if(!loop) {
+			c.write(ALOAD_0);
+			pushInt(c, out);
+		}
+		c.write(ALOAD_0);
+		pushInt(c, netlist.in1[g]);
+		c.write(LALOAD);
+		switch(netlist.type[g]) {
+		case Netlist.AND:
+		case Netlist.OR:
+			c.write(ALOAD_0);
+			pushInt(c, netlist.in2[g]);
+			c.write(LALOAD);
+			c.write(netlist.type[g] == Netlist.AND ? LAND : LOR);
+			break;
+		default:
+			c.write(ICONST_M1);
+			c.write(I2L);
+			// If the output is a bus, clear the bits beyond its width
+			int width = netlist.width[out];
+			if(width > 1 && width < CircuitStore.MAX_WIDTH) {
+				c.write(BIPUSH);
+				c.write(CircuitStore.MAX_WIDTH - width);
+				c.write(LUSHR);
+			}
+			c.write(LXOR);
+		}
+		// If the gate is not in a loop, store the result
+		if(!loop) {
+			c.write(LASTORE);
+			return;
+		}
+		// changed |= result ^ v[out], v[out] = result
+		c.write(LSTORE_3);
+		c.write(LLOAD_1);
+		c.write(LLOAD_3);
+		c.write(ALOAD_0);
+		pushInt(c, out);
+		c.write(LALOAD);
+		c.write(LXOR);
+		c.write(LOR);
+		c.write(LSTORE_1);
+		c.write(ALOAD_0);
+		pushInt(c, out);
+		c.write(LLOAD_3);
+		c.write(LASTORE);
+	}	// end writeGate
+
+	/* Method: pushInt
+	 * Pre Condition: Writes the code pushing a non-negative int constant.
+	 * 				  Values beyond a short are pushed in two halves.
+	 * */
+	private static void pushInt(ByteArrayOutputStream c, int v) {
+		// If the value fits in a single instruction
+		if(v <= 5) {
+			c.write(ICONST_0 + v);
+		} else if(v <= Byte.MAX_VALUE) {
+			c.write(BIPUSH);
+			c.write(v);
+		} else if(v <= Short.MAX_VALUE) {
+			c.write(SIPUSH);
+			writeShort(c, v);
+		} else {
+			c.write(SIPUSH);
+			writeShort(c, v >>> 15);
+			c.write(BIPUSH);
+			c.write(15);
+			c.write(ISHL);
+			c.write(SIPUSH);
+			writeShort(c, v & 0x7fff);
+			c.write(IOR);
+		}
+	}	// end pushInt
+
+	/* Method: method
+	 * Post Condition: Returns a method_info structure with a Code attribute.
+	 * */
+	private byte[] method(int access, String name, String desc, int maxStack, int maxLocals,
+			byte[] code, int codeName) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeShort(access);
+		out.writeShort(utf8(name));
+		out.writeShort(utf8(desc));
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(12 + code.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0);					// No exception table
+		out.writeShort(0);					// No attributes
+		out.flush();
+		return bytes.toByteArray();
+	}	// end method
+
+	/* Method: utf8
+	 * Post Condition: Returns the constant pool index of a string, adding it
+	 * 				   if it is not in the pool.
+	 * */
+	private int utf8(String s) throws IOException {
+		Integer i = utf8.get(s);
+		// If the string is already in the pool
+		if(i != null)
+			return i;
+		poolOut.writeByte(1);
+		poolOut.writeUTF(s);
+		utf8.put(s, poolCount);
+		return poolCount++;
+	}	// end utf8
+
+	/* Method: classRef
+	 * Post Condition: Returns the constant pool index of a new class entry.
+	 * */
+	private int classRef(String name) throws IOException {
+		int n = utf8(name);
+		poolOut.writeByte(7);
+		poolOut.writeShort(n);
+		return poolCount++;
+	}	// end classRef
+
+	/* Method: methodRef
+	 * Post Condition: Returns the constant pool index of a new method entry.
+	 * */
+	private int methodRef(int owner, String name, String desc) throws IOException {
+		int n = utf8(name), d = utf8(desc);
+		poolOut.writeByte(12);
+		poolOut.writeShort(n);
+		poolOut.writeShort(d);
+		int nameAndType = poolCount++;
+		poolOut.writeByte(10);
+		poolOut.writeShort(owner);
+		poolOut.writeShort(nameAndType);
+		return poolCount++;
+	}	// end methodRef
+
+	/* Method: writeShort
+	 * Pre Condition: Writes a big-endian short to the code.
+	 * */
+	private static void writeShort(ByteArrayOutputStream c, int v) {
+		c.write(v >>> 8);
+		c.write(v);
+	}	// end writeShort
+}	// end EvaluatorWriter class
@@ -0,0 +1,238 @@
+/* --------------------------------------------------------------------------------
+ * 								EventEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents an event-driven simulation engine. Only gates reading a
+ * net whose value has changed are placed on the work queue, and a tick evaluates
+ * the queued gates until no more changes occur. A board where nothing changes
+ * costs no gate evaluations at all.
+ *
+ * Each pass over the queue is a delta cycle. A tick runs delta cycles until the
+ * queue is empty, so feedback loops settle to a fixed point within the tick. The
+ * number of delta cycles is limited to the depth of the netlist plus SETTLE_LIMIT,
+ * the nets changed by a further SETTLE_LIMIT delta cycles are then reported as
+ * oscillating and the remaining queue is carried over to the next tick.
+ *
+ * Each net is held in a long, so a gate on a bus evaluates every bit of the bus
+ * in one operation, and is queued again when any bit of its inputs changes.
+ *
+ * */
+
+package modules;
+
+public class EventEngine extends Engine {
+
+	private final long[] value;				// Value of each net
+	private final long[] mask;				// Bits within the width of each net
+	private final int[] queue;				// Work queue of gates (circular)
+	private final boolean[] queued;			// Queued state of each gate
+	private int head = 0;					// First gate in the queue
+	private int size = 0;					// Number of gates in the queue
+	private final int maxDeltas;			// Max delta cycles per tick
+	private IntList recorded = null;		// Nets changed while recording oscillations
+
+	private final IntList changed;			// Nets changed since the last collection
+	private final boolean[] isChanged;		// Changed state of each net
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated. Every gate is
+	 * 				  queued so the first tick evaluates the whole netlist.
+	 * */
+	public EventEngine(Netlist netlist) {
+		super(netlist);
+		value = new long[netlist.netCount];
+		mask = new long[netlist.netCount];
+		for(int n = 0; n < netlist.netCount; n++)
+			mask[n] = CircuitStore.mask(netlist.width[n]);
+		queue = new int[Math.max(netlist.gateCount, 1)];
+		queued = new boolean[netlist.gateCount];
+		maxDeltas = netlist.levelCount + SETTLE_LIMIT;
+		changed = new IntList();
+		isChanged = new boolean[netlist.netCount];
+		for(int g = 0; g < netlist.gateCount; g++)
+			schedule(g);
+	}	// end Constructor
+
+	/* Method: tick
+	 * Pre Condition: Evaluates queued gates, one delta cycle at a time, until
+	 * 				  the queue is empty or the delta cycle limit is reached.
+	 * */
+	@Override
+	public void tick() {
+		int deltas = 0;
+		oscillating = NONE;
+		// While there are queued gates
+		while(size > 0) {
+			// If the limit is reached, record the nets changed by further cycles
+			if(deltas++ == maxDeltas) {
+				record();
+				break;
+			}
+			delta();
+		}
+	}	// end tick
+
+	/* Method: record
+	 * Pre Condition: Runs up to SETTLE_LIMIT more delta cycles and records
+	 * 				  each net changed by them as oscillating.
+	 * */
+	private void record() {
+		recorded = new IntList();
+		for(int i = 0; i < SETTLE_LIMIT && size > 0; i++)
+			delta();
+		boolean[] seen = new boolean[netlist.netCount];
+		IntList nets = new IntList();
+		for(int i = 0; i < recorded.size(); i++) {
+			// If this net has not been recorded before
+			if(!seen[recorded.get(i)]) {
+				seen[recorded.get(i)] = true;
+				nets.add(recorded.get(i));
+			}
+		}
+		oscillating = nets.toArray();
+		recorded = null;
+	}	// end record
+
+	/* Method: delta
+	 * Pre Condition: Evaluates the gates queued by the previous delta cycle.
+	 * */
+	private void delta() {
+		final byte[] type = netlist.type;
+		final int[] in1 = netlist.in1;
+		final int[] in2 = netlist.in2;
+		final int[] out = netlist.out;
+		final long[] v = value;
+		for(int count = size; count > 0; count--) {
+			int g = queue[head];
+			head = (head + 1) % queue.length;
+			size--;
+			queued[g] = false;
+			long result;
+			switch(type[g]) {
+			case Netlist.AND:
+				result = v[in1[g]] & v[in2[g]];
+				break;
+			case Netlist.OR:
+				result = v[in1[g]] | v[in2[g]];
+				break;
+			default:
+				result = v[in1[g]] ^ mask[out[g]];
+			}
+			set(out[g], result);
+		}
+	}	// end delta
+
+	/* Method: set
+	 * Pre Condition: Sets the value of a net. If the value changes, the net
+	 * 				  is recorded and all gates reading it are queued.
+	 * */
+	private void set(int net, long v) {
+		// If the value of this net changes
+		if(value[net] != v) {
+			value[net] = v;
+			if(!isChanged[net]) {
+				isChanged[net] = true;
+				changed.add(net);
+			}
+			if(recorded != null)
+				recorded.add(net);
+			for(int i = netlist.fanStart[net]; i < netlist.fanStart[net + 1]; i++)
+				schedule(netlist.fanout[i]);
+		}
+	}	// end set
+
+	/* Method: schedule
+	 * Pre Condition: Adds a gate to the end of the work queue, if it is not
+	 * 				  already queued.
+	 * */
+	private void schedule(int g) {
+		// If this gate is not queued
+		if(!queued[g]) {
+			queued[g] = true;
+			queue[(head + size) % queue.length] = g;
+			size++;
+		}
+	}	// end schedule
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return value[net] != 0L;
+	}	// end get
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net.
+	 * */
+	@Override
+	public long getValue(int net) {
+		return value[net];
+	}	// end getValue
+
+	/* Method: load
+	 * Pre Condition: Sets every net to its value in a snapshot and queues
+	 * 				  every gate, so gates left unsettled at the snapshot's
+	 * 				  tick are evaluated by the next tick.
+	 * Post Condition: Returns true.
+	 * */
+	@Override
+	public boolean load(Snapshot s) {
+		for(int n = 0; n < netCount; n++) {
+			long v = s.getValue(n) & mask[n];
+			// If the net changes, report it as changed
+			if(value[n] != v) {
+				value[n] = v;
+				if(!isChanged[n]) {
+					isChanged[n] = true;
+					changed.add(n);
+				}
+			}
+		}
+		for(int g = 0; g < netlist.gateCount; g++)
+			schedule(g);
+		recorded = null;
+		oscillating = NONE;
+		return true;
+	}	// end load
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		setSourceValue(src, value ? -1L : 0L);
+	}	// end setSource
+
+	/* Method: setSourceValue
+	 * Pre Condition: Sets the value of the specified source's net, bits
+	 * 				  beyond its width are cleared.
+	 * */
+	@Override
+	public void setSourceValue(int src, long value) {
+		int n = netlist.srcNet[src];
+		set(n, value & mask[n]);
+	}	// end setSourceValue
+
+	/* Method: collectChanges
+	 * Pre Condition: Adds every net changed since the last call to the list.
+	 * Post Condition: Returns true, as changes are tracked by this engine.
+	 * */
+	@Override
+	public boolean collectChanges(IntList list) {
+		for(int i = 0; i < changed.size(); i++) {
+			list.add(changed.get(i));
+			isChanged[changed.get(i)] = false;
+		}
+		changed.clear();
+		return true;
+	}	// end collectChanges
+
+	/* Method: isIdle
+	 * Post Condition: Returns true if no gates are waiting to be evaluated.
+	 * */
+	public boolean isIdle() {
+		return size == 0;
+	}	// end isIdle
+}	// end EventEngine class
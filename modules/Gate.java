@@ -6,43 +6,121 @@
  * will inherit the corresponding attributes and methods associated with the main 
  * functions of a logic gate.
  * 
+ * The type, state and nodes of a gate are held by the CircuitStore, the gate
+ * object keeps only its location and the index of its record. Every node of a
+ * gate has the bus width of the gate, and the gate operates on all bits of its
+ * inputs at once.
+ * 
  * */
 
 package modules;
 
+import java.awt.Graphics2D;
+
 public abstract class Gate extends Button {
 	
-	private boolean gateActive = false;		// Flag used to determine if this gate
-											// is being used as a gate or button
-	protected boolean isDetached = false;	// Flag used to determine if this gate
-											// has been removed from circuit board
+	protected final CircuitStore store;		// Store holding the gate
+	protected final int id;					// Index of the gate in the store
+	private Node[] views = null;			// View of the node in each pin slot, made when first used
+	private Node[] inputNodes = null;		// Views of the input nodes
+	private Node[] outputNodes = null;		// Views of the output nodes
 
 	/* Constructor
-	 * Pre Condition: Receives location on screen, width and height.
+	 * Pre Condition: Receives the store holding the board, location on
+	 * 				  screen, width, height, netlist type and bus width in
+	 * 				  bits. Adds the gate and its nodes to the store.
 	 * */
-	public Gate(int x, int y, int width, int height) {
+	public Gate(CircuitStore store, int x, int y, int width, int height, int type, int busWidth) {
 		super(x, y, width, height);
+		this.store = store;
+		id = store.addGate(type, busWidth);
 	}	// end Constructor
 	
+	/* Method: getStore
+	 * Post Condition: Returns the store holding this gate.
+	 * */
+	public CircuitStore getStore() {
+		return store;
+	}	// end getStore
+	
+	/* Method: getBusWidth
+	 * Post Condition: Returns the width of this gate's nodes, in bits.
+	 * */
+	public int getBusWidth() {
+		return store.getGateWidth(id);
+	}	// end getBusWidth
+	
+	/* Method: getId
+	 * Post Condition: Returns the index of this gate in the store.
+	 * */
+	public int getId() {
+		return id;
+	}	// end getId
+	
+	/* Method: getPinCount
+	 * Post Condition: Returns the number of pin slots of this gate.
+	 * */
+	protected int getPinCount() {
+		return CircuitStore.PINS;
+	}	// end getPinCount
+	
+	/* Method: getPinNode
+	 * Post Condition: Returns the node in a pin slot of this gate, or -1 if
+	 * 				   the slot is not used.
+	 * */
+	protected int getPinNode(int k) {
+		return store.getPin(id, k);
+	}	// end getPinNode
+	
+	/* Method: isOutputPin
+	 * Post Condition: Returns true if a pin slot of this gate holds an output.
+	 * */
+	protected boolean isOutputPin(int k) {
+		return k == CircuitStore.OUT;
+	}	// end isOutputPin
+	
+	/* Method: pin
+	 * Post Condition: Returns a view of the node in a pin slot of this gate.
+	 * 				   The view is made once and kept, as gates read their
+	 * 				   pins on every update.
+	 * */
+	protected Node pin(int k) {
+		Node[] v = views;
+		// If no pin has been viewed yet
+		if(v == null)
+			views = v = new Node[getPinCount()];
+		// If this pin has not been viewed yet
+		if(v[k] == null)
+			v[k] = new Node(store, getPinNode(k));
+		return v[k];
+	}	// end pin
+	
+	/* Method: setPin
+	 * Pre Condition: Sets the screen location of the node in a pin slot.
+	 * */
+	protected void setPin(int k, int x, int y) {
+		store.setNodePos(getPinNode(k), x, y);
+	}	// end setPin
+	
 	/* Method: isGateActive
 	 * Post Condition: Returns true if this gate is active (not a button).
 	 * */
 	public boolean isGateActive() {
-		return gateActive;
+		return store.isGateActive(id);
 	}	// end isGateActve
 	
 	/* Method: activateNodes
 	 * Pre Condition: Activates the gate and gate nodes.
 	 * */
 	public void activateNodes() {
-		gateActive = true;
+		store.setGateActive(id, true);
 	}	// end activateNodes
 	
 	/* Method: deactivateNodes
 	 * Pre Condition: Deactivates the gate and gate nodes.
 	 * */
 	public void deactivateNodes() {
-		gateActive = false;
+		store.setGateActive(id, false);
 	}	// end deactivateNodes
 	
 	/* Method: isDetached
@@ -50,12 +128,129 @@ public abstract class Gate extends Button {
 	 * 				   circuit board.
 	 * */
 	public boolean isDetached() {
-		return isDetached;
+		return store.isGateDetached(id);
 	}	// end isDetached
 	
+	/* Method: detach
+	 * Pre Condition: Sets this gate to be detached. Detaches all of this
+	 * 				  gate's nodes.
+	 * */
+	public void detach() {
+		store.setGateDetached(id, true);
+		for(int k = 0; k < getPinCount(); k++) {
+			if(getPinNode(k) >= 0)
+				store.setNodeDetached(getPinNode(k), true);
+		}
+	}	// end detach
+	
+	/* Method: reattach
+	 * Pre Condition: Attaches any node that has been detached during
+	 * 				  the removal of a wire, if this gate is still attached.
+	 * */
+	public void reattach() {
+		// If gate is still attached
+		if(!isDetached()) {
+			for(int k = 0; k < getPinCount(); k++) {
+				if(getPinNode(k) >= 0)
+					store.setNodeDetached(getPinNode(k), false);
+			}
+		}
+	}	// end reattach
+	
+	/* Method: release
+	 * Pre Condition: Removes this gate from the store. The gate must not be
+	 * 				  used after it is released.
+	 * */
+	public void release() {
+		store.removeGate(id);
+	}	// end release
+	
+	/* Method: getType
+	 * Post Condition: Returns the netlist type of this gate.
+	 * */
+	public int getType() {
+		return store.getGateType(id);
+	}	// end getType
+	
+	/* Method: getInputNodes
+	 * Post Condition: Returns the input nodes of this gate. The array is
+	 * 				   shared and must not be changed.
+	 * */
+	public Node[] getInputNodes() {
+		Node[] in = inputNodes;
+		// If the inputs have not been listed yet
+		if(in == null) {
+			in = new Node[CircuitStore.getInputCount(getType())];
+			for(int k = 0; k < in.length; k++)
+				in[k] = pin(k);
+			inputNodes = in;
+		}
+		return in;
+	}	// end getInputNodes
+	
+	/* Method: getOutputNodes
+	 * Post Condition: Returns the output nodes of this gate. The array is
+	 * 				   shared and must not be changed.
+	 * */
+	public Node[] getOutputNodes() {
+		Node[] out = outputNodes;
+		// If the outputs have not been listed yet
+		if(out == null)
+			outputNodes = out = new Node[] { pin(CircuitStore.OUT) };
+		return out;
+	}	// end getOutputNodes
+	
+	/* Method: getRefNode
+	 * Pre Condition: Receives screen location (x, y) and determines
+	 * 				  if one of the gate's nodes contains this point.
+	 * Post Condition: Returns the node that contains this point, otherwise
+	 * 				   returns null.
+	 * */
+	public Node getRefNode(int x, int y) {
+		// If gate is active
+		if(isGateActive()) {
+			// If an output node contains the point
+			Node[] out = getOutputNodes();
+			for(int k = 0; k < out.length; k++) {
+				if(out[k].onHover(x, y))
+					return out[k];
+			}
+			// If an input node contains the point
+			Node[] in = getInputNodes();
+			for(int k = 0; k < in.length; k++) {
+				if(in[k].onHover(x, y))
+					return in[k];
+			}
+		}
+		return null;
+	}	// end getRefNode
+	
+	/* Method: onNodeHover
+	 * Pre Condition: Receives x and y of current screen location. Updates
+	 * 				  the hovering state of every node of the gate.
+	 * Post Condition: Returns true if the mouse is hovering over a node.
+	 * */
+	protected boolean onNodeHover(int x, int y) {
+		boolean flag = false;
+		for(int k = 0; k < getPinCount(); k++) {
+			// If mouse is hovering over this node
+			if(getPinNode(k) >= 0 && pin(k).onHover(x, y))
+				flag = true;
+		}
+		return flag;
+	}	// end onNodeHover
+	
+	/* Method: drawNodes
+	 * Pre Condition: Receives graphics object, draws every node of the gate.
+	 * */
+	protected void drawNodes(Graphics2D g) {
+		for(int k = getPinCount() - 1; k >= 0; k--) {
+			if(getPinNode(k) >= 0)
+				pin(k).draw(g);
+		}
+	}	// end drawNodes
+	
 	// Abstract methods
-	public abstract void detach();
-	public abstract Node getRefNode(int x, int y);
 	public abstract boolean onGateHover(int x, int y);
 	public abstract void update();
 }	// end Gate class
@@ -0,0 +1,166 @@
+/* --------------------------------------------------------------------------------
+ * 								GateKernels
+ * --------------------------------------------------------------------------------
+ *
+ * Abstract class object represents the inner loops of the BitParallelEngine. Each
+ * loop evaluates a group of gates of one type, the gates of a level sorted so the
+ * ANDs, ORs and NOTs each form a run. Gate i of a run reads the words at slots
+ * a[i] and b[i] and writes the word at slot out + i, so the inputs are gathered
+ * and the outputs are stored in order.
+ *
+ * Two sets of kernels exist: the scalar kernels, nested below, and VectorKernels,
+ * which evaluate as many gates per instruction as the SIMD registers hold words
+ * using the incubating Vector API. The Vector API is only present when the JVM is
+ * started with --add-modules jdk.incubator.vector, so VectorKernels is kept in its
+ * own source directory (simd), built separately, and loaded by name. The scalar
+ * kernels are used if it was not built or can not be loaded.
+ *
+ * The vector kernels are used by default when present. Setting the system
+ * property logicgates.simd to false, or calling setVectorEnabled, switches to the
+ * scalar kernels.
+ *
+ * */
+
+package modules;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public abstract class GateKernels {
+
+	public static final String VECTOR_PROPERTY = "logicgates.simd";	// Property turning the vector kernels off
+	private static final int TEST_GATES = 67;		// Gates of a self-test run, several vectors and a tail
+
+	private static final GateKernels SCALAR = new ScalarKernels();	// Scalar kernels
+	private static final GateKernels VECTOR = loadVector();			// Vector kernels, or null
+	private static volatile boolean vectorEnabled =
+			!"false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY));	// True if the vector kernels are used
+
+	/* --------------------------------------------------------------------------------
+	 * 								ScalarKernels
+	 * --------------------------------------------------------------------------------
+	 *
+	 * Kernels evaluating one gate per iteration.
+	 *
+	 * */
+	private static final class ScalarKernels extends GateKernels {
+
+		/* Method: getName
+		 * Post Condition: Returns the name of the kernels.
+		 * */
+		@Override
+		public String getName() {
+			return "scalar";
+		}	// end getName
+
+		/* Method: and
+		 * Pre Condition: Evaluates a run of AND gates.
+		 * */
+		@Override
+		void and(long[] v, int[] a, int[] b, int out, int from, int to) {
+			for(int i = from; i < to; i++)
+				v[out + i] = v[a[i]] & v[b[i]];
+		}	// end and
+
+		/* Method: or
+		 * Pre Condition: Evaluates a run of OR gates.
+		 * */
+		@Override
+		void or(long[] v, int[] a, int[] b, int out, int from, int to) {
+			for(int i = from; i < to; i++)
+				v[out + i] = v[a[i]] | v[b[i]];
+		}	// end or
+
+		/* Method: not
+		 * Pre Condition: Evaluates a run of NOT gates.
+		 * */
+		@Override
+		void not(long[] v, int[] a, int out, int from, int to) {
+			for(int i = from; i < to; i++)
+				v[out + i] = ~v[a[i]];
+		}	// end not
+	}	// end ScalarKernels class
+
+	/* Method: loadVector
+	 * Post Condition: Returns the vector kernels, or null if the Vector API
+	 * 				   is not present or the kernels fail or do not match the
+	 * 				   scalar kernels. The kernels are run once, so a missing
+	 * 				   module is found here rather than in a simulation.
+	 * */
+	private static GateKernels loadVector() {
+		try {
+			GateKernels k = (GateKernels) Class.forName("modules.VectorKernels")
+					.getDeclaredConstructor().newInstance();
+			return matchesScalar(k) ? k : null;
+		} catch(ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return null;
+		}
+	}	// end loadVector
+
+	/* Method: matchesScalar
+	 * Post Condition: Returns true if the kernels give the words of the
+	 * 				   scalar kernels for a run of each type, gathering random
+	 * 				   words. The run starts past the first gate and is long
+	 * 				   enough for full vectors of the widest shape and a tail.
+	 * */
+	private static boolean matchesScalar(GateKernels k) {
+		Random r = new Random(TEST_GATES);
+		int[] a = new int[TEST_GATES];
+		int[] b = new int[TEST_GATES];
+		long[] words = new long[2 * TEST_GATES];
+		for(int i = 0; i < TEST_GATES; i++) {
+			a[i] = r.nextInt(TEST_GATES);
+			b[i] = r.nextInt(TEST_GATES);
+			words[i] = r.nextLong();
+		}
+		for(int t = Netlist.AND; t <= Netlist.NOT; t++) {
+			long[] expected = words.clone();
+			long[] actual = words.clone();
+			switch(t) {
+			case Netlist.AND:
+				SCALAR.and(expected, a, b, TEST_GATES, 1, TEST_GATES);
+				k.and(actual, a, b, TEST_GATES, 1, TEST_GATES);
+				break;
+			case Netlist.OR:
+				SCALAR.or(expected, a, b, TEST_GATES, 1, TEST_GATES);
+				k.or(actual, a, b, TEST_GATES, 1, TEST_GATES);
+				break;
+			default:
+				SCALAR.not(expected, a, TEST_GATES, 1, TEST_GATES);
+				k.not(actual, a, TEST_GATES, 1, TEST_GATES);
+			}
+			// If a kernel stored a different word
+			if(!Arrays.equals(expected, actual))
+				return false;
+		}
+		return true;
+	}	// end matchesScalar
+
+	/* Method: get
+	 * Post Condition: Returns the kernels to evaluate gates with.
+	 * */
+	public static GateKernels get() {
+		return vectorEnabled && VECTOR != null ? VECTOR : SCALAR;
+	}	// end get
+
+	/* Method: isVectorAvailable
+	 * Post Condition: Returns true if the Vector API is present.
+	 * */
+	public static boolean isVectorAvailable() {
+		return VECTOR != null;
+	}	// end isVectorAvailable
+
+	/* Method: setVectorEnabled
+	 * Pre Condition: Selects the vector kernels, if present, or the scalar
+	 * 				  kernels for engines created after the call.
+	 * */
+	public static void setVectorEnabled(boolean enabled) {
+		vectorEnabled = enabled;
+	}	// end setVectorEnabled
+
+	// Abstract methods
+	public abstract String getName();
+	abstract void and(long[] v, int[] a, int[] b, int out, int from, int to);
+	abstract void or(long[] v, int[] a, int[] b, int out, int from, int to);
+	abstract void not(long[] v, int[] a, int out, int from, int to);
+}	// end GateKernels class
@@ -0,0 +1,94 @@
+/* --------------------------------------------------------------------------------
+ * 								IntList
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a growable list of primitive int values. Used by the
+ * simulation classes in place of ArrayList<Integer> so that large netlists are
+ * not stored as boxed objects.
+ *
+ * */
+
+package modules;
+
+import java.util.Arrays;
+
+public class IntList {
+
+	private int[] data;				// List values
+	private int size = 0;			// Number of values in the list
+
+	/* Constructor
+	 * Pre Condition: Initiates an empty list with a default capacity.
+	 * */
+	public IntList() {
+		data = new int[16];
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the initial capacity of the list.
+	 * */
+	public IntList(int capacity) {
+		data = new int[Math.max(capacity, 1)];
+	}	// end Constructor
+
+	/* Method: add
+	 * Pre Condition: Adds a value to the end of the list, growing the list
+	 * 				  if it is full.
+	 * */
+	public void add(int value) {
+		// If the list is full
+		if(size == data.length) {
+			data = Arrays.copyOf(data, size * 2);
+		}
+		data[size++] = value;
+	}	// end add
+
+	/* Method: get
+	 * Post Condition: Returns the value at the specified index.
+	 * */
+	public int get(int index) {
+		return data[index];
+	}	// end get
+
+	/* Method: set
+	 * Pre Condition: Sets the value at the specified index.
+	 * */
+	public void set(int index, int value) {
+		data[index] = value;
+	}	// end set
+
+	/* Method: removeLast
+	 * Post Condition: Removes and returns the last value of the list.
+	 * */
+	public int removeLast() {
+		return data[--size];
+	}	// end removeLast
+
+	/* Method: size
+	 * Post Condition: Returns the number of values in the list.
+	 * */
+	public int size() {
+		return size;
+	}	// end size
+
+	/* Method: isEmpty
+	 * Post Condition: Returns true if the list contains no values.
+	 * */
+	public boolean isEmpty() {
+		return size == 0;
+	}	// end isEmpty
+
+	/* Method: clear
+	 * Pre Condition: Removes all values from the list.
+	 * */
+	public void clear() {
+		size = 0;
+	}	// end clear
+
+	/* Method: toArray
+	 * Post Condition: Returns a trimmed copy of the list values.
+	 * */
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}	// end toArray
+}	// end IntList class
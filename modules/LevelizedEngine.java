@@ -0,0 +1,207 @@
+/* --------------------------------------------------------------------------------
+ * 								LevelizedEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a simulation engine that evaluates every gate of a
+ * Netlist once per tick, in level order. As each gate is evaluated after the
+ * gates driving its inputs, a circuit without feedback settles in a single pass.
+ * Gates in the feedback loop level are then evaluated again, in a fixed order,
+ * until they reach a fixed point.
+ *
+ * A netlist of single bit nets holds each net in a boolean. In a netlist with
+ * buses each net is held in a long instead, so a gate on a bus evaluates every
+ * bit of the bus in one operation, and NOT gates invert the input within the
+ * mask of the output.
+ *
+ * */
+
+package modules;
+
+public class LevelizedEngine extends Engine {
+
+	private final boolean[] charge;			// Value of each net, or null if the netlist has buses
+	private final long[] value;				// Value of each net of a netlist with buses, or null
+	private final long[] mask;				// Bits within the width of each net, or null
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated.
+	 * */
+	public LevelizedEngine(Netlist netlist) {
+		super(netlist);
+		// If the netlist has buses, hold each net in a long
+		if(netlist.isWide()) {
+			charge = null;
+			value = new long[netlist.netCount];
+			mask = new long[netlist.netCount];
+			for(int n = 0; n < netlist.netCount; n++)
+				mask[n] = CircuitStore.mask(netlist.width[n]);
+		} else {
+			charge = new boolean[netlist.netCount];
+			value = null;
+			mask = null;
+		}
+	}	// end Constructor
+
+	/* Method: tick
+	 * Pre Condition: Evaluates every gate of the netlist in level order, then
+	 * 				  settles the feedback loop level.
+	 * */
+	@Override
+	public void tick() {
+		evaluate(0, netlist.loopStart, null);
+		oscillating = NONE;
+		// If the netlist has feedback loops
+		if(netlist.loopStart < netlist.gateCount) {
+			int passes = 0;
+			// Evaluate the loop level until no net changes
+			while(evaluate(netlist.loopStart, netlist.gateCount, null)) {
+				// If the loops have not settled, record the nets still changing
+				if(++passes == SETTLE_LIMIT) {
+					IntList changed = new IntList();
+					evaluate(netlist.loopStart, netlist.gateCount, changed);
+					oscillating = changed.toArray();
+					break;
+				}
+			}
+		}
+	}	// end tick
+
+	/* Method: evaluate
+	 * Pre Condition: Evaluates a range of gates, adding the output net of each
+	 * 				  gate that changes to the list, if there is one.
+	 * Post Condition: Returns true if any output net changed.
+	 * */
+	private boolean evaluate(int from, int to, IntList changed) {
+		// If the netlist has buses
+		if(charge == null)
+			return evaluateWide(from, to, changed);
+		final byte[] type = netlist.type;
+		final int[] in1 = netlist.in1;
+		final int[] in2 = netlist.in2;
+		final int[] out = netlist.out;
+		final boolean[] v = charge;
+		boolean change = false;
+		for(int g = from; g < to; g++) {
+			boolean result;
+			switch(type[g]) {
+			case Netlist.AND:
+				result = v[in1[g]] & v[in2[g]];
+				break;
+			case Netlist.OR:
+				result = v[in1[g]] | v[in2[g]];
+				break;
+			default:
+				result = !v[in1[g]];
+			}
+			// If the output of this gate changes
+			if(v[out[g]] != result) {
+				v[out[g]] = result;
+				change = true;
+				if(changed != null)
+					changed.add(out[g]);
+			}
+		}
+		return change;
+	}	// end evaluate
+
+	/* Method: evaluateWide
+	 * Pre Condition: Evaluates a range of gates of a netlist with buses,
+	 * 				  adding the output net of each gate that changes to the
+	 * 				  list, if there is one.
+	 * Post Condition: Returns true if any output net changed.
+	 * */
+	private boolean evaluateWide(int from, int to, IntList changed) {
+		final byte[] type = netlist.type;
+		final int[] in1 = netlist.in1;
+		final int[] in2 = netlist.in2;
+		final int[] out = netlist.out;
+		final long[] v = value;
+		boolean change = false;
+		for(int g = from; g < to; g++) {
+			long result;
+			switch(type[g]) {
+			case Netlist.AND:
+				result = v[in1[g]] & v[in2[g]];
+				break;
+			case Netlist.OR:
+				result = v[in1[g]] | v[in2[g]];
+				break;
+			default:
+				result = v[in1[g]] ^ mask[out[g]];
+			}
+			// If the output of this gate changes
+			if(v[out[g]] != result) {
+				v[out[g]] = result;
+				change = true;
+				if(changed != null)
+					changed.add(out[g]);
+			}
+		}
+		return change;
+	}	// end evaluateWide
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return charge != null ? charge[net] : value[net] != 0L;
+	}	// end get
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net.
+	 * */
+	@Override
+	public long getValue(int net) {
+		// If the netlist has no buses
+		if(charge != null)
+			return charge[net] ? 1L : 0L;
+		return value[net];
+	}	// end getValue
+
+	/* Method: load
+	 * Pre Condition: Sets every net to its value in a snapshot. Every gate is
+	 * 				  evaluated each tick, so the net values are the whole
+	 * 				  state of the engine.
+	 * Post Condition: Returns true.
+	 * */
+	@Override
+	public boolean load(Snapshot s) {
+		for(int n = 0; n < netCount; n++) {
+			// If the netlist has no buses
+			if(charge != null)
+				charge[n] = s.get(n);
+			else
+				value[n] = s.getValue(n) & mask[n];
+		}
+		oscillating = NONE;
+		return true;
+	}	// end load
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		// If the netlist has no buses
+		if(charge != null)
+			charge[netlist.srcNet[src]] = value;
+		else
+			setSourceValue(src, value ? -1L : 0L);
+	}	// end setSource
+
+	/* Method: setSourceValue
+	 * Pre Condition: Sets the value of the specified source's net, bits
+	 * 				  beyond its width are cleared.
+	 * */
+	@Override
+	public void setSourceValue(int src, long value) {
+		int n = netlist.srcNet[src];
+		// If the netlist has no buses, only the lowest bit is kept
+		if(charge != null)
+			charge[n] = (value & 1L) != 0L;
+		else
+			this.value[n] = value & mask[n];
+	}	// end setSourceValue
+}	// end LevelizedEngine class
@@ -0,0 +1,129 @@
+/* --------------------------------------------------------------------------------
+ * 								MappedEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a levelized simulation engine for a MappedNetlist. The
+ * netlist is read in place from the mapped circuit file, and the value of each
+ * net is held as one bit in a direct buffer, so neither adds to the Java heap no
+ * matter how large the circuit is. Gates are evaluated in level order and the
+ * feedback loop level is settled as in LevelizedEngine.
+ *
+ * */
+
+package modules;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class MappedEngine extends Engine {
+
+	private final MappedNetlist mapped;		// Simulated netlist
+	private final ByteBuffer value;			// Value of each net, bit (net % 64) of long (net / 64)
+
+	/* Constructor
+	 * Pre Condition: Receives the mapped netlist to be simulated.
+	 * */
+	public MappedEngine(MappedNetlist mapped) {
+		super(mapped.netCount);
+		this.mapped = mapped;
+		value = ByteBuffer.allocateDirect(((mapped.netCount + 63) >>> 6) * 8).order(ByteOrder.nativeOrder());
+	}	// end Constructor
+
+	/* Method: getMappedNetlist
+	 * Post Condition: Returns the netlist simulated by this engine.
+	 * */
+	public MappedNetlist getMappedNetlist() {
+		return mapped;
+	}	// end getMappedNetlist
+
+	/* Method: tick
+	 * Pre Condition: Evaluates every gate of the netlist in level order, then
+	 * 				  settles the feedback loop level.
+	 * */
+	@Override
+	public void tick() {
+		evaluate(0, mapped.loopStart, null);
+		oscillating = NONE;
+		// If the netlist has feedback loops
+		if(mapped.isCyclic()) {
+			int passes = 0;
+			// Evaluate the loop level until no net changes
+			while(evaluate(mapped.loopStart, mapped.gateCount, null)) {
+				// If the loops have not settled, record the nets still changing
+				if(++passes == SETTLE_LIMIT) {
+					IntList changed = new IntList();
+					evaluate(mapped.loopStart, mapped.gateCount, changed);
+					oscillating = changed.toArray();
+					break;
+				}
+			}
+		}
+	}	// end tick
+
+	/* Method: evaluate
+	 * Pre Condition: Evaluates a range of gates, adding the output net of each
+	 * 				  gate that changes to the list, if there is one.
+	 * Post Condition: Returns true if any output net changed.
+	 * */
+	private boolean evaluate(int from, int to, IntList changed) {
+		final MappedNetlist m = mapped;
+		boolean change = false;
+		for(int g = from; g < to; g++) {
+			boolean result;
+			switch(m.type(g)) {
+			case Netlist.AND:
+				result = get(m.in1(g)) & get(m.in2(g));
+				break;
+			case Netlist.OR:
+				result = get(m.in1(g)) | get(m.in2(g));
+				break;
+			default:
+				result = !get(m.in1(g));
+			}
+			int net = m.out(g);
+			// If the output of this gate changes
+			if(get(net) != result) {
+				set(net, result);
+				change = true;
+				if(changed != null)
+					changed.add(net);
+			}
+		}
+		return change;
+	}	// end evaluate
+
+	/* Method: set
+	 * Pre Condition: Sets the value of a net.
+	 * */
+	private void set(int net, boolean v) {
+		int pos = (net >>> 6) << 3;
+		long word = value.getLong(pos);
+		value.putLong(pos, v ? word | (1L << net) : word & ~(1L << net));
+	}	// end set
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return (value.getLong((net >>> 6) << 3) & (1L << net)) != 0L;
+	}	// end get
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		set(mapped.srcNet(src), value);
+	}	// end setSource
+
+	/* Method: copyTo
+	 * Pre Condition: Copies the value of every net into a packed array, bit
+	 * 				  (net % 64) of word (net / 64) holding the value of net.
+	 * */
+	@Override
+	public void copyTo(long[] bits) {
+		for(int w = 0; w < (netCount + 63) >>> 6; w++)
+			bits[w] |= value.getLong(w << 3);
+	}	// end copyTo
+}	// end MappedEngine class
@@ -0,0 +1,182 @@
+/* --------------------------------------------------------------------------------
+ * 								MappedNetlist
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a Netlist held in a binary circuit file mapped into
+ * memory (see NetlistFile). The arrays of the netlist are read in place from the
+ * mapped buffer, so they take no space on the Java heap and are never copied or
+ * scanned by the garbage collector. Only the names of the inputs and outputs are
+ * read onto the heap.
+ *
+ * */
+
+package modules;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public final class MappedNetlist {
+
+	private final ByteBuffer buf;			// Mapped file, little-endian
+
+	final int netCount;						// Number of nets
+	final int gateCount;					// Number of gates
+	final int levelCount;					// Number of levels
+	final int loopStart;					// First gate in a feedback loop
+	final int sourceCount;					// Number of sources
+
+	private final int in1Pos;				// Byte offset of each array
+	private final int in2Pos;
+	private final int outPos;
+	private final int levelPos;
+	private final int srcPos;
+	private final int fanStartPos;
+	private final int fanoutPos;
+	private final int typePos;
+
+	private final ArrayList<String> inputs = new ArrayList<>();		// Input names, in source order
+	private final ArrayList<String> outputs = new ArrayList<>();	// Output names
+	private final int[] outputNets;										// Net of each output
+	private final HashMap<String, Integer> sources = new HashMap<>();	// Source of each input name
+
+	/* Constructor
+	 * Pre Condition: Receives a mapped binary circuit file, with a valid
+	 * 				  header. Throws an IOException if the file is truncated.
+	 * */
+	MappedNetlist(ByteBuffer buf) throws IOException {
+		this.buf = buf;
+		netCount = buf.getInt(8);
+		gateCount = buf.getInt(12);
+		levelCount = buf.getInt(16);
+		loopStart = buf.getInt(20);
+		sourceCount = buf.getInt(24);
+		int fanCount = buf.getInt(28);
+		int namePos = buf.getInt(32);
+		in1Pos = NetlistFile.HEADER_INTS * 4;
+		in2Pos = in1Pos + gateCount * 4;
+		outPos = in2Pos + gateCount * 4;
+		levelPos = outPos + gateCount * 4;
+		srcPos = levelPos + (levelCount + 1) * 4;
+		fanStartPos = srcPos + sourceCount * 4;
+		fanoutPos = fanStartPos + (netCount + 1) * 4;
+		typePos = fanoutPos + fanCount * 4;
+		// If the arrays do not fit before the names
+		if(namePos < typePos + gateCount || namePos > buf.capacity())
+			throw new IOException("binary circuit file is truncated");
+		ByteBuffer names = buf.duplicate().position(namePos);
+		try(DataInputStream in = new DataInputStream(new java.io.InputStream() {
+			@Override
+			public int read() {
+				return names.hasRemaining() ? names.get() & 0xff : -1;
+			}
+		})) {
+			int count = in.readInt();
+			for(int i = 0; i < count; i++) {
+				inputs.add(in.readUTF());
+				sources.put(inputs.get(i), i);
+			}
+			count = in.readInt();
+			outputNets = new int[count];
+			for(int i = 0; i < count; i++) {
+				outputs.add(in.readUTF());
+				outputNets[i] = in.readInt();
+			}
+		}
+	}	// end Constructor
+
+	/* Methods: type, in1, in2, out, levelStart, srcNet, fanStart, fanout
+	 * Post Condition: Return an element of the corresponding Netlist array.
+	 * */
+	byte type(int g) {
+		return buf.get(typePos + g);
+	}	// end type
+
+	int in1(int g) {
+		return buf.getInt(in1Pos + (g << 2));
+	}	// end in1
+
+	int in2(int g) {
+		return buf.getInt(in2Pos + (g << 2));
+	}	// end in2
+
+	int out(int g) {
+		return buf.getInt(outPos + (g << 2));
+	}	// end out
+
+	int levelStart(int level) {
+		return buf.getInt(levelPos + (level << 2));
+	}	// end levelStart
+
+	int srcNet(int src) {
+		return buf.getInt(srcPos + (src << 2));
+	}	// end srcNet
+
+	int fanStart(int net) {
+		return buf.getInt(fanStartPos + (net << 2));
+	}	// end fanStart
+
+	int fanout(int i) {
+		return buf.getInt(fanoutPos + (i << 2));
+	}	// end fanout
+
+	/* Method: getNetCount
+	 * Post Condition: Returns the number of nets.
+	 * */
+	public int getNetCount() {
+		return netCount;
+	}	// end getNetCount
+
+	/* Method: getGateCount
+	 * Post Condition: Returns the number of gates.
+	 * */
+	public int getGateCount() {
+		return gateCount;
+	}	// end getGateCount
+
+	/* Method: getLevelCount
+	 * Post Condition: Returns the number of levels.
+	 * */
+	public int getLevelCount() {
+		return levelCount;
+	}	// end getLevelCount
+
+	/* Method: isCyclic
+	 * Post Condition: Returns true if the netlist has feedback loops.
+	 * */
+	public boolean isCyclic() {
+		return loopStart < gateCount;
+	}	// end isCyclic
+
+	/* Method: getSource
+	 * Post Condition: Returns the source of an input name, or -1 if there is
+	 * 				   no such input.
+	 * */
+	public int getSource(String name) {
+		Integer src = sources.get(name);
+		return src == null ? -1 : src;
+	}	// end getSource
+
+	/* Method: getInputs
+	 * Post Condition: Returns the input names, in source order.
+	 * */
+	public ArrayList<String> getInputs() {
+		return inputs;
+	}	// end getInputs
+
+	/* Method: getOutputs
+	 * Post Condition: Returns the output names.
+	 * */
+	public ArrayList<String> getOutputs() {
+		return outputs;
+	}	// end getOutputs
+
+	/* Method: getOutputNet
+	 * Post Condition: Returns the net of the specified output.
+	 * */
+	public int getOutputNet(int i) {
+		return outputNets[i];
+	}	// end getOutputNet
+}	// end MappedNetlist class
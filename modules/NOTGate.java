@@ -12,53 +12,48 @@ package modules;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Rectangle2D;
 
 public class NOTGate extends Gate {
 	
-	private Rectangle2D area;		// Gate area
-	private Polygon triangle;		// Gate triangle shape
-	private Ellipse2D circle;		// Gate circle shape
+	private static final int WIDTH = 60;		// Gate area width
+	private static final int HEIGHT = 30;		// Gate area height
+	private static final int IN = 0;			// Pin slot of the input
 	
-	private Node n1;				// Input node
-	private Node n2;				// Output node
+	// Gate triangle shape, relative to the gate location (shared by all gates)
+	private static final Polygon TRIANGLE = new Polygon(
+			new int[] { 22, 37, 22 },
+			new int[] { 0, 15, 30 }, 3);
 
 	/* Constructor
-	 * Pre Condition: Use default location and initiates shape objects
-	 * 				  and nodes.
+	 * Pre Condition: Use default location and initiates nodes.
 	 * */
-	public NOTGate() {
-		super(200, 200, 60, 30);
-		setShapes();
+	public NOTGate(CircuitStore store) {
+		this(store, 200, 200);
 	}	// end Constructor
 
 	/* Constructor
-	 * Pre Condition: Uses provided location and initiates shape objects
-	 * 				  and nodes.
+	 * Pre Condition: Uses provided location and initiates nodes.
+	 * */
+	public NOTGate(CircuitStore store, int x, int y) {
+		this(store, x, y, 1);
+	}	// end NOTGate
+	
+	/* Constructor
+	 * Pre Condition: Uses provided location and bus width in bits, and
+	 * 				  initiates nodes.
 	 * */
-	public NOTGate(int x, int y) {
-		super(x, y, 60, 30);
+	public NOTGate(CircuitStore store, int x, int y, int busWidth) {
+		super(store, x, y, WIDTH, HEIGHT, Netlist.NOT, busWidth);
 		setShapes();
 	}	// end NOTGate
 	
 	/* Method: setShapes
-	 * Pre Condition: Initiates all shapes and nodes for this gate object.
+	 * Pre Condition: Moves all nodes of this gate object to the gate location.
 	 * */
 	private void setShapes() {
-		// Initaite rectangle area
-		area = new Rectangle2D.Double(x, y, 60, 30);
-		// Initiate circle shape
-		circle = new Ellipse2D.Double(x + 37, y + 10, 10, 10);
-		// Initiate triangle shape
-		triangle = new Polygon();
-		triangle.addPoint(x + 22, y);
-		triangle.addPoint(x + 37, y + 15);
-		triangle.addPoint(x + 22, y + 30);
-		// Initiate nodes
-		n1 = new Node(x - 5, y + 7, Node.LEFT);
-		n2 = new Node(x + 50, y + 7, Node.RIGHT);
-	}
+		setPin(IN, x - 5, y + 7);
+		setPin(CircuitStore.OUT, x + 50, y + 7);
+	}	// end setShapes
 	
 	/* Method: setPos
 	 * Pre Condition: Receives x and y for the new gate position.
@@ -80,19 +75,10 @@ public class NOTGate extends Gate {
 	public boolean onHover(int x, int y) {
 		// If gate is activated
 		if(isGateActive()) {
-			boolean flag = false;
-			// If location is hovering over the input node
-			if(n1.onHover(x, y))
-				flag = true;
-			if(n2.onHover(x, y))
-				flag = true;
-			return flag;
+			return onNodeHover(x, y);
 		}
 		// If this gate is not activated
-		else if(!isGateActive()) {
-			return area.contains(x, y);
-		}
-		return false;
+		return x >= this.x && y >= this.y && x < this.x + WIDTH && y < this.y + HEIGHT;
 	}	// end onHover
 	
 	/* Method: onGateHover
@@ -102,7 +88,7 @@ public class NOTGate extends Gate {
 	 * */
 	@Override
 	public boolean onGateHover(int x, int y) {
-		return triangle.contains(x, y);
+		return TRIANGLE.contains(x - this.x, y - this.y);
 	}	// end onGateHover
 
 	@Override
@@ -117,50 +103,15 @@ public class NOTGate extends Gate {
 	@Override
 	public void acknowledge() {}
 	
-	/* Method: getRefNode
-	 * Pre Condition: Receives screen location (x, y) and determines
-	 * 				  if one of the 2 nodes contains this point.
-	 * Post Condition: Returns the node that contains this point, otherwise
-	 * 				   returns null.
-	 * */
-	@Override
-	public Node getRefNode(int x, int y) {
-		// If gate is active
-		if(isGateActive()) {
-			// If input node contains the location
-			if(n1.onHover(x, y))
-				return n1;
-			// If output node contains the location
-			if(n2.onHover(x, y))
-				return n2;
-		}
-		return null;
-	}	// end getRefNode
-	
 	/* Method: update
 	 * Pre Condition: Attaches any node that has been detached during
-	 * 				  the removal of a wire. Checks the value of the
-	 * 				  two input nodes and determines the output value.
+	 * 				  the removal of a wire. Each output bit is the 
+	 * 				  inverse of the same input bit.
 	 * */
 	@Override
 	public void update() {
-		// If gate is still attached 
-		if(!isDetached) {
-			// If input node is detached
-			if(n1.isDetached())
-				n1.attach();
-			// If output node is detached
-			if(n2.isDetached())
-				n2.attach();
-		}
-		
-		// If input node is positive charged
-		if(n1.getCharge()) {
-			n2.setCharge(false);
-		// If input node is negative charged
-		} else {
-			n2.setCharge(true);
-		}
+		reattach();
+		pin(CircuitStore.OUT).setValue(~pin(IN).getValue());
 	}	// end update
 	
 	/* Method: draw
@@ -171,24 +122,14 @@ public class NOTGate extends Gate {
 	public void draw(Graphics2D g) {
 		// Draw NOT gate shapes
 		g.setColor(new Color(204, 86, 2));
-		g.fill(triangle);
-		g.draw(circle);
+		g.translate(x, y);
+		g.fill(TRIANGLE);
+		g.translate(-x, -y);
+		g.drawOval(x + 37, y + 10, 10, 10);
 		// Draw NOT gate node sticks
 		g.drawLine(x + 47, y + 15, x + 52, y + 15);
 		g.drawLine(x + 8, y + 15, x + 30, y + 15);
 		// Draw nodes
-		n1.draw(g);
-		n2.draw(g);
+		drawNodes(g);
 	}	// end draw
-	
-	/* Method: detach
-	 * Pre Condition: Sets this gate to be detached. Detaches all 
-	 * 				  of this gate's nodes.
-	 * */
-	@Override
-	public void detach() {
-		isDetached = true;
-		n1.detach();
-		n2.detach();
-	}	// end detach
 }	// end NOTGate class
@@ -0,0 +1,134 @@
+/* --------------------------------------------------------------------------------
+ * 								Netlist
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a compiled circuit. Every group of nodes joined by wires
+ * is reduced to a single net, identified by an index, and every logic gate is
+ * reduced to an opcode with the indices of its input and output nets. Gates are
+ * stored in primitive arrays, sorted into levels by topological depth so that a
+ * single pass over the arrays evaluates the whole circuit.
+ *
+ * Each net has a width of 1 to 64 bits. The nets of a gate all have the same
+ * width, and the gate operates on every bit at once: NOT inverts only the bits
+ * within the width. A netlist with any net wider than one bit is wide, and can
+ * only be simulated by engines holding a long per net.
+ *
+ * Gates that are part of (or depend on) a feedback loop can not be levelized,
+ * these are stored after the last level in their original order.
+ *
+ * A Netlist is created by a NetlistBuilder and is not changed after creation.
+ *
+ * */
+
+package modules;
+
+public class Netlist {
+
+	// Gate type constants
+	public static final int SOURCE = 0;
+	public static final int AND = 1;
+	public static final int OR = 2;
+	public static final int NOT = 3;
+
+	final int netCount;				// Number of nets
+	final int gateCount;			// Number of gates
+	final byte[] width;				// Width of each net, in bits
+	final boolean wide;				// True if any net is wider than one bit
+
+	final byte[] type;				// Type of each gate, in evaluation order
+	final int[] in1;				// First input net of each gate
+	final int[] in2;				// Second input net of each gate (same as in1 for NOT)
+	final int[] out;				// Output net of each gate
+	final int[] gateId;				// Builder index of each gate
+
+	final int[] levelStart;			// First gate of each level, with an end marker
+	final int levelCount;			// Number of levels (including the loop level)
+	final int loopStart;			// First gate of the feedback loop level
+
+	final int[] srcNet;				// Output net of each source
+
+	final int[] fanStart;			// First fanout entry of each net, with an end marker
+	final int[] fanout;				// Gates reading each net
+
+	/* Constructor
+	 * Pre Condition: Receives the levelized arrays produced by a NetlistBuilder.
+	 * */
+	Netlist(int netCount, byte[] width, byte[] type, int[] in1, int[] in2, int[] out, int[] gateId,
+			int[] levelStart, int loopStart, int[] srcNet, int[] fanStart, int[] fanout) {
+		this.netCount = netCount;
+		this.gateCount = type.length;
+		this.width = width;
+		boolean w = false;
+		for(int n = 0; n < netCount && !w; n++)
+			w = width[n] > 1;
+		this.wide = w;
+		this.type = type;
+		this.in1 = in1;
+		this.in2 = in2;
+		this.out = out;
+		this.gateId = gateId;
+		this.levelStart = levelStart;
+		this.levelCount = levelStart.length - 1;
+		this.loopStart = loopStart;
+		this.srcNet = srcNet;
+		this.fanStart = fanStart;
+		this.fanout = fanout;
+	}	// end Constructor
+
+	/* Method: getNetCount
+	 * Post Condition: Returns the number of nets in the netlist.
+	 * */
+	public int getNetCount() {
+		return netCount;
+	}	// end getNetCount
+
+	/* Method: getGateCount
+	 * Post Condition: Returns the number of gates in the netlist.
+	 * */
+	public int getGateCount() {
+		return gateCount;
+	}	// end getGateCount
+
+	/* Method: getSourceCount
+	 * Post Condition: Returns the number of sources in the netlist.
+	 * */
+	public int getSourceCount() {
+		return srcNet.length;
+	}	// end getSourceCount
+
+	/* Method: getSourceNet
+	 * Post Condition: Returns the output net of the specified source.
+	 * */
+	public int getSourceNet(int src) {
+		return srcNet[src];
+	}	// end getSourceNet
+
+	/* Method: getWidth
+	 * Post Condition: Returns the width of the specified net, in bits.
+	 * */
+	public int getWidth(int net) {
+		return width[net];
+	}	// end getWidth
+
+	/* Method: isWide
+	 * Post Condition: Returns true if any net is wider than one bit.
+	 * */
+	public boolean isWide() {
+		return wide;
+	}	// end isWide
+
+	/* Method: getLevelCount
+	 * Post Condition: Returns the number of levels, including the feedback
+	 * 				   loop level if there is one.
+	 * */
+	public int getLevelCount() {
+		return levelCount;
+	}	// end getLevelCount
+
+	/* Method: isCyclic
+	 * Post Condition: Returns true if the netlist contains feedback loops.
+	 * */
+	public boolean isCyclic() {
+		return loopStart < gateCount;
+	}	// end isCyclic
+}	// end Netlist class
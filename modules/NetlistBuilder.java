@@ -0,0 +1,194 @@
+/* --------------------------------------------------------------------------------
+ * 								NetlistBuilder
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to create a Netlist. Nets, sources and gates are added in any
+ * order, the builder then sorts the gates into levels by topological depth.
+ *
+ * A net may only be driven by one source or gate. If a second gate drives the same
+ * net, the gate is given a new net of its own, of the same width, which nothing
+ * else reads.
+ *
+ * */
+
+package modules;
+
+public class NetlistBuilder {
+
+	private int netCount = 0;					// Number of nets
+	private IntList driver = new IntList();		// Driving gate of each net (-1 none, -2 source)
+	private IntList width = new IntList();		// Width of each net, in bits
+	private IntList srcNet = new IntList();		// Output net of each source
+	private IntList type = new IntList();		// Type of each gate
+	private IntList in1 = new IntList();		// First input net of each gate
+	private IntList in2 = new IntList();		// Second input net of each gate
+	private IntList out = new IntList();		// Output net of each gate
+
+	/* Method: addNet
+	 * Post Condition: Adds a new single bit net, returns the index of the net.
+	 * */
+	public int addNet() {
+		return addNet(1);
+	}	// end addNet
+
+	/* Method: addNet
+	 * Pre Condition: Receives the width of a new net, in bits.
+	 * Post Condition: Adds the net, returns the index of the net.
+	 * */
+	public int addNet(int bits) {
+		driver.add(-1);
+		width.add(bits);
+		return netCount++;
+	}	// end addNet
+
+	/* Method: addSource
+	 * Pre Condition: Receives the net driven by a new source.
+	 * Post Condition: Returns the index of the source.
+	 * */
+	public int addSource(int net) {
+		// If this net is already driven
+		if(driver.get(net) != -1) {
+			net = addNet(width.get(net));
+		}
+		driver.set(net, -2);
+		srcNet.add(net);
+		return srcNet.size() - 1;
+	}	// end addSource
+
+	/* Method: addGate
+	 * Pre Condition: Receives gate type, input nets and output net of a new
+	 * 				  gate. For single input gates, both inputs are the same.
+	 * Post Condition: Returns the index of the gate.
+	 * */
+	public int addGate(int gateType, int input1, int input2, int output) {
+		// If this net is already driven
+		if(driver.get(output) != -1) {
+			output = addNet(width.get(output));
+		}
+		driver.set(output, type.size());
+		type.add(gateType);
+		in1.add(input1);
+		in2.add(input2);
+		out.add(output);
+		return type.size() - 1;
+	}	// end addGate
+
+	/* Method: getNetCount
+	 * Post Condition: Returns the number of nets added so far.
+	 * */
+	public int getNetCount() {
+		return netCount;
+	}	// end getNetCount
+
+	/* Method: build
+	 * Pre Condition: Sorts the gates into levels, where each gate only reads
+	 * 				  nets driven by sources or by gates of earlier levels.
+	 * 				  Gates that can not be sorted (feedback loops) are placed
+	 * 				  in a final level.
+	 * Post Condition: Returns the new Netlist.
+	 * */
+	public Netlist build() {
+		int n = type.size();
+		int[] gIn1 = in1.toArray();
+		int[] gIn2 = in2.toArray();
+		int[] gOut = out.toArray();
+
+		// Count the gates reading each net
+		int[] readStart = new int[netCount + 1];
+		int[] reads = fanout(gIn1, gIn2, readStart);
+
+		// Count the gate driven inputs of each gate
+		int[] pending = new int[n];
+		for(int g = 0; g < n; g++) {
+			if(driver.get(gIn1[g]) >= 0)
+				pending[g]++;
+			if(gIn2[g] != gIn1[g] && driver.get(gIn2[g]) >= 0)
+				pending[g]++;
+		}
+
+		// Assign levels from the gates without gate driven inputs
+		int[] level = new int[n];
+		int[] queue = new int[n];
+		int head = 0, tail = 0;
+		for(int g = 0; g < n; g++) {
+			if(pending[g] == 0)
+				queue[tail++] = g;
+		}
+		int levels = 0;
+		while(head < tail) {
+			int g = queue[head++];
+			levels = Math.max(levels, level[g] + 1);
+			// For each gate reading this gate's output
+			for(int i = readStart[gOut[g]]; i < readStart[gOut[g] + 1]; i++) {
+				int r = reads[i];
+				level[r] = Math.max(level[r], level[g] + 1);
+				// If all of the reader's inputs are now levelized
+				if(--pending[r] == 0)
+					queue[tail++] = r;
+			}
+		}
+		// Place the remaining (feedback) gates in the final level
+		int loopGates = n - tail;
+		for(int g = 0; g < n; g++) {
+			if(pending[g] > 0)
+				level[g] = levels;
+		}
+		int levelCount = levels + (loopGates > 0 ? 1 : 0);
+
+		// Sort gates by level, keeping the original order within a level
+		int[] levelStart = new int[levelCount + 1];
+		for(int g = 0; g < n; g++)
+			levelStart[level[g] + 1]++;
+		for(int l = 0; l < levelCount; l++)
+			levelStart[l + 1] += levelStart[l];
+		int[] next = levelStart.clone();
+		byte[] sType = new byte[n];
+		int[] sIn1 = new int[n];
+		int[] sIn2 = new int[n];
+		int[] sOut = new int[n];
+		int[] gateId = new int[n];
+		for(int g = 0; g < n; g++) {
+			int i = next[level[g]]++;
+			sType[i] = (byte) type.get(g);
+			sIn1[i] = gIn1[g];
+			sIn2[i] = gIn2[g];
+			sOut[i] = gOut[g];
+			gateId[i] = g;
+		}
+
+		// Fanout lists, using the sorted gate indices
+		int[] fanStart = new int[netCount + 1];
+		int[] fanout = fanout(sIn1, sIn2, fanStart);
+
+		byte[] netWidth = new byte[netCount];
+		for(int i = 0; i < netCount; i++)
+			netWidth[i] = (byte) width.get(i);
+
+		return new Netlist(netCount, netWidth, sType, sIn1, sIn2, sOut, gateId, levelStart,
+				n - loopGates, srcNet.toArray(), fanStart, fanout);
+	}	// end build
+
+	/* Method: fanout
+	 * Pre Condition: Receives the input nets of each gate, and an array used to
+	 * 				  store the first entry of each net.
+	 * Post Condition: Returns the gates reading each net, grouped by net.
+	 * */
+	private int[] fanout(int[] gIn1, int[] gIn2, int[] start) {
+		int n = gIn1.length;
+		for(int g = 0; g < n; g++) {
+			start[gIn1[g] + 1]++;
+			if(gIn2[g] != gIn1[g])
+				start[gIn2[g] + 1]++;
+		}
+		for(int i = 0; i < netCount; i++)
+			start[i + 1] += start[i];
+		int[] next = start.clone();
+		int[] list = new int[start[netCount]];
+		for(int g = 0; g < n; g++) {
+			list[next[gIn1[g]]++] = g;
+			if(gIn2[g] != gIn1[g])
+				list[next[gIn2[g]]++] = g;
+		}
+		return list;
+	}	// end fanout
+}	// end NetlistBuilder class
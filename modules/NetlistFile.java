@@ -0,0 +1,164 @@
+/* --------------------------------------------------------------------------------
+ * 								NetlistFile
+ * --------------------------------------------------------------------------------
+ *
+ * Class used to write a Netlist to a precompiled binary circuit file, and to map
+ * such a file into memory as a MappedNetlist. A mapped circuit is read directly
+ * from the operating system's page cache, so loading takes the same time for any
+ * size of circuit and the netlist adds nothing to the Java heap.
+ *
+ * All values are little-endian. The file holds a header of HEADER_INTS ints,
+ *
+ * 		magic, version, netCount, gateCount, levelCount, loopStart,
+ * 		sourceCount, fanoutCount, nameOffset
+ *
+ * followed by the int arrays in1, in2, out (gateCount each), levelStart
+ * (levelCount + 1), srcNet (sourceCount), fanStart (netCount + 1) and fanout
+ * (fanoutCount), then the gate types as bytes. The names of the inputs and
+ * outputs are stored at nameOffset, each output followed by its net.
+ *
+ * A mapped file is limited to 2 GB, the most a ByteBuffer can address. On Java 17
+ * MemorySegment, which has no such limit, is in the incubating module
+ * jdk.incubator.foreign, which every build and run of the program would have to
+ * add, so the file is mapped as a ByteBuffer.
+ *
+ * */
+
+package modules;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+public final class NetlistFile {
+
+	static final int MAGIC = 0x314E474C;			// "LGN1" read as a little-endian int
+	static final int VERSION = 1;					// File format version
+	static final int HEADER_INTS = 9;				// Number of ints in the header
+
+	/* Constructor
+	 * Pre Condition: Not used, all methods are static.
+	 * */
+	private NetlistFile() {}
+
+	/* Method: write
+	 * Pre Condition: Writes a netlist and the names of its inputs (in source
+	 * 				  order) and outputs to a binary circuit file.
+	 * */
+	public static void write(Netlist n, ArrayList<String> inputs, ArrayList<String> outputs,
+			int[] outputNets, File file) throws IOException {
+		int fanCount = n.fanout.length;
+		long ints = HEADER_INTS + 3L * n.gateCount + (n.levelCount + 1) + n.srcNet.length +
+				(n.netCount + 1) + fanCount;
+		long nameOffset = (ints * 4 + n.gateCount + 3) & ~3L;
+		// If the file would be too large to be mapped
+		if(nameOffset > Integer.MAX_VALUE)
+			throw new IOException("circuit too large for a binary circuit file");
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				FileChannel ch = raf.getChannel()) {
+			raf.setLength(0);
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			int[] header = { MAGIC, VERSION, n.netCount, n.gateCount, n.levelCount, n.loopStart,
+					n.srcNet.length, fanCount, (int) nameOffset };
+			buf = putInts(ch, buf, header);
+			buf = putInts(ch, buf, n.in1);
+			buf = putInts(ch, buf, n.in2);
+			buf = putInts(ch, buf, n.out);
+			buf = putInts(ch, buf, n.levelStart);
+			buf = putInts(ch, buf, n.srcNet);
+			buf = putInts(ch, buf, n.fanStart);
+			buf = putInts(ch, buf, n.fanout);
+			for(int g = 0; g < n.gateCount; g++) {
+				// If the buffer is full
+				if(!buf.hasRemaining())
+					flush(ch, buf);
+				buf.put(n.type[g]);
+			}
+			// Pad to the name offset
+			while((ch.position() + buf.position()) % 4 != 0) {
+				if(!buf.hasRemaining())
+					flush(ch, buf);
+				buf.put((byte) 0);
+			}
+			flush(ch, buf);
+		}
+		// Append the names
+		try(DataOutputStream out = new DataOutputStream(new java.io.BufferedOutputStream(
+				new java.io.FileOutputStream(file, true)))) {
+			out.writeInt(inputs.size());
+			for(int i = 0; i < inputs.size(); i++)
+				out.writeUTF(inputs.get(i));
+			out.writeInt(outputs.size());
+			for(int i = 0; i < outputs.size(); i++) {
+				out.writeUTF(outputs.get(i));
+				out.writeInt(outputNets[i]);
+			}
+		}
+	}	// end write
+
+	/* Method: putInts
+	 * Pre Condition: Adds an int array to the buffer, writing the buffer to
+	 * 				  the channel whenever it is full.
+	 * Post Condition: Returns the buffer.
+	 * */
+	private static ByteBuffer putInts(FileChannel ch, ByteBuffer buf, int[] values) throws IOException {
+		for(int i = 0; i < values.length; i++) {
+			// If the buffer is full
+			if(buf.remaining() < 4)
+				flush(ch, buf);
+			buf.putInt(values[i]);
+		}
+		return buf;
+	}	// end putInts
+
+	/* Method: flush
+	 * Pre Condition: Writes the contents of the buffer to the channel and
+	 * 				  clears the buffer.
+	 * */
+	private static void flush(FileChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while(buf.hasRemaining())
+			ch.write(buf);
+		buf.clear();
+	}	// end flush
+
+	/* Method: isNetlistFile
+	 * Post Condition: Returns true if the file starts with the binary circuit
+	 * 				   file magic number.
+	 * */
+	public static boolean isNetlistFile(File file) throws IOException {
+		try(DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return Integer.reverseBytes(in.readInt()) == MAGIC;
+		} catch(java.io.EOFException e) {
+			return false;
+		}
+	}	// end isNetlistFile
+
+	/* Method: map
+	 * Pre Condition: Maps a binary circuit file into memory. Throws an
+	 * 				  IOException if the file is not a valid circuit file.
+	 * Post Condition: Returns the mapped netlist.
+	 * */
+	public static MappedNetlist map(File file) throws IOException {
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel ch = raf.getChannel()) {
+			// If the file is too large to be mapped
+			if(ch.size() > Integer.MAX_VALUE)
+				throw new IOException(file + ": file too large to map");
+			ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+			// If the header is not valid
+			if(buf.capacity() < HEADER_INTS * 4 || buf.getInt(0) != MAGIC)
+				throw new IOException(file + ": not a binary circuit file");
+			if(buf.getInt(4) != VERSION)
+				throw new IOException(file + ": unsupported circuit file version " + buf.getInt(4));
+			return new MappedNetlist(buf);
+		}
+	}	// end map
+}	// end NetlistFile class
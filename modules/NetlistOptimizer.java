@@ -0,0 +1,310 @@
+/* --------------------------------------------------------------------------------
+ * 								NetlistOptimizer
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to reduce a Netlist before it is simulated. Three passes are
+ * applied, the first two repeated until nothing changes:
+ *
+ * 		Constant propagation: nets with no driver are always false, and a gate
+ * 		whose output is fixed by a constant input is replaced by that constant.
+ * 		A gate that passes an input through unchanged (AND with true, OR with
+ * 		false, both inputs the same) is replaced by that input.
+ *
+ * 		Double inverter removal: a NOT gate reading the output of another NOT
+ * 		gate is replaced by the input of the first gate.
+ *
+ * 		Dead gate removal: a gate whose output is read by no other gate, and is
+ * 		not observed, is removed. Gates feeding only removed gates are removed in
+ * 		turn.
+ *
+ * The reduced netlist keeps the net numbering of the original, so sources, nets
+ * and board nodes keep their indices. Each net of the original netlist is mapped
+ * to a constant, to the net of the reduced netlist holding its value, or to the
+ * output of a removed dead gate. Dead gates are evaluated only when refresh is
+ * called, which is enough for nets that are only drawn.
+ *
+ * Removing gates changes the timing of a circuit, so a reduced netlist must not
+ * be simulated with gate delays. Only single bit netlists are reduced, as the
+ * constants of a bus depend on its width.
+ *
+ * */
+
+package modules;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+public class NetlistOptimizer {
+
+	private static final int FALSE = -1;			// Net is always false
+	private static final int TRUE = -2;			// Net is always true
+
+	private final Netlist netlist;				// Original netlist
+	private final Netlist reduced;				// Reduced netlist
+	private final int[] target;					// Reduced net, TRUE or FALSE for each net
+	private final boolean[] dead;				// Net is the output of a dead gate
+	private final boolean[] deadValue;			// Value of each dead gate output
+	private final int[] deadGates;				// Dead gates, drivers before readers
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be reduced and the nets that
+	 * 				  must still be simulated by an engine of the reduced
+	 * 				  netlist. Throws an IllegalArgumentException if the
+	 * 				  netlist has buses.
+	 * */
+	public NetlistOptimizer(Netlist netlist, int[] observed) {
+		if(netlist.isWide())
+			throw new IllegalArgumentException("Netlists with buses can not be optimized");
+		this.netlist = netlist;
+		int nets = netlist.netCount, gates = netlist.gateCount;
+		target = new int[nets];
+		int[] driver = new int[nets];
+		Arrays.fill(driver, -1);
+		boolean[] driven = new boolean[nets];
+		for(int s = 0; s < netlist.srcNet.length; s++)
+			driven[netlist.srcNet[s]] = true;
+		for(int g = 0; g < gates; g++) {
+			driver[netlist.out[g]] = g;
+			driven[netlist.out[g]] = true;
+		}
+		for(int n = 0; n < nets; n++)
+			target[n] = driven[n] ? n : FALSE;
+
+		// Replace gates by constants or inputs until nothing changes
+		boolean[] kept = new boolean[gates];
+		Arrays.fill(kept, true);
+		boolean change = true;
+		while(change) {
+			change = false;
+			for(int g = 0; g < gates; g++) {
+				// If this gate has been replaced
+				if(!kept[g])
+					continue;
+				int v = simplify(g, driver, kept);
+				// If the gate can be replaced, and not by its own output
+				if(v != netlist.out[g]) {
+					kept[g] = false;
+					target[netlist.out[g]] = v;
+					change = true;
+				}
+			}
+		}
+		for(int n = 0; n < nets; n++)
+			target[n] = resolve(n);
+
+		// Count the kept gates reading each net, and remove unread gates
+		int[] readers = new int[nets];
+		for(int g = 0; g < gates; g++) {
+			if(kept[g]) {
+				addReader(readers, target[netlist.in1[g]], 1);
+				if(netlist.type[g] != Netlist.NOT)
+					addReader(readers, target[netlist.in2[g]], 1);
+			}
+		}
+		for(int i = 0; i < observed.length; i++)
+			addReader(readers, target[observed[i]], 1);
+		dead = new boolean[nets];
+		deadValue = new boolean[nets];
+		IntList removed = new IntList();
+		int[] stack = new int[gates];
+		int top = 0;
+		for(int g = 0; g < gates; g++) {
+			if(kept[g] && readers[netlist.out[g]] == 0)
+				stack[top++] = g;
+		}
+		while(top > 0) {
+			int g = stack[--top];
+			kept[g] = false;
+			dead[netlist.out[g]] = true;
+			removed.add(g);
+			// For each input of the dead gate, its driver may now be unread
+			for(int k = 0; k < (netlist.type[g] == Netlist.NOT ? 1 : 2); k++) {
+				int n = target[k == 0 ? netlist.in1[g] : netlist.in2[g]];
+				// If the input was a kept gate's output which is now unread
+				if(addReader(readers, n, -1) == 0 && driver[n] >= 0 && kept[driver[n]] && !dead[n])
+					stack[top++] = driver[n];
+			}
+		}
+		deadGates = new int[removed.size()];
+		for(int i = 0; i < deadGates.length; i++)
+			deadGates[i] = removed.get(deadGates.length - 1 - i);
+
+		reduced = build(kept);
+	}	// end Constructor
+
+	/* Method: simplify
+	 * Post Condition: Returns the net or constant that can replace a gate, or
+	 * 				   the gate's own output net if it can not be replaced.
+	 * */
+	private int simplify(int g, int[] driver, boolean[] kept) {
+		int a = resolve(netlist.in1[g]);
+		int b = resolve(netlist.in2[g]);
+		int o = netlist.out[g];
+		switch(netlist.type[g]) {
+		case Netlist.NOT:
+			// If the input is constant
+			if(a < 0)
+				return a == TRUE ? FALSE : TRUE;
+			// If the input is the output of another NOT gate, use its input
+			if(driver[a] >= 0 && kept[driver[a]] && netlist.type[driver[a]] == Netlist.NOT)
+				return resolve(netlist.in1[driver[a]]);
+			return o;
+		case Netlist.AND:
+			if(a == FALSE || b == FALSE || isInverse(a, b, driver, kept) || isInverse(b, a, driver, kept))
+				return FALSE;
+			if(a == TRUE || a == b)
+				return b;
+			if(b == TRUE)
+				return a;
+			return o;
+		default:
+			if(a == TRUE || b == TRUE || isInverse(a, b, driver, kept) || isInverse(b, a, driver, kept))
+				return TRUE;
+			if(a == FALSE || a == b)
+				return b;
+			if(b == FALSE)
+				return a;
+			return o;
+		}
+	}	// end simplify
+
+	/* Method: isInverse
+	 * Post Condition: Returns true if net a is the output of a kept NOT gate
+	 * 				   reading net b.
+	 * */
+	private boolean isInverse(int a, int b, int[] driver, boolean[] kept) {
+		// If either net is constant, or net a is not driven by a kept NOT gate
+		if(a < 0 || b < 0 || driver[a] < 0 || !kept[driver[a]] || netlist.type[driver[a]] != Netlist.NOT)
+			return false;
+		return resolve(netlist.in1[driver[a]]) == b;
+	}	// end isInverse
+
+	/* Method: resolve
+	 * Post Condition: Returns the net holding the value of a net, or TRUE or
+	 * 				   FALSE if the net is constant. Paths are shortened.
+	 * */
+	private int resolve(int n) {
+		while(n >= 0 && target[n] != n) {
+			// Skip a step of the path
+			if(target[n] >= 0 && target[target[n]] != target[n])
+				target[n] = target[target[n]];
+			n = target[n];
+		}
+		return n;
+	}	// end resolve
+
+	/* Method: addReader
+	 * Pre Condition: Adds to the number of readers of a net, if it is not a
+	 * 				  constant.
+	 * Post Condition: Returns the new number of readers, or -1 for constants.
+	 * */
+	private static int addReader(int[] readers, int n, int d) {
+		if(n < 0)
+			return -1;
+		readers[n] += d;
+		return readers[n];
+	}	// end addReader
+
+	/* Method: build
+	 * Pre Condition: Builds the reduced netlist from the kept gates, reading
+	 * 				  the nets their inputs map to. A constant input that can
+	 * 				  not be removed is read from a new net, driven by a NOT
+	 * 				  gate of an undriven net when it is true.
+	 * Post Condition: Returns the reduced netlist.
+	 * */
+	private Netlist build(boolean[] kept) {
+		NetlistBuilder builder = new NetlistBuilder();
+		for(int n = 0; n < netlist.netCount; n++)
+			builder.addNet();
+		for(int s = 0; s < netlist.srcNet.length; s++)
+			builder.addSource(netlist.srcNet[s]);
+		int[] constNet = { -1, -1 };
+		for(int g = 0; g < netlist.gateCount; g++) {
+			if(!kept[g])
+				continue;
+			int a = target[netlist.in1[g]];
+			int b = netlist.type[g] == Netlist.NOT ? a : target[netlist.in2[g]];
+			// If an input is constant, read it from a constant net
+			if(a < 0 || b < 0) {
+				if(constNet[0] < 0) {
+					constNet[0] = builder.addNet();
+					constNet[1] = builder.addNet();
+					builder.addGate(Netlist.NOT, constNet[0], constNet[0], constNet[1]);
+				}
+				a = a < 0 ? constNet[a == TRUE ? 1 : 0] : a;
+				b = b < 0 ? constNet[b == TRUE ? 1 : 0] : b;
+			}
+			builder.addGate(netlist.type[g], a, b, netlist.out[g]);
+		}
+		return builder.build();
+	}	// end build
+
+	/* Method: getNetlist
+	 * Post Condition: Returns the reduced netlist.
+	 * */
+	public Netlist getNetlist() {
+		return reduced;
+	}	// end getNetlist
+
+	/* Method: getRemovedCount
+	 * Post Condition: Returns the number of gates removed from the original
+	 * 				   netlist.
+	 * */
+	public int getRemovedCount() {
+		return netlist.gateCount - reduced.gateCount;
+	}	// end getRemovedCount
+
+	/* Method: isDerived
+	 * Post Condition: Returns true if the value of a net of the original
+	 * 				   netlist is not held by the same net of the reduced
+	 * 				   netlist.
+	 * */
+	public boolean isDerived(int net) {
+		return target[net] != net || dead[net];
+	}	// end isDerived
+
+	/* Method: getTarget
+	 * Post Condition: Returns the net of the reduced netlist holding the
+	 * 				   value of a net, or -1 if the value is not held by the
+	 * 				   reduced netlist.
+	 * */
+	public int getTarget(int net) {
+		return target[net] < 0 || dead[target[net]] ? -1 : target[net];
+	}	// end getTarget
+
+	/* Method: refresh
+	 * Pre Condition: Evaluates the dead gates from the net values of the
+	 * 				  reduced netlist.
+	 * */
+	public void refresh(IntPredicate values) {
+		for(int i = 0; i < deadGates.length; i++) {
+			int g = deadGates[i];
+			boolean a = get(values, netlist.in1[g]);
+			boolean result;
+			switch(netlist.type[g]) {
+			case Netlist.AND:
+				result = a & get(values, netlist.in2[g]);
+				break;
+			case Netlist.OR:
+				result = a | get(values, netlist.in2[g]);
+				break;
+			default:
+				result = !a;
+			}
+			deadValue[netlist.out[g]] = result;
+		}
+	}	// end refresh
+
+	/* Method: get
+	 * Post Condition: Returns the value of a net of the original netlist,
+	 * 				   from the net values of the reduced netlist. Outputs of
+	 * 				   dead gates have the value of the last refresh.
+	 * */
+	public boolean get(IntPredicate values, int net) {
+		int t = target[net];
+		// If the net is constant
+		if(t < 0)
+			return t == TRUE;
+		return dead[t] ? deadValue[t] : values.test(t);
+	}	// end get
+}	// end NetlistOptimizer class
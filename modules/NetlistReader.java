@@ -0,0 +1,236 @@
+/* --------------------------------------------------------------------------------
+ * 								NetlistReader
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to read a Netlist from a text circuit file. Each line of the
+ * file declares one element of the circuit, nets are named and created on first
+ * use. Text after a '#' is ignored.
+ *
+ * 		input  <net>				- a source driving the net
+ * 		output <net>				- a net to be recorded
+ * 		and    <out> <in1> <in2>	- an AND gate
+ * 		or     <out> <in1> <in2>	- an OR gate
+ * 		not    <out> <in>			- a NOT gate
+ * 		clock  <net> <period> <high>	- a clock driving the net, high for the
+ * 									  first high ticks of every period
+ * 		dff    <q> <d> <clk>		- a rising edge D flip-flop
+ *
+ * Clocks and flip-flops drive their nets as sources of the netlist, and are
+ * simulated by the ClockScheduler returned by createScheduler.
+ *
+ * The reader does not depend on any AWT class, so circuits can be simulated on
+ * machines without a display.
+ *
+ * */
+
+package modules;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class NetlistReader {
+
+	private NetlistBuilder builder = new NetlistBuilder();		// Builder of the netlist
+	private HashMap<String, Integer> nets = new HashMap<>();		// Net of each name
+	private ArrayList<String> netNames = new ArrayList<>();		// Name of each net
+	private HashMap<String, Integer> sources = new HashMap<>();	// Source of each input name
+	private ArrayList<String> inputs = new ArrayList<>();			// Input names, in source order
+	private ArrayList<String> outputs = new ArrayList<>();		// Output names
+	private IntList clocks = new IntList();						// Source, period and high time of each clock
+	private IntList registers = new IntList();					// Source, D net and clock net of each flip-flop
+	private Netlist netlist;									// Netlist read
+
+	/* Constructor
+	 * Pre Condition: Receives the reader of the circuit file. Throws an
+	 * 				  IOException if the file can not be read or contains an
+	 * 				  invalid line.
+	 * */
+	public NetlistReader(Reader reader) throws IOException {
+		BufferedReader br = new BufferedReader(reader);
+		String line;
+		int lineNo = 0;
+		while((line = br.readLine()) != null) {
+			lineNo++;
+			// Remove comments
+			int hash = line.indexOf('#');
+			if(hash >= 0)
+				line = line.substring(0, hash);
+			line = line.trim();
+			// If the line is empty
+			if(line.isEmpty())
+				continue;
+			String[] t = line.split("\\s+");
+			parseLine(t, lineNo);
+		}
+		netlist = builder.build();
+	}	// end Constructor
+
+	/* Method: parseLine
+	 * Pre Condition: Receives the tokens of a line and adds the declared
+	 * 				  element to the netlist.
+	 * */
+	private void parseLine(String[] t, int lineNo) throws IOException {
+		switch(t[0].toLowerCase()) {
+		case "input":
+			expect(t, 2, lineNo);
+			// If this input has already been declared
+			if(sources.containsKey(t[1]))
+				throw new IOException("line " + lineNo + ": input '" + t[1] + "' declared twice");
+			sources.put(t[1], builder.addSource(net(t[1])));
+			inputs.add(t[1]);
+			break;
+		case "output":
+			expect(t, 2, lineNo);
+			net(t[1]);
+			outputs.add(t[1]);
+			break;
+		case "and":
+			expect(t, 4, lineNo);
+			builder.addGate(Netlist.AND, net(t[2]), net(t[3]), net(t[1]));
+			break;
+		case "or":
+			expect(t, 4, lineNo);
+			builder.addGate(Netlist.OR, net(t[2]), net(t[3]), net(t[1]));
+			break;
+		case "not":
+			expect(t, 3, lineNo);
+			builder.addGate(Netlist.NOT, net(t[2]), net(t[2]), net(t[1]));
+			break;
+		case "clock":
+			// If the line is not a net, period and high time
+			if(t.length != 4)
+				throw new IOException("line " + lineNo + ": 'clock' expects a net name, a period and a high time");
+			try {
+				int period = Integer.parseInt(t[2]), high = Integer.parseInt(t[3]);
+				// If the clock would not have both levels
+				if(period < 2 || high < 1 || high >= period)
+					throw new IOException("line " + lineNo + ": clock high time must be between 1 and the period - 1");
+				clocks.add(builder.addSource(net(t[1])));
+				clocks.add(period);
+				clocks.add(high);
+			} catch(NumberFormatException e) {
+				throw new IOException("line " + lineNo + ": invalid clock timing");
+			}
+			break;
+		case "dff":
+			expect(t, 4, lineNo);
+			registers.add(builder.addSource(net(t[1])));
+			registers.add(net(t[2]));
+			registers.add(net(t[3]));
+			break;
+		default:
+			throw new IOException("line " + lineNo + ": unknown element '" + t[0] + "'");
+		}
+	}	// end parseLine
+
+	/* Method: expect
+	 * Pre Condition: Throws an IOException if a line does not have the
+	 * 				  expected number of tokens.
+	 * */
+	private void expect(String[] t, int count, int lineNo) throws IOException {
+		if(t.length != count)
+			throw new IOException("line " + lineNo + ": '" + t[0] + "' expects " + (count - 1) + " net names");
+	}	// end expect
+
+	/* Method: net
+	 * Post Condition: Returns the net of a name, creating it on first use.
+	 * */
+	private int net(String name) {
+		Integer n = nets.get(name);
+		// If this net has not been used before
+		if(n == null) {
+			n = builder.addNet();
+			nets.put(name, n);
+			netNames.add(name);
+		}
+		return n;
+	}	// end net
+
+	/* Method: getNetlist
+	 * Post Condition: Returns the netlist read from the file.
+	 * */
+	public Netlist getNetlist() {
+		return netlist;
+	}	// end getNetlist
+
+	/* Method: getNet
+	 * Post Condition: Returns the net of a name, or -1 if there is no such net.
+	 * */
+	public int getNet(String name) {
+		Integer n = nets.get(name);
+		return n == null ? -1 : n;
+	}	// end getNet
+
+	/* Method: getNetName
+	 * Post Condition: Returns the name of a net, or null for nets added by the
+	 * 				   builder.
+	 * */
+	public String getNetName(int net) {
+		return net < netNames.size() ? netNames.get(net) : null;
+	}	// end getNetName
+
+	/* Method: getSource
+	 * Post Condition: Returns the source of an input name, or -1 if there is
+	 * 				   no such input.
+	 * */
+	public int getSource(String name) {
+		Integer s = sources.get(name);
+		return s == null ? -1 : s;
+	}	// end getSource
+
+	/* Method: getInputs
+	 * Post Condition: Returns the input names, in source order.
+	 * */
+	public ArrayList<String> getInputs() {
+		return inputs;
+	}	// end getInputs
+
+	/* Method: isSequential
+	 * Post Condition: Returns true if the circuit has clocks or flip-flops.
+	 * */
+	public boolean isSequential() {
+		return !clocks.isEmpty() || !registers.isEmpty();
+	}	// end isSequential
+
+	/* Method: getRegisterNets
+	 * Post Condition: Returns the D and clock nets of every flip-flop, which
+	 * 				   an optimizer must keep.
+	 * */
+	public int[] getRegisterNets() {
+		int[] list = new int[registers.size() / 3 * 2];
+		for(int i = 0; i < list.length / 2; i++) {
+			list[2 * i] = registers.get(3 * i + 1);
+			list[2 * i + 1] = registers.get(3 * i + 2);
+		}
+		return list;
+	}	// end getRegisterNets
+
+	/* Method: createScheduler
+	 * Post Condition: Returns a scheduler of the clocks and flip-flops for an
+	 * 				   engine of the netlist, or of the netlist reduced by an
+	 * 				   optimizer if one is given, or null if the circuit has
+	 * 				   none.
+	 * */
+	public ClockScheduler createScheduler(Engine engine, NetlistOptimizer optimizer) {
+		// If the circuit is combinational
+		if(!isSequential())
+			return null;
+		ClockScheduler scheduler = new ClockScheduler(engine);
+		for(int i = 0; i < clocks.size(); i += 3)
+			scheduler.addClock(clocks.get(i), clocks.get(i + 1), clocks.get(i + 2));
+		for(int i = 0; i < registers.size(); i += 3)
+			scheduler.addRegister(registers.get(i), ClockScheduler.resolve(optimizer, registers.get(i + 1)),
+					ClockScheduler.resolve(optimizer, registers.get(i + 2)));
+		return scheduler;
+	}	// end createScheduler
+
+	/* Method: getOutputs
+	 * Post Condition: Returns the output names.
+	 * */
+	public ArrayList<String> getOutputs() {
+		return outputs;
+	}	// end getOutputs
+}	// end NetlistReader class
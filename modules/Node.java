@@ -6,6 +6,12 @@
  * for wires to connect to other wires or to a logic gate.
  * The node will possess the charge state of the wires and logic gates. This 
  * determines whether a "positive voltage" is traveling through a specific wire. 
+ * The charge is stored by the net of the node, shared with all nodes joined to
+ * it by wires. A node wider than one bit is part of a bus, its value holding one
+ * bit per wire of the bus.
+ * 
+ * A Node object is a view of a node record held by the CircuitStore, several
+ * views of the same node are equal.
  * 
  * */
 
@@ -14,14 +20,11 @@ package modules;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.Arc2D;
-import java.awt.geom.Ellipse2D;
 
 public class Node {
 	
-	private final int ARC_RADIUS = 10;		// Radius of node area
-	private boolean isHovering = false;		// Is hovering state
-	private int dir;						// Direction node is facing
+	private static final int ARC_RADIUS = 10;	// Radius of node area
+	private static final int SIZE = 16;			// Diameter of node area
 	// Direction constants
 	public static final int NONE = -1;
 	public static final int RIGHT = 0;
@@ -29,69 +32,51 @@ public class Node {
 	public static final int LEFT = 2;
 	public static final int DOWN = 3;
 	public static final int FULL = 4;
+	// Start angle of the arc for each direction
+	private static final int[] ARC_START = { 90, 180, 270, 0, 0 };
 	
-	private Arc2D arc;						// Arc shape for nodes with directions
-	private Ellipse2D area;					// Node area
-	
-	private boolean p_Charged = false;		// Charge state of the node
-	private boolean isDetached = false;		// Detached from the board state 
-											// (to be removed)
+	private final CircuitStore store;		// Store holding the node
+	private final int id;					// Index of the node in the store
+
 	/* Constructor
-	 * Pre Condition: Receives location on screen to place the node. Initiates
-	 * 				  shapes of of the node.
+	 * Pre Condition: Receives the store holding the board and location on
+	 * 				  screen to place the node. Adds a new node to the store.
 	 * */
-	public Node(int x, int y) {
-		init(x, y, NONE);
+	public Node(CircuitStore store, int x, int y) {
+		this(store, x, y, NONE);
 	}	// end Constructor
 
 	/* Constructor
-	 * Pre Condition: Receives location on screen to place the node and a facing 
-	 * 				  direction. Initiates shapes of of the node.
+	 * Pre Condition: Receives the store holding the board, location on screen
+	 * 				  to place the node and a facing direction. Adds a new node
+	 * 				  to the store.
 	 * */
-	public Node(int x, int y, int direction) {
-		init(x, y, direction);
-		dir = direction;
+	public Node(CircuitStore store, int x, int y, int direction) {
+		this.store = store;
+		id = store.addNode(x, y, direction);
 	}	// end Constructor
 	
-	/* Method: init
-	 * Pre Condition: Receives location on screen and direction. Sets the arc
-	 * 				  shape to face in the specified direction so the open side
-	 * 				  of the arc points in said direction.
-	 * */
-	public void init(int x, int y, int direction) {
-		// Initiate area
-		area = new Ellipse2D.Double(x, y, 16, 16);
-		switch(direction) {
-		// If direction is right
-		case 0:
-			arc = new Arc2D.Double(x + 3, y + 3, ARC_RADIUS, ARC_RADIUS, 90, 180, Arc2D.OPEN);
-			break;
-		// If direction is up
-		case 1:
-			arc = new Arc2D.Double(x + 3, y + 3, ARC_RADIUS, ARC_RADIUS, 180, 180, Arc2D.OPEN);
-			break;
-		// If direction is left
-		case 2:
-			arc = new Arc2D.Double(x + 3, y + 3, ARC_RADIUS, ARC_RADIUS, 270, 180, Arc2D.OPEN);
-			break;
-		// If direction is down
-		case 3:
-			arc = new Arc2D.Double(x + 3, y + 3, ARC_RADIUS, ARC_RADIUS, 0, 180, Arc2D.OPEN);
-			break;
-		// If arc is drawn with no direction (full arc)
-		case 4:
-			arc = new Arc2D.Double(x + 3, y + 3, ARC_RADIUS, ARC_RADIUS, 0, 360, Arc2D.OPEN);
-			break;
-		default:
-			arc = null;
-		}
-	}	// end init
+	/* Constructor
+	 * Pre Condition: Receives a store and the index of an existing node, the
+	 * 				  new object is a view of that node.
+	 * */
+	Node(CircuitStore store, int id) {
+		this.store = store;
+		this.id = id;
+	}	// end Constructor
+	
+	/* Method: getId
+	 * Post Condition: Returns the index of this node in the store.
+	 * */
+	public int getId() {
+		return id;
+	}	// end getId
 	
 	/* Method: setPos
 	 * Pre Condition: Receives location on the screen. Sets the node at this point.
 	 * */
 	public void setPos(int x, int y) {
-		init(x, y, dir);
+		store.setNodePos(id, x, y);
 	}	// end setPos
 	
 	/* Method: getPos
@@ -99,8 +84,8 @@ public class Node {
 	 * */
 	public int[] getPos() {
 		int[] pos = new int[2];
-		pos[0] = (int) area.getX();
-		pos[1] = (int) area.getY();
+		pos[0] = store.getNodeX(id);
+		pos[1] = store.getNodeY(id);
 		return pos;
 	}	// end getPos
 	
@@ -108,35 +93,63 @@ public class Node {
 	 * Pre Condition: Sets the charge of this node.
 	 * */
 	public void setCharge(boolean c) {
-		p_Charged = c;
+		store.setCharge(id, c);
 	}	// end setCharge
 	
 	/* Method: getCharge
 	 * Post Condition: Returns the charge value of this node.
 	 * */
 	public boolean getCharge() {
-		return p_Charged;
+		return store.getCharge(id);
 	}	// end getCharge
 	
+	/* Method: setValue
+	 * Pre Condition: Sets the value of this node, one bit per wire.
+	 * */
+	public void setValue(long v) {
+		store.setValue(id, v);
+	}	// end setValue
+	
+	/* Method: getValue
+	 * Post Condition: Returns the value of this node, one bit per wire.
+	 * */
+	public long getValue() {
+		return store.getValue(id);
+	}	// end getValue
+	
+	/* Method: getWidth
+	 * Post Condition: Returns the width of this node, in bits.
+	 * */
+	public int getWidth() {
+		return store.getNodeWidth(id);
+	}	// end getWidth
+	
+	/* Method: getNet
+	 * Post Condition: Returns the root node of the net of this node.
+	 * */
+	public int getNet() {
+		return store.find(id);
+	}	// end getNet
+	
 	/* Method: attach
 	 * Pre Condition: Attaches this node.
 	 * */
 	public void attach() {
-		isDetached = false;
+		store.setNodeDetached(id, false);
 	}	// end attach
 	
 	/* Method: detach
 	 * Pre Condition: Detaches this node.
 	 * */
 	public void detach() {
-		isDetached = true;
+		store.setNodeDetached(id, true);
 	}	// end detach
 	
 	/* Method: isDetached
 	 * Post Condition: Returns true if the node is detached
 	 * */
 	public boolean isDetached() {
-		return isDetached;
+		return store.isNodeDetached(id);
 	}	// end isDetached
 	
 	/* Method: onHover
@@ -145,7 +158,10 @@ public class Node {
 	 * Post Condition: Returns true if the location is in the area.
 	 * */
 	public boolean onHover(int x, int y) {
-		isHovering = area.contains(x, y);
+		double dx = x - (store.getNodeX(id) + SIZE / 2.0);
+		double dy = y - (store.getNodeY(id) + SIZE / 2.0);
+		boolean isHovering = dx * dx + dy * dy < SIZE * SIZE / 4.0;
+		store.setNodeHovering(id, isHovering);
 		return isHovering;
 	}	// end onHover
 
@@ -154,23 +170,42 @@ public class Node {
 	 * 				  related with the node.
 	 * */
 	public void draw(Graphics2D g) {
+		int x = store.getNodeX(id);
+		int y = store.getNodeY(id);
 		// If node is being hovered over
-		if(isHovering) {
+		if(store.isNodeHovering(id)) {
 			g.setColor(new Color(0, 200, 0, 100));
-			g.fill(area);
+			g.fillOval(x, y, SIZE, SIZE);
 		}
+		int dir = store.getNodeDirection(id);
 		// If an arc is to be drawn
-		if(arc != null) {
+		if(dir != NONE) {
 			// If the charge of this node is positive
-			if(p_Charged) {
+			if(getCharge()) {
 				g.setColor(new Color(204, 86, 2));
 			// If the charge of this node is negative
 			} else {
 				g.setColor(new Color(10, 10, 8));
 			}
 			g.setStroke(new BasicStroke(4f));
-			g.draw(arc);
+			g.drawArc(x + 3, y + 3, ARC_RADIUS, ARC_RADIUS, ARC_START[dir], dir == FULL ? 360 : 180);
 			g.setStroke(new BasicStroke(1f));
 		}
 	}	// end draw
+	
+	/* Method: equals
+	 * Post Condition: Returns true if the object is a view of the same node.
+	 * */
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Node && ((Node) o).store == store && ((Node) o).id == id;
+	}	// end equals
+	
+	/* Method: hashCode
+	 * Post Condition: Returns the hash code of the node index.
+	 * */
+	@Override
+	public int hashCode() {
+		return id;
+	}	// end hashCode
 }	// end Node class
@@ -12,59 +12,49 @@ package modules;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
-import java.awt.geom.Rectangle2D;
 
 public class ORGate extends Gate {
-
-	private Rectangle2D area;	// Gate area
-	private Polygon gate;		// Gate shape
 	
-	private Node out;			// Output node
-	private Node in1;			// Input node 1
-	private Node in2;			// Input node 2
+	private static final int WIDTH = 90;		// Gate area width
+	private static final int HEIGHT = 60;		// Gate area height
+	private static final int IN1 = 0;			// Pin slot of input 1
+	private static final int IN2 = 1;			// Pin slot of input 2
+	
+	// Gate shape, relative to the gate location (shared by all gates)
+	private static final Polygon SHAPE = new Polygon(
+			new int[] { 17, 35, 59, 67, 71, 67, 59, 35, 17, 24, 25, 24 },
+			new int[] { 2, 2, 10, 20, 29, 38, 48, 58, 58, 40, 29, 18 }, 12);
 
 	/* Constructor
-	 * Pre Condition: Uses default location and initiates shape objects 
-	 * 				  and nodes.
+	 * Pre Condition: Uses default location and initiates nodes.
 	 * */
-	public ORGate() {
-		super(200, 200, 90, 60);
-		setShapes();
+	public ORGate(CircuitStore store) {
+		this(store, 200, 200);
+	}	// end Constructor
+	
+	/* Constructor
+	 * Pre Condition: Uses provided location and initiates nodes.
+	 * */
+	public ORGate(CircuitStore store, int x, int y) {
+		this(store, x, y, 1);
 	}	// end Constructor
 	
 	/* Constructor
-	 * Pre Condition: Uses provided location and initiates shape objects 
-	 * 				  and nodes.
+	 * Pre Condition: Uses provided location and bus width in bits, and
+	 * 				  initiates nodes.
 	 * */
-	public ORGate(int x, int y) {
-		super(x, y, 90, 60);
+	public ORGate(CircuitStore store, int x, int y, int busWidth) {
+		super(store, x, y, WIDTH, HEIGHT, Netlist.OR, busWidth);
 		setShapes();
 	}	// end Constructor
 	
 	/* Method: setShapes
-	 * Pre Condition: Initiates all shapes and nodes for this gate object.
+	 * Pre Condition: Moves all nodes of this gate object to the gate location.
 	 * */
 	private void setShapes() {
-		// Initaite rectangle area
-		area = new Rectangle2D.Double(x, y, 90, 60);
-		// Initiate gate shape
-		gate = new Polygon();
-		gate.addPoint(x + 2 + 15, y + 2);
-		gate.addPoint(x + 20 + 15, y + 2);
-		gate.addPoint(x + 44 + 15, y + 10);
-		gate.addPoint(x + 52 + 15, y + 20);
-		gate.addPoint(x + 56 + 15, y + 29);
-		gate.addPoint(x + 52 + 15, y + 38);
-		gate.addPoint(x + 44 + 15, y + 48);
-		gate.addPoint(x + 20 + 15, y + 58);
-		gate.addPoint(x + 2 + 15, y + 58);
-		gate.addPoint(x + 9 + 15, y + 40);
-		gate.addPoint(x + 10 + 15, y + 29);
-		gate.addPoint(x + 9 + 15, y + 18);
-		// Initiate nodes
-		out = new Node(x + 82, y + 22, Node.RIGHT);
-		in1 = new Node(x - 10, y + 8, Node.LEFT);
-		in2 = new Node(x - 10, y + 37, Node.LEFT);
+		setPin(CircuitStore.OUT, x + 82, y + 22);
+		setPin(IN1, x - 10, y + 8);
+		setPin(IN2, x - 10, y + 37);
 	}	// end setShapes
 	
 	/* Method: setPos
@@ -87,23 +77,10 @@ public class ORGate extends Gate {
 	public boolean onHover(int x, int y) {
 		// If this gate is activated
 		if(isGateActive()) {
-			boolean flag = false;
-			// If mouse is hovering over the out node
-			if(out.onHover(x, y))
-				flag = true;
-			// If mouse is hovering over the input 1 node
-			if(in1.onHover(x, y))
-				flag = true;
-			// If mouse is hovering over the input 2 node
-			if(in2.onHover(x, y))
-				flag = true;
-			return flag;
+			return onNodeHover(x, y);
 		}
 		// If this gate is not activated
-		else if(!isGateActive()) {
-			return area.contains(x, y);
-		}
-		return false;
+		return x >= this.x && y >= this.y && x < this.x + WIDTH && y < this.y + HEIGHT;
 	}	// end onHover
 	
 	/* Method: onGateHover
@@ -113,9 +90,9 @@ public class ORGate extends Gate {
 	 * */
 	@Override
 	public boolean onGateHover(int x, int y) {
-		return gate.contains(x, y);
+		return SHAPE.contains(x - this.x, y - this.y);
 	}	// end onGateHover
-
+	
 	@Override
 	public void onClick(int x, int y) {}
 
@@ -124,33 +101,10 @@ public class ORGate extends Gate {
 	
 	@Override
 	public boolean isPressed() { return false; }
-
+	
 	@Override
 	public void acknowledge() {}
 
-	/* Method: getRefNode
-	 * Pre Condition: Receives screen location (x, y) and determines
-	 * 				  if one of the 3 nodes contains this point.
-	 * Post Condition: Returns the node that contains this point, otherwise
-	 * 				   returns null.
-	 * */
-	@Override
-	public Node getRefNode(int x, int y) {
-		// If gate is active
-		if(isGateActive()) {
-			// If output node contains the point
-			if(out.onHover(x, y))
-				return out;
-			// If input 1 node contains the point
-			if(in1.onHover(x, y))
-				return in1;
-			// If input 2 node contains the point
-			if(in2.onHover(x, y))
-				return in2;
-		}
-		return null;
-	}	// end getRefNode
-
 	/* Method: update
 	 * Pre Condition: Attaches any node that has been detached during
 	 * 				  the removal of a wire. Checks the value of the
@@ -158,25 +112,9 @@ public class ORGate extends Gate {
 	 * */
 	@Override
 	public void update() {
-		// If gate is still attached
-		if(!isDetached) {
-			// If output node is detached
-			if(out.isDetached())
-				out.attach();
-			// If input 1 node is detached
-			if(in1.isDetached())
-				in1.attach();
-			// If input 2 Node is detached
-			if(in2.isDetached())
-				in2.attach();
-		}
-		
-		// If input 1 node or input 2 node are positive chargeds
-		if(in1.getCharge() || in2.getCharge()) {
-			out.setCharge(true);
-		} else {
-			out.setCharge(false);
-		}
+		reattach();
+		// Each output bit is the OR of the same bit of both inputs
+		pin(CircuitStore.OUT).setValue(pin(IN1).getValue() | pin(IN2).getValue());
 	}	// end update
 	
 	/* Method: draw
@@ -187,28 +125,16 @@ public class ORGate extends Gate {
 	public void draw(Graphics2D g) {
 		// Draw OR gate shape
 		g.setColor(new Color(204, 86, 2));
-		g.fill(gate);
+		g.translate(x, y);
+		g.fill(SHAPE);
+		g.translate(-x, -y);
 		
-		// Draw AND gate node sticks
+		// Draw OR gate node sticks
 		g.drawLine(x + 5, y + 16, x + 20, y + 16);
 		g.drawLine(x + 5, y + 45, x + 20, y + 45);
 		g.drawLine(x + 70, y + 29, x + 85, y + 29);
 		
 		// Draw nodes
-		out.draw(g);
-		in1.draw(g);
-		in2.draw(g);
+		drawNodes(g);
 	}	// end draw
-
-	/* Method: detach
-	 * Pre Condition: Sets this gate to be detached. Detaches all 
-	 * 				  of this gate's nodes.
-	 * */
-	@Override
-	public void detach() {
-		isDetached = true;
-		out.detach();
-		in1.detach();
-		in2.detach();
-	}	// end detach
 }	// end ORGate class
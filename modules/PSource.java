@@ -3,7 +3,8 @@
  * --------------------------------------------------------------------------------
  * 
  * Class object represents a power source switch, used in simulations. This switch 
- * changes the charge of it's output node. 
+ * changes the charge of it's output node. A source wider than one bit drives a
+ * bus, and each click counts its value up by one instead.
  * 
  * */
 
@@ -12,36 +13,33 @@ package modules;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.Rectangle2D;
 
 public class PSource extends Gate {
 	
 	private static final int WIDTH = 30;	// Button area width
 	private static final int HEIGHT = 30;	// Button area height
-	
-	private Rectangle2D area;				// Button area
-	private Node node;						// Output node
-	
-	private boolean outputCharge = false;	// Output charge
 
 	/* Constructor
-	 * Pre Condition: Uses default location and initiates shape objects
-	 * 				  and nodes. 
+	 * Pre Condition: Uses default location and initiates the node. 
 	 * */
-	public PSource() {
-		super(200, 200, WIDTH, HEIGHT);
-		area = new Rectangle2D.Double(x, y, WIDTH, HEIGHT);
-		node = new Node(x + 40, y + 7, Node.RIGHT);
+	public PSource(CircuitStore store) {
+		this(store, 200, 200);
 	}	// end Constructor
 	
 	/* Constructor
-	 * Pre Condition: Uses provided location and initiates shape objects
-	 * 				  and nodes.
+	 * Pre Condition: Uses provided location and initiates the node.
 	 * */
-	public PSource(int x, int y) {
-		super(x, y, WIDTH, HEIGHT);
-		area = new Rectangle2D.Double(x, y, WIDTH, HEIGHT);
-		node = new Node(x + 40, y + 7, Node.RIGHT);
+	public PSource(CircuitStore store, int x, int y) {
+		this(store, x, y, 1);
+	}	// end Constructor
+	
+	/* Constructor
+	 * Pre Condition: Uses provided location and bus width in bits, and
+	 * 				  initiates the node.
+	 * */
+	public PSource(CircuitStore store, int x, int y, int busWidth) {
+		super(store, x, y, WIDTH, HEIGHT, Netlist.SOURCE, busWidth);
+		setPin(CircuitStore.OUT, x + 40, y + 7);
 	}	// end Constructor
 	
 	/* Method: setPos
@@ -51,8 +49,7 @@ public class PSource extends Gate {
 	public void setPos(int x, int y) {
 		this.x = x;
 		this.y = y;
-		area.setRect(x, y, WIDTH, HEIGHT);
-		node.setPos(x + 40, y + 7);
+		setPin(CircuitStore.OUT, x + 40, y + 7);
 	}	// end setPos
 
 	/* Method: onHover
@@ -63,7 +60,7 @@ public class PSource extends Gate {
 	 * */
 	@Override
 	public boolean onHover(int x, int y) {
-		return area.contains(x, y) || node.onHover(x, y);
+		return onGateHover(x, y) || pin(CircuitStore.OUT).onHover(x, y);
 	}	// end onHover
 	
 	/* Method: onGateHover
@@ -73,17 +70,37 @@ public class PSource extends Gate {
 	 * */
 	@Override
 	public boolean onGateHover(int x, int y) {
-		return area.contains(x, y);
+		return x >= this.x && y >= this.y && x < this.x + WIDTH && y < this.y + HEIGHT;
 	}	// end onGateHover
 
 	/* Method: onClick
-	 * Pre Condition: Changes the charge of the output node.
+	 * Pre Condition: Changes the charge of the output node, or counts the
+	 * 				  value of a bus up by one.
 	 * */
 	@Override
 	public void onClick(int x, int y) {
-		outputCharge = !outputCharge;
-		node.setCharge(outputCharge);
+		// If this source drives a bus
+		if(getBusWidth() > 1) {
+			store.setGateValue(id, getOutputValue() + 1);
+		} else {
+			store.setGateState(id, !getOutputCharge());
+		}
+		pin(CircuitStore.OUT).setValue(getOutputValue());
 	}	// end onClick
+	
+	/* Method: getOutputValue
+	 * Post Condition: Returns the value this power switch outputs.
+	 * */
+	public long getOutputValue() {
+		return store.getGateValue(id);
+	}	// end getOutputValue
+
+	/* Method: getOutputCharge
+	 * Post Condition: Returns the charge this power switch outputs.
+	 * */
+	public boolean getOutputCharge() {
+		return store.getGateState(id);
+	}	// end getOutputCharge
 
 	@Override
 	public void click() {}
@@ -94,32 +111,13 @@ public class PSource extends Gate {
 	@Override
 	public void acknowledge() {}
 	
-	/* Method: getRefNode
-	 * Pre Condition: Receives screen location (x, y) and determines
-	 * 				  if the node contains this point.
-	 * Post Condition: Returns the node if true, otherwise returns null.
-	 * */
-	@Override
-	public Node getRefNode(int x, int y) {
-		// If power switch is activated
-		if(isGateActive()) {
-			// If node is being hovered over
-			if(node.onHover(x, y))
-				return node;
-		}
-		return null;
-	}	// end getRefNode
-	
 	/* Method: update
 	 * Pre Condition: Attaches the node if it was detached during
 	 * 				  the removal of a wire.
 	 * */
 	@Override
 	public void update() {
-		// If output node was detached and this power source is still
-		// attached
-		if(node.isDetached() && !isDetached)
-			node.attach();
+		reattach();
 	}	// end update
 	
 	/* Method: draw
@@ -131,21 +129,14 @@ public class PSource extends Gate {
 		// Draw rectangle
 		g.setColor(new Color(204, 86, 2));
 		g.setStroke(new BasicStroke(3f));
-		g.draw(area);
+		g.drawRect(x, y, WIDTH, HEIGHT);
 		g.setStroke(new BasicStroke(1f));
+		// If this source drives a bus, show its value
+		if(getBusWidth() > 1)
+			g.drawString(Long.toHexString(getOutputValue()), x + 4, y + 19);
 		// Draw node
-		node.draw(g);
+		drawNodes(g);
 		// Draw node stick
 		g.drawLine(x + 30, y + 15, x + 42, y + 15);
 	}	// end draw
-
-	/* Method: detach
-	 * Pre Condition: Sets this power switch to be detached. Detaches 
-	 * 				  the output node.
-	 * */
-	@Override
-	public void detach() {
-		isDetached = true;
-		node.detach();
-	}	// end detach
 }	// end PSource class
@@ -0,0 +1,256 @@
+/* --------------------------------------------------------------------------------
+ * 								ParallelEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a simulation engine that evaluates the levels of a
+ * Netlist on the threads of a ForkJoinPool. The gates of a level only read nets
+ * driven by earlier levels, so they can be evaluated in any order and by any
+ * number of threads. Each level is split into chunks that are evaluated in
+ * parallel, and the next level starts once every chunk has finished.
+ *
+ * The engine numbers its own value slots. Nets not driven by a gate (sources and
+ * unconnected nets) come first, padded to a multiple of LINE_NETS, and the output
+ * of gate g is held in the slot after them plus g. A level is only split where a
+ * gate's slot starts a group of LINE_NETS values, the 64 bytes of a cache line,
+ * so two threads do not write the values of the same group. Java does not align
+ * arrays to cache lines, so neighbouring chunks share at most the line holding
+ * their boundary.
+ *
+ * A level of fewer than PARALLEL_GATES gates is not worth handing to the pool, and
+ * is evaluated by the calling thread, as is the feedback loop level, whose gates
+ * are evaluated again in a fixed order until they settle.
+ *
+ * */
+
+package modules;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelEngine extends Engine {
+
+	public static final int LINE_NETS = 8;			// Net values per cache line
+	public static final int PARALLEL_GATES = 4096;	// Smallest level evaluated in parallel
+	public static final int CHUNK_GATES = 1024;		// Largest chunk evaluated by one thread
+
+	private final ForkJoinPool pool;		// Pool evaluating the chunks
+	private final int base;					// Slot of the output of gate 0
+	private final int[] slot;				// Value slot of each net
+	private final int[] in1;				// First input slot of each gate
+	private final int[] in2;				// Second input slot of each gate
+	private final long[] value;				// Value of each slot
+	private final long[] mask;				// Bits within the width of each slot
+	private final int splitLevels;			// Number of levels evaluated in parallel
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated and the pool
+	 * 				  evaluating its large levels.
+	 * */
+	public ParallelEngine(Netlist netlist, ForkJoinPool pool) {
+		super(netlist);
+		this.pool = pool;
+		// Number the nets not driven by a gate first
+		boolean[] driven = new boolean[netlist.netCount];
+		for(int g = 0; g < netlist.gateCount; g++)
+			driven[netlist.out[g]] = true;
+		slot = new int[netlist.netCount];
+		int k = 0;
+		for(int n = 0; n < netlist.netCount; n++) {
+			if(!driven[n])
+				slot[n] = k++;
+		}
+		base = (k + LINE_NETS - 1) / LINE_NETS * LINE_NETS;
+		for(int g = 0; g < netlist.gateCount; g++)
+			slot[netlist.out[g]] = base + g;
+		in1 = new int[netlist.gateCount];
+		in2 = new int[netlist.gateCount];
+		for(int g = 0; g < netlist.gateCount; g++) {
+			in1[g] = slot[netlist.in1[g]];
+			in2[g] = slot[netlist.in2[g]];
+		}
+		value = new long[base + netlist.gateCount];
+		mask = new long[value.length];
+		for(int n = 0; n < netlist.netCount; n++)
+			mask[slot[n]] = CircuitStore.mask(netlist.width[n]);
+		int split = 0;
+		for(int l = 0; l < netlist.levelCount; l++) {
+			// If this level is large enough and not the loop level
+			if(netlist.levelStart[l] < netlist.loopStart &&
+					Math.min(netlist.levelStart[l + 1], netlist.loopStart) - netlist.levelStart[l] >= PARALLEL_GATES)
+				split++;
+		}
+		splitLevels = split;
+	}	// end Constructor
+
+	/* --------------------------------------------------------------------------------
+	 * 								ChunkTask
+	 * --------------------------------------------------------------------------------
+	 *
+	 * Fork/join task evaluating a range of gates of one level. Large ranges are split
+	 * in two at a cache line boundary, small ranges are evaluated.
+	 *
+	 * */
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = -2741306318824520153L;
+
+		private final int from, to;			// Range of gates
+
+		/* Constructor
+		 * Pre Condition: Receives the range of gates to evaluate.
+		 * */
+		ChunkTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}	// end Constructor
+
+		/* Method: compute
+		 * Pre Condition: Splits the range, or evaluates it if it is small.
+		 * */
+		@Override
+		protected void compute() {
+			int mid = ((from + to) >>> 1) / LINE_NETS * LINE_NETS;
+			// If the range is large, split it where a cache line starts
+			if(to - from > CHUNK_GATES && mid > from) {
+				invokeAll(new ChunkTask(from, mid), new ChunkTask(mid, to));
+				return;
+			}
+			evaluate(from, to, null);
+		}	// end compute
+	}	// end ChunkTask class
+
+	/* Method: tick
+	 * Pre Condition: Evaluates the levels in order, splitting each large level
+	 * 				  across the pool, then settles the feedback loop level.
+	 * */
+	@Override
+	public void tick() {
+		final int[] levelStart = netlist.levelStart;
+		final int loopStart = netlist.loopStart;
+		boolean parallel = pool.getParallelism() > 1;
+		int from = 0;
+		for(int l = 0; l < netlist.levelCount && levelStart[l] < loopStart; l++) {
+			int start = levelStart[l], end = Math.min(levelStart[l + 1], loopStart);
+			// If this level is large, evaluate the small levels before it, then split it
+			if(parallel && end - start >= PARALLEL_GATES) {
+				evaluate(from, start, null);
+				pool.invoke(new ChunkTask(start, end));
+				from = end;
+			}
+		}
+		evaluate(from, loopStart, null);
+		oscillating = NONE;
+		// If the netlist has feedback loops
+		if(loopStart < netlist.gateCount) {
+			int passes = 0;
+			// Evaluate the loop level until no net changes
+			while(evaluate(loopStart, netlist.gateCount, null)) {
+				// If the loops have not settled, record the nets still changing
+				if(++passes == SETTLE_LIMIT) {
+					IntList changed = new IntList();
+					evaluate(loopStart, netlist.gateCount, changed);
+					oscillating = changed.toArray();
+					break;
+				}
+			}
+		}
+	}	// end tick
+
+	/* Method: evaluate
+	 * Pre Condition: Evaluates a range of gates, adding the output net of each
+	 * 				  gate that changes to the list, if there is one.
+	 * Post Condition: Returns true if any output net changed.
+	 * */
+	private boolean evaluate(int from, int to, IntList changed) {
+		final byte[] type = netlist.type;
+		final int[] a = in1;
+		final int[] b = in2;
+		final long[] v = value;
+		final int o = base;
+		boolean change = false;
+		for(int g = from; g < to; g++) {
+			long result;
+			switch(type[g]) {
+			case Netlist.AND:
+				result = v[a[g]] & v[b[g]];
+				break;
+			case Netlist.OR:
+				result = v[a[g]] | v[b[g]];
+				break;
+			default:
+				result = v[a[g]] ^ mask[o + g];
+			}
+			// If the output of this gate changes
+			if(v[o + g] != result) {
+				v[o + g] = result;
+				change = true;
+				if(changed != null)
+					changed.add(netlist.out[g]);
+			}
+		}
+		return change;
+	}	// end evaluate
+
+	/* Method: getSplitLevelCount
+	 * Post Condition: Returns the number of levels large enough to be
+	 * 				   evaluated in parallel.
+	 * */
+	public int getSplitLevelCount() {
+		return splitLevels;
+	}	// end getSplitLevelCount
+
+	/* Method: getThreadCount
+	 * Post Condition: Returns the number of threads of the pool.
+	 * */
+	public int getThreadCount() {
+		return pool.getParallelism();
+	}	// end getThreadCount
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return value[slot[net]] != 0L;
+	}	// end get
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net.
+	 * */
+	@Override
+	public long getValue(int net) {
+		return value[slot[net]];
+	}	// end getValue
+
+	/* Method: load
+	 * Pre Condition: Sets every net to its value in a snapshot. Every gate is
+	 * 				  evaluated each tick, so the net values are the whole
+	 * 				  state of the engine.
+	 * Post Condition: Returns true.
+	 * */
+	@Override
+	public boolean load(Snapshot s) {
+		for(int n = 0; n < netCount; n++)
+			value[slot[n]] = s.getValue(n) & mask[slot[n]];
+		oscillating = NONE;
+		return true;
+	}	// end load
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		setSourceValue(src, value ? -1L : 0L);
+	}	// end setSource
+
+	/* Method: setSourceValue
+	 * Pre Condition: Sets the value of the specified source's net, bits
+	 * 				  beyond its width are cleared.
+	 * */
+	@Override
+	public void setSourceValue(int src, long value) {
+		int s = slot[netlist.srcNet[src]];
+		this.value[s] = value & mask[s];
+	}	// end setSourceValue
+}	// end ParallelEngine class
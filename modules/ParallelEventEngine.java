@@ -0,0 +1,658 @@
+/* --------------------------------------------------------------------------------
+ * 								ParallelEventEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents an event-driven simulation engine whose gates are split
+ * between worker threads. Each worker owns a partition of the gates and the nets
+ * they drive, and runs delta cycles over its own work queue like an EventEngine.
+ * Only gates reading a changed net are queued, so a partition where nothing
+ * changes costs its worker nothing but the synchronisation.
+ *
+ * A gate reading a net driven in another partition reads a ghost copy of the net
+ * held by its own worker, so no worker reads a value another worker is writing.
+ * When a worker has run out of queued gates, it sends the final value of each
+ * changed boundary net to the workers holding its ghosts, through a single
+ * producer, single consumer lock-free channel for each pair of workers. The
+ * workers then meet at a barrier. If any value was sent, another round begins:
+ * each worker takes the values sent to it, queues the gates reading each ghost
+ * that changed and runs its delta cycles again. A tick ends at the first barrier
+ * where nothing was sent, so a tick whose changes stay within their partitions
+ * costs a single barrier after the start of the tick.
+ *
+ * Gates are split into contiguous blocks of the order they were added to the
+ * netlist in, which keeps gates placed together in the same partition. Nets not
+ * driven by a gate (sources) are only written between ticks, so they are read
+ * directly by every worker.
+ *
+ * As in the EventEngine, each worker runs at most the depth of the netlist plus
+ * SETTLE_LIMIT delta cycles per round, then a further SETTLE_LIMIT delta cycles
+ * whose changed nets are reported as oscillating. The limit is counted again in
+ * each round, so a partition whose own loop oscillates still settles the ghosts
+ * it receives in later rounds. Rounds are limited the same way, for loops running
+ * through several partitions: nets changed in rounds past the depth plus
+ * SETTLE_LIMIT are reported as oscillating, and the tick ends after a further
+ * SETTLE_LIMIT rounds. The remaining queues, and the values sent in the last
+ * round, are carried over to the next tick.
+ *
+ * The calling thread is the first worker, the others are daemon threads waiting
+ * at the barrier between ticks, released by close.
+ *
+ * */
+
+package modules;
+
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelEventEngine extends Engine {
+
+	public static final int PARTITION_GATES = 4096;	// Fewest gates worth a worker of their own
+
+	private final long[] value;				// Value of each net, then of each ghost
+	private final long[] mask;				// Bits within the width of each net
+	private final int[] owner;				// Worker of each gate
+	private final int[] netOwner;			// Worker driving each net, or -1 for sources
+	private final int[] in1;				// First input net or ghost of each gate
+	private final int[] in2;				// Second input net or ghost of each gate
+	private final int[] localStart;			// First local reader of each net, with an end marker
+	private final int[] localFan;			// Readers of each net in the partition driving it
+	private final int[] remoteStart;		// First ghost of each net, with an end marker
+	private final int[] remoteGhost;		// Ghosts of each net in other partitions
+	private final int[] ghostWorker;		// Worker holding each ghost
+	private final int[] ghostStart;			// First reader of each ghost, with an end marker
+	private final int[] ghostFan;			// Readers of each ghost
+	private final boolean[] queued;			// Queued state of each gate
+	private final boolean[] isChanged;		// Changed state of each net
+	private final boolean[] dirty;			// Boundary nets changed in this round
+	private final int maxDeltas;			// Max delta cycles per round, and rounds per tick, before recording
+
+	private final Worker[] workers;			// Workers, the first run by the calling thread
+	private final Channel[][] channels;		// Channel from each worker to each other, or null
+	private final CyclicBarrier barrier;	// Barrier ending each round, or null
+	private boolean starting = true;		// True if the next barrier starts a tick
+	private int rounds = 0;					// Rounds run in this tick
+	private volatile boolean more = false;	// True if another round is needed
+	private volatile boolean closed = false;	// True once the workers are released
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated and the number of
+	 * 				  workers, reduced so each has at least PARTITION_GATES
+	 * 				  gates. Every gate is queued so the first tick evaluates
+	 * 				  the whole netlist.
+	 * */
+	public ParallelEventEngine(Netlist netlist, int threads) {
+		super(netlist);
+		int gates = netlist.gateCount;
+		int nets = netlist.netCount;
+		int count = Math.max(1, Math.min(threads, gates / PARTITION_GATES));
+		// Split the gates into blocks of the order they were added in
+		owner = new int[gates];
+		for(int g = 0; g < gates; g++)
+			owner[g] = (int) ((long) netlist.gateId[g] * count / Math.max(gates, 1));
+		netOwner = new int[nets];
+		Arrays.fill(netOwner, -1);
+		for(int g = 0; g < gates; g++)
+			netOwner[netlist.out[g]] = owner[g];
+
+		// Give each worker a ghost of each net it reads from another partition
+		int[] ghostOf = new int[nets * count];
+		Arrays.fill(ghostOf, -1);
+		IntList ghostNet = new IntList();
+		IntList ghostWorkers = new IntList();
+		in1 = new int[gates];
+		in2 = new int[gates];
+		for(int g = 0; g < gates; g++) {
+			in1[g] = input(netlist.in1[g], owner[g], count, ghostOf, ghostNet, ghostWorkers);
+			in2[g] = input(netlist.in2[g], owner[g], count, ghostOf, ghostNet, ghostWorkers);
+		}
+		int ghosts = ghostNet.size();
+		ghostWorker = ghostWorkers.toArray();
+		value = new long[nets + ghosts];
+		mask = new long[nets];
+		for(int n = 0; n < nets; n++)
+			mask[n] = CircuitStore.mask(netlist.width[n]);
+
+		// List the local readers and ghosts of each net, and the readers of each ghost
+		localStart = new int[nets + 1];
+		remoteStart = new int[nets + 1];
+		ghostStart = new int[ghosts + 1];
+		for(int n = 0; n < nets; n++) {
+			for(int i = netlist.fanStart[n]; i < netlist.fanStart[n + 1]; i++) {
+				int ghost = ghostOf[n * count + owner[netlist.fanout[i]]];
+				// If the reader reads the net itself
+				if(ghost < 0)
+					localStart[n + 1]++;
+				else
+					ghostStart[ghost + 1]++;
+			}
+			for(int w = 0; w < count; w++) {
+				// If this worker holds a ghost of the net
+				if(ghostOf[n * count + w] >= 0)
+					remoteStart[n + 1]++;
+			}
+		}
+		for(int n = 0; n < nets; n++) {
+			localStart[n + 1] += localStart[n];
+			remoteStart[n + 1] += remoteStart[n];
+		}
+		for(int x = 0; x < ghosts; x++)
+			ghostStart[x + 1] += ghostStart[x];
+		localFan = new int[localStart[nets]];
+		remoteGhost = new int[remoteStart[nets]];
+		ghostFan = new int[ghostStart[ghosts]];
+		int[] ghostFill = new int[ghosts];
+		for(int n = 0; n < nets; n++) {
+			int l = localStart[n], r = remoteStart[n];
+			for(int i = netlist.fanStart[n]; i < netlist.fanStart[n + 1]; i++) {
+				int g = netlist.fanout[i];
+				int ghost = ghostOf[n * count + owner[g]];
+				// If the reader reads the net itself
+				if(ghost < 0)
+					localFan[l++] = g;
+				else
+					ghostFan[ghostStart[ghost] + ghostFill[ghost]++] = g;
+			}
+			for(int w = 0; w < count; w++) {
+				// If this worker holds a ghost of the net
+				if(ghostOf[n * count + w] >= 0)
+					remoteGhost[r++] = nets + ghostOf[n * count + w];
+			}
+		}
+
+		// Create a channel for each pair of workers sharing ghosts
+		int[][] pairGhosts = new int[count][count];
+		for(int x = 0; x < ghosts; x++)
+			pairGhosts[netOwner[ghostNet.get(x)]][ghostWorker[x]]++;
+		channels = new Channel[count][count];
+		for(int a = 0; a < count; a++) {
+			for(int b = 0; b < count; b++) {
+				if(pairGhosts[a][b] > 0)
+					channels[a][b] = new Channel(2 * pairGhosts[a][b] + 1);
+			}
+		}
+
+		queued = new boolean[gates];
+		isChanged = new boolean[nets];
+		dirty = new boolean[nets];
+		maxDeltas = netlist.levelCount + SETTLE_LIMIT;
+		workers = new Worker[count];
+		int[] sizes = new int[count];
+		for(int g = 0; g < gates; g++)
+			sizes[owner[g]]++;
+		for(int w = 0; w < count; w++)
+			workers[w] = new Worker(w, sizes[w]);
+		for(int g = 0; g < gates; g++)
+			schedule(g);
+		// If the gates are split, start the other workers
+		if(count > 1) {
+			barrier = new CyclicBarrier(count, this::endRound);
+			for(int w = 1; w < count; w++) {
+				Thread t = new Thread(workers[w], "ParallelEventEngine worker " + w);
+				t.setDaemon(true);
+				t.start();
+			}
+		} else {
+			barrier = null;
+		}
+	}	// end Constructor
+
+	/* Method: input
+	 * Post Condition: Returns the net a gate of a worker reads an input net
+	 * 				   from: the net itself if it is a source or driven by
+	 * 				   the same worker, otherwise the worker's ghost of the
+	 * 				   net, which is created if needed.
+	 * */
+	private int input(int net, int worker, int count, int[] ghostOf, IntList ghostNet, IntList ghostWorkers) {
+		// If the net is a source or driven in the same partition
+		if(netOwner[net] < 0 || netOwner[net] == worker)
+			return net;
+		int k = net * count + worker;
+		// If the worker has no ghost of the net yet
+		if(ghostOf[k] < 0) {
+			ghostOf[k] = ghostNet.size();
+			ghostNet.add(net);
+			ghostWorkers.add(worker);
+		}
+		return netlist.netCount + ghostOf[k];
+	}	// end input
+
+	/* --------------------------------------------------------------------------------
+	 * 								Channel
+	 * --------------------------------------------------------------------------------
+	 *
+	 * A bounded single producer, single consumer queue of ghost values. The producer
+	 * writes an entry, then publishes it by moving the tail; the consumer reads the
+	 * entries up to the tail, then frees them by moving the head. A worker sends
+	 * each ghost at most once per round, so a channel holding two rounds of ghosts
+	 * is never full.
+	 *
+	 * */
+	private static final class Channel {
+		private final int[] ghost;							// Ghost of each entry
+		private final long[] values;						// Value of each entry
+		private final AtomicInteger head = new AtomicInteger();	// Entries taken
+		private final AtomicInteger tail = new AtomicInteger();	// Entries published
+
+		/* Constructor
+		 * Pre Condition: Receives the number of entries the channel holds.
+		 * */
+		Channel(int capacity) {
+			ghost = new int[capacity];
+			values = new long[capacity];
+		}	// end Constructor
+
+		/* Method: offer
+		 * Pre Condition: Called by the producer only. Adds an entry. Throws
+		 * 				  an IllegalStateException if the channel is full.
+		 * */
+		void offer(int g, long v) {
+			int t = tail.get();
+			// If the consumer has not freed room for the entry
+			if(t - head.get() == ghost.length)
+				throw new IllegalStateException("ghost channel is full");
+			ghost[t % ghost.length] = g;
+			values[t % ghost.length] = v;
+			tail.lazySet(t + 1);
+		}	// end offer
+
+		/* Method: drain
+		 * Pre Condition: Called by the consumer only. Passes every published
+		 * 				  entry to the worker and frees them.
+		 * */
+		void drain(Worker w) {
+			int h = head.get();
+			int t = tail.get();
+			for(; h != t; h++)
+				w.receive(ghost[h % ghost.length], values[h % ghost.length]);
+			head.lazySet(h);
+		}	// end drain
+
+		/* Method: clear
+		 * Pre Condition: Called between ticks only. Drops every published
+		 * 				  entry.
+		 * */
+		void clear() {
+			head.lazySet(tail.get());
+		}	// end clear
+	}	// end Channel class
+
+	/* --------------------------------------------------------------------------------
+	 * 								Worker
+	 * --------------------------------------------------------------------------------
+	 *
+	 * The work queue and state of one partition. The first worker is run by the
+	 * thread calling tick, the others by threads of their own.
+	 *
+	 * */
+	private final class Worker implements Runnable {
+		private final int id;					// Index of the worker
+		private final int[] queue;				// Work queue of gates (circular)
+		private int head = 0;					// First gate in the queue
+		private int size = 0;					// Number of gates in the queue
+		private int deltas = 0;					// Delta cycles run in this round
+		private boolean sent = false;			// True if values were sent in this round
+		private final IntList changed = new IntList();	// Nets changed since the last collection
+		private final IntList boundary = new IntList();	// Boundary nets changed in this round
+		private final IntList recorded = new IntList();	// Nets changed while recording oscillations
+
+		/* Constructor
+		 * Pre Condition: Receives the index of the worker and the number of
+		 * 				  gates of its partition.
+		 * */
+		Worker(int id, int gates) {
+			this.id = id;
+			this.queue = new int[Math.max(gates, 1)];
+		}	// end Constructor
+
+		/* Method: run
+		 * Pre Condition: Runs the rounds of each tick, waiting at the barrier
+		 * 				  for the start of the next tick, until the engine is
+		 * 				  closed.
+		 * */
+		@Override
+		public void run() {
+			try {
+				while(true) {
+					barrier.await();
+					// If the engine has been closed
+					if(closed)
+						return;
+					do {
+						round();
+						barrier.await();
+					} while(more);
+				}
+			} catch(InterruptedException | BrokenBarrierException e) {
+				// The engine is no longer ticked
+			}
+		}	// end run
+
+		/* Method: round
+		 * Pre Condition: Takes the ghost values sent to this worker, runs delta
+		 * 				  cycles until the queue is empty or the limit of the
+		 * 				  round is reached, then sends the boundary nets that
+		 * 				  changed. Changes are recorded in the last delta cycles
+		 * 				  of the round, or in every cycle once the rounds of the
+		 * 				  tick pass their own limit.
+		 * */
+		void round() {
+			for(int w = 0; w < workers.length; w++) {
+				// If the worker sends to this one
+				if(channels[w][id] != null)
+					channels[w][id].drain(this);
+			}
+			boolean late = rounds >= maxDeltas;
+			deltas = 0;
+			while(size > 0 && deltas < maxDeltas + SETTLE_LIMIT) {
+				delta(late || deltas >= maxDeltas);
+				deltas++;
+			}
+			sent = !boundary.isEmpty();
+			for(int i = 0; i < boundary.size(); i++) {
+				int n = boundary.get(i);
+				dirty[n] = false;
+				for(int j = remoteStart[n]; j < remoteStart[n + 1]; j++) {
+					int x = remoteGhost[j];
+					channels[id][ghostWorker[x - netlist.netCount]].offer(x, value[n]);
+				}
+			}
+			boundary.clear();
+		}	// end round
+
+		/* Method: isBusy
+		 * Post Condition: Returns true if gates are queued and the worker may
+		 * 				   still run delta cycles in this round.
+		 * */
+		boolean isBusy() {
+			return size > 0 && deltas < maxDeltas + SETTLE_LIMIT;
+		}	// end isBusy
+
+		/* Method: receive
+		 * Pre Condition: Sets the value of a ghost, queuing its readers if the
+		 * 				  value changed.
+		 * */
+		void receive(int ghost, long v) {
+			// If the ghost changed
+			if(value[ghost] != v) {
+				value[ghost] = v;
+				int x = ghost - netlist.netCount;
+				for(int i = ghostStart[x]; i < ghostStart[x + 1]; i++)
+					push(ghostFan[i]);
+			}
+		}	// end receive
+
+		/* Method: delta
+		 * Pre Condition: Evaluates the gates queued by the previous delta
+		 * 				  cycle, recording the nets that change if requested.
+		 * */
+		private void delta(boolean record) {
+			final byte[] type = netlist.type;
+			final int[] out = netlist.out;
+			final long[] v = value;
+			for(int count = size; count > 0; count--) {
+				int g = queue[head];
+				head = (head + 1) % queue.length;
+				size--;
+				queued[g] = false;
+				long result;
+				switch(type[g]) {
+				case Netlist.AND:
+					result = v[in1[g]] & v[in2[g]];
+					break;
+				case Netlist.OR:
+					result = v[in1[g]] | v[in2[g]];
+					break;
+				default:
+					result = v[in1[g]] ^ mask[out[g]];
+				}
+				int n = out[g];
+				// If the output of this gate changes
+				if(v[n] != result) {
+					v[n] = result;
+					if(!isChanged[n]) {
+						isChanged[n] = true;
+						changed.add(n);
+					}
+					if(record)
+						recorded.add(n);
+					for(int i = localStart[n]; i < localStart[n + 1]; i++)
+						push(localFan[i]);
+					// If the net is read in other partitions, send it at the end of the round
+					if(remoteStart[n] < remoteStart[n + 1] && !dirty[n]) {
+						dirty[n] = true;
+						boundary.add(n);
+					}
+				}
+			}
+		}	// end delta
+
+		/* Method: push
+		 * Pre Condition: Adds a gate of the partition to the end of the work
+		 * 				  queue, if it is not already queued.
+		 * */
+		void push(int g) {
+			// If this gate is not queued
+			if(!queued[g]) {
+				queued[g] = true;
+				queue[(head + size) % queue.length] = g;
+				size++;
+			}
+		}	// end push
+	}	// end Worker class
+
+	/* Method: endRound
+	 * Pre Condition: Run by the last worker reaching the barrier. Another
+	 * 				  round is needed at the start of a tick, or if a worker
+	 * 				  sent values or still has work and the rounds of the
+	 * 				  tick have not reached their limit.
+	 * */
+	private void endRound() {
+		// If a tick is starting, run its first round
+		if(starting) {
+			starting = false;
+			rounds = 0;
+			more = true;
+			return;
+		}
+		boolean busy = false;
+		for(int w = 0; w < workers.length; w++) {
+			busy |= workers[w].sent || workers[w].isBusy();
+			workers[w].sent = false;
+		}
+		more = busy && ++rounds < maxDeltas + SETTLE_LIMIT;
+		starting = !more;
+	}	// end endRound
+
+	/* Method: tick
+	 * Pre Condition: Runs rounds of delta cycles on every worker until no
+	 * 				  worker sends a value, then collects the oscillating nets.
+	 * */
+	@Override
+	public void tick() {
+		for(int w = 0; w < workers.length; w++)
+			workers[w].recorded.clear();
+		// If the gates are not split, run the single worker
+		if(barrier == null) {
+			workers[0].round();
+		} else {
+			try {
+				barrier.await();
+				do {
+					workers[0].round();
+					barrier.await();
+				} while(more);
+			} catch(InterruptedException | BrokenBarrierException e) {
+				throw new IllegalStateException("parallel event engine interrupted", e);
+			}
+		}
+		oscillating = NONE;
+		IntList nets = new IntList();
+		boolean[] seen = null;
+		for(int w = 0; w < workers.length; w++) {
+			IntList r = workers[w].recorded;
+			// If this worker recorded nets and none were seen before
+			if(seen == null && !r.isEmpty())
+				seen = new boolean[netlist.netCount];
+			for(int i = 0; i < r.size(); i++) {
+				// If this net has not been recorded before
+				if(!seen[r.get(i)]) {
+					seen[r.get(i)] = true;
+					nets.add(r.get(i));
+				}
+			}
+		}
+		// If a worker reached the delta cycle limit, report the nets it changed
+		if(!nets.isEmpty())
+			oscillating = nets.toArray();
+	}	// end tick
+
+	/* Method: schedule
+	 * Pre Condition: Queues a gate on the worker of its partition. Only
+	 * 				  called between ticks.
+	 * */
+	private void schedule(int g) {
+		workers[owner[g]].push(g);
+	}	// end schedule
+
+	/* Method: close
+	 * Pre Condition: Releases the worker threads.
+	 * */
+	@Override
+	public void close() {
+		// If the workers are running
+		if(barrier != null && !closed) {
+			closed = true;
+			try {
+				barrier.await();
+			} catch(InterruptedException | BrokenBarrierException e) {
+				// The workers have already stopped
+			}
+		}
+	}	// end close
+
+	/* Method: getPartitionCount
+	 * Post Condition: Returns the number of partitions, one per worker.
+	 * */
+	public int getPartitionCount() {
+		return workers.length;
+	}	// end getPartitionCount
+
+	/* Method: getGhostCount
+	 * Post Condition: Returns the number of ghosts, copies of nets read in
+	 * 				   partitions other than the one driving them.
+	 * */
+	public int getGhostCount() {
+		return ghostWorker.length;
+	}	// end getGhostCount
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return value[net] != 0L;
+	}	// end get
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net.
+	 * */
+	@Override
+	public long getValue(int net) {
+		return value[net];
+	}	// end getValue
+
+	/* Method: load
+	 * Pre Condition: Sets every net and its ghosts to the net's value in a
+	 * 				  snapshot, drops the ghost values still in the channels
+	 * 				  and queues every gate, so gates left unsettled at the
+	 * 				  snapshot's tick are evaluated by the next tick.
+	 * Post Condition: Returns true.
+	 * */
+	@Override
+	public boolean load(Snapshot s) {
+		for(int a = 0; a < channels.length; a++) {
+			for(int b = 0; b < channels.length; b++) {
+				// If the workers share ghosts
+				if(channels[a][b] != null)
+					channels[a][b].clear();
+			}
+		}
+		for(int n = 0; n < netCount; n++) {
+			long v = s.getValue(n) & mask[n];
+			// If the net changes, report it as changed
+			if(value[n] != v) {
+				value[n] = v;
+				if(!isChanged[n]) {
+					isChanged[n] = true;
+					workers[0].changed.add(n);
+				}
+			}
+			for(int j = remoteStart[n]; j < remoteStart[n + 1]; j++)
+				value[remoteGhost[j]] = v;
+		}
+		for(int g = 0; g < netlist.gateCount; g++)
+			schedule(g);
+		oscillating = NONE;
+		return true;
+	}	// end load
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		setSourceValue(src, value ? -1L : 0L);
+	}	// end setSource
+
+	/* Method: setSourceValue
+	 * Pre Condition: Sets the value of the specified source's net, bits
+	 * 				  beyond its width are cleared. If the value changes, its
+	 * 				  readers are queued on the workers of their partitions.
+	 * */
+	@Override
+	public void setSourceValue(int src, long value) {
+		int n = netlist.srcNet[src];
+		long v = value & mask[n];
+		// If the value of this net changes
+		if(this.value[n] != v) {
+			this.value[n] = v;
+			if(!isChanged[n]) {
+				isChanged[n] = true;
+				workers[0].changed.add(n);
+			}
+			for(int i = netlist.fanStart[n]; i < netlist.fanStart[n + 1]; i++)
+				schedule(netlist.fanout[i]);
+		}
+	}	// end setSourceValue
+
+	/* Method: collectChanges
+	 * Pre Condition: Adds every net changed since the last call to the list.
+	 * Post Condition: Returns true, as changes are tracked by this engine.
+	 * */
+	@Override
+	public boolean collectChanges(IntList list) {
+		for(int w = 0; w < workers.length; w++) {
+			IntList c = workers[w].changed;
+			for(int i = 0; i < c.size(); i++) {
+				list.add(c.get(i));
+				isChanged[c.get(i)] = false;
+			}
+			c.clear();
+		}
+		return true;
+	}	// end collectChanges
+
+	/* Method: isIdle
+	 * Post Condition: Returns true if no gates are waiting to be evaluated.
+	 * */
+	public boolean isIdle() {
+		for(int w = 0; w < workers.length; w++) {
+			if(workers[w].size > 0)
+				return false;
+		}
+		return true;
+	}	// end isIdle
+}	// end ParallelEventEngine class
@@ -0,0 +1,134 @@
+/* --------------------------------------------------------------------------------
+ * 								SimulationThread
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to simulate a circuit board on its own thread, separate from
+ * the rendering thread. The board is ticked at a configurable rate, or as fast as
+ * possible, and a snapshot of the net values is published for the renderer at
+ * most every PUBLISH_PERIOD.
+ *
+ * */
+
+package modules;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class SimulationThread implements Runnable {
+
+	public static final int UNBOUNDED = 0;						// Tick rate with no limit
+	private static final long PUBLISH_PERIOD = 5000000L;		// Time between snapshots (nanosec)
+	private static final long IDLE_PERIOD = 10000000L;			// Sleep time when not simulating (nanosec)
+	private static final long MAX_LAG = 1000000000L;			// Max time behind schedule (nanosec)
+
+	private final CircuitBoard board;				// Simulated circuit board
+	private Thread thread;							// Simulation thread
+	private volatile boolean running = false;		// Running flag
+	private volatile int tickRate;					// Ticks per second, or UNBOUNDED
+
+	private long tickCount = 0L;					// Ticks since the last measurement
+	private long measureTime = 0L;					// Time of the last measurement
+	private volatile double measuredRate = 0.0;		// Measured ticks per second
+
+	/* Constructor
+	 * Pre Condition: Receives the board to simulate and the tick rate.
+	 * */
+	public SimulationThread(CircuitBoard board, int tickRate) {
+		this.board = board;
+		this.tickRate = tickRate;
+	}	// end Constructor
+
+	/* Method: start
+	 * Pre Condition: Starts the simulation thread.
+	 * */
+	public void start() {
+		running = true;
+		thread = new Thread(this, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}	// end start
+
+	/* Method: stop
+	 * Pre Condition: Stops the simulation thread and waits for it to finish.
+	 * */
+	public void stop() {
+		running = false;
+		try {
+			thread.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}	// end stop
+
+	/* Method: setTickRate
+	 * Pre Condition: Sets the number of ticks per second, or UNBOUNDED.
+	 * */
+	public void setTickRate(int tickRate) {
+		this.tickRate = tickRate;
+	}	// end setTickRate
+
+	/* Method: getTickRate
+	 * Post Condition: Returns the number of ticks per second, or UNBOUNDED.
+	 * */
+	public int getTickRate() {
+		return tickRate;
+	}	// end getTickRate
+
+	/* Method: getMeasuredRate
+	 * Post Condition: Returns the measured number of ticks per second.
+	 * */
+	public double getMeasuredRate() {
+		return measuredRate;
+	}	// end getMeasuredRate
+
+	/* Method: run
+	 * Pre Condition: Executes the simulation loop. Each cycle ticks the board,
+	 * 				  publishes a snapshot if one is due, and waits for the
+	 * 				  next tick if the tick rate is limited.
+	 * */
+	@Override
+	public void run() {
+		long lastPublish = System.nanoTime();
+		long nextTick = lastPublish;
+		measureTime = lastPublish;
+		while(running) {
+			// If the board is not simulated by a compiled engine
+			if(!board.step()) {
+				LockSupport.parkNanos(IDLE_PERIOD);
+				nextTick = System.nanoTime();
+				continue;
+			}
+			tickCount++;
+			long now = System.nanoTime();
+			// If a snapshot is due
+			if(now - lastPublish >= PUBLISH_PERIOD) {
+				board.publish();
+				lastPublish = now;
+				measure(now);
+			}
+			int rate = tickRate;
+			// If the tick rate is limited, wait for the next tick
+			if(rate != UNBOUNDED) {
+				nextTick += 1000000000L / rate;
+				// If the simulation has fallen too far behind
+				if(now - nextTick > MAX_LAG) {
+					nextTick = now;
+				}
+				while(running && (now = System.nanoTime()) < nextTick) {
+					LockSupport.parkNanos(nextTick - now);
+				}
+			}
+		}
+	}	// end run
+
+	/* Method: measure
+	 * Pre Condition: Updates the measured tick rate, at most once per second.
+	 * */
+	private void measure(long now) {
+		// If a second has passed since the last measurement
+		if(now - measureTime >= 1000000000L) {
+			measuredRate = tickCount * 1000000000.0 / (now - measureTime);
+			tickCount = 0L;
+			measureTime = now;
+		}
+	}	// end measure
+}	// end SimulationThread class
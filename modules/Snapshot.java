@@ -0,0 +1,83 @@
+/* --------------------------------------------------------------------------------
+ * 								Snapshot
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents the value of every net of a Netlist at a given tick.
+ * A snapshot is not changed after it is created, so it can be published by the
+ * simulation thread and read by the rendering thread without locking.
+ *
+ * Single bit nets are packed 64 to a long. The nets of a netlist with buses are
+ * each copied into a long of their own.
+ *
+ * */
+
+package modules;
+
+public final class Snapshot {
+
+	private final Netlist netlist;			// Netlist of the snapshot
+	private final long[] bits;				// Packed net values
+	private final long[] values;			// Value of each net, or null if packed
+	private final long tick;				// Tick the snapshot was taken
+
+	/* Constructor
+	 * Pre Condition: Receives the engine to copy the net values from, and
+	 * 				  the current tick.
+	 * */
+	public Snapshot(Engine engine, long tick) {
+		this.netlist = engine.getNetlist();
+		this.tick = tick;
+		// If the netlist has buses, copy each net into a long
+		if(netlist.isWide()) {
+			this.bits = null;
+			this.values = new long[netlist.netCount];
+			for(int n = 0; n < values.length; n++)
+				values[n] = engine.getValue(n);
+		} else {
+			this.bits = new long[(netlist.netCount + 63) >>> 6];
+			this.values = null;
+			engine.copyTo(bits);
+		}
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist, the packed net values or the value
+	 * 				  of each net of a netlist with buses, and the tick. The
+	 * 				  arrays are kept, not copied.
+	 * */
+	Snapshot(Netlist netlist, long[] bits, long[] values, long tick) {
+		this.netlist = netlist;
+		this.bits = bits;
+		this.values = values;
+		this.tick = tick;
+	}	// end Constructor
+
+	/* Method: getNetlist
+	 * Post Condition: Returns the netlist of the snapshot.
+	 * */
+	public Netlist getNetlist() {
+		return netlist;
+	}	// end getNetlist
+
+	/* Method: getTick
+	 * Post Condition: Returns the tick the snapshot was taken.
+	 * */
+	public long getTick() {
+		return tick;
+	}	// end getTick
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	public boolean get(int net) {
+		return values != null ? values[net] != 0L : (bits[net >>> 6] & (1L << net)) != 0;
+	}	// end get
+
+	/* Method: getValue
+	 * Post Condition: Returns the value of the specified net, one bit per
+	 * 				   wire of the net.
+	 * */
+	public long getValue(int net) {
+		return values != null ? values[net] : (bits[net >>> 6] >>> net) & 1L;
+	}	// end getValue
+}	// end Snapshot class
@@ -0,0 +1,259 @@
+/* --------------------------------------------------------------------------------
+ * 								StateHistory
+ * --------------------------------------------------------------------------------
+ *
+ * Class object records the net values of a simulated Netlist tick by tick, so the
+ * simulation can be scrubbed back to any recorded tick and continued from there.
+ *
+ * The history is a ring of segments. Each segment starts with a keyframe holding
+ * every net value, followed by one delta per recorded tick holding only the words
+ * that changed: the index of the word and the XOR of its old and new value. Single
+ * bit nets are packed 64 to a word, the nets of a netlist with buses take a word
+ * each. The value at a tick is the keyframe of its segment with the deltas up to
+ * the tick applied.
+ *
+ * A segment holds KEYFRAME_INTERVAL recorded ticks. When the ring is full, the
+ * oldest segment is dropped. The deltas take memory in proportion to the number
+ * of changed words, so a quiet circuit costs little more than its keyframes.
+ *
+ * The history is recorded by the simulating thread and read by the rendering
+ * thread, so its methods are synchronized.
+ *
+ * */
+
+package modules;
+
+import java.util.Arrays;
+
+public class StateHistory {
+
+	public static final int KEYFRAME_INTERVAL = 256;		// Recorded ticks per keyframe
+	public static final int DEFAULT_KEYFRAMES = 64;			// Segments kept by default
+
+	private final Netlist netlist;			// Netlist of the recorded values
+	private final boolean wide;				// True if each net takes a word
+	private final Segment[] ring;			// Recorded segments, oldest at first
+	private int first = 0;					// Ring index of the oldest segment
+	private int count = 0;					// Number of segments held
+	private long[] current;					// Words at the last recorded tick
+	private long[] next;					// Words being read from the engine
+
+	/* --------------------------------------------------------------------------------
+	 * 								Segment
+	 * --------------------------------------------------------------------------------
+	 *
+	 * A keyframe and the deltas of the ticks recorded after it. Entry 0 is the tick
+	 * of the keyframe, entry i holds the deltas from deltaEnd[i - 1] to deltaEnd[i].
+	 *
+	 * */
+	private static final class Segment {
+		final long[] keyframe;								// Words at the first tick
+		final long[] ticks = new long[KEYFRAME_INTERVAL];	// Tick of each entry
+		final int[] deltaEnd = new int[KEYFRAME_INTERVAL];	// End of the deltas of each entry
+		int size = 0;						// Entries recorded
+		int[] index = new int[16];			// Word changed by each delta
+		long[] xor = new long[16];			// Changed bits of each delta
+		int deltas = 0;						// Deltas recorded
+
+		/* Constructor
+		 * Pre Condition: Receives the words of the keyframe.
+		 * */
+		Segment(long[] keyframe) {
+			this.keyframe = keyframe;
+		}	// end Constructor
+
+		/* Method: addDelta
+		 * Pre Condition: Records the changed bits of a word.
+		 * */
+		void addDelta(int w, long x) {
+			// If the delta arrays are full
+			if(deltas == index.length) {
+				index = Arrays.copyOf(index, deltas * 2);
+				xor = Arrays.copyOf(xor, deltas * 2);
+			}
+			index[deltas] = w;
+			xor[deltas++] = x;
+		}	// end addDelta
+
+		/* Method: find
+		 * Post Condition: Returns the last entry recorded at or before a tick.
+		 * */
+		int find(long tick) {
+			int i = Arrays.binarySearch(ticks, 0, size, tick);
+			return i >= 0 ? i : -i - 2;
+		}	// end find
+	}	// end Segment class
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to record, keeping the default
+	 * 				  number of segments.
+	 * */
+	public StateHistory(Netlist netlist) {
+		this(netlist, DEFAULT_KEYFRAMES);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to record and the number of
+	 * 				  segments to keep, at least two.
+	 * */
+	public StateHistory(Netlist netlist, int keyframes) {
+		this.netlist = netlist;
+		this.wide = netlist.isWide();
+		this.ring = new Segment[Math.max(keyframes, 2)];
+		int words = wide ? netlist.netCount : (netlist.netCount + 63) >>> 6;
+		current = new long[words];
+		next = new long[words];
+	}	// end Constructor
+
+	/* Method: getNetlist
+	 * Post Condition: Returns the recorded netlist.
+	 * */
+	public Netlist getNetlist() {
+		return netlist;
+	}	// end getNetlist
+
+	/* Method: record
+	 * Pre Condition: Records the net values of an engine of the netlist at a
+	 * 				  tick. Recorded ticks from the specified tick on are
+	 * 				  replaced, so the history continues from a restored tick.
+	 * */
+	public synchronized void record(Engine engine, long tick) {
+		// If ticks at or after this one were recorded, they are replaced
+		if(count > 0 && tick <= getNewestTick())
+			truncate(tick - 1);
+		// Read the words of the engine
+		if(wide) {
+			for(int n = 0; n < next.length; n++)
+				next[n] = engine.getValue(n);
+		} else {
+			Arrays.fill(next, 0L);
+			engine.copyTo(next);
+		}
+		Segment s = count == 0 ? null : ring[(first + count - 1) % ring.length];
+		// If the last segment is full, start a new segment with a keyframe
+		if(s == null || s.size == KEYFRAME_INTERVAL) {
+			// If the ring is full, drop the oldest segment
+			if(count == ring.length) {
+				ring[first] = null;
+				first = (first + 1) % ring.length;
+				count--;
+			}
+			s = new Segment(next.clone());
+			ring[(first + count) % ring.length] = s;
+			count++;
+		} else {
+			for(int w = 0; w < next.length; w++) {
+				long x = next[w] ^ current[w];
+				// If this word changed since the last tick
+				if(x != 0L)
+					s.addDelta(w, x);
+			}
+		}
+		s.ticks[s.size] = tick;
+		s.deltaEnd[s.size] = s.deltas;
+		s.size++;
+		long[] t = current;
+		current = next;
+		next = t;
+	}	// end record
+
+	/* Method: isEmpty
+	 * Post Condition: Returns true if no tick has been recorded.
+	 * */
+	public synchronized boolean isEmpty() {
+		return count == 0;
+	}	// end isEmpty
+
+	/* Method: getOldestTick
+	 * Post Condition: Returns the oldest recorded tick, or -1 if the history
+	 * 				   is empty.
+	 * */
+	public synchronized long getOldestTick() {
+		return count == 0 ? -1L : ring[first].ticks[0];
+	}	// end getOldestTick
+
+	/* Method: getNewestTick
+	 * Post Condition: Returns the newest recorded tick, or -1 if the history
+	 * 				   is empty.
+	 * */
+	public synchronized long getNewestTick() {
+		// If nothing has been recorded
+		if(count == 0)
+			return -1L;
+		Segment s = ring[(first + count - 1) % ring.length];
+		return s.ticks[s.size - 1];
+	}	// end getNewestTick
+
+	/* Method: findSegment
+	 * Post Condition: Returns the index from the oldest of the segment
+	 * 				   holding a tick, or -1 if the tick is older than the
+	 * 				   history.
+	 * */
+	private int findSegment(long tick) {
+		int i = count - 1;
+		while(i >= 0 && ring[(first + i) % ring.length].ticks[0] > tick)
+			i--;
+		return i;
+	}	// end findSegment
+
+	/* Method: rebuild
+	 * Post Condition: Returns the words of an entry of a segment, the
+	 * 				   keyframe with the deltas up to the entry applied.
+	 * */
+	private static long[] rebuild(Segment s, int entry) {
+		long[] words = s.keyframe.clone();
+		for(int d = 0; d < s.deltaEnd[entry]; d++)
+			words[s.index[d]] ^= s.xor[d];
+		return words;
+	}	// end rebuild
+
+	/* Method: get
+	 * Post Condition: Returns a snapshot of the net values at a tick, those
+	 * 				   of the last tick recorded at or before it, or null if
+	 * 				   the tick is older than the history.
+	 * */
+	public synchronized Snapshot get(long tick) {
+		int i = findSegment(tick);
+		// If the tick is older than the history
+		if(i < 0)
+			return null;
+		Segment s = ring[(first + i) % ring.length];
+		long[] words = rebuild(s, s.find(tick));
+		return new Snapshot(netlist, wide ? null : words, wide ? words : null, tick);
+	}	// end get
+
+	/* Method: truncate
+	 * Pre Condition: Drops every tick recorded after the specified tick.
+	 * */
+	public synchronized void truncate(long tick) {
+		int i = findSegment(tick);
+		// Drop the segments starting after the tick
+		while(count > i + 1) {
+			ring[(first + count - 1) % ring.length] = null;
+			count--;
+		}
+		// If no segment is left
+		if(count == 0) {
+			first = 0;
+			return;
+		}
+		Segment s = ring[(first + count - 1) % ring.length];
+		int e = s.find(tick);
+		s.size = e + 1;
+		s.deltas = s.deltaEnd[e];
+		current = rebuild(s, e);
+	}	// end truncate
+
+	/* Method: getMemoryUse
+	 * Post Condition: Returns the approximate number of bytes held by the
+	 * 				   recorded keyframes and deltas.
+	 * */
+	public synchronized long getMemoryUse() {
+		long bytes = 0L;
+		for(int i = 0; i < count; i++) {
+			Segment s = ring[(first + i) % ring.length];
+			bytes += 8L * s.keyframe.length + 12L * s.index.length + 12L * KEYFRAME_INTERVAL;
+		}
+		return bytes;
+	}	// end getMemoryUse
+}	// end StateHistory class
@@ -0,0 +1,304 @@
+/* --------------------------------------------------------------------------------
+ * 								SubCircuit
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a placed copy of a subcircuit, used in simulations. The
+ * body of the gate is another board, held by a SubCircuitDefinition shared by all
+ * copies. A copy holds only its pin nodes: one input node on the left for each
+ * input of the definition, and one output node on the right for each output.
+ *
+ * The compiled modes flatten a copy of the body into the board netlist (see
+ * BoardCompiler). In sweep mode the gate evaluates the body itself, with an
+ * engine created on its first update.
+ *
+ * A copy whose body has no feedback loops, and whose inputs fit in 64 bits, can
+ * be marked as cached. Its sweep mode updates then pack the input values into a
+ * long and look up the outputs in a BlockCache, evaluating the body only when
+ * the input vector is not held.
+ *
+ * */
+
+package modules;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+public class SubCircuit extends Gate {
+
+	private static final int WIDTH = 80;			// Gate area width
+	private static final int PIN_SPACING = 30;		// Distance between pins
+
+	private final SubCircuitDefinition definition;	// Shared definition
+	private final int[] pins;						// Input nodes, then output nodes
+	private Engine engine = null;					// Sweep mode engine of the body
+	private BlockCache cache = null;				// Outputs of each input vector, if cached
+	private long[] outputValues;					// Outputs of the last update
+
+	/* Constructor
+	 * Pre Condition: Receives the definition, uses default location and
+	 * 				  initiates nodes.
+	 * */
+	public SubCircuit(CircuitStore store, SubCircuitDefinition definition) {
+		this(store, 200, 200, definition);
+	}	// end Constructor
+
+	/* Constructor
+	 * Pre Condition: Receives location and definition, initiates a node for
+	 * 				  each input and output of the definition.
+	 * */
+	public SubCircuit(CircuitStore store, int x, int y, SubCircuitDefinition definition) {
+		super(store, x, y, WIDTH, getHeight(definition), CircuitStore.SUBCIRCUIT, 1);
+		this.definition = definition;
+		int inputs = definition.getInputCount();
+		pins = new int[inputs + definition.getOutputCount()];
+		for(int k = 0; k < pins.length; k++) {
+			// If this pin is an input
+			if(k < inputs)
+				pins[k] = store.addNode(0, 0, Node.LEFT, definition.getInputWidth(k));
+			else
+				pins[k] = store.addNode(0, 0, Node.RIGHT, definition.getOutputWidth(k - inputs));
+		}
+		outputValues = new long[definition.getOutputCount()];
+		setShapes();
+	}	// end Constructor
+
+	/* Method: getHeight
+	 * Post Condition: Returns the height of a copy of a definition, which
+	 * 				   fits the longer row of pins.
+	 * */
+	private static int getHeight(SubCircuitDefinition definition) {
+		return Math.max(1, Math.max(definition.getInputCount(), definition.getOutputCount())) * PIN_SPACING;
+	}	// end getHeight
+
+	/* Method: getDefinition
+	 * Post Condition: Returns the shared definition of this subcircuit.
+	 * */
+	public SubCircuitDefinition getDefinition() {
+		return definition;
+	}	// end getDefinition
+
+	/* Method: isCacheable
+	 * Post Condition: Returns true if the body has no feedback loops and its
+	 * 				   inputs fit in a cache key.
+	 * */
+	public boolean isCacheable() {
+		// If the body has loops, its outputs depend on more than the inputs
+		if(definition.getBody().isCyclic())
+			return false;
+		int bits = 0;
+		for(int k = 0; k < definition.getInputCount(); k++)
+			bits += definition.getInputWidth(k);
+		return bits <= CircuitStore.MAX_WIDTH;
+	}	// end isCacheable
+
+	/* Method: setCached
+	 * Pre Condition: Marks this copy as cached with a new, empty cache, or
+	 * 				  removes its cache. Copies that are not cacheable are
+	 * 				  left unchanged.
+	 * */
+	public void setCached(boolean cached) {
+		// If the copy can hold a cache
+		if(isCacheable())
+			cache = cached ? new BlockCache(definition.getOutputCount(), BlockCache.DEFAULT_CAPACITY) : null;
+	}	// end setCached
+
+	/* Method: getCache
+	 * Post Condition: Returns the cache of this copy, or null if it is not
+	 * 				   cached.
+	 * */
+	public BlockCache getCache() {
+		return cache;
+	}	// end getCache
+
+	/* Method: getPinCount
+	 * Post Condition: Returns the number of inputs and outputs.
+	 * */
+	@Override
+	protected int getPinCount() {
+		return pins.length;
+	}	// end getPinCount
+
+	/* Method: getPinNode
+	 * Post Condition: Returns the node of an input, or of an output after
+	 * 				   the inputs.
+	 * */
+	@Override
+	protected int getPinNode(int k) {
+		return pins[k];
+	}	// end getPinNode
+
+	/* Method: isOutputPin
+	 * Post Condition: Returns true if a pin holds an output, the outputs
+	 * 				   following the inputs.
+	 * */
+	@Override
+	protected boolean isOutputPin(int k) {
+		return k >= definition.getInputCount();
+	}	// end isOutputPin
+
+	/* Method: setShapes
+	 * Pre Condition: Moves all nodes of this gate object to the gate location.
+	 * */
+	private void setShapes() {
+		int inputs = definition.getInputCount();
+		for(int k = 0; k < pins.length; k++) {
+			// If this pin is an input
+			if(k < inputs)
+				setPin(k, x - 10, y + 7 + k * PIN_SPACING);
+			else
+				setPin(k, x + WIDTH - 6, y + 7 + (k - inputs) * PIN_SPACING);
+		}
+	}	// end setShapes
+
+	/* Method: setPos
+	 * Pre Condition: Receives x and y for the new gate position.
+	 * */
+	@Override
+	public void setPos(int x, int y) {
+		this.x = x;
+		this.y = y;
+		setShapes();
+	}	// end setPos
+
+	/* Method: onHover
+	 * Pre Condition: Receives x and y of current screen
+	 * 				  location. Performs hovering processes.
+	 * Post Condition: Returns true if the mouse is hovering over this
+	 * 				   gate.
+	 * */
+	@Override
+	public boolean onHover(int x, int y) {
+		// If this gate is activated
+		if(isGateActive()) {
+			return onNodeHover(x, y);
+		}
+		// If this gate is not activated
+		return onGateHover(x, y);
+	}	// end onHover
+
+	/* Method: onGateHover
+	 * Pre Condition: Determines if the specified location (x, y) is
+	 * 				  contained in the body of the gate.
+	 * Post Condition: Returns true if this point is in the body.
+	 * */
+	@Override
+	public boolean onGateHover(int x, int y) {
+		return x >= this.x + 8 && y >= this.y && x < this.x + WIDTH - 8 && y < this.y + height;
+	}	// end onGateHover
+
+	@Override
+	public void onClick(int x, int y) {}
+
+	@Override
+	public void click() {}
+
+	@Override
+	public boolean isPressed() { return false; }
+
+	@Override
+	public void acknowledge() {}
+
+	/* Method: getInputNodes
+	 * Post Condition: Returns the input nodes of this gate.
+	 * */
+	@Override
+	public Node[] getInputNodes() {
+		Node[] in = new Node[definition.getInputCount()];
+		for(int k = 0; k < in.length; k++)
+			in[k] = pin(k);
+		return in;
+	}	// end getInputNodes
+
+	/* Method: getOutputNodes
+	 * Post Condition: Returns the output nodes of this gate.
+	 * */
+	@Override
+	public Node[] getOutputNodes() {
+		Node[] out = new Node[definition.getOutputCount()];
+		for(int k = 0; k < out.length; k++)
+			out[k] = pin(definition.getInputCount() + k);
+		return out;
+	}	// end getOutputNodes
+
+	/* Method: release
+	 * Pre Condition: Releases the nodes of this gate, then removes the gate
+	 * 				  from the store.
+	 * */
+	@Override
+	public void release() {
+		for(int k = 0; k < pins.length; k++)
+			store.releaseNode(pins[k]);
+		super.release();
+	}	// end release
+
+	/* Method: update
+	 * Pre Condition: Attaches any node that has been detached during
+	 * 				  the removal of a wire. Evaluates the body from the
+	 * 				  values of the input nodes, or looks up the outputs if
+	 * 				  cached, and sets the output nodes.
+	 * */
+	@Override
+	public void update() {
+		reattach();
+		int inputs = definition.getInputCount();
+		BlockCache c = cache;
+		long key = 0L;
+		// If cached, pack the inputs into a key and look it up
+		if(c != null) {
+			int shift = 0;
+			for(int k = 0; k < inputs; k++) {
+				key |= pin(k).getValue() << shift;
+				shift += definition.getInputWidth(k);
+			}
+		}
+		// If the outputs are not held, evaluate the body
+		if(c == null || !c.get(key, outputValues)) {
+			// If the body has not been evaluated before
+			if(engine == null)
+				engine = new LevelizedEngine(definition.getBody());
+			for(int k = 0; k < inputs; k++)
+				engine.setSourceValue(k, pin(k).getValue());
+			engine.tick();
+			for(int k = 0; k < outputValues.length; k++)
+				outputValues[k] = engine.getValue(definition.getOutputNet(k));
+			// If cached, hold the outputs of this input vector
+			if(c != null)
+				c.put(key, outputValues);
+		}
+		for(int k = 0; k < outputValues.length; k++)
+			pin(inputs + k).setValue(outputValues[k]);
+	}	// end update
+
+	/* Method: draw
+	 * Pre Condition: Receives graphics object used to draw all shapes
+	 * 				  and the nodes related with this gate.
+	 * */
+	@Override
+	public void draw(Graphics2D g) {
+		// Draw the body and its name
+		g.setColor(new Color(204, 86, 2));
+		g.fillRect(x + 8, y, WIDTH - 16, height);
+		g.setColor(new Color(40, 40, 35));
+		g.drawString(definition.getName(), x + 16, y + height / 2 + 5);
+		// If cached, show the hit rate, or that the cache turned itself off
+		BlockCache c = cache;
+		if(c != null && height >= 2 * PIN_SPACING) {
+			long lookups = c.getHits() + c.getMisses();
+			String rate = !c.isEnabled() ? "off" : lookups == 0 ? "-" : (c.getHits() * 100 / lookups) + "%";
+			g.drawString("cache " + rate, x + 16, y + height / 2 + 20);
+		} else if(c != null) {
+			g.drawString("C", x + WIDTH - 22, y + height / 2 + 5);
+		}
+		g.setColor(new Color(204, 86, 2));
+
+		// Draw node sticks
+		int inputs = definition.getInputCount();
+		for(int k = 0; k < inputs; k++)
+			g.drawLine(x + 5, y + 15 + k * PIN_SPACING, x + 8, y + 15 + k * PIN_SPACING);
+		for(int k = 0; k < definition.getOutputCount(); k++)
+			g.drawLine(x + WIDTH - 8, y + 15 + k * PIN_SPACING, x + WIDTH - 3, y + 15 + k * PIN_SPACING);
+
+		// Draw nodes
+		drawNodes(g);
+	}	// end draw
+}	// end SubCircuit class
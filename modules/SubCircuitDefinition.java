@@ -0,0 +1,143 @@
+/* --------------------------------------------------------------------------------
+ * 								SubCircuitDefinition
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents the shared definition of a subcircuit: a board compiled
+ * into a Netlist, whose power sources are the inputs and whose marked nodes are
+ * the outputs of the subcircuit. Every SubCircuit gate placed on the board refers
+ * to a definition, so the gates of the body are held once per definition rather
+ * than once per placed copy.
+ *
+ * The body is compiled and optimized once, when the definition is created. Each
+ * output is then given a net of its own, driven by a gate of the body, so that a
+ * copy of the body can be flattened into a board netlist by renaming its nets:
+ * the inputs become the nets of the copy's input pins, the outputs the nets of
+ * its output pins and every other net a new net. An output that passes an input
+ * through, or repeats another output, is driven by a pair of NOT gates, and a
+ * constant output by a NOT gate of an undriven net when it is true.
+ *
+ * */
+
+package modules;
+
+public class SubCircuitDefinition {
+
+	private final String name;				// Name shown on each copy
+	private final Netlist body;				// Optimized body
+	private final int[] outputNets;			// Body net of each output
+	private final int removed;				// Gates removed from the body by the optimizer
+
+	/* Constructor
+	 * Pre Condition: Receives the name of the definition, the netlist of the
+	 * 				  board it is made from and the nets of its outputs.
+	 * */
+	public SubCircuitDefinition(String name, Netlist netlist, int[] outputs) {
+		this.name = name;
+		NetlistOptimizer optimizer = netlist.isWide() ? null : new NetlistOptimizer(netlist, outputs);
+		Netlist reduced = optimizer == null ? netlist : optimizer.getNetlist();
+		removed = optimizer == null ? 0 : optimizer.getRemovedCount();
+
+		// Copy the reduced netlist
+		NetlistBuilder builder = new NetlistBuilder();
+		for(int n = 0; n < reduced.netCount; n++)
+			builder.addNet(reduced.width[n]);
+		boolean[] taken = new boolean[reduced.netCount];
+		for(int s = 0; s < reduced.srcNet.length; s++) {
+			builder.addSource(reduced.srcNet[s]);
+			taken[reduced.srcNet[s]] = true;
+		}
+		for(int g = 0; g < reduced.gateCount; g++)
+			builder.addGate(reduced.type[g], reduced.in1[g], reduced.in2[g], reduced.out[g]);
+
+		// Give each output a net of its own
+		outputNets = new int[outputs.length];
+		for(int i = 0; i < outputs.length; i++) {
+			int t = optimizer == null ? outputs[i] : optimizer.getTarget(outputs[i]);
+			// If the output is constant
+			if(t < 0) {
+				outputNets[i] = builder.addNet();
+				// If the constant is true, invert an undriven net
+				if(optimizer.get(n -> false, outputs[i])) {
+					int off = builder.addNet();
+					builder.addGate(Netlist.NOT, off, off, outputNets[i]);
+				}
+			// If the net is an input or another output, buffer it
+			} else if(taken[t]) {
+				int width = reduced.width[t];
+				int inverse = builder.addNet(width);
+				outputNets[i] = builder.addNet(width);
+				builder.addGate(Netlist.NOT, t, t, inverse);
+				builder.addGate(Netlist.NOT, inverse, inverse, outputNets[i]);
+			} else {
+				outputNets[i] = t;
+				taken[t] = true;
+			}
+		}
+		body = builder.build();
+	}	// end Constructor
+
+	/* Method: getName
+	 * Post Condition: Returns the name of the definition.
+	 * */
+	public String getName() {
+		return name;
+	}	// end getName
+
+	/* Method: getBody
+	 * Post Condition: Returns the optimized body, whose sources are the
+	 * 				   inputs of the subcircuit.
+	 * */
+	public Netlist getBody() {
+		return body;
+	}	// end getBody
+
+	/* Method: getInputCount
+	 * Post Condition: Returns the number of inputs.
+	 * */
+	public int getInputCount() {
+		return body.srcNet.length;
+	}	// end getInputCount
+
+	/* Method: getOutputCount
+	 * Post Condition: Returns the number of outputs.
+	 * */
+	public int getOutputCount() {
+		return outputNets.length;
+	}	// end getOutputCount
+
+	/* Method: getInputNet
+	 * Post Condition: Returns the body net of an input.
+	 * */
+	public int getInputNet(int i) {
+		return body.srcNet[i];
+	}	// end getInputNet
+
+	/* Method: getOutputNet
+	 * Post Condition: Returns the body net of an output.
+	 * */
+	public int getOutputNet(int i) {
+		return outputNets[i];
+	}	// end getOutputNet
+
+	/* Method: getInputWidth
+	 * Post Condition: Returns the width of an input, in bits.
+	 * */
+	public int getInputWidth(int i) {
+		return body.width[body.srcNet[i]];
+	}	// end getInputWidth
+
+	/* Method: getOutputWidth
+	 * Post Condition: Returns the width of an output, in bits.
+	 * */
+	public int getOutputWidth(int i) {
+		return body.width[outputNets[i]];
+	}	// end getOutputWidth
+
+	/* Method: getRemovedCount
+	 * Post Condition: Returns the number of gates removed from the body when
+	 * 				   it was optimized.
+	 * */
+	public int getRemovedCount() {
+		return removed;
+	}	// end getRemovedCount
+}	// end SubCircuitDefinition class
@@ -0,0 +1,186 @@
+/* --------------------------------------------------------------------------------
+ * 								TimedEngine
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a timed simulation engine. Each gate type has a
+ * propagation delay, in time units, and a change of a gate's output is scheduled
+ * on a TimingWheel at the current time plus the delay of the gate. Each tick
+ * advances the simulation by one time unit.
+ *
+ * Delays are transport delays: a pulse shorter than a gate's delay still passes
+ * through the gate, so glitches caused by unequal path delays can be observed.
+ * Feedback loops are not settled within a tick, as every change takes at least
+ * one time unit. The changes still on the wheel are not part of a Snapshot, so
+ * the engine can not be loaded from one.
+ *
+ * */
+
+package modules;
+
+public class TimedEngine extends Engine {
+
+	public static final int MAX_DELAY = 9;							// Max delay of a gate type
+	private static final int[] DEFAULT_DELAYS = { 0, 2, 2, 1 };	// Default delay of each gate type
+
+	private final int[] delay;				// Delay of each gate type
+	private final boolean[] value;			// Value of each net
+	private final boolean[] projected;		// Value of each net after its scheduled events
+	private final TimingWheel wheel;		// Scheduled net changes
+	private long events = 0L;				// Number of net changes applied
+
+	private final IntList changed;			// Nets changed since the last collection
+	private final boolean[] isChanged;		// Changed state of each net
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist to be simulated and the delay of
+	 * 				  each gate type, indexed by the Netlist gate type
+	 * 				  constants. Every gate is evaluated at time 0.
+	 * */
+	public TimedEngine(Netlist netlist, int[] delays) {
+		super(netlist);
+		requireSingleBit(netlist, "timed");
+		delay = delays.clone();
+		for(int t = Netlist.AND; t <= Netlist.NOT; t++) {
+			// If this delay would let a change arrive in the same time unit
+			if(delay[t] < 1 || delay[t] > MAX_DELAY)
+				throw new IllegalArgumentException("gate delay must be between 1 and " + MAX_DELAY);
+		}
+		value = new boolean[netlist.netCount];
+		projected = new boolean[netlist.netCount];
+		wheel = new TimingWheel(netlist.netCount);
+		changed = new IntList();
+		isChanged = new boolean[netlist.netCount];
+		for(int g = 0; g < netlist.gateCount; g++)
+			evaluate(g);
+	}	// end Constructor
+
+	/* Method: getDefaultDelays
+	 * Post Condition: Returns a copy of the default delay of each gate type.
+	 * */
+	public static int[] getDefaultDelays() {
+		return DEFAULT_DELAYS.clone();
+	}	// end getDefaultDelays
+
+	/* Method: tick
+	 * Pre Condition: Advances the simulation by one time unit, applying
+	 * 				  every net change scheduled up to the new time.
+	 * */
+	@Override
+	public void tick() {
+		long now = wheel.getTime() + 1;
+		int e;
+		while((e = wheel.pop(now)) >= 0)
+			set(e >>> 1, (e & 1) != 0);
+	}	// end tick
+
+	/* Method: set
+	 * Pre Condition: Sets the value of a net. If the value changes, the net
+	 * 				  is recorded and all gates reading it are evaluated.
+	 * */
+	private void set(int net, boolean v) {
+		// If the value of this net changes
+		if(value[net] != v) {
+			value[net] = v;
+			events++;
+			if(!isChanged[net]) {
+				isChanged[net] = true;
+				changed.add(net);
+			}
+			for(int i = netlist.fanStart[net]; i < netlist.fanStart[net + 1]; i++)
+				evaluate(netlist.fanout[i]);
+		}
+	}	// end set
+
+	/* Method: evaluate
+	 * Pre Condition: Evaluates a gate, scheduling a change of its output net
+	 * 				  if the result differs from the value the net will have.
+	 * */
+	private void evaluate(int g) {
+		boolean result;
+		switch(netlist.type[g]) {
+		case Netlist.AND:
+			result = value[netlist.in1[g]] & value[netlist.in2[g]];
+			break;
+		case Netlist.OR:
+			result = value[netlist.in1[g]] | value[netlist.in2[g]];
+			break;
+		default:
+			result = !value[netlist.in1[g]];
+		}
+		int net = netlist.out[g];
+		// If the output will change
+		if(projected[net] != result) {
+			projected[net] = result;
+			wheel.insert(wheel.getTime() + delay[netlist.type[g]], net << 1 | (result ? 1 : 0));
+		}
+	}	// end evaluate
+
+	/* Method: get
+	 * Post Condition: Returns the value of the specified net.
+	 * */
+	@Override
+	public boolean get(int net) {
+		return value[net];
+	}	// end get
+
+	/* Method: setSource
+	 * Pre Condition: Sets the value of the specified source's net at the
+	 * 				  current time.
+	 * */
+	@Override
+	public void setSource(int src, boolean value) {
+		projected[netlist.srcNet[src]] = value;
+		set(netlist.srcNet[src], value);
+	}	// end setSource
+
+	/* Method: collectChanges
+	 * Pre Condition: Adds every net changed since the last call to the list.
+	 * Post Condition: Returns true, as changes are tracked by this engine.
+	 * */
+	@Override
+	public boolean collectChanges(IntList list) {
+		for(int i = 0; i < changed.size(); i++) {
+			list.add(changed.get(i));
+			isChanged[changed.get(i)] = false;
+		}
+		changed.clear();
+		return true;
+	}	// end collectChanges
+
+	/* Method: getTime
+	 * Post Condition: Returns the current simulation time.
+	 * */
+	public long getTime() {
+		return wheel.getTime();
+	}	// end getTime
+
+	/* Method: getEventCount
+	 * Post Condition: Returns the number of net changes applied so far.
+	 * */
+	public long getEventCount() {
+		return events;
+	}	// end getEventCount
+
+	/* Method: isIdle
+	 * Post Condition: Returns true if no net changes are scheduled.
+	 * */
+	public boolean isIdle() {
+		return wheel.isEmpty();
+	}	// end isIdle
+
+	/* Method: isTimed
+	 * Post Condition: Returns true, as each tick is one time unit.
+	 * */
+	@Override
+	public boolean isTimed() {
+		return true;
+	}	// end isTimed
+
+	/* Method: isSettled
+	 * Post Condition: Returns true if no net changes are scheduled.
+	 * */
+	@Override
+	public boolean isSettled() {
+		return isIdle();
+	}	// end isSettled
+}	// end TimedEngine class
@@ -0,0 +1,253 @@
+/* --------------------------------------------------------------------------------
+ * 								TimingWheel
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents a hierarchical timing wheel, a queue of events ordered
+ * by time. Each of the LEVELS wheels has SLOTS slots, a slot of level L covering
+ * SLOTS^L time units. An event is placed on the lowest level whose slot can tell
+ * its time apart from the current time, and is moved down a level when the
+ * current time reaches its slot. Events further away than all levels can cover
+ * are kept on an overflow list.
+ *
+ * Insert and pop take constant time. Events are stored in primitive arrays and
+ * reused, so scheduling creates no garbage. Events of the same time are popped in
+ * the order they were inserted.
+ *
+ * */
+
+package modules;
+
+import java.util.Arrays;
+
+public class TimingWheel {
+
+	private static final int BITS = 8;							// Bits of time per level
+	private static final int SLOTS = 1 << BITS;				// Slots per level
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4;						// Number of levels
+	private static final int WORDS = SLOTS >>> 6;				// Occupancy words per level
+	private static final int OVERFLOW = LEVELS * SLOTS;		// List index of the overflow list
+
+	private long now = 0L;					// Current time
+
+	private final int[] head;				// First event of each slot list
+	private final int[] tail;				// Last event of each slot list
+	private final long[] occupied;			// Non-empty slots of each level
+
+	private long[] time;					// Time of each event
+	private int[] value;					// Value of each event
+	private int[] next;						// Next event in the same list, or -1
+	private int free = -1;					// First unused event
+	private int used = 0;					// Number of events ever allocated
+	private int size = 0;					// Number of scheduled events
+
+	/* Constructor
+	 * Pre Condition: Receives the expected number of scheduled events.
+	 * */
+	public TimingWheel(int capacity) {
+		head = new int[OVERFLOW + 1];
+		tail = new int[OVERFLOW + 1];
+		Arrays.fill(head, -1);
+		occupied = new long[LEVELS * WORDS];
+		capacity = Math.max(capacity, 16);
+		time = new long[capacity];
+		value = new int[capacity];
+		next = new int[capacity];
+	}	// end Constructor
+
+	/* Method: insert
+	 * Pre Condition: Schedules a value at a time, which must not be before
+	 * 				  the current time.
+	 * */
+	public void insert(long t, int v) {
+		// If the time has already passed
+		if(t < now)
+			throw new IllegalArgumentException("event time " + t + " is before the current time " + now);
+		int e = allocate();
+		time[e] = t;
+		value[e] = v;
+		link(e);
+		size++;
+	}	// end insert
+
+	/* Method: pop
+	 * Pre Condition: Removes the earliest event, if its time is not after the
+	 * 				  specified time. The current time is advanced to the
+	 * 				  time of the event, or to the specified time if there is
+	 * 				  no such event.
+	 * Post Condition: Returns the value of the event, or -1 if there is none.
+	 * */
+	public int pop(long until) {
+		while(true) {
+			int s = (int) now & MASK;
+			int e = head[s];
+			// If there is an event at the current time
+			if(e >= 0) {
+				unlink(s);
+				size--;
+				next[e] = free;
+				free = e;
+				return value[e];
+			}
+			long t = nextSlotTime();
+			// If no event is due before the specified time
+			if(t > until) {
+				// If time passes to another overflow range, the overflow list is sorted again
+				if(until > now) {
+					long old = now;
+					now = until;
+					if(((old ^ until) >>> (LEVELS * BITS)) != 0)
+						relink(OVERFLOW);
+				}
+				return -1;
+			}
+			advance(t);
+		}
+	}	// end pop
+
+	/* Method: nextSlotTime
+	 * Post Condition: Returns the first time of the earliest non-empty slot
+	 * 				   after the current time, or the earliest overflow time.
+	 * 				   Returns Long.MAX_VALUE if there are no events.
+	 * */
+	private long nextSlotTime() {
+		for(int level = 0; level < LEVELS; level++) {
+			int shift = level * BITS;
+			int j = nextOccupied(level, ((int) (now >>> shift) & MASK) + 1);
+			// If this level has an event in a later slot
+			if(j >= 0) {
+				long base = (now >>> (shift + BITS)) << (shift + BITS);
+				return base | ((long) j << shift);
+			}
+		}
+		long min = Long.MAX_VALUE;
+		for(int e = head[OVERFLOW]; e >= 0; e = next[e])
+			min = Math.min(min, time[e]);
+		return min;
+	}	// end nextSlotTime
+
+	/* Method: advance
+	 * Pre Condition: Moves the current time forward to the first time of the
+	 * 				  earliest non-empty slot, then moves the events of that
+	 * 				  slot (or the overflow list) down to the lower levels.
+	 * */
+	private void advance(long t) {
+		long old = now;
+		now = t;
+		int level = LEVELS - 1;
+		// Find the highest level whose slot has changed
+		while(level > 0 && ((old ^ t) >>> (level * BITS)) == 0)
+			level--;
+		int list = ((old ^ t) >>> (LEVELS * BITS)) != 0 ? OVERFLOW :
+				level * SLOTS + ((int) (t >>> (level * BITS)) & MASK);
+		// If the slot is on the lowest level, its events are already due
+		if(list >= SLOTS)
+			relink(list);
+	}	// end advance
+
+	/* Method: relink
+	 * Pre Condition: Moves every event of a list to the slot of its time,
+	 * 				  relative to the current time.
+	 * */
+	private void relink(int list) {
+		int e = head[list];
+		head[list] = -1;
+		if(list < OVERFLOW)
+			occupied[list >>> 6] &= ~(1L << list);
+		while(e >= 0) {
+			int n = next[e];
+			link(e);
+			e = n;
+		}
+	}	// end relink
+
+	/* Method: link
+	 * Pre Condition: Appends an event to the list of its slot.
+	 * */
+	private void link(int e) {
+		long diff = time[e] ^ now;
+		int list;
+		// If the event is too far away for the wheel
+		if((diff >>> (LEVELS * BITS)) != 0) {
+			list = OVERFLOW;
+		} else {
+			int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / BITS;
+			list = level * SLOTS + ((int) (time[e] >>> (level * BITS)) & MASK);
+			occupied[list >>> 6] |= 1L << list;
+		}
+		next[e] = -1;
+		if(head[list] < 0) {
+			head[list] = e;
+		} else {
+			next[tail[list]] = e;
+		}
+		tail[list] = e;
+	}	// end link
+
+	/* Method: unlink
+	 * Pre Condition: Removes the first event of a lowest level slot list.
+	 * */
+	private void unlink(int s) {
+		int e = head[s];
+		head[s] = next[e];
+		// If the slot is now empty
+		if(head[s] < 0)
+			occupied[s >>> 6] &= ~(1L << s);
+	}	// end unlink
+
+	/* Method: nextOccupied
+	 * Post Condition: Returns the first non-empty slot of a level, starting
+	 * 				   from the specified slot, or -1 if there is none.
+	 * */
+	private int nextOccupied(int level, int from) {
+		for(int w = from >>> 6; w < WORDS; w++) {
+			long bits = occupied[level * WORDS + w];
+			// Ignore the slots before the first slot
+			if(w == from >>> 6)
+				bits &= -1L << from;
+			if(bits != 0L)
+				return (w << 6) + Long.numberOfTrailingZeros(bits);
+		}
+		return -1;
+	}	// end nextOccupied
+
+	/* Method: allocate
+	 * Post Condition: Returns an unused event, growing the arrays if needed.
+	 * */
+	private int allocate() {
+		// If there is a released event
+		if(free >= 0) {
+			int e = free;
+			free = next[e];
+			return e;
+		}
+		// If the arrays are full
+		if(used == time.length) {
+			time = Arrays.copyOf(time, used * 2);
+			value = Arrays.copyOf(value, used * 2);
+			next = Arrays.copyOf(next, used * 2);
+		}
+		return used++;
+	}	// end allocate
+
+	/* Method: getTime
+	 * Post Condition: Returns the current time.
+	 * */
+	public long getTime() {
+		return now;
+	}	// end getTime
+
+	/* Method: size
+	 * Post Condition: Returns the number of scheduled events.
+	 * */
+	public int size() {
+		return size;
+	}	// end size
+
+	/* Method: isEmpty
+	 * Post Condition: Returns true if no events are scheduled.
+	 * */
+	public boolean isEmpty() {
+		return size == 0;
+	}	// end isEmpty
+}	// end TimingWheel class
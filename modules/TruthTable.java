@@ -0,0 +1,281 @@
+/* --------------------------------------------------------------------------------
+ * 								TruthTable
+ * --------------------------------------------------------------------------------
+ *
+ * Class object used to generate the full truth table of a Netlist. Every source
+ * is an input, and the outputs are a chosen list of nets. The value of the outputs
+ * is recorded for every combination of inputs.
+ *
+ * Each net holds a 64 bit word, bit i belonging to row i of a block of 64 rows, so
+ * each gate is evaluated for 64 rows at once. Within a block the first six inputs
+ * take every combination, one per bit; the other inputs are the same for the whole
+ * block. Blocks are walked in Gray-code order of the other inputs, so each step
+ * flips a single input and only the gates reachable from that input (its cone)
+ * are evaluated again. The blocks are split into ranges that are generated in
+ * parallel using fork/join. The generation can be cancelled, and its progress
+ * read, from any thread. Gates in feedback loops are evaluated until they settle
+ * in every row, up to Engine.SETTLE_LIMIT times.
+ *
+ * */
+
+package modules;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TruthTable {
+
+	public static final int MAX_INPUTS = 22;		// Max number of inputs
+	public static final int MAX_OUTPUTS = 64;		// Max number of outputs
+	private static final int LEAF_BLOCKS = 64;		// Blocks generated by a single task
+	private static final int LANE_INPUTS = 6;		// Inputs varied within a block
+	private static final long[] LANES = {			// Word of each input varied within a block
+		0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+		0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L
+	};
+
+	private final Netlist netlist;					// Netlist of the table
+	private final int[] outputs;					// Output nets
+	private final int inputs;						// Number of inputs
+	private final int[][] cones;					// Gates reachable from each input flipped between blocks
+	private final long[] rows;						// Packed output values of each row
+
+	private final AtomicLong done = new AtomicLong();	// Number of rows generated
+	private volatile boolean cancelled = false;		// Cancelled flag
+
+	/* Constructor
+	 * Pre Condition: Receives the netlist and the output nets of the table.
+	 * 				  Throws IllegalArgumentException if there are too many
+	 * 				  inputs or outputs, or the netlist has buses.
+	 * */
+	public TruthTable(Netlist netlist, int[] outputs) {
+		this.netlist = netlist;
+		this.outputs = outputs;
+		this.inputs = netlist.getSourceCount();
+		if(netlist.isWide())
+			throw new IllegalArgumentException("Truth tables can not be generated for buses");
+		if(inputs > MAX_INPUTS)
+			throw new IllegalArgumentException("Too many inputs: " + inputs + " (max " + MAX_INPUTS + ")");
+		if(outputs.length > MAX_OUTPUTS)
+			throw new IllegalArgumentException("Too many outputs: " + outputs.length + " (max " + MAX_OUTPUTS + ")");
+		rows = new long[1 << inputs];
+		cones = new int[inputs][];
+		for(int s = LANE_INPUTS; s < inputs; s++)
+			cones[s] = cone(netlist.srcNet[s]);
+	}	// end Constructor
+
+	/* Method: cone
+	 * Pre Condition: Receives a net, finds every gate reachable from it.
+	 * Post Condition: Returns the reachable gates, in level order.
+	 * */
+	private int[] cone(int net) {
+		boolean[] seen = new boolean[netlist.gateCount];
+		IntList found = new IntList();
+		IntList stack = new IntList();
+		stack.add(net);
+		while(!stack.isEmpty()) {
+			int n = stack.removeLast();
+			// For each gate reading this net
+			for(int i = netlist.fanStart[n]; i < netlist.fanStart[n + 1]; i++) {
+				int g = netlist.fanout[i];
+				if(!seen[g]) {
+					seen[g] = true;
+					found.add(g);
+					stack.add(netlist.out[g]);
+				}
+			}
+		}
+		int[] cone = found.toArray();
+		Arrays.sort(cone);
+		return cone;
+	}	// end cone
+
+	/* Method: generate
+	 * Pre Condition: Generates every row of the table using the specified
+	 * 				  pool. Returns early if the generation is cancelled.
+	 * Post Condition: Returns true if every row was generated.
+	 * */
+	public boolean generate(ForkJoinPool pool) {
+		pool.invoke(new RowTask(0, Math.max(1, rows.length / BitParallelEngine.WIDTH)));
+		return !cancelled;
+	}	// end generate
+
+	/* Method: cancel
+	 * Pre Condition: Stops the generation of the table.
+	 * */
+	public void cancel() {
+		cancelled = true;
+	}	// end cancel
+
+	/* Method: getProgress
+	 * Post Condition: Returns the fraction of rows generated so far.
+	 * */
+	public double getProgress() {
+		return (double) done.get() / rows.length;
+	}	// end getProgress
+
+	/* Method: getInputCount
+	 * Post Condition: Returns the number of inputs of the table.
+	 * */
+	public int getInputCount() {
+		return inputs;
+	}	// end getInputCount
+
+	/* Method: getRow
+	 * Post Condition: Returns the output values for the specified inputs, bit
+	 * 				   i of the inputs holding source i and bit j of the result
+	 * 				   holding output j.
+	 * */
+	public long getRow(int inputBits) {
+		return rows[inputBits];
+	}	// end getRow
+
+	/* Method: print
+	 * Pre Condition: Prints the table, one row per line, with the input values
+	 * 				  followed by the output values.
+	 * */
+	public void print(PrintStream ps) {
+		StringBuilder sb = new StringBuilder();
+		for(int s = 0; s < inputs; s++)
+			sb.append("I").append(s).append(' ');
+		sb.append('|');
+		for(int o = 0; o < outputs.length; o++)
+			sb.append(" O").append(o);
+		ps.println(sb);
+		for(int r = 0; r < rows.length; r++) {
+			sb.setLength(0);
+			for(int s = 0; s < inputs; s++)
+				sb.append((r >>> s) & 1).append(s < 10 ? "  " : "   ");
+			sb.append('|');
+			for(int o = 0; o < outputs.length; o++)
+				sb.append("  ").append((rows[r] >>> o) & 1L).append(o < 10 ? "" : " ");
+			ps.println(sb);
+		}
+	}	// end print
+
+	/* --------------------------------------------------------------------------------
+	 * 								RowTask
+	 * --------------------------------------------------------------------------------
+	 *
+	 * Fork/join task generating a range of the Gray-code sequence of blocks. Large
+	 * ranges are split in two, small ranges are generated with a private copy of the
+	 * net words.
+	 *
+	 * */
+	private class RowTask extends RecursiveAction {
+		private static final long serialVersionUID = 6048317279410223481L;
+
+		private final int lo, hi;			// Range of Gray-code steps
+
+		/* Constructor
+		 * Pre Condition: Receives the range of Gray-code steps to generate,
+		 * 				  one block per step.
+		 * */
+		RowTask(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}	// end Constructor
+
+		/* Method: compute
+		 * Pre Condition: Splits the range, or generates it if it is small.
+		 * */
+		@Override
+		protected void compute() {
+			// If the range is large, split it
+			if(hi - lo > LEAF_BLOCKS) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new RowTask(lo, mid), new RowTask(mid, hi));
+				return;
+			}
+			long[] v = new long[netlist.netCount];
+			// Set the inputs of the first step and evaluate every gate
+			int code = lo ^ (lo >>> 1);
+			for(int s = 0; s < inputs; s++) {
+				// If the input is varied within the block
+				if(s < LANE_INPUTS)
+					v[netlist.srcNet[s]] = LANES[s];
+				else
+					v[netlist.srcNet[s]] = ((code >>> (s - LANE_INPUTS)) & 1) != 0 ? -1L : 0L;
+			}
+			evaluate(v, null);
+			unpack(v, code);
+			for(int i = lo + 1; i < hi; i++) {
+				// If the generation has been cancelled
+				if(cancelled)
+					return;
+				// Flip the single input that differs from the last step
+				int s = LANE_INPUTS + Integer.numberOfTrailingZeros(i);
+				code ^= 1 << (s - LANE_INPUTS);
+				v[netlist.srcNet[s]] = ~v[netlist.srcNet[s]];
+				evaluate(v, cones[s]);
+				unpack(v, code);
+			}
+		}	// end compute
+
+		/* Method: evaluate
+		 * Pre Condition: Evaluates the listed gates, or every gate if the list
+		 * 				  is null. Listed gates of the feedback loop level are
+		 * 				  evaluated until they settle.
+		 * */
+		private void evaluate(long[] v, int[] gates) {
+			int count = gates == null ? netlist.gateCount : gates.length;
+			int i = 0;
+			// Evaluate the gates before the loop level once
+			while(i < count && (gates == null ? i : gates[i]) < netlist.loopStart) {
+				evaluateGate(v, gates == null ? i : gates[i]);
+				i++;
+			}
+			// Evaluate the loop level gates until they settle
+			boolean changed = true;
+			for(int pass = 0; changed && i < count && pass < Engine.SETTLE_LIMIT; pass++) {
+				changed = false;
+				for(int j = i; j < count; j++)
+					changed |= evaluateGate(v, gates == null ? j : gates[j]);
+			}
+		}	// end evaluate
+
+		/* Method: evaluateGate
+		 * Pre Condition: Evaluates a single gate for every row of the block.
+		 * Post Condition: Returns true if the output of the gate changed in
+		 * 				   any row.
+		 * */
+		private boolean evaluateGate(long[] v, int g) {
+			long result;
+			switch(netlist.type[g]) {
+			case Netlist.AND:
+				result = v[netlist.in1[g]] & v[netlist.in2[g]];
+				break;
+			case Netlist.OR:
+				result = v[netlist.in1[g]] | v[netlist.in2[g]];
+				break;
+			default:
+				result = ~v[netlist.in1[g]];
+			}
+			boolean changed = v[netlist.out[g]] != result;
+			v[netlist.out[g]] = result;
+			return changed;
+		}	// end evaluateGate
+
+		/* Method: unpack
+		 * Pre Condition: Stores the output values of each row of a block, bit
+		 * 				  j of a row holding output j, and counts the rows as
+		 * 				  done.
+		 * */
+		private void unpack(long[] v, int code) {
+			int count = Math.min(BitParallelEngine.WIDTH, rows.length);
+			int first = code * count;
+			for(int o = 0; o < outputs.length; o++) {
+				// If the output is not a net of the netlist, it is never charged
+				if(outputs[o] < 0)
+					continue;
+				long word = v[outputs[o]];
+				for(int i = 0; i < count; i++)
+					rows[first + i] |= ((word >>> i) & 1L) << o;
+			}
+			done.addAndGet(count);
+		}	// end unpack
+	}	// end RowTask class
+}	// end TruthTable class
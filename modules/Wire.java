@@ -3,8 +3,12 @@
  * --------------------------------------------------------------------------------
  * 
  * Class object represents an wire, used to connect logic gates and components on 
- * the circuit board. Wires contain two nodes, and will possess the charge of the 
- * node that recently changed.
+ * the circuit board. Wires contain two nodes, which share a single net once the 
+ * wire is connected to the circuit board.
+ * 
+ * The nodes of a wire are held by the CircuitStore, the wire object keeps only
+ * the index of its record. A wire has the width of its first node, and a wire
+ * wider than one bit (a bus) is drawn thicker, with its value in hexadecimal.
  * 
  * */
 
@@ -15,56 +19,88 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 
 public class Wire {
-	// Nodes
-	private Node endNode1;
-	private Node endNode2;
-	// Previous charge states of each node
-	private boolean en1PrevCharge = false;
-	private boolean en2PrevCharge = false;
-	// Attached state
-	private boolean isLooseWire = false;
+	
+	private final CircuitStore store;	// Store holding the wire
+	private final int id;				// Index of the wire in the store
 	
 	/* Constructor
-	 * Pre Condition: Receives reference to the first node and the 
-	 * 				  location of the second node.
-	 * */
-	public Wire(Node n1, int x2, int y2) {
-		endNode1 = n1;
-		endNode2 = new Node(x2, y2, 4);
-		// Get current charge state of the first node
-		en1PrevCharge = n1.getCharge();
-		en2PrevCharge = n1.getCharge();
-		endNode2.setCharge(endNode1.getCharge());
+	 * Pre Condition: Receives the store holding the board, reference to the
+	 * 				  first node and the location of the second node, which
+	 * 				  has the width of the first node.
+	 * */
+	public Wire(CircuitStore store, Node n1, int x2, int y2) {
+		this.store = store;
+		int n2 = store.addNode(x2, y2, Node.FULL, n1.getWidth());
+		id = store.addWire(n1.getId(), n2);
+		store.releaseNode(n2);
+		store.setValue(n2, n1.getValue());
 	}	// end Constructor
 
 	/* Constructor
-	 * Pre Condition: Receives the locations of both nodes.
+	 * Pre Condition: Receives the store holding the board and the locations
+	 * 				  of both nodes.
 	 * */
-	public Wire(int x1, int y1, int x2, int y2) {
-		endNode1 = new Node(x1, y1, 4);
-		endNode2 = new Node(x2, y2, 4);
-		en1PrevCharge = endNode1.getCharge();
-		en2PrevCharge = endNode2.getCharge();
+	public Wire(CircuitStore store, int x1, int y1, int x2, int y2) {
+		this.store = store;
+		int n1 = store.addNode(x1, y1, Node.FULL);
+		int n2 = store.addNode(x2, y2, Node.FULL);
+		id = store.addWire(n1, n2);
+		store.releaseNode(n1);
+		store.releaseNode(n2);
 	}	// end Constructor
 	
+	/* Method: getId
+	 * Post Condition: Returns the index of this wire in the store.
+	 * */
+	public int getId() {
+		return id;
+	}	// end getId
+	
+	/* Method: getWidth
+	 * Post Condition: Returns the width of this wire, in bits.
+	 * */
+	public int getWidth() {
+		return store.getNodeWidth(store.getWireNode1(id));
+	}	// end getWidth
+	
 	/* Method: moveEndPoint
 	 * Pre Condition: Receives new location on screen for the second 
 	 * 				  node. Updates the location of the node.
 	 * */
 	public void moveEndPoint(int x, int y) {
-		endNode2 = new Node(x - 8, y - 8, 4);
-		endNode2.setCharge(en2PrevCharge);
+		int n1 = store.getWireNode1(id);
+		int n2 = store.addNode(x - 8, y - 8, Node.FULL, store.getNodeWidth(n1));
+		store.setWireNode2(id, n2);
+		store.releaseNode(n2);
+		store.setValue(n2, store.getValue(n1));
 	}	// end moveEndPoint
 	
 	/* Method: moveEndPoint
 	 * Pre Condition: Receives reference of node. Sets the second
-	 * 				  to equal the referenced node.
+	 * 				  to equal the referenced node. The nets of the
+	 * 				  nodes are joined when the wire is connected.
 	 * */
 	public void moveEndPoint(Node n) {
-		endNode2 = n;
-		endNode2.setCharge(en2PrevCharge);
+		// If the wire does not already end at this node
+		if(store.getWireNode2(id) != n.getId())
+			store.setWireNode2(id, n.getId());
 	}	// end moveEndPoint
 	
+	/* Method: connect
+	 * Pre Condition: Joins the nets of both nodes of this wire.
+	 * */
+	public void connect() {
+		store.connect(id);
+	}	// end connect
+	
+	/* Method: release
+	 * Pre Condition: Disconnects this wire and removes it from the store. The
+	 * 				  wire must not be used after it is released.
+	 * */
+	public void release() {
+		store.removeWire(id);
+	}	// end release
+	
 	/* Method: getRefNode
 	 * Pre Condition: Receives location from the screen. Checks if the
 	 * 				  location is contained in any of the nodes.
@@ -73,11 +109,11 @@ public class Wire {
 	 * */
 	public Node getRefNode(int x, int y) {
 		// If node 1 contains location
-		if(endNode1.onHover(x, y))
-			return endNode1;
+		if(getNode1().onHover(x, y))
+			return getNode1();
 		// If node 2 contains location
-		else if(endNode2.onHover(x, y))
-			return endNode2;
+		else if(getNode2().onHover(x, y))
+			return getNode2();
 		else return null;
 	}	// end getRefNode
 	
@@ -88,51 +124,46 @@ public class Wire {
 	 * */
 	public void detach(int x, int y) {
 		// If node 1 contains location
-		if(endNode1.onHover(x, y)) {
-			endNode1.detach();
-			isLooseWire = true;
+		if(getNode1().onHover(x, y)) {
+			getNode1().detach();
+			store.setWireLoose(id);
 		// If node 2 contains location
-		} else if(endNode2.onHover(x, y)) {
-			endNode2.detach();
-			isLooseWire = true;
+		} else if(getNode2().onHover(x, y)) {
+			getNode2().detach();
+			store.setWireLoose(id);
 		}
 	}	// end detach
 	
+	/* Method: getNode1
+	 * Post Condition: Returns the first node of this wire.
+	 * */
+	public Node getNode1() {
+		return new Node(store, store.getWireNode1(id));
+	}	// end getNode1
+	
+	/* Method: getNode2
+	 * Post Condition: Returns the second node of this wire.
+	 * */
+	public Node getNode2() {
+		return new Node(store, store.getWireNode2(id));
+	}	// end getNode2
+	
 	/* Method: isLoose
-	 * Post Condition: If this wire is detached, return true.
+	 * Post Condition: If this wire or either of its nodes is detached, 
+	 * 				   return true.
 	 * */
 	public boolean isLoose() {
-		return isLooseWire;
+		looseWireCheck();
+		return store.isWireLoose(id);
 	}	// end isLoose
 	
 	/* Method: update
-	 * Pre Condition: Check the state of each node and whether a charge
-	 * 				  of either node has changed.
-	 * 				  If a node has changed charge, change the charge of
-	 * 				  the wire and the other node.
+	 * Pre Condition: Checks if either node has been detached. The charge
+	 * 				  of the wire is held by the net of its nodes, so no
+	 * 				  other update is needed.
 	 * */
 	public void update() {
 		looseWireCheck();
-		if(!isLooseWire) {
-			int value = endNode1.getCharge() ? 1 : 0;
-			value += endNode2.getCharge() ? 1 : 0;
-			value += en1PrevCharge ? 1 : 0;
-			value += en2PrevCharge ? 1 : 0;
-			// If there is a change in charge
-			if(value != 4 || value != 0) {
-				// If node 1 changed
-				if(endNode1.getCharge() != en1PrevCharge) {
-					endNode2.setCharge(endNode1.getCharge());
-					en1PrevCharge = endNode1.getCharge();
-					en2PrevCharge = endNode1.getCharge();
-				// If node 2 changed
-				} else if(endNode2.getCharge() != en2PrevCharge) {
-					endNode1.setCharge(endNode2.getCharge());
-					en1PrevCharge = endNode2.getCharge();
-					en2PrevCharge = endNode2.getCharge();
-				}
-			}
-		}
 	}	// end update
 	
 	/* Method: looseWireCheck
@@ -141,8 +172,8 @@ public class Wire {
 	 * */
 	private void looseWireCheck() {
 		// If node 1 or node 2 are detached
-		if(endNode1.isDetached() || endNode2.isDetached())
-			isLooseWire = true;
+		if(store.isNodeDetached(store.getWireNode1(id)) || store.isNodeDetached(store.getWireNode2(id)))
+			store.setWireLoose(id);
 	}	// end looseWireCheck
 	
 	/* Method: onHover
@@ -152,8 +183,8 @@ public class Wire {
 	 * 				   specified location.
 	 * */
 	public boolean onHover(int x, int y) {
-		return endNode1.onHover(x, y) ? 
-				true : endNode2.onHover(x, y) ? 
+		return getNode1().onHover(x, y) ? 
+				true : getNode2().onHover(x, y) ? 
 						true : false;
 	}	// end onHover
 	
@@ -164,19 +195,29 @@ public class Wire {
 	 * 				  and the nodes related with this wire.
 	 * */
 	public void draw(Graphics2D g) {
+		int n1 = store.getWireNode1(id);
+		int n2 = store.getWireNode2(id);
 		// Draw nodes
-		endNode1.draw(g);
-		endNode2.draw(g);
+		getNode1().draw(g);
+		getNode2().draw(g);
 		// If wire is positive charged
-		if(en1PrevCharge)
+		if(store.getCharge(n1))
 			g.setColor(new Color(204, 86, 2));
 		// If wire is negative charged
 		else 
 			g.setColor(new Color(10, 10, 5));
 		
-		// Draw wire line
-		g.setStroke(new BasicStroke(3f));
-		g.drawLine(endNode1.getPos()[0] + 8, endNode1.getPos()[1] + 8, endNode2.getPos()[0] + 8, endNode2.getPos()[1] + 8);
+		// Draw wire line, thicker for a bus
+		int width = store.getNodeWidth(n1);
+		int x1 = store.getNodeX(n1) + 8, y1 = store.getNodeY(n1) + 8;
+		int x2 = store.getNodeX(n2) + 8, y2 = store.getNodeY(n2) + 8;
+		g.setStroke(new BasicStroke(width > 1 ? 6f : 3f));
+		g.drawLine(x1, y1, x2, y2);
 		g.setStroke(new BasicStroke(1f));
+		// If this wire is a bus, label it with its value
+		if(width > 1) {
+			g.setColor(new Color(220, 220, 210));
+			g.drawString(width + "'h" + Long.toHexString(store.getValue(n1)), (x1 + x2) / 2 + 6, (y1 + y2) / 2 - 6);
+		}
 	}	// end draw
 }	// end Wire class
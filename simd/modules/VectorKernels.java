@@ -0,0 +1,81 @@
+/* --------------------------------------------------------------------------------
+ * 								VectorKernels
+ * --------------------------------------------------------------------------------
+ *
+ * Class object represents the GateKernels using the SIMD registers of the CPU
+ * through the incubating Vector API, in the widest shape the CPU supports: four
+ * words per vector with AVX2, eight with AVX-512. Each iteration gathers the input
+ * words of a vector of gates, combines them in one instruction and stores the
+ * outputs in order. The gates left over at the end of a run are evaluated one
+ * at a time.
+ *
+ * This class needs the jdk.incubator.vector module, both to be compiled and to be
+ * run (--add-modules jdk.incubator.vector), so it is kept out of the modules
+ * directory and compiled on its own, against the compiled modules package:
+ *
+ * 		javac --add-modules jdk.incubator.vector -d . simd/modules/VectorKernels.java
+ *
+ * It is only loaded by GateKernels, by name.
+ *
+ * */
+
+package modules;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorKernels extends GateKernels {
+
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;	// Widest vector shape
+
+	/* Method: getName
+	 * Post Condition: Returns the name of the kernels and the words per
+	 * 				   vector.
+	 * */
+	@Override
+	public String getName() {
+		return "vector (" + SPECIES.length() + " words)";
+	}	// end getName
+
+	/* Method: and
+	 * Pre Condition: Evaluates a run of AND gates.
+	 * */
+	@Override
+	void and(long[] v, int[] a, int[] b, int out, int from, int to) {
+		int i = from;
+		for(int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+			LongVector x = LongVector.fromArray(SPECIES, v, 0, a, i);
+			LongVector y = LongVector.fromArray(SPECIES, v, 0, b, i);
+			x.and(y).intoArray(v, out + i);
+		}
+		for(; i < to; i++)
+			v[out + i] = v[a[i]] & v[b[i]];
+	}	// end and
+
+	/* Method: or
+	 * Pre Condition: Evaluates a run of OR gates.
+	 * */
+	@Override
+	void or(long[] v, int[] a, int[] b, int out, int from, int to) {
+		int i = from;
+		for(int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+			LongVector x = LongVector.fromArray(SPECIES, v, 0, a, i);
+			LongVector y = LongVector.fromArray(SPECIES, v, 0, b, i);
+			x.or(y).intoArray(v, out + i);
+		}
+		for(; i < to; i++)
+			v[out + i] = v[a[i]] | v[b[i]];
+	}	// end or
+
+	/* Method: not
+	 * Pre Condition: Evaluates a run of NOT gates.
+	 * */
+	@Override
+	void not(long[] v, int[] a, int out, int from, int to) {
+		int i = from;
+		for(int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length())
+			LongVector.fromArray(SPECIES, v, 0, a, i).not().intoArray(v, out + i);
+		for(; i < to; i++)
+			v[out + i] = ~v[a[i]];
+	}	// end not
+}	// end VectorKernels class